@@ -0,0 +1,158 @@
+/** Copyright (C) (SAS) All rights reserved.
+ ** General Public License: http://www.opensource.org/licenses/gpl-license.php
+ **/
+package org.safs;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.safs.staf.service.map.AbstractSAFSAppMapService;
+
+/**
+ * Client-side cache of recognition strings retrieved from the SAFSMAPS service.
+ * <p>
+ * Every GETITEM costs a round trip to SAFSMAPS, which walks its chain of open App Maps and
+ * resolves any embedded variable references again.  Most recognition strings are static, so
+ * this cache keeps them by (map, section, item) for the life of the open App Maps.
+ * <p>
+ * Only static items are kept.  SAFSMAPS is asked to tag items whose value depends on variables
+ * ({^var} references and _DDV: items) or the current window as ISDYNAMIC, and those items are
+ * never cached, so variable changes never leave a stale entry.  Values that still contain
+ * unresolved references are not cached either.
+ * <p>
+ * The whole cache is discarded whenever a request other than GETITEM, QUERY, LIST, or HELP is
+ * sent to SAFSMAPS from this process--OPEN, CLOSE, CLEARCACHE, DEFAULTMAP, ENABLERESOLVE, etc.
+ * Requests sent by other processes are not seen, which is why only the Driver enables it.
+ *
+ * @see STAFHelper#USE_APPMAP_ITEM_CACHE
+ * @see STAFHelper#getAppMapItem(String, String, String, boolean)
+ * @see ApplicationMap#getChildGUIID(String, String)
+ */
+public class AppMapItemCache {
+
+	/** SAFSMAPS requests that do not change what GETITEM returns. */
+	private static final String[] READ_REQUESTS = {
+		AbstractSAFSAppMapService.SAM_SERVICE_REQUEST_GETITEM,
+		AbstractSAFSAppMapService.SAM_SERVICE_REQUEST_QUERY,
+		AbstractSAFSAppMapService.SAM_SERVICE_REQUEST_LIST,
+		AbstractSAFSAppMapService.SAM_SERVICE_REQUEST_HELP
+	};
+
+	/** prefix of items tagged by SAFSMAPS as ISDYNAMIC */
+	public static final String DYNAMIC_TAG = AbstractSAFSAppMapService.SAM_SERVICE_PARM_ISDYNAMIC +
+	                                         AbstractSAFSAppMapService.SAM_SERVICE_TAGGED_PREFIX;
+
+	/** (map, section, item) key --> recognition string */
+	private Map<String,String> items = new HashMap<String,String>();
+
+	/** incremented each time the cache is invalidated */
+	private long generation = 0;
+
+	private long hits = 0;
+	private long misses = 0;
+	private long invalidations = 0;
+
+	/**
+	 * Build the cache key for an item.  SAFSMAPS map, section, and item names are case-insensitive.
+	 * @param appMapID map name, or null or empty for the default map.
+	 * @param section section name, or null or empty for the default section.
+	 * @param item item name.
+	 */
+	public static String getKey(String appMapID, String section, String item){
+		StringBuffer key = new StringBuffer();
+		if(appMapID != null) key.append(appMapID);
+		key.append('\u0000');
+		if(section != null) key.append(section);
+		key.append('\u0000').append(item);
+		return key.toString().toUpperCase();
+	}
+
+	/**
+	 * @param recognition value returned by a GETITEM ISDYNAMIC request.
+	 * @return true if the value is static and can be cached.
+	 */
+	public static boolean isCacheable(String recognition){
+		if(recognition == null) return false;
+		if(ApplicationMap.isGUIIDDynamic(recognition)) return false;
+		if(recognition.indexOf(AbstractSAFSAppMapService.SAM_RESOLVE_PREFIX) > -1) return false;
+		if(recognition.startsWith(AbstractSAFSAppMapService.SAM_DDV_PREFIX)) return false;
+		return true;
+	}
+
+	/**
+	 * @param recognition value returned by a GETITEM ISDYNAMIC request.
+	 * @return the value as a GETITEM request without ISDYNAMIC would have returned it.
+	 */
+	public static String removeDynamicTag(String recognition){
+		if(recognition != null && recognition.startsWith(DYNAMIC_TAG))
+			return recognition.substring(DYNAMIC_TAG.length());
+		return recognition;
+	}
+
+	/**
+	 * @param command a SAFSMAPS request.
+	 * @return true if the request can change what GETITEM returns.
+	 */
+	public static boolean isChangeRequest(String command){
+		if(command == null) return false;
+		String request = command.trim();
+		int space = request.indexOf(' ');
+		if(space > 0) request = request.substring(0, space);
+		for(int i=0;i<READ_REQUESTS.length;i++) if(READ_REQUESTS[i].equalsIgnoreCase(request)) return false;
+		return true;
+	}
+
+	/**
+	 * @return the cached recognition string or null.
+	 */
+	public synchronized String get(String key){
+		String value = items.get(key);
+		if(value == null) misses++;
+		else hits++;
+		return value;
+	}
+
+	/**
+	 * @return the current generation, to be passed to {@link #put(String, String, long)} once the
+	 *         value to cache has been retrieved.
+	 */
+	public synchronized long getGeneration(){ return generation; }
+
+	/**
+	 * Store a recognition string unless the cache was invalidated after it was requested.
+	 * @param key from {@link #getKey(String, String, String)}
+	 * @param recognition static recognition string.
+	 * @param generation from {@link #getGeneration()} before the value was requested.
+	 */
+	public synchronized void put(String key, String recognition, long generation){
+		if(generation == this.generation) items.put(key, recognition);
+	}
+
+	/** Discard all cached items, as when the open App Maps change. */
+	public synchronized void invalidate(){
+		if(!items.isEmpty()) invalidations++;
+		items.clear();
+		generation++;
+	}
+
+	/** @return the number of items served from the cache. */
+	public synchronized long getHits(){ return hits; }
+
+	/** @return the number of items requested from SAFSMAPS. */
+	public synchronized long getMisses(){ return misses; }
+
+	/** @return the number of times cached items were discarded. */
+	public synchronized long getInvalidations(){ return invalidations; }
+
+	/** Discard all items and reset the statistics. */
+	public synchronized void clear(){
+		invalidate();
+		hits = 0;
+		misses = 0;
+		invalidations = 0;
+	}
+
+	public synchronized String toString(){
+		return "AppMapItemCache items:"+ items.size() +", hits:"+ hits +", misses:"+ misses +", invalidations:"+ invalidations;
+	}
+}
@@ -55,7 +55,8 @@ public class ApplicationMap extends STAFRequester {
 
 	/**
 	 * Retrieves the stored recognition string for the parent's child.
-	 * Uses the SAFSMAPS service via STAF.  
+	 * Uses the SAFSMAPS service via STAF, unless a static recognition string is already 
+	 * cached by the STAFHelper.
 	 * <p>
 	 * A Valid STAFHelper object must have been provided by a subclass implementation 
 	 * or via a direct call to setSTAFHelper prior to this call.
@@ -65,6 +66,7 @@ public class ApplicationMap extends STAFRequester {
 	 * @param childName the name of the parent's child to retrieve.  
 	 * <p>
 	 * @return String recognition string or null if not found or an error occurs.
+	 * @see STAFHelper#USE_APPMAP_ITEM_CACHE
 	 **/
 	public String getChildGUIID(String parentName, String childName){
 		try{ return staf.getAppMapItem(mapname, parentName, childName);}
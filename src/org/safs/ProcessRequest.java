@@ -208,9 +208,38 @@ public class ProcessRequest {
           initializeProcessor(proc);
       }while(procs.hasMoreElements());
     }
+    if (Processor.WARM_UP_PROCESSOR_CLASSES) warmUpProcessorClasses(Processor.WARM_UP_COMPONENT_TYPES);
   	initialized = true;
   }
 
+  /**
+   * Look up the Processor classes each of our processors would try for the given component
+   * types, so routing the first records does not have to.  Requires the testRecordData.
+   * @param compTypes component types to warm up.
+   * @see Processor#warmUpProcessorClasses(String[])
+   * @see Processor#WARM_UP_PROCESSOR_CLASSES
+   **/
+  public void warmUpProcessorClasses(String[] compTypes){
+  	if (testRecordData == null) return;
+  	long start = System.currentTimeMillis();
+  	Vector all = new Vector(10);
+  	all.addElement(driverCommandProcessor);
+  	all.addElement(testStepProcessor);
+  	all.addElement(engineCommandProcessor);
+  	if (processors != null) all.addAll(processors);
+  	all.addElement(custom_dc_processor);
+  	all.addElement(custom_ts_processor);
+  	all.addElement(custom_ec_processor);
+  	for(int i=0;i<all.size();i++){
+  		Processor proc = (Processor) all.elementAt(i);
+  		if (proc == null) continue;
+  		proc.setTestRecordData(testRecordData);
+  		proc.warmUpProcessorClasses(compTypes);
+  	}
+  	Log.info(getClass().getSimpleName()+".warmUpProcessorClasses: "+ (System.currentTimeMillis()-start) +
+  	         "ms, "+ Processor.PROCESSOR_CLASSES);
+  }
+
     
   /** 
    * Noop constructor.
@@ -76,6 +76,83 @@ public abstract class Processor implements RuntimeDataInterface, ITestRecordStac
   /** The ITestRecordStackable used to store 'Test Record' in a FILO. */
   protected ITestRecordStackable testrecordStackable = new DefaultTestRecordStackable();
 
+  /**
+   * Set to false to look up Processor classes with Class.forName every time, as before.
+   * Default is true: each class name is looked up once, and names found not to exist are
+   * not tried again.
+   * @see #PROCESSOR_CLASSES
+   * @see #getProcessorClass(String)
+   */
+  public static boolean USE_PROCESSOR_CLASS_CACHE = true;
+
+  /** Outcomes of all Processor class lookups in this JVM, with statistics. */
+  public static final ProcessorClassCache PROCESSOR_CLASSES = new ProcessorClassCache();
+
+  /**
+   * Set to true to look up the Processor classes for {@link #WARM_UP_COMPONENT_TYPES} when
+   * an engine initializes its processors, instead of while the first records are processed.
+   * @see #warmUpProcessorClasses(String[])
+   * @see ProcessRequest#initializeRequester()
+   */
+  public static boolean WARM_UP_PROCESSOR_CLASSES = false;
+
+  /** Component types whose Processor classes are looked up by a warm up. */
+  public static String[] WARM_UP_COMPONENT_TYPES = {
+    "Window", "CheckBox", "ComboBox", "EditBox", "Generic", "GenericObject", "Label",
+    "List", "ListBox", "ListView", "MenuBar", "PopupMenu", "PushButton", "RadioButton",
+    "ScrollBar", "TabControl", "Table", "Text", "ToolBar", "Tree", "TreeView"
+  };
+
+  /**
+   * Get a Processor class by name.  Unless {@link #USE_PROCESSOR_CLASS_CACHE} is false, the
+   * outcome is kept in {@link #PROCESSOR_CLASSES} so no class name is looked up twice.
+   * @param classname full name of the class.
+   * @return the Class, or null if it does not exist.
+   * @throws LinkageError if the class exists but cannot be loaded or initialized.
+   */
+  protected static Class getProcessorClass(String classname){
+    if(USE_PROCESSOR_CLASS_CACHE) return PROCESSOR_CLASSES.get(classname);
+    if(classname == null) return null;
+    try{ return Class.forName(classname); }
+    catch(ClassNotFoundException x){
+      Log.info("PROC.GPC:"+ classname +":"+ x.getClass().getName());
+      return null;
+    }
+  }
+
+  /**
+   * Look up the Processor classes this processor would try for each of the given component
+   * types, so they are already in {@link #PROCESSOR_CLASSES} when records arrive.  Requires
+   * the TestRecordHelper of the engine.  Its component type is restored afterwards.
+   * @param compTypes component types to warm up.
+   * @see #WARM_UP_PROCESSOR_CLASSES
+   */
+  public void warmUpProcessorClasses(String[] compTypes){
+    if(testRecordData == null || compTypes == null) return;
+    String saved = null;
+    try{ saved = testRecordData.getCompType(); }catch(SAFSException x){}
+    try{
+      for(int i=0;i<compTypes.length;i++){
+        testRecordData.setCompType(compTypes[i]);
+        warmUpProcessorClasses();
+      }
+    }catch(Exception x){
+      Log.info("PROC.WUPC: "+ getClass().getName() +" warm up stopped by "+ x.getClass().getName());
+    }finally{
+      testRecordData.setCompType(saved);
+    }
+  }
+
+  /**
+   * Look up the Processor classes this processor would try for the current test record data.
+   * Subclasses trying other class names should extend this.
+   * @see #warmUpProcessorClasses(String[])
+   */
+  protected void warmUpProcessorClasses(){
+    getCustomProcClassNames();
+    getProcClassNames();
+  }
+
   /**
    * Instance a given Processor from the provided classname.
    * @param classname should not be null or 0 length
@@ -87,7 +164,11 @@ public abstract class Processor implements RuntimeDataInterface, ITestRecordStac
   	  String method ="PROC.GCI:";
       try {
           Log.debug(method+"trying processor:"+classname);
-       	  Class aclass = Class.forName(classname);
+       	  Class aclass = getProcessorClass(classname);
+       	  if (aclass == null){
+       		  Log.debug(method+classname +": class not found");
+       		  return null;
+       	  }
           Log.debug(method+"processorClass: "+aclass.getName());
           proc = (Processor) aclass.newInstance();
       }catch (Exception ex) { Log.info(method+classname +":"+ ex.getClass().getName());}
@@ -101,7 +182,11 @@ public abstract class Processor implements RuntimeDataInterface, ITestRecordStac
   	  String method ="PROC.VPCN:";
   	  try{
         Log.debug(method+"trying processor:"+classname);
-  	  	Class aclass = Class.forName(classname);
+  	  	Class aclass = getProcessorClass(classname);
+  	  	if(aclass == null){
+  	  		Log.debug(method+classname +": class not found");
+  	  		return false;
+  	  	}
         Log.debug(method+"processorClass: "+aclass.getName());
   	  	if(! org.safs.Processor.class.isAssignableFrom(aclass)) status = false;
   	  }catch(Exception ex) {
@@ -557,18 +642,20 @@ public abstract class Processor implements RuntimeDataInterface, ITestRecordStac
     if (dc == null) {
       try { // next try using Class.forName...
         Log.debug(method+"trying processor:"+instanceName);
-        Class dcClass = Class.forName(instanceName);
-        Log.debug(method+"processorClass: "+dcClass.getName());
-        dc = (Processor) dcClass.newInstance();
-        processorMap.put(instanceName, dc);
+        Class dcClass = getProcessorClass(instanceName);
+        if (dcClass == null) {
+          Log.debug(method+"can't find class: "+instanceName);
+        } else {
+          Log.debug(method+"processorClass: "+dcClass.getName());
+          dc = (Processor) dcClass.newInstance();
+          processorMap.put(instanceName, dc);
+        }
       } catch (NoClassDefFoundError nc) {
         Log.info(method+"no class definition found: "+instanceName);
       } catch (ClassCastException cc) {
         Log.info(method+"can't Cast class: "+instanceName);
       } catch (InstantiationException ie) {
         Log.info(method+"can't instantiate class: "+instanceName);
-      } catch (ClassNotFoundException ex) {
-        Log.info(method+"can't find class: "+instanceName);
       } catch (IllegalAccessException iae) {
         Log.info(method+iae.getMessage());
       }
@@ -0,0 +1,111 @@
+/** Copyright (C) (SAS) All rights reserved.
+ ** General Public License: http://www.opensource.org/licenses/gpl-license.php
+ **/
+package org.safs;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dispatch table of the Processor class names tried while routing test records.
+ * <p>
+ * For every record, a Processor derives candidate class names from the record type, the
+ * component type, and the engine's package--CF&lt;type>, custom.CF&lt;type>, DCDriverCommand,
+ * etc.--and tries to load each one.  Most candidates do not exist, and each failed
+ * Class.forName costs a ClassNotFoundException with its stack trace, on every record.
+ * <p>
+ * This table remembers the outcome of each class name, found or not found, so each name
+ * is looked up only once per JVM.  Only ClassNotFoundException is remembered as not found.
+ * Other failures, like a NoClassDefFoundError from a broken dependency, are thrown to the
+ * caller as before and the name is tried again next time.
+ * <p>
+ * All lookups are made with the ClassLoader of this class, as Processor used to do.
+ *
+ * @see Processor#USE_PROCESSOR_CLASS_CACHE
+ * @see Processor#PROCESSOR_CLASSES
+ * @see Processor#getProcessorClass(String)
+ */
+public class ProcessorClassCache {
+
+	/** marks a class name known not to exist */
+	private static final Object NOT_FOUND = new Object();
+
+	/** class name --> Class, or NOT_FOUND */
+	private Map<String,Object> classes = new HashMap<String,Object>();
+
+	private long hits = 0;
+	private long notFoundHits = 0;
+	private long loads = 0;
+	private long notFound = 0;
+
+	/**
+	 * Get a class, loading it only the first time the name is requested.
+	 * @param classname full name of the class.
+	 * @return the Class, or null if the class does not exist or classname is null.
+	 * @throws LinkageError if the class exists but cannot be loaded or initialized.
+	 */
+	public Class get(String classname){
+		if(classname == null) return null;
+		synchronized(this){
+			Object entry = classes.get(classname);
+			if(entry == NOT_FOUND){
+				notFoundHits++;
+				return null;
+			}
+			if(entry != null){
+				hits++;
+				return (Class) entry;
+			}
+		}
+		// load outside the lock since static initializers can take a while
+		Object entry = null;
+		try{
+			entry = Class.forName(classname);
+		}catch(ClassNotFoundException x){
+			Log.info("PCC: "+ classname +": "+ x.getClass().getName());
+			entry = NOT_FOUND;
+		}
+		synchronized(this){
+			if(classes.put(classname, entry) == null){
+				if(entry == NOT_FOUND) notFound++;
+				else loads++;
+			}
+		}
+		return (entry == NOT_FOUND) ? null : (Class) entry;
+	}
+
+	/** @return true if the class name has already been looked up. */
+	public synchronized boolean contains(String classname){ return classes.containsKey(classname); }
+
+	/** @return the number of lookups served from the table for classes that exist. */
+	public synchronized long getHits(){ return hits; }
+
+	/** @return the number of lookups served from the table for classes that do not exist. */
+	public synchronized long getNotFoundHits(){ return notFoundHits; }
+
+	/** @return the number of Class.forName calls avoided: hits plus not found hits. */
+	public synchronized long getAvoidedLookups(){ return hits + notFoundHits; }
+
+	/** @return the number of classes loaded. */
+	public synchronized long getLoads(){ return loads; }
+
+	/** @return the number of class names found not to exist. */
+	public synchronized long getNotFound(){ return notFound; }
+
+	/** @return the number of class names in the table. */
+	public synchronized int size(){ return classes.size(); }
+
+	/** Discard all class names and reset the statistics. */
+	public synchronized void clear(){
+		classes.clear();
+		hits = 0;
+		notFoundHits = 0;
+		loads = 0;
+		notFound = 0;
+	}
+
+	public synchronized String toString(){
+		return "ProcessorClassCache classes:"+ classes.size() +", loaded:"+ loads +", not found:"+ notFound +
+		       ", lookups avoided:"+ (hits + notFoundHits) +" (hits:"+ hits +", not found hits:"+ notFoundHits +")";
+	}
+}
@@ -161,6 +161,14 @@ public class STAFHelper implements CoreInterface{
   /** ".../appmapname" **/
   public static final String SAFS_VAR_APPMAPNAME  = "appmapname";
 
+  /** The test record data variables in the order they are transferred by 
+   * {@link #getSAFSTestRecordData(String, TestRecordData)} and {@link #setSAFSTestRecordData(String, TestRecordData)}. **/
+  public static final String[] SAFS_VAR_TRD_FIELDS = {
+	  SAFS_VAR_INPUTRECORD, SAFS_VAR_FILENAME, SAFS_VAR_LINENUMBER, 
+	  SAFS_VAR_SEPARATOR, SAFS_VAR_TESTLEVEL, SAFS_VAR_APPMAPNAME, 
+	  SAFS_VAR_FAC, SAFS_VAR_STATUSCODE, SAFS_VAR_STATUSINFO
+  };
+
   /** 7 initial preset variables **/
   public static final String SAFS_VAR_BENCHDIRECTORY    = "safsbenchdirectory";
   public static final String SAFS_VAR_DATAPOOLDIRECTORY = "safsdatapooldirectory";
@@ -222,6 +230,16 @@ public class STAFHelper implements CoreInterface{
    * Set to true to bypass the registering of STAF Handles and STAF altogether.
    */
   public static boolean no_staf_handles = false;
+  /**
+   * Set to true to keep static App Map recognition strings retrieved by getAppMapItem in 
+   * {@link #APPMAP_ITEMS}.  Only enabled by processes that send all SAFSMAPS OPEN, CLOSE, and 
+   * similar requests themselves, like the Driver, since only those requests invalidate the cache.
+   * Default is false.
+   * @see AppMapItemCache
+   */
+  public static boolean USE_APPMAP_ITEM_CACHE = false;
+  /** recognition strings retrieved by getAppMapItem when {@link #USE_APPMAP_ITEM_CACHE} is true. */
+  public static final AppMapItemCache APPMAP_ITEMS = new AppMapItemCache();
   /**
    * Set to true to embed non-STAF SEM service.
    */
@@ -527,6 +545,7 @@ public class STAFHelper implements CoreInterface{
    * @return                    STAFResult
    **/
   protected STAFResult submit2 (String where, String name, String command) {
+	  checkAppMapItemCache(name, command);
 	  if(EmbeddedHandles.isServiceRunning(name)){
 		  try{ return EmbeddedHandles.getService(name).acceptRequest(new InfoInterface.RequestInfo(where, handle.getHandle(), process_name, command));}
 	      catch(Exception x){
@@ -575,6 +594,7 @@ public class STAFHelper implements CoreInterface{
    * @see #getUnMarshallStringResult(String)
    **/
   public String submit (String where, String name, String command) throws STAFException {
+	  checkAppMapItemCache(name, command);
 	  if(EmbeddedHandles.isServiceRunning(name)){
 		  try{
 			  STAFResult sr = EmbeddedHandles.getService(name).acceptRequest(
@@ -590,6 +610,17 @@ public class STAFHelper implements CoreInterface{
     return handle.submit(where, name, command);
   }
   
+  /**
+   * Discard cached App Map items if the request can change what SAFSMAPS GETITEM returns.
+   * @param name service the request is sent to.
+   * @param command the request.
+   * @see AppMapItemCache#isChangeRequest(String)
+   */
+  private static void checkAppMapItemCache(String name, String command){
+	  if(SAFS_APPMAP_SERVICE.equalsIgnoreCase(name) && AppMapItemCache.isChangeRequest(command))
+		  APPMAP_ITEMS.invalidate();
+  }
+
   /** <br><em>Purpose:</em> return the value in STAF lentag format,   :len:val
    * @param                     val, String
    * @return                    :val.length():val
@@ -757,6 +788,72 @@ public class STAFHelper implements CoreInterface{
     }
   }
 
+  /** 
+   * false once the running SAFSVARS has rejected a GETBATCH or SETBATCH request.
+   * We then stop trying and fall back to one request per variable. 
+   **/
+  private boolean batchVariablesSupported = true;
+
+  /** 
+   * <br><em>Purpose:</em> get several variables from safsvars service in a single 
+   * GETBATCH request.  If the SAFSVARS service does not support GETBATCH we fall back 
+   * to one {@link #getVariable(String)} call per variable.
+   * @param                     vars, String[] names of variables to get values for
+   * @return                    the values in the same order as the names
+   * @exception                 SAFSException, if not ok
+   **/
+  public String[] getVariables (String[] vars) throws SAFSException {
+	if(batchVariablesSupported){
+		String command = "GETBATCH "+ lentagValue(StringUtilities.packLentagFields(vars));
+		STAFResult result = submit2ForFormatUnchangedService(machine, SAFS_VARIABLE_SERVICE, command);
+		if(result.rc == STAFResult.Ok){
+			String[] values = StringUtilities.unpackLentagFields(result.result);
+			if((values != null)&&(values.length == vars.length)) return values;
+			Log.debug("STAFHelper.getVariables received invalid GETBATCH response: "+ result.result);
+		}else if(result.rc != STAFResult.InvalidRequestString){
+			throw new SAFSException(getClass().getName(), "getVariables",
+                    "rc: "+result.rc+ ", getCommand: "+command);
+		}
+		Log.debug("STAFHelper.getVariables SAFSVARS GETBATCH not supported. Using GET for each variable.");
+		batchVariablesSupported = false;
+	}
+	String[] values = new String[vars.length];
+	for(int i=0;i<vars.length;i++) values[i] = getVariable(vars[i]);
+	return values;
+  }
+
+  /** 
+   * <br><em>Purpose:</em> set several variables in the safsvars service in a single 
+   * SETBATCH request.  If the SAFSVARS service does not support SETBATCH we fall back 
+   * to one {@link #setVariable(String, String)} call per variable.
+   * @param                     vars, String[] names of variables
+   * @param                     vals, String[] values of the variables (can be null or empty)
+   * @return                    true if successful, false if not
+   * @exception                 SAFSException if any var is invalid
+   **/
+  public boolean setVariables (String[] vars, String[] vals) throws SAFSException {
+	String[] pairs = new String[vars.length * 2];
+	for(int i=0;i<vars.length;i++){
+		if ((vars[i] == null)||(vars[i].length()==0)) throw new SAFSException("setVariables: variable name cannot be empty.");
+		pairs[i*2] = vars[i];
+		pairs[i*2+1] = vals[i];
+	}
+	if(batchVariablesSupported){
+		String command = "SETBATCH "+ lentagValue(StringUtilities.packLentagFields(pairs));
+		STAFResult result = submit2ForFormatUnchangedService(machine, SAFS_VARIABLE_SERVICE, command);
+		if(result.rc == STAFResult.Ok) return true;
+		if(result.rc != STAFResult.InvalidRequestString){
+			Log.info("setVariables: error, rc: "+result.rc+", command: "+command);
+			return false;
+		}
+		Log.debug("STAFHelper.setVariables SAFSVARS SETBATCH not supported. Using SET for each variable.");
+		batchVariablesSupported = false;
+	}
+	boolean success = true;
+	for(int i=0;i<vars.length;i++) success &= setVariable(vars[i], vals[i]);
+	return success;
+  }
+
   /**
    * Send a generic message to a running SAFSLOGS log.<br>
    * If the optional facname is not provided, we will route the message to the first (or only) 
@@ -1381,6 +1478,8 @@ public class STAFHelper implements CoreInterface{
 	 * drivers and engines.  The routine does not deal with the TRD Mutex for the 
 	 * trd_root provided.  It assumes the caller is handling the mutex.
 	 * <p>
+	 * All fields are sent in a single SAFSVARS SETBATCH request when the service supports it.
+	 * <p>
 	 * <ul><b>Sets the following record data</b>:
 	 * <p>
 	 * <li>inputrecord
@@ -1396,15 +1495,18 @@ public class STAFHelper implements CoreInterface{
 	 */
 	public void setSAFSTestRecordData(String trd_root, TestRecordData trd) throws SAFSException {
 		try{
-			setVariable(trd_root + SAFS_VAR_INPUTRECORD, trd.getInputRecord());
-			setVariable(trd_root + SAFS_VAR_LINENUMBER, String.valueOf(trd.getLineNumber()).trim());
-			setVariable(trd_root + SAFS_VAR_SEPARATOR, trd.getSeparator());
-			setVariable(trd_root + SAFS_VAR_TESTLEVEL, trd.getTestLevel());
-			setVariable(trd_root + SAFS_VAR_FILENAME, trd.getFilename());
-			setVariable(trd_root + SAFS_VAR_APPMAPNAME, trd.getAppMapName());
-			setVariable(trd_root + SAFS_VAR_FAC, trd.getFac());
-			setVariable(trd_root + SAFS_VAR_STATUSCODE, String.valueOf(trd.getStatusCode()).trim());
-			setVariable(trd_root + SAFS_VAR_STATUSINFO, trd.getStatusInfo());
+			String[] vars = new String[SAFS_VAR_TRD_FIELDS.length];
+			for(int i=0;i<vars.length;i++) vars[i] = trd_root + SAFS_VAR_TRD_FIELDS[i];
+			setVariables(vars, new String[]{
+				trd.getInputRecord(),
+				trd.getFilename(),
+				String.valueOf(trd.getLineNumber()).trim(),
+				trd.getSeparator(),
+				trd.getTestLevel(),
+				trd.getAppMapName(),
+				trd.getFac(),
+				String.valueOf(trd.getStatusCode()).trim(),
+				trd.getStatusInfo()});
 		}
 		catch(SAFSException se){ throw se;}
 		catch(NullPointerException npx){ throw new SAFSException("STAFHelper.setSAFSTestRecordData invalid NULL parameter.");}
@@ -1417,6 +1519,8 @@ public class STAFHelper implements CoreInterface{
 	 * drivers and engines.  The routine does not deal with the TRD Mutex for the 
 	 * trd_root provided.  It assumes the caller is handling the mutex.
 	 * <p>
+	 * All fields are retrieved in a single SAFSVARS GETBATCH request when the service supports it.
+	 * <p>
 	 * <ul><b>Gets the following record data</b>:
 	 * <p>
 	 * <li>inputrecord
@@ -1432,21 +1536,25 @@ public class STAFHelper implements CoreInterface{
 	 */
 	public void getSAFSTestRecordData(String trd_root, TestRecordData trd) throws SAFSException {
 		try{
-			trd.setInputRecord(getVariable(trd_root + SAFS_VAR_INPUTRECORD));
+			String[] vars = new String[SAFS_VAR_TRD_FIELDS.length];
+			for(int i=0;i<vars.length;i++) vars[i] = trd_root + SAFS_VAR_TRD_FIELDS[i];
+			String[] vals = getVariables(vars);
+
+			trd.setInputRecord(vals[0]);
+			trd.setFilename(vals[1]);
 
-			try{trd.setLineNumber (Integer.parseInt(getVariable(trd_root + SAFS_VAR_LINENUMBER)));}
+			try{trd.setLineNumber (Integer.parseInt(vals[2]));}
 			catch(NumberFormatException nfe){trd.setLineNumber(0);}
 
-			trd.setSeparator(getVariable(trd_root + SAFS_VAR_SEPARATOR));
-			trd.setTestLevel(getVariable(trd_root + SAFS_VAR_TESTLEVEL));
-			trd.setFilename(getVariable(trd_root + SAFS_VAR_FILENAME));
-			trd.setAppMapName(getVariable(trd_root + SAFS_VAR_APPMAPNAME));
-			trd.setFac(getVariable(trd_root + SAFS_VAR_FAC));
+			trd.setSeparator(vals[3]);
+			trd.setTestLevel(vals[4]);
+			trd.setAppMapName(vals[5]);
+			trd.setFac(vals[6]);
 
-			try{trd.setStatusCode (Integer.parseInt(getVariable(trd_root + SAFS_VAR_STATUSCODE)));}
+			try{trd.setStatusCode (Integer.parseInt(vals[7]));}
 			catch(NumberFormatException nfe){trd.setStatusCode(DriverConstant.STATUS_SCRIPT_NOT_EXECUTED);}
 			
-			trd.setStatusInfo(getVariable(trd_root + SAFS_VAR_STATUSINFO));
+			trd.setStatusInfo(vals[8]);
 		}
 		catch(SAFSException se){ throw se;}
 		catch(NullPointerException npx){ throw new SAFSException("STAFHelper.getSAFSTestRecordData invalid NULL parameter.");}
@@ -1505,22 +1613,7 @@ public class STAFHelper implements CoreInterface{
    * @return                    itemvalue, null if exception is encountered meaning item not found
    **/
   public String getAppMapItem (String appMapID, String section, String item) {
-    String service = "safsmaps";
-    String command = " GETITEM ";
-    if (!((appMapID == null)||(appMapID.length()==0))) 
-        command += lentagValue(appMapID);        
-	if (!((section == null)||(section.length()==0))) 
-		command += " SECTION "+ lentagValue(section);	
-    command += " ITEM "+lentagValue(item);
-    
-    try{
-      Log.debug("getAppMapItem: "+command);
-      String result = submit(machine, service, command).trim();
-      return result;
-    } catch (STAFException e) {
-      Log.info("getAppMapItem not found: "+command+", e.rc:"+e.rc);
-      return null;
-    }
+    return getAppMapItem(appMapID, section, item, false);
   }
   
   /** <br><em>Purpose:</em> getitem from safsmaps using STAF, and check if the item has a static
@@ -1539,6 +1632,25 @@ public class STAFHelper implements CoreInterface{
    * @return                    itemvalue, null if exception is encountered meaning item not found
    **/
   public String getAppMapItem (String appMapID, String section, String item, boolean isDynamic) {
+    if(!USE_APPMAP_ITEM_CACHE) return requestAppMapItem(appMapID, section, item, isDynamic);
+    String key = AppMapItemCache.getKey(appMapID, section, item);
+    String result = APPMAP_ITEMS.get(key);
+    if(result != null) return result;
+    // ask for the ISDYNAMIC tag so items that depend on variables are never cached
+    long generation = APPMAP_ITEMS.getGeneration();
+    result = requestAppMapItem(appMapID, section, item, true);
+    if(AppMapItemCache.isCacheable(result)){
+    	APPMAP_ITEMS.put(key, result, generation);
+    	return result;
+    }
+    return isDynamic ? result : AppMapItemCache.removeDynamicTag(result);
+  }
+
+  /** 
+   * Submit the SAFSMAPS GETITEM request for {@link #getAppMapItem(String, String, String, boolean)}.
+   * @return itemvalue, null if exception is encountered meaning item not found
+   */
+  private String requestAppMapItem (String appMapID, String section, String item, boolean isDynamic) {
     String service = "safsmaps";
     String command = " GETITEM ";
     if (!((appMapID == null)||(appMapID.length()==0))) 
@@ -6,6 +6,7 @@ package org.safs;
 
 import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.StringTokenizer;
 
 import org.safs.tools.drivers.DriverConstant;
@@ -70,7 +71,7 @@ public abstract class TestRecordData implements java.io.Serializable {
 
   /** <br><em>Purpose:</em>      lazily stores inputRecord tokens (based on separator)
    ** <br><em>Initialized:</em>  initally to null, set by method getInputRecordToken first time
-   ** it is called
+   ** it is called, or by setInputRecordTokens
    **/
   private AbstractList inputRecordTokens = null;
 
@@ -259,9 +260,56 @@ public abstract class TestRecordData implements java.io.Serializable {
   public void setLineNumber (long lineNumber) {this.lineNumber = lineNumber;}
 
   /** <br><em>Purpose:</em> accessor method(s)
+   ** <br> If the inputRecord was set by setInputRecordTokens, it is built the first time in.
+   **/
+  public String getInputRecord () {
+    if (inputRecord == null && inputRecordTokens != null && separator != null) {
+      StringBuffer buf = new StringBuffer();
+      for (int i = 0; i < inputRecordTokens.size(); i++) {
+        if (i > 0) buf.append(separator);
+        buf.append(inputRecordTokens.get(i));
+      }
+      inputRecord = buf.toString();
+    }
+    return inputRecord;
+  }
+  /** <br><em>Purpose:</em> accessor method(s)
+   ** <br><em>Side Effects:</em> {@link #inputRecordTokens} reset to null, to be tokenized from the new inputRecord.
+   **/
+  public void setInputRecord (String inputRecord) {
+    this.inputRecord = inputRecord;
+    inputRecordTokens = null;
+  }
+
+  /** <br><em>Purpose:</em> set the inputRecord as its fields, already separated, as exported 
+   ** from a model command, so that getInputRecordToken does not tokenize the inputRecord.
+   ** The inputRecord String is only built from the fields, joined with the 'separator', when 
+   ** getInputRecord is called--as for logging or the STAF hook.
+   * <br><em>Side Effects:</em> {@link #inputRecordTokens}, {@link #inputRecord} reset to null
+   * <br><em>Assumptions:</em>  No field is null or contains a 'separator' character, so 
+   * tokenizing the joined inputRecord gives the same fields.  See {@link #isTokenizable(String[], String)}.
+   * @param                     tokens, String[], the fields of the inputRecord
    **/
-  public String getInputRecord () {return inputRecord;}
-  public void setInputRecord (String inputRecord) {this.inputRecord = inputRecord;}
+  public void setInputRecordTokens (String[] tokens) {
+    inputRecord = null;
+    inputRecordTokens = new ArrayList(Arrays.asList(tokens));
+  }
+
+  /** <br><em>Purpose:</em> check that fields joined with a separator tokenize back to the same fields.
+   * @param                     tokens, String[], the fields
+   * @param                     separator, String, the separator characters
+   * @return true if no field is null or contains any of the separator characters
+   **/
+  public static boolean isTokenizable (String[] tokens, String separator) {
+    if (tokens == null || separator == null || separator.length() == 0) return false;
+    for (int i = 0; i < tokens.length; i++) {
+      if (tokens[i] == null) return false;
+      for (int c = 0; c < separator.length(); c++) {
+        if (tokens[i].indexOf(separator.charAt(c)) > -1) return false;
+      }
+    }
+    return true;
+  }
 
   /** <br><em>Purpose:</em> accessor method(s)
    **/
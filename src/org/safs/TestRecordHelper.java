@@ -83,27 +83,30 @@ public class TestRecordHelper extends TestRecordData {
    **/
   public void populateDataFromVar () throws SAFSException {
 
-    setInputRecord(getStaf().getVariable(getInstanceName() + STAFHelper.SAFS_VAR_INPUTRECORD));
-    setFilename(getStaf().getVariable(getInstanceName() + STAFHelper.SAFS_VAR_FILENAME));
+    // retrieve all fields in a single SAFSVARS request when supported
+    String[] vars = new String[STAFHelper.SAFS_VAR_TRD_FIELDS.length];
+    for(int i=0;i<vars.length;i++) vars[i] = getInstanceName() + STAFHelper.SAFS_VAR_TRD_FIELDS[i];
+    String[] vals = getStaf().getVariables(vars);
+
+    setInputRecord(vals[0]);
+    setFilename(vals[1]);
 
-    String next = getStaf().getVariable(getInstanceName() + STAFHelper.SAFS_VAR_LINENUMBER);
     int num = 0;
-    try { num = (new Integer(next)).intValue();} 
+    try { num = (new Integer(vals[2])).intValue();} 
     catch (NumberFormatException nfe) {}
     setLineNumber(num);
 
-    setSeparator(getStaf().getVariable(getInstanceName() + STAFHelper.SAFS_VAR_SEPARATOR));
-    setTestLevel(getStaf().getVariable(getInstanceName() + STAFHelper.SAFS_VAR_TESTLEVEL));
-    setAppMapName(getStaf().getVariable(getInstanceName() + STAFHelper.SAFS_VAR_APPMAPNAME));
-    setFac(getStaf().getVariable(getInstanceName() + STAFHelper.SAFS_VAR_FAC));
+    setSeparator(vals[3]);
+    setTestLevel(vals[4]);
+    setAppMapName(vals[5]);
+    setFac(vals[6]);
 
-    next = getStaf().getVariable(getInstanceName() + STAFHelper.SAFS_VAR_STATUSCODE);
     num = 0;
-    try { num = (new Integer(next)).intValue();} 
+    try { num = (new Integer(vals[7])).intValue();} 
     catch (NumberFormatException nfe) {}
     setStatusCode(num);
     
-    setStatusInfo(getStaf().getVariable(getInstanceName() + STAFHelper.SAFS_VAR_STATUSINFO));
+    setStatusInfo(vals[8]);
   }
   
   /** <br><em>Purpose:</em> sendback response, the statusCode is sent back
@@ -115,14 +118,14 @@ public class TestRecordHelper extends TestRecordData {
    **/
   public void sendbackResponse () throws SAFSException {
     int status = getStatusCode();
-    getStaf().setVariable(getInstanceName() + STAFHelper.SAFS_VAR_STATUSCODE, 
-                      (Integer.toString(status)).trim());
-    
     String info = getStatusInfo();
     //if statusinfo is null, reset it to ""
     if (info == null)
     	info = "";
-    getStaf().setVariable(getInstanceName() + STAFHelper.SAFS_VAR_STATUSINFO, info); 
+    getStaf().setVariables(
+    	new String[]{ getInstanceName() + STAFHelper.SAFS_VAR_STATUSCODE, 
+    	              getInstanceName() + STAFHelper.SAFS_VAR_STATUSINFO },
+    	new String[]{ (Integer.toString(status)).trim(), info }); 
   }
 
   /** 
@@ -182,6 +182,12 @@ public class TestStepProcessor extends Processor {
     if(validProcessorClassName(classname)) return classname;
     return null;
   }
+
+  /** Extends Processor.warmUpProcessorClasses to include the CFComponent class. */
+  protected void warmUpProcessorClasses(){
+    super.warmUpProcessorClasses();
+    getComponentProcClassName();
+  }
   
   /**
    * Called internally or overridden by subclasses to find the windowObject and compObjects.
@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) SAS Institute. All rights reserved.
+ * General Public License: http://www.opensource.org/licenses/gpl-license.php
+ **/
+package org.safs.image;
+
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.SampleModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.safs.Log;
+
+/**
+ * Parallel search of the current screenshot for a target image on a shared ForkJoinPool.
+ * <p>
+ * The rows of screen anchors to test are split recursively into tasks until there are
+ * several tasks per processor, and idle workers steal the remaining tasks.  Each anchor
+ * is tested with the same comparison used by the single-threaded search in
+ * {@link ImageUtils#findBufferedImageOnScreen(java.awt.image.BufferedImage, Rectangle, int)},
+ * so BitTolerance and fuzzy matching behave the same.
+ * <p>
+ * Two search modes are supported:
+ * <ul>
+ * <li><b>any match</b> (nth &lt; 1): the first match found by any task ends the search.
+ * <li><b>nth match</b> (nth &gt;= 1): the result is the nth match in the same left-to-right,
+ * top-to-bottom order as the single-threaded search.  As soon as one task has found nth
+ * matches, every anchor after its nth match is skipped by all tasks.
+ * </ul>
+ * The pool is created on first use and reused by every search.  Its threads are daemon threads.
+ *
+ * @see ImageUtils#USE_MULTIPLE_THREADS
+ */
+public class ForkJoinImageSearch {
+
+	/** min number of screen anchors tested by one task. */
+	public static final int MIN_TASK_ANCHORS = 2048;
+
+	private static ForkJoinPool pool = null;
+
+	/** @return the shared pool, created on first use with one worker per available processor. */
+	static synchronized ForkJoinPool getPool(){
+		if(pool == null) pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		return pool;
+	}
+
+	// search inputs shared by all tasks
+	private DataBuffer screenBuffer = null;
+	private SampleModel screenModel = null;
+	private DataBuffer imageBuffer = null;
+	private SampleModel imageModel = null;
+	private PackedImage[] packed = null;
+	private IntegralImageFilter.Target prefilter = null;
+	private int maxPixelErrors = 0;
+	private int startx = 0;
+	private int endx = 0;
+	private int nth = 0;
+
+	// search state shared by all tasks
+	/** position (y * endx + x) of the last anchor worth testing */
+	private AtomicLong cutoff = new AtomicLong(Long.MAX_VALUE);
+	private AtomicBoolean found = new AtomicBoolean(false);
+	private ConcurrentSkipListSet<Long> matches = new ConcurrentSkipListSet<Long>();
+
+	private ForkJoinImageSearch(){}
+
+	/**
+	 * Search the screenshot for the target image.
+	 * Anchors tested are startx &lt;= x &lt; endx, starty &lt;= y &lt; endy.
+	 * @param screenBuffer - DataBuffer of the screenshot
+	 * @param screenModel - SampleModel of the screenshot
+	 * @param imageBuffer - DataBuffer of the target image
+	 * @param imageModel - SampleModel of the target image
+	 * @param packed - packed screenshot [0] and target [1] pixels, or null.
+	 * @param prefilter - integral image test of the target, or null.
+	 * @param maxPixelErrors - max number of pixels that can fail comparison
+	 * @param nth - the nth match to find, or less than 1 for any match.
+	 * @return Rectangle location where the image was found or null.
+	 */
+	public static Rectangle search(DataBuffer screenBuffer, SampleModel screenModel,
+			                       DataBuffer imageBuffer, SampleModel imageModel,
+			                       PackedImage[] packed, IntegralImageFilter.Target prefilter,
+			                       int startx, int starty, int endx, int endy,
+			                       int maxPixelErrors, int nth){
+		if(endx <= startx || endy <= starty) return null;
+		ForkJoinImageSearch search = new ForkJoinImageSearch();
+		search.screenBuffer = screenBuffer;
+		search.screenModel = screenModel;
+		search.imageBuffer = imageBuffer;
+		search.imageModel = imageModel;
+		search.packed = packed;
+		search.prefilter = prefilter;
+		search.maxPixelErrors = maxPixelErrors;
+		search.startx = startx;
+		search.endx = endx;
+		search.nth = nth;
+
+		ForkJoinPool pool = getPool();
+		int width = endx - startx;
+		int minRows = Math.max(1, MIN_TASK_ANCHORS / width);
+		// aim for several tasks per worker so idle workers have something to steal
+		int rows = Math.max(minRows, (endy - starty) / (pool.getParallelism() * 8));
+		Log.debug("IU ForkJoinImageSearch searching "+ width +"x"+ (endy-starty) +" anchors, "+ rows +" rows per task, nth="+ nth);
+		pool.invoke(search.new RowsTask(starty, endy, rows));
+
+		Long position = null;
+		if(nth < 1){
+			if(!search.matches.isEmpty()) position = search.matches.first();
+		}else if(search.matches.size() >= nth){
+			int i = 0;
+			for(Long p: search.matches) if(++i == nth){ position = p; break; }
+		}
+		if(position == null){
+			Log.info("IU ForkJoinImageSearch did not find the image.");
+			return null;
+		}
+		int y = (int)(position.longValue() / endx);
+		int x = (int)(position.longValue() % endx);
+		return new Rectangle(x, y, imageModel.getWidth(), imageModel.getHeight());
+	}
+
+	/** @return true if no more anchors need to be tested. */
+	private boolean isSearchDone(long position){
+		return found.get() || position > cutoff.get();
+	}
+
+	/**
+	 * Test the anchors of a range of rows, splitting it when it is too big for one task.
+	 */
+	private class RowsTask extends RecursiveAction{
+		private static final long serialVersionUID = 1L;
+		private int y0, y1, rows;
+
+		RowsTask(int y0, int y1, int rows){
+			this.y0 = y0;
+			this.y1 = y1;
+			this.rows = rows;
+		}
+
+		protected void compute(){
+			if(found.get() || ((long)y0 * endx + startx) > cutoff.get()) return;
+			if(y1 - y0 > rows){
+				int mid = y0 + (y1 - y0)/2;
+				invokeAll(new RowsTask(y0, mid, rows), new RowsTask(mid, y1, rows));
+				return;
+			}
+			List<Long> local = new ArrayList<Long>();
+			try{
+search:			for(int y=y0;y<y1;y++){
+					for(int x=startx;x<endx;x++){
+						long position = (long)y * endx + x;
+						if(isSearchDone(position)) break search;
+						if(prefilter != null && !prefilter.canMatch(x, y, maxPixelErrors)) continue;
+						boolean matched = (packed != null) ?
+							ImageUtils.isScreenXYMatch(packed[0], packed[1], x, y, maxPixelErrors) :
+							ImageUtils.isScreenXYMatch(screenBuffer, screenModel, imageBuffer, imageModel, x, y, maxPixelErrors);
+						if(!matched) continue;
+						local.add(Long.valueOf(position));
+						if(nth < 1){
+							found.set(true);
+							break search;
+						}
+						if(local.size() >= nth){
+							// nothing after this anchor can be the nth match
+							long current = cutoff.get();
+							while(position < current && !cutoff.compareAndSet(current, position)) current = cutoff.get();
+							break search;
+						}
+					}
+				}
+			}catch(Exception x){
+				Log.debug("IU ForkJoinImageSearch encountered Exception:", x);
+			}
+			matches.addAll(local);
+		}
+	}
+}
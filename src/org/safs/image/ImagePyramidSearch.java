@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) SAS Institute. All rights reserved.
+ * General Public License: http://www.opensource.org/licenses/gpl-license.php
+ **/
+package org.safs.image;
+
+import java.awt.Rectangle;
+
+import org.safs.Log;
+
+/**
+ * Coarse-to-fine search of the current screenshot for a target image.
+ * <p>
+ * The screenshot is reduced by a factor of 4 (or 2 for smaller targets).  The target is reduced 
+ * once for each of the factor x factor block alignments it can have on the screen, so a full-size 
+ * anchor always lines up exactly with one reduced anchor of one of the reduced targets.  Every 
+ * reduced target is compared with every reduced screen anchor by the sum of absolute band 
+ * differences, and the anchors with the lowest sums become candidates.  Each candidate is then 
+ * verified at full resolution with the normal pixel comparison, so BitTolerance and fuzzy 
+ * matching decide the result exactly as they do for the full search.
+ * <p>
+ * The coarse pass can miss a match: a match that extends beyond the screenshot, or one with 
+ * enough mismatched pixels that other areas of the screen look closer after the reduction.  
+ * A null result therefore only means no candidate verified, and the caller is expected to fall 
+ * back to the full search.  When the image appears more than once the verified match with the 
+ * lowest coarse difference is returned, which is not necessarily the first one in screen order.
+ * <p>
+ * The reduced screenshot is cached until the packed screenshot changes.
+ * <p>
+ * ImageUtils only uses this search with a BitTolerance.  An exact full search rejects most
+ * anchors at their first pixel and is faster than the coarse pass; a tolerant full search must
+ * find many mismatched pixels before rejecting an anchor, and is slower.
+ *
+ * @see ImageUtils#USE_IMAGE_PYRAMID
+ * @see ImagePyramidSearchTest
+ * @see PackedImage#downsample(int, int, int)
+ */
+public class ImagePyramidSearch {
+
+	/** min width and height of the reduced target. */
+	public static final int MIN_COARSE_SIZE = 8;
+
+	/** max number of coarse candidates verified at full resolution. */
+	public static final int MAX_CANDIDATES = 16;
+
+	private static PackedImage levelSource = null;
+	private static PackedImage[] levels = new PackedImage[5];
+
+	private ImagePyramidSearch(){}
+
+	/**
+	 * @return the reduction factor to use for the target, or 0 if the target is too small.
+	 */
+	static int getFactor(int targetWidth, int targetHeight){
+		for(int factor=4;factor>=2;factor/=2){
+			// the last alignment drops factor-1 pixels from each side
+			if((targetWidth-factor+1)/factor >= MIN_COARSE_SIZE && 
+			   (targetHeight-factor+1)/factor >= MIN_COARSE_SIZE) return factor;
+		}
+		return 0;
+	}
+
+	/** @return the reduced screenshot, reusing the last one made from the same screenshot. */
+	private static synchronized PackedImage getLevel(PackedImage screen, int factor){
+		if(levelSource != screen){
+			levels = new PackedImage[levels.length];
+			levelSource = screen;
+		}
+		if(levels[factor] == null) levels[factor] = screen.downsample(factor);
+		return levels[factor];
+	}
+
+	/**
+	 * Search the screenshot for the target image.
+	 * Anchors tested are startx &lt;= x &lt; endx, starty &lt;= y &lt; endy.
+	 * @param screen - packed screenshot pixels
+	 * @param target - packed target image pixels
+	 * @param maxPixelErrors - max number of pixels that can fail comparison
+	 * @return Rectangle location where the image was found or null if no candidate verified.
+	 */
+	public static Rectangle search(PackedImage screen, PackedImage target,
+			                       int startx, int starty, int endx, int endy,
+			                       int maxPixelErrors){
+		int factor = getFactor(target.width, target.height);
+		if(factor == 0 || endx <= startx || endy <= starty) return null;
+		long start = System.currentTimeMillis();
+		PackedImage coarseScreen = getLevel(screen, factor);
+
+		int count = 0;
+		long[] scores = new long[MAX_CANDIDATES];
+		long[] anchors = new long[MAX_CANDIDATES];
+		for(int offy=0;offy<factor;offy++){
+			for(int offx=0;offx<factor;offx++){
+				// target pixel (offx,offy) falls on a block corner when anchor x = cx*factor-offx
+				PackedImage coarseTarget = target.downsample(factor, offx, offy);
+				int cx0 = (startx+offx+factor-1)/factor;
+				int cy0 = (starty+offy+factor-1)/factor;
+				int cx1 = Math.min((endx-1+offx)/factor, coarseScreen.width-coarseTarget.width);
+				int cy1 = Math.min((endy-1+offy)/factor, coarseScreen.height-coarseTarget.height);
+				for(int cy=cy0;cy<=cy1;cy++){
+					for(int cx=cx0;cx<=cx1;cx++){
+						long limit = (count < MAX_CANDIDATES) ? Long.MAX_VALUE : scores[count-1];
+						long score = difference(coarseScreen, coarseTarget, cx, cy, limit);
+						if(score >= limit) continue;
+						// insert in score order, dropping the worst when full
+						int i = (count < MAX_CANDIDATES) ? count++ : count-1;
+						for(;i>0 && scores[i-1] > score;i--){
+							scores[i] = scores[i-1];
+							anchors[i] = anchors[i-1];
+						}
+						scores[i] = score;
+						anchors[i] = (long)(cy*factor-offy)*screen.width + (cx*factor-offx);
+					}
+				}
+			}
+		}
+
+		for(int c=0;c<count;c++){
+			int x = (int)(anchors[c] % screen.width);
+			int y = (int)(anchors[c] / screen.width);
+			if(ImageUtils.isScreenXYMatch(screen, target, x, y, maxPixelErrors)){
+				Log.info("IU ImagePyramidSearch verified candidate "+ (c+1) +" of "+ count +" at factor "+ factor +" in "+ (System.currentTimeMillis()-start) +" milliseconds.");
+				return new Rectangle(x, y, target.width, target.height);
+			}
+		}
+		Log.info("IU ImagePyramidSearch verified none of "+ count +" candidates at factor "+ factor +" in "+ (System.currentTimeMillis()-start) +" milliseconds.");
+		return null;
+	}
+
+	/**
+	 * Sum of absolute band differences between the target and the screen at anchor x,y.
+	 * @param limit stop summing once this value is reached.
+	 * @return the sum, or a value &gt;= limit if the sum reached the limit.
+	 */
+	private static long difference(PackedImage screen, PackedImage target, int x, int y, long limit){
+		long sum = 0;
+		int[] scrPixels = screen.pixels;
+		int[] trgPixels = target.pixels;
+		for(int ty=0;ty<target.height;ty++){
+			int scrRow = (y+ty)*screen.width+x;
+			int trgRow = ty*target.width;
+			for(int tx=0;tx<target.width;tx++){
+				int s = scrPixels[scrRow+tx];
+				int t = trgPixels[trgRow+tx];
+				if(s == t) continue;
+				sum += Math.abs(((s >> 16) & 0xFF)-((t >> 16) & 0xFF)) +
+				       Math.abs(((s >> 8) & 0xFF)-((t >> 8) & 0xFF)) +
+				       Math.abs((s & 0xFF)-(t & 0xFF));
+			}
+			if(sum >= limit) return sum;
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) SAS Institute. All rights reserved.
+ * General Public License: http://www.opensource.org/licenses/gpl-license.php
+ **/
+package org.safs.image;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * Times {@link ImagePyramidSearch#search(PackedImage, PackedImage, int, int, int, int, int)} against the
+ * full search {@link ImageUtils#findBufferedImageOnScreen} makes with packed pixels: isScreenXYMatch at
+ * every anchor, row by row, until the first match.  The target is cut from the bottom right of a synthetic
+ * screenshot, so the full search tests nearly every anchor, and is searched for exactly, with a bit tolerance,
+ * and with a bit tolerance and fuzzy matching.  Both searches must find it, or, with a bit tolerance, another
+ * area that matches within the tolerance.
+ * <p>
+ * The pyramid time includes reducing the screenshot, which {@link ImagePyramidSearch} otherwise reuses
+ * until the next screenshot.
+ * <p>
+ * Usage: ImagePyramidSearchTest [screenWidth screenHeight [repeats]], 1280x800 and 3 repeats by default.
+ */
+public class ImagePyramidSearchTest {
+
+	static final int TARGET_SIZE = 64;
+	/** bit tolerance of the tolerant searches: the percent of target pixels allowed to mismatch. */
+	static final int TOLERANCE = 10;
+
+	static int failures = 0;
+
+	static void test(String name, boolean passed, String detail){
+		if(!passed) failures++;
+		System.out.println((passed?"PASSED:":"FAILED:")+ name +" "+ detail);
+	}
+
+	/** the full search, as findBufferedImageOnScreen makes it without "Index=N". */
+	static Rectangle fullSearch(PackedImage screen, PackedImage target, int maxPixelErrors){
+		int endx = screen.width-1;
+		int endy = screen.height-1;
+		for(int y=0;y<endy;y++){
+			for(int x=0;x<endx;x++){
+				if(ImageUtils.isScreenXYMatch(screen, target, x, y, maxPixelErrors))
+					return new Rectangle(x, y, target.width, target.height);
+			}
+		}
+		return null;
+	}
+
+	/** @return true if found is the expected area, or another area matching within the bit tolerance. */
+	static boolean isMatch(PackedImage screen, PackedImage target, Rectangle expected, Rectangle found, int maxPixelErrors){
+		if(found==null) return false;
+		if(expected.equals(found)) return true;
+		return maxPixelErrors > 0 && ImageUtils.isScreenXYMatch(screen, target, found.x, found.y, maxPixelErrors);
+	}
+
+	static PackedImage pack(BufferedImage image){
+		return PackedImage.create(image.getRaster().getDataBuffer(), image.getRaster().getSampleModel());
+	}
+
+	static void time(String name, BufferedImage screenImage, BufferedImage targetImage, Rectangle expected,
+			         int maxPixelErrors, boolean fuzzy, int repeats){
+		ImageUtils.USE_FUZZY_MATCHING = fuzzy;
+		PackedImage target = pack(targetImage);
+		long fullTime = 0;
+		long pyramidTime = 0;
+		Rectangle full = null;
+		Rectangle pyramid = null;
+		for(int i=0;i<repeats;i++){
+			// a new screenshot each time, as the pyramid reduces each new screenshot once
+			PackedImage screen = pack(screenImage);
+			long start = System.nanoTime();
+			full = fullSearch(screen, target, maxPixelErrors);
+			fullTime += System.nanoTime()-start;
+			start = System.nanoTime();
+			pyramid = ImagePyramidSearch.search(screen, target, 0, 0, screen.width-1, screen.height-1, maxPixelErrors);
+			pyramidTime += System.nanoTime()-start;
+		}
+		PackedImage screen = pack(screenImage);
+		test(name +" full search", isMatch(screen, target, expected, full, maxPixelErrors), "found "+ full);
+		test(name +" pyramid search", isMatch(screen, target, expected, pyramid, maxPixelErrors), "found "+ pyramid);
+		ImageUtils.USE_FUZZY_MATCHING = false;
+		System.out.println("TIME:"+ name +" full "+ (fullTime/repeats/1000000) +" ms, pyramid "+
+		                   (pyramidTime/repeats/1000000) +" ms, per search.");
+	}
+
+	public static void main(String[] args) {
+		int width = args.length>1 ? Integer.parseInt(args[0]): 1280;
+		int height = args.length>1 ? Integer.parseInt(args[1]): 800;
+		int repeats = args.length>2 ? Integer.parseInt(args[2]): 3;
+		BufferedImage screen = PackedImageTest.createScreen(width, height);
+		Rectangle expected = new Rectangle(width-TARGET_SIZE-37, height-TARGET_SIZE-21, TARGET_SIZE, TARGET_SIZE);
+		BufferedImage target = PackedImageTest.copy(screen, expected.x, expected.y, TARGET_SIZE, TARGET_SIZE, BufferedImage.TYPE_INT_RGB);
+		int maxPixelErrors = TARGET_SIZE*TARGET_SIZE*TOLERANCE/100;
+
+		// warm up the JIT
+		time("warm up", screen, target, expected, 0, false, 1);
+		failures = 0;
+		System.out.println("Searching a "+ width +"x"+ height +" screen for a "+ TARGET_SIZE +"x"+ TARGET_SIZE +" target:");
+		time("exact", screen, target, expected, 0, false, repeats);
+		time("tolerance "+ TOLERANCE +"%", screen, target, expected, maxPixelErrors, false, repeats);
+		time("tolerance "+ TOLERANCE +"% fuzzy", screen, target, expected, maxPixelErrors, true, repeats);
+		System.out.println(failures==0? "All checks PASSED.": failures +" checks FAILED.");
+	}
+}
@@ -13,6 +13,7 @@ import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.Toolkit;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
 import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
 import java.awt.image.BufferedImageOp;
@@ -32,6 +33,7 @@ import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
@@ -298,21 +300,20 @@ public class ImageUtils {
 	static JAIImagingListener jailistener = null;
 	
 	/**
-	 * Set true if image searches using BitTolerance 
+	 * Set true if image searches 
 	 * should attempt to use parallel threading.
-	 * The current implementation of multi-threading is poor, 
-	 * and may actually be slower than NOT using multi-threading.
+	 * Searches are split across all processors on a shared ForkJoinPool.
 	 * Current default is 'false'.
-	 * @see org.safs.image.SmallPieceComparator
+	 * @see org.safs.image.ForkJoinImageSearch
 	 * @see org.safs.image.ScreenXYBTComparator  
 	 */
 	public static boolean USE_MULTIPLE_THREADS = false;
 	
 	/**
-	 * When USE_MULTIPLE_THREADS is true, DIVIDE_PIECES will be used.
-	 * This field decide the number of blocks that a search rectangle or
-	 * an image to be divided, this is also the number of threads to
-	 * be created to search an image.
+	 * When USE_MULTIPLE_THREADS is true, DIVIDE_PIECES will be used by compareImage.
+	 * This field decide the number of blocks that an image to be divided, 
+	 * this is also the number of threads to be created to compare an image.
+	 * Image searches no longer use it.
 	 * The number of threads will be DIVIDE_PIECES*DIVIDE_PIECES.
 	 * The default DIVIDE_PIECES is 4, so number of blocks (or number of
 	 * threads will be 4*4, that is 16)
@@ -320,6 +321,79 @@ public class ImageUtils {
 	 */
 	public static int DIVIDE_PIECES = 4;
 	
+	/**
+	 * Set true to reject most screen anchors with an integral image (summed-area table) 
+	 * test before the pixel-by-pixel comparison runs.  The test never rejects an anchor 
+	 * that would match, so BitTolerance results are unchanged.  It is bypassed when 
+	 * fuzzy matching is in effect.
+	 * Current default is 'true'.
+	 * @see org.safs.image.IntegralImageFilter
+	 */
+	public static boolean USE_INTEGRAL_PREFILTER = true;
+	
+	/** integral image of the current screenshot, built on first use after each recapture. */
+	static IntegralImageFilter screenFilter = null;
+	
+	/**
+	 * Set true to unpack the screenshot and target image into plain int[] pixel arrays 
+	 * once per search and compare those, instead of decoding every pixel band through 
+	 * the SampleModel for every screen anchor.  Images with more than 8 bits per band 
+	 * always use the SampleModel.
+	 * Current default is 'true'.
+	 * @see org.safs.image.PackedImage
+	 */
+	public static boolean USE_PACKED_PIXELS = true;
+	
+	/** packed pixels of the current screenshot, unpacked on first use after each recapture. */
+	static PackedImage screenPixels = null;
+	
+	/**
+	 * Set true to search large areas coarse-to-fine when any match will do (no "Index=N") 
+	 * and a BitTolerance is used.  Reduced copies of the screenshot and image are compared 
+	 * first and only the best candidates are verified at full resolution with the normal 
+	 * BitTolerance comparison.  If no candidate verifies, the normal search runs.  When the 
+	 * image appears more than once on screen, the match returned may not be the first one 
+	 * in screen order.  Exact searches never use it: the full search rejects most anchors 
+	 * at their first pixel and is several times faster.  Requires packed pixels.  
+	 * Current default is 'false'.
+	 * @see org.safs.image.ImagePyramidSearchTest
+	 * @see org.safs.image.ImagePyramidSearch
+	 * @see #IMAGE_PYRAMID_MIN_AREA
+	 */
+	public static boolean USE_IMAGE_PYRAMID = false;
+	
+	/** min number of screen anchors (search width * height) that will use the image pyramid. */
+	public static int IMAGE_PYRAMID_MIN_AREA = 300*300;
+	
+	/**
+	 * Set true to keep recently used image files decoded in {@link #STORED_IMAGES} so 
+	 * repeated recognition of the same image file does not decode it again.  A cached image 
+	 * is decoded again whenever its file's last-modified time or length changes.
+	 * Current default is 'true'.
+	 * @see org.safs.image.StoredImageCache
+	 */
+	public static boolean USE_IMAGE_CACHE = true;
+	
+	/** decoded image files used by image-based recognition. */
+	public static final StoredImageCache STORED_IMAGES = new StoredImageCache(StoredImageCache.DEFAULT_CAPACITY);
+	
+	/**
+	 * Set true to have findComponentRectangle retries recapture only the screen areas searched 
+	 * since the last capture, copying them into the existing screenshot instead of capturing 
+	 * the whole screen into a new image.  If none of those pixels changed the retry waits for 
+	 * the next capture instead of repeating a search that must fail the same way.  A search of 
+	 * an area not recaptured since then recaptures that area first.
+	 * Current default is 'true'.
+	 * @see #recaptureSearchedAreas()
+	 */
+	public static boolean USE_DIRTY_REGION_CAPTURE = true;
+	
+	/** bounds of the screen areas searched since the last capture, or null. */
+	static Rectangle searchedArea = null;
+	
+	/** screen areas captured since the last partial capture, or null if all of the screen is current. */
+	static Area freshArea = null;
+	
 	/**'100*100' if the image size is bigger than this threadshold, we will use multiple threads to compare*/
 	public final static int IMAGE_SIZE_PIXEL_THREADSHOLD = 100*100;
 
@@ -329,6 +403,8 @@ public class ImageUtils {
 	 */
 	public static void resetScreenData(){
 		screenImage = null;
+		screenFilter = null;
+		screenPixels = null;
 		screenImageType = -1;
 		screenModel = null;
 		screenBuffer = null;
@@ -682,6 +758,98 @@ public class ImageUtils {
 		screenHeight = screenModel.getHeight();
 		screenBands = screenModel.getNumBands();
 		if(debug)Log.info("Screen NumBands: "+ screenBands);		
+		searchedArea = null;
+		freshArea = null;
+	}
+
+	/**
+	 * Record a screen area about to be searched, so a retry knows which areas to recapture.
+	 * @param area screen area whose pixels the search will read.
+	 * @see #recaptureSearchedAreas()
+	 */
+	static void noteSearchedArea(Rectangle area){
+		if(area == null || area.isEmpty()) return;
+		searchedArea = (searchedArea == null) ? new Rectangle(area) : searchedArea.union(area);
+	}
+
+	/**
+	 * Record a screen area about to be searched in the stored screenshot and, after a partial 
+	 * capture, first recapture any part of it that is not current.
+	 * @param area screen area whose pixels the search will read.
+	 * @throws AWTException if java.awt.Robot AWTException occurs
+	 */
+	static void prepareSearchedArea(Rectangle area) throws AWTException{
+		Rectangle clipped = area.intersection(new Rectangle(0, 0, screenWidth, screenHeight));
+		if(clipped.isEmpty()) return;
+		noteSearchedArea(clipped);
+		if(freshArea == null || freshArea.contains(clipped)) return;
+		Log.info("IU recapturing stale search area "+ clipped);
+		freshArea.add(new Area(clipped));
+		captureIntoScreen(clipped);
+	}
+
+	/**
+	 * Recapture the screen areas searched since the last capture into the stored screenshot.
+	 * The whole screen is recaptured if {@link #USE_DIRTY_REGION_CAPTURE} is false, if no 
+	 * area was recorded, or if the screen size has changed.
+	 * @return true if the recaptured pixels changed, or the whole screen was recaptured.
+	 * @throws AWTException if java.awt.Robot AWTException occurs
+	 * @see #recaptureScreen()
+	 */
+	public static boolean recaptureSearchedAreas() throws AWTException{
+		if(!USE_DIRTY_REGION_CAPTURE || screenImage == null || searchedArea == null ||
+		   !getScreenSize().equals(screenRect)){
+			recaptureScreen();
+			return true;
+		}
+		Rectangle area = searchedArea.intersection(screenRect);
+		if(area.isEmpty()){
+			recaptureScreen();
+			return true;
+		}
+		freshArea = new Area(area);
+		boolean changed = captureIntoScreen(area);
+		if(changed) searchedArea = null;
+		return changed;
+	}
+
+	/**
+	 * Capture an area of the screen and copy it into the stored screenshot if it changed.
+	 * Data derived from the screenshot is discarded when it changes.
+	 * @param area screen area inside the stored screenshot.
+	 * @return true if any pixel of the area changed.
+	 * @throws AWTException if java.awt.Robot AWTException occurs
+	 */
+	static boolean captureIntoScreen(Rectangle area) throws AWTException{
+		BufferedImage capture = captureScreenArea(area);
+		if(capture.getType() != screenImageType){
+			Log.debug("IU partial capture type "+ capture.getType() +" does not match screenshot type "+ screenImageType);
+			recaptureScreen();
+			return true;
+		}
+		Raster captured = capture.getRaster();
+		Object newRow = null;
+		Object oldRow = null;
+		int dirtyRows = 0;
+		for(int y=0;y<area.height;y++){
+			newRow = captured.getDataElements(0, y, area.width, 1, newRow);
+			oldRow = screenRaster.getDataElements(area.x, area.y+y, area.width, 1, oldRow);
+			if(!isSameRow(newRow, oldRow)) dirtyRows++;
+		}
+		Log.info("IU recaptured screen area "+ area +" with "+ dirtyRows +" changed rows.");
+		if(dirtyRows == 0) return false;
+		screenImage.getRaster().setDataElements(area.x, area.y, captured);
+		screenFilter = null;
+		screenPixels = null;
+		return true;
+	}
+
+	/** @return true if two rows from Raster.getDataElements are known to be equal. */
+	private static boolean isSameRow(Object row1, Object row2){
+		if(row1 instanceof int[] && row2 instanceof int[]) return Arrays.equals((int[])row1, (int[])row2);
+		if(row1 instanceof byte[] && row2 instanceof byte[]) return Arrays.equals((byte[])row1, (byte[])row2);
+		if(row1 instanceof short[] && row2 instanceof short[]) return Arrays.equals((short[])row1, (short[])row2);
+		return false;
 	}
 
 	/**
@@ -758,6 +926,22 @@ public class ImageUtils {
 		throw new FileNotFoundException(fullpath);
 	}
 
+	/**
+	 * Get the image stored in a file for image-based recognition.  
+	 * When {@link #USE_IMAGE_CACHE} is true the image comes from {@link #STORED_IMAGES} 
+	 * and is shared, so it must not be modified.
+	 * @param file absolute image file.
+	 * @return BufferedImage representing the stored image.
+	 * @throws FileNotFoundException if the file does not exist or cannot be read.
+	 * @throws IOException if there is a problem reading the file or file format.
+	 * @see #getStoredImage(String)
+	 */
+	public static BufferedImage getRecognitionImage(File file)throws FileNotFoundException,IOException
+	{
+		if(USE_IMAGE_CACHE) return STORED_IMAGES.getImage(file);
+		return getStoredImage(file.getAbsolutePath());
+	}
+
 	/**
 	 * Attempts to determine the width and height of the stored image.
 	 * @param fullpath case-insensitive absolute path to the image on file.
@@ -947,6 +1131,59 @@ public class ImageUtils {
 		return matched;
 	}
 	
+	/**
+	 * Get the packed pixels of the current screenshot and of a target image.
+	 * @param imageBuffer - DataBuffer of the target image
+	 * @param imageModel - SampleModel of the target image
+	 * @return the packed screenshot [0] and target [1], or null if packed pixels cannot be used.
+	 * @see #USE_PACKED_PIXELS
+	 */
+	static PackedImage[] getPackedPixels(DataBuffer imageBuffer, SampleModel imageModel){
+		if(!USE_PACKED_PIXELS || screenBuffer == null) return null;
+		try{
+			PackedImage screen = screenPixels;
+			if(screen == null || !screen.isImageFor(screenBuffer)){
+				screen = PackedImage.create(screenBuffer, screenModel);
+				screenPixels = screen;
+			}
+			if(screen == null) return null;
+			PackedImage image = USE_IMAGE_CACHE ? STORED_IMAGES.getPackedImage(imageBuffer, imageModel) :
+			                                      PackedImage.create(imageBuffer, imageModel);
+			return image == null ? null : new PackedImage[]{screen, image};
+		}catch(OutOfMemoryError x){
+			Log.debug("IU packed pixel comparison disabled due to insufficient memory.");
+			screenPixels = null;
+			return null;
+		}
+	}
+	
+	/**
+	 * Prepare the integral image prefilter for a target image on the current screenshot.
+	 * @param imageBuffer - DataBuffer of the target image
+	 * @param imageModel - SampleModel of the target image
+	 * @param block - portion of the target image to be compared, or null for all of it.
+	 * @param fuzzy - true if fuzzy matching will be used by the comparison.
+	 * @return the target cell sums to test anchors with, or null if the prefilter cannot be used.
+	 * @see #USE_INTEGRAL_PREFILTER
+	 */
+	static IntegralImageFilter.Target getPrefilter(DataBuffer imageBuffer, SampleModel imageModel, Rectangle block, boolean fuzzy){
+		if(!USE_INTEGRAL_PREFILTER || fuzzy || screenBuffer == null) return null;
+		try{
+			IntegralImageFilter filter = screenFilter;
+			if(filter == null || !filter.isFilterFor(screenBuffer)){
+				long start = System.currentTimeMillis();
+				filter = IntegralImageFilter.create(screenBuffer, screenModel);
+				screenFilter = filter;
+				if(debug) Log.info("IU built screen integral image in "+ (System.currentTimeMillis()-start) +" milliseconds.");
+			}
+			return filter == null ? null : filter.prepareTarget(imageBuffer, imageModel, block);
+		}catch(OutOfMemoryError x){
+			Log.debug("IU integral image prefilter disabled due to insufficient memory.");
+			screenFilter = null;
+			return null;
+		}
+	}
+	
 	/**
 	 * Attempts to locate the provided image within the latest screenshot and return 
 	 * its location and size, if found.  Use the current Bit Tolerance settings.
@@ -1001,7 +1238,8 @@ public class ImageUtils {
 		//image = copy(image);
 		int imageType = image.getType();
 		if(imageType != screenImageType){
-			BufferedImage tempImg = convertImage(image, screenImageType);
+			BufferedImage tempImg = USE_IMAGE_CACHE ? STORED_IMAGES.getConvertedImage(image, screenImageType) :
+			                                          convertImage(image, screenImageType);
 			if(tempImg!=null){
 				imageType = screenImageType;
 				image = tempImg;
@@ -1041,6 +1279,8 @@ public class ImageUtils {
 		//		      "Bad parameter value for SearchRect.height", "SearchRect.height"));
 		//}
 		Log.info("IU searching for image of width="+ imageWidth +", height="+ imageHeight);
+		// the search reads pixels up to one image size (plus 1 for fuzzy matching) beyond the anchors
+		prepareSearchedArea(new Rectangle(startx-1, starty-1, searchWidth+imageWidth+1, searchHeight+imageHeight+1));
 		
 		// prepare bit tolerance usage
 		int maxPixels = imageWidth * imageHeight;
@@ -1058,19 +1298,21 @@ public class ImageUtils {
 //		if(useBitsTolerance && USE_MULTIPLE_THREADS){
 //			return findImageWithXYBTThreadPool(startx, starty, searchWidth, searchHeight, maxPixelErrors, imageBuffer, imageModel, nth);	
 //		}
-		//If user specify the index to indicate which image he wants,
-		//we should not use the multi-thread to search, as multi-thread can't guarantee the order of image found
-		//But user can specify "index=any" to hint that he doesn't care the order of image found. parameter nth will be -1.
+		//The multi-thread search returns the same nth match as the single thread search,
+		//so "Index=N" can use it too.  If we don't specify "Index=N" (nth 0) any match will do.
+		//User can specify "index=any" to force the multi-thread-search. parameter nth will be -1.
 		Log.debug("UI USE_MULTIPLE_THREADS = "+USE_MULTIPLE_THREADS+"; nth="+nth+"; seeki="+seeki);
-		//If we don't specify "Index=Nth" in Recognition String, use "USE_MULTIPLE_THREADS" to decide if apply mutli-thread-search
-		if(nth==0){
-			if(USE_MULTIPLE_THREADS){
-				return findImageWithXYBTThread(startx, starty, searchWidth, searchHeight, maxPixelErrors, image, imageBuffer, imageModel);
+		if(USE_IMAGE_PYRAMID && nth < 1 && maxPixelErrors > 0 && (long)searchWidth*searchHeight >= IMAGE_PYRAMID_MIN_AREA){
+			PackedImage[] packed = getPackedPixels(imageBuffer, imageModel);
+			if(packed != null){
+				Rectangle found = ImagePyramidSearch.search(packed[0], packed[1], startx, starty, 
+						startx+searchWidth-1, starty+searchHeight-1, maxPixelErrors);
+				if(found != null) return found;
+				Log.info("IU image pyramid found no match.  Using the full search.");
 			}
-			//else USE_MULTIPLE_THREADS is false, we will use single thread to search the 1th matched image as seeki is 1.
-		//If we specify "Index=Any" in image Recognition String, we use multi-thread-search
-		}else if(nth==-1){
-			return findImageWithXYBTThread(startx, starty, searchWidth, searchHeight, maxPixelErrors, image, imageBuffer, imageModel);
+		}
+		if(USE_MULTIPLE_THREADS || nth==-1){
+			return findImageWithXYBTThread(startx, starty, searchWidth, searchHeight, maxPixelErrors, image, imageBuffer, imageModel, nth);
 		}
 		
 		// allow the START of the matching image to begin anywhere in the searchRect,
@@ -1081,11 +1323,20 @@ public class ImageUtils {
 		int screenx = startx;
 		int screeny = starty;
 		boolean matched = false;
+		IntegralImageFilter.Target prefilter = getPrefilter(imageBuffer, imageModel, null, (maxPixelErrors > 0 && USE_FUZZY_MATCHING));
+		PackedImage[] packed = getPackedPixels(imageBuffer, imageModel);
 		try{			
 			for(screeny = starty;screeny < imageMaxScreenY;screeny++){
 				screenx = startx;
 				while(screenx < imageMaxScreenX && !matched){
-					matched = isScreenXYMatch(screenBuffer, screenModel, imageBuffer, imageModel, screenx, screeny, maxPixelErrors);
+					// skip anchors where the image certainly cannot match
+					if(prefilter != null && !prefilter.canMatch(screenx, screeny, maxPixelErrors)){
+						screenx++;
+						continue;
+					}
+					matched = (packed != null) ?
+						isScreenXYMatch(packed[0], packed[1], screenx, screeny, maxPixelErrors) :
+						isScreenXYMatch(screenBuffer, screenModel, imageBuffer, imageModel, screenx, screeny, maxPixelErrors);
 					if(!matched) 
 						screenx++;
 					else{
@@ -1169,6 +1420,7 @@ public class ImageUtils {
 			ExecutorService pool = Executors.newFixedThreadPool(threads);
 
 			ScreenXYBTComparator[] compare = new ScreenXYBTComparator[threads];
+			PackedImage[] packed = getPackedPixels(imageBuffer, imageModel);
 			
 			for(screeny = starty;screeny < imageMaxScreenY;screeny++){
 				screenx = startx;
@@ -1179,6 +1431,7 @@ public class ImageUtils {
 					// if thread is null then start it up
 					if(compare[tindex]==null) {
 						compare[tindex] = new ScreenXYBTComparator(screenBuffer, screenModel, imageBuffer, imageModel, screenx, screeny, maxPixelErrors);
+						if(packed != null) compare[tindex].setPackedPixels(packed[0], packed[1]);
 						pool.execute(compare[tindex++]);
 						// only increment screenx if another new thread will be created next loop
 						if(tindex==compare.length){
@@ -1252,20 +1505,27 @@ public class ImageUtils {
 		return result;
     }
     
+	/**
+	 * Generally called from findBufferedImageOnScreen and not normally called directly.
+	 * Use multiple-thread algorithm to search an image on screen and return the first 
+	 * match found by any thread.
+	 * 
+	 * @see #findImageWithXYBTThread(int, int, int, int, int, BufferedImage, DataBuffer, SampleModel, int)
+	 */
+    protected static Rectangle findImageWithXYBTThread(int startx, int starty, 
+    		int searchWidth, int searchHeight, 
+    		int maxPixelErrors,
+    		BufferedImage image,
+    		DataBuffer imageBuffer,
+    		SampleModel imageModel) throws IllegalArgumentException,ImagingOpException,AWTException{
+    	return findImageWithXYBTThread(startx, starty, searchWidth, searchHeight, maxPixelErrors, image, imageBuffer, imageModel, 0);
+    }
+    
 	/**
 	 * Generally called from findBufferedImageOnScreen and not normally called directly.
 	 * Use multiple-thread algorithm to search an image on screen.
-	 * The search algorithm is different according to the size of the picture.
-	 * If the size is big:
-	 *   We will divide the picture to small blocks, for each block, we use
-	 *   SmallPieceComparator to create a thread to compare with according screen location.
-	 *   If all blocks can match, which means the whole picture match.
-	 * If the size is small:
-	 *   We will divide the search rectangle to small pieces, for each small search
-	 *   rectangle, we use SmallPieceComparator to create a thread to search the whole picture
-	 *   in that rectangle.
-	 *   If one of the thread find a matched picture in its search rectangle, which means 
-	 *   the search is ok, we can stop the other threads.
+	 * The rows of the search rectangle are split recursively into tasks run on a shared 
+	 * ForkJoinPool using all processors.  Every task stops once the requested match is known.
 	 * <p>
 	 * 
 	 * @param startx - x-coord on screen to start the search
@@ -1276,6 +1536,8 @@ public class ImageUtils {
 	 * @param image		- BufferedImage of the target image
 	 * @param imageBuffer - DataBuffer of the target image
 	 * @param imageModel - SampleModel of the target image
+	 * @param nth - find the nth match in the same order as the single thread search.  
+	 *              Less than 1 returns the first match found by any thread.
 	 * 
 	 * @return Rectangle location where the image was found or null.
 	 * @throws IllegalArgumentException
@@ -1284,304 +1546,29 @@ public class ImageUtils {
 	 * @see {@link #findBufferedImageOnScreen(BufferedImage, Rectangle, int)}
 	 * @see java.awt.image.DataBuffer
 	 * @see java.awt.image.SampleModel
-	 * @see org.safs.image.SharedLock
-	 * @see org.safs.image.SmallPieceComparator
+	 * @see org.safs.image.ForkJoinImageSearch
 	 */
     protected static Rectangle findImageWithXYBTThread(int startx, int starty, 
     		int searchWidth, int searchHeight, 
     		int maxPixelErrors,
     		BufferedImage image,
     		DataBuffer imageBuffer,
-    		SampleModel imageModel) throws IllegalArgumentException,ImagingOpException,AWTException{
+    		SampleModel imageModel,
+    		int nth) throws IllegalArgumentException,ImagingOpException,AWTException{
     	Rectangle result = null;
-    	//pieces represents the number of threads to be created.If pieces is 4, then 16 threads will be created.
-    	int pieces = DIVIDE_PIECES;
-    	int minPixel = screenModel.getWidth()*screenModel.getHeight()/(pieces*pieces);
-    	int imagePixel = imageModel.getWidth()*imageModel.getHeight();
-    	
     	try{
-    		//Use different strategy to search a matched image
-    		//1. If the image is small, we will decompose the search rectangle to 
-    		//   several small search areas, within each search area, we use a thread to search
-    		if(imagePixel<minPixel){
-    			result = findSmallImageWithXYBTThread(startx,starty,searchWidth,searchHeight,maxPixelErrors,imageBuffer,imageModel,pieces);
-    		}
-    		//2. If the image is big, we will decompose the image to small blocks, for each block
-    		//	 we create a thread to match with the screen
-    		else{
-    			result = findBigImageWithXYBTThread(startx,starty,searchWidth,searchHeight,maxPixelErrors,image,imageBuffer,imageModel,pieces);
-    		}
+    		IntegralImageFilter.Target prefilter = getPrefilter(imageBuffer, imageModel, null, (maxPixelErrors > 0 && USE_FUZZY_MATCHING));
+    		PackedImage[] packed = getPackedPixels(imageBuffer, imageModel);
+    		// same anchors as the single thread search in findBufferedImageOnScreen
+    		result = ForkJoinImageSearch.search(screenBuffer, screenModel, imageBuffer, imageModel, packed, prefilter,
+    				                            startx, starty, startx + searchWidth-1, starty + searchHeight-1, 
+    				                            maxPixelErrors, nth);
     	}catch(Exception x){
     		Log.debug("IU findImageWithXYBTThread encountered Exception:", x);			
     	}
     	return result;
     }
     
-    /**
-     * We will divide the search rectangle to small pieces, for each small search
-	 * rectangle, we use SmallPieceComparator to create a thread to search the whole picture
-	 * in that rectangle.
-	 * If one of the thread find a matched picture in its search rectangle, which means 
-	 * the search is ok, we can stop the other threads.<p>
-	 *   
-	 * @param startx - x-coord on screen to start the search
-	 * @param starty - y-coord on screen to start the search
-	 * @param searchWidth - width of area from startx to search
-	 * @param searchHeight - height of area from starty to search
-	 * @param maxPixelErrors - max number of pixels that can fail comparison
-	 * @param imageBuffer - DataBuffer of the target image
-	 * @param imageModel - SampleModel of the target image
-     * @param pieces -  pieces*pieces will be the number of thread or
-     *                                        the number of block the search rectangle to be divided to
-     *                                        
-     * @return Rectangle location where the image was found or null.
-     * @throws InterruptedException
-     */
-    private static Rectangle findSmallImageWithXYBTThread(int startx, int starty, 
-    		int searchWidth, int searchHeight, 
-    		int maxPixelErrors,
-    		DataBuffer imageBuffer,
-    		SampleModel imageModel,
-    		int pieces) throws InterruptedException{
-    	Rectangle result = null;
-    	boolean matched = false;
-    	
-		//Calculate the maximum search point on screen
-    	int imageMaxScreenX = startx + searchWidth-1;
-    	int imageMaxScreenY = starty + searchHeight-1;
-    	int imagew = imageModel.getWidth();
-    	int imageh = imageModel.getHeight();
-    	int screenw = screenModel.getWidth();
-    	int screenh = screenModel.getHeight();
-    	//Re-Calculate the imageMaxScreenX and imageMaxScreenY, if the addition of 'search point' and 'image width/height'
-    	//exceed the screen width and height
-    	imageMaxScreenX = ((imageMaxScreenX+imagew)>screenw)? (screenw-imagew) : imageMaxScreenX;
-    	imageMaxScreenY = ((imageMaxScreenY+imageh)>screenh)? (screenh-imageh) : imageMaxScreenY;
-    	
-		Log.debug("IU findSmallImageWithXYBTThread-->Main thread: Searching one block in multiple search areas.");
-		int pieceWidth = (imageMaxScreenX-startx)/pieces;
-		int pieceHeight = (imageMaxScreenY-starty)/pieces;
-		//screenStartx, screenEndx, screenStarty and screenEndy represent the start and
-		//end point of each search-rectangle
-		int screenStartx, screenEndx, screenStarty, screenEndy;
-		
-		SmallPieceComparator[] threads = new SmallPieceComparator[pieces*pieces];
-		SharedLock lock = new SharedLock(maxPixelErrors, threads.length, false);
-		int threadIndex=0;
-		
-		//Divide the search rectangle, for each small search rectangle create one thread
-		//For the most outer blocks, we need to set its screenEndx and screenEndy to imageMaxScreenX and imageMaxScreenY
-		for(int i=0;i<pieces;i++){
-			screenStarty = starty+i*pieceHeight;
-			screenEndy = screenStarty+pieceHeight;
-			if(i==pieces-1) screenEndy = imageMaxScreenY;
-			
-			for(int j=0;j<pieces;j++){
-				screenStartx = startx+j*pieceWidth;
-				screenEndx = screenStartx+pieceWidth;
-				if(j==pieces-1) screenEndx = imageMaxScreenX;
-				
-				threads[threadIndex] = new SmallPieceComparator(screenBuffer,screenModel, imageBuffer,
-        				imageModel, lock, new Rectangle(0,0,imagew,imageh),
-        				screenStartx,screenEndx,screenStarty,screenEndy,
-        				true);
-				threads[threadIndex].start();
-				threadIndex++;
-			}
-		}
-
-		//Check if one of the thread find the matched image
-		synchronized (lock) {
-			while (lock.hasRunningThreads()) {
-				Log.debug("IU findSmallImageWithXYBTThread-->Main thread is waitting search whole image .......  ");
-				lock.setWaiting(true);
-				lock.wait();
-				Log.debug("IU findSmallImageWithXYBTThread-->Main thread has been notified .......  ");
-				if (lock.isMatched()) {
-					matched = true;
-					// If one thread has found the matched image, we just stop the other threads
-					for (int i = 0; i < threads.length; i++) {
-						if (threads[i].isAlive()) {
-							threads[i].setInterrupted(true);
-						}
-					}
-					break;
-				}
-			}
-			if(matched){
-				//We should get the matchedPoint from the lock object in the synchronized
-				//block, this make sure we get the point set by the thread who is notifying us.
-				Point p = lock.getMatchedPoint();
-				result = new Rectangle(p.x,p.y,imagew,imageh);
-			}else{
-				Log.info("IU findSmallImageWithXYBTThread did not find the image.");			
-			}
-		}
-    	return result;
-    }
-    
-    /**
-     * We will divide the picture to small blocks, for each block, we use
-	 * SmallPieceComparator to create a thread to compare with according screen location.
-	 * If all blocks can match, which means the whole picture match.<p>
-	 *   
-	 * @param startx - x-coord on screen to start the search
-	 * @param starty - y-coord on screen to start the search
-	 * @param searchWidth - width of area from startx to search
-	 * @param searchHeight - height of area from starty to search
-	 * @param maxPixelErrors - max number of pixels that can fail comparison
-	 * @param image		- BufferedImage of the target image
-	 * @param imageBuffer - DataBuffer of the target image
-	 * @param imageModel - SampleModel of the target image
-     * @param pieces - pieces*pieces will be the number of thread or
-     *                                       the number of blocks the big image to be divided to
-     *                                       
-     * @return Rectangle location where the image was found or null.
-     * @throws InterruptedException
-     */
-    private static Rectangle findBigImageWithXYBTThread(int startx, int starty, 
-    		int searchWidth, int searchHeight, 
-    		int maxPixelErrors,
-    		BufferedImage image,
-    		DataBuffer imageBuffer,
-    		SampleModel imageModel,
-    		int pieces) throws InterruptedException{
-    	Rectangle result = null;
-    	int screenx = startx;
-    	int screeny = starty;
-    	boolean matched = false;
-		//Calculate the maximum search point on screen
-    	int imageMaxScreenX = startx + searchWidth-1;
-    	int imageMaxScreenY = starty + searchHeight-1;
-    	int imagew = imageModel.getWidth();
-    	int imageh = imageModel.getHeight();
-    	int screenw = screenModel.getWidth();
-    	int screenh = screenModel.getHeight();
-    	//Re-Calculate the imageMaxScreenX and imageMaxScreenY, if the addition of 'search point' and 'image width/height'
-    	//exceed the screen width and height
-    	imageMaxScreenX = ((imageMaxScreenX+imagew)>screenw)? (screenw-imagew) : imageMaxScreenX;
-    	imageMaxScreenY = ((imageMaxScreenY+imageh)>screenh)? (screenh-imageh) : imageMaxScreenY;
-    	
-		Log.debug("IU findBigImageWithXYBTThread-->Main thread: Searching multiple blocks on one start-point.");
-		//Decompose the picture to multiple blocks
-		Rectangle[] blocks = new Rectangle[pieces*pieces];
-		int pieceWidth = imagew/pieces;
-		int pieceHeight = imageh/pieces;
-		int tmpWidth=0, tmpHeight=0;
-
-		//For the most outer blocks, we need to re-calculate it height and width
-		for(int i=0;i<pieces;i++){
-			if(i==pieces-1) tmpWidth = imagew-pieceWidth*i;
-			else tmpWidth = pieceWidth;
-			
-			for(int j=0;j<pieces;j++){
-				if(j==pieces-1) tmpHeight = imageh-pieceHeight*j;
-				else tmpHeight = pieceHeight;
-				
-				blocks[i*pieces+j] = new Rectangle(pieceWidth*i,pieceHeight*j,tmpWidth,tmpHeight);
-//				System.out.println("block "+(i*pieces+j)+": "+blocks[i*pieces+j]);
-			}
-		}
-		//Prepare the first block for searching
-		BufferedImage firstblock = image.getSubimage(blocks[0].x, blocks[0].y, blocks[0].width,blocks[0].height);
-		DataBuffer firstbuffer = firstblock.getRaster().getDataBuffer();
-		SampleModel firstmodel = firstblock.getRaster().getSampleModel();
-
-		SmallPieceComparator[] threads = new SmallPieceComparator[pieces*pieces];
-		// Initialize the SharedLock
-		SharedLock lock = new SharedLock(maxPixelErrors, threads.length,true);
-
-		//Date firsttime= new Date();
-		Rectangle firstBlockRec = null;
-outer:  for(screeny = starty; (screeny<imageMaxScreenY && !matched) ;screeny++){
-			for (screenx = startx; (screenx<imageMaxScreenX && !matched); screenx++) {
-				//1. Search the first block of decomposed picture
-				
-				//Use single thread to search the first block      				
-				//   If we can find it at (startScrX,startScrY), we will use
-				//   multi-thread to search the rest blocks; Otherwise we will
-				//   continue to search the next start point
-//				System.out.println("Searching first block from ("+screenx+","+screeny+")");
-//				if(!isScreenXYMatch(screenBuffer, screenModel, firstbuffer, firstmodel, screenx, screeny, maxPixelErrors)){
-//					continue;
-//				}else{
-//					System.out.println("Found first block at ("+screenx+","+screeny+")");
-//				}
-				
-				//As single thread search the first blcok will take to much time,
-				//so decide to use multi-thread to search
-				//Use multiple thread to search the first block
-				
-				//Note!!! but there is a risk, if the first block has several matched image
-				//on the screen within search-rectangle, the multi-thread algo can't garantee
-				//we find the whole picture. At this situation, we should use the single-thread
-				//search algo isScreenXYMatch() for searching first block
-				firstBlockRec = findSmallImageWithXYBTThread(screenx, screeny, (imageMaxScreenX-screenx), 
-						(imageMaxScreenY-screeny), maxPixelErrors, firstbuffer, firstmodel,pieces);
-				if(firstBlockRec!=null){
-					screenx = firstBlockRec.x-1;
-					screeny = firstBlockRec.y-1;
-					Log.debug("IU findBigImageWithXYBTThread-->Found first block at ("+firstBlockRec.x+","+firstBlockRec.y+")");
-				}else{
-					//If we can't find matched area on screen for the first block
-					//then we are sure the whole image will not be matched
-					matched = false;
-					break outer;
-				}
-				//Log.debug("IU findBigImageWithXYBTThread-->First block used time: "+(new Date().getTime()-firsttime.getTime()));
-				
-				//2. Search the whole picture with multi-thread for each block
-				//Reset the lock for the next search
-				lock.reset(maxPixelErrors, threads.length, true);
-				//Now, we just begin from point(screenx,screeny), we start multiple thread
-				//to search each small block decomposed from the whole picture
-				for(int k=0;k<threads.length;k++){
-    				threads[k] = new SmallPieceComparator(screenBuffer,screenModel, imageBuffer,
-            				imageModel, lock, blocks[k],
-            				screenx,-1,screeny,-1,false);
-    				threads[k].start();
-				}
-				synchronized (lock) {
-					//Wait for all threads finish
-					while (lock.hasRunningThreads()) {
-						Log.debug("IU findBigImageWithXYBTThread-->Main thread is waitting block-search-threads .......  ");
-						lock.setWaiting(true);
-						lock.wait();
-						Log.debug("IU findBigImageWithXYBTThread-->Main thread has been notified .......  ");
-						// When one of threads finish, the main thread will be notified.
-						// If the shared lock's property "matched" is false, that means we
-						// fail to match the whole picture, we just stop all threads and
-						// should begin an other search from the next search point.
-						if (!lock.isMatched()) {
-							Log.debug("IU findBigImageWithXYBTThread-->One of blocks is not matched  .......  ");
-							// Kill all running threads
-							for (int i = 0; i < threads.length; i++) {
-								if (threads[i].isAlive()) {
-									threads[i].setInterrupted(true);
-								}
-							}
-							break;
-						}
-						
-						//I just remove the above section, there is a dead-lock problem.
-						//We can wait for all thread finish, as the search-thread share
-						//one field maxErrorBits in lock, if maxErrorBits has been exceeded,
-						//all threads will finish quickly, no need to interrupt them one by one.
-					}
-					matched = lock.isMatched();
-				}
-			}//end for screenx
-		}//end for screeny
-		
-		if(matched){
-			Log.debug("IU findBigImageWithXYBTThread-->Find image on start point ("+screenx+","+screeny+")");
-			result = new Rectangle(screenx, screeny, imagew,imageh);
-		}else{
-			Log.debug("IU findBigImageWithXYBTThread did not find the image.");			
-		}
-    	return result;
-    }  
-    
     /**
      * This is a time expensive match seeking to match 1 pixel with any one of 8 adjacent pixels.
      * @param screenshotBuffer
@@ -1634,10 +1621,9 @@ outer:  for(screeny = starty; (screeny<imageMaxScreenY && !matched) ;screeny++){
 	 * @param maxBTerrors - max number of pixel mismatches allowed (bit tolerance)
 	 * @return true if the target image is a satisfactory match at this screen x,y coordinate
 	 */
-    private static boolean isScreenXYMatch(DataBuffer screenshotBuffer, SampleModel screenshot, DataBuffer targetBuffer, SampleModel target, int startScreenX, int startScreenY, long maxBTerrors){
+    static boolean isScreenXYMatch(DataBuffer screenshotBuffer, SampleModel screenshot, DataBuffer targetBuffer, SampleModel target, int startScreenX, int startScreenY, long maxBTerrors){
 		long pixelErrors = 0;
 		long pixelMatches = 0;
-		float percentages = 0;
 		boolean useBT = maxBTerrors > 0;
 		int targetheight = target.getHeight();
 		int targetwidth  = target.getWidth();
@@ -1646,7 +1632,6 @@ outer:  for(screeny = starty; (screeny<imageMaxScreenY && !matched) ;screeny++){
 		int scrW         = screenshot.getWidth();
 		int scrX = 0;
 		int scrY = 0;
-		boolean result = false;
 		int trgV = 0;
 		int scrV = 0;
 		int imagex = 0;
@@ -1713,7 +1698,83 @@ outer:  for(screeny = starty; (screeny<imageMaxScreenY && !matched) ;screeny++){
 			if(imagex != targetwidth) 
 				break;						
 		}		
-		if (((imagex == targetwidth)&&(imagey == targetheight)) || (pixelMatches >= requiredMatches)) {
+		return evaluateScreenXYMatch(((imagex == targetwidth)&&(imagey == targetheight)), pixelMatches, pixelErrors, 
+				                     requiredMatches, maxBTerrors, startScreenX, startScreenY);
+	}    
+    
+	/**
+	 * Evaluate if the target image matches at the specified screen x,y coordinate.
+	 * Same as {@link #isScreenXYMatch(DataBuffer, SampleModel, DataBuffer, SampleModel, int, int, long)} 
+	 * but using pixels already unpacked into int[] arrays.
+	 * @param screenshot - packed pixels of the screenshot
+	 * @param target - packed pixels of the target image
+	 * @param startScreenX
+	 * @param startScreenY
+	 * @param maxBTerrors - max number of pixel mismatches allowed (bit tolerance)
+	 * @return true if the target image is a satisfactory match at this screen x,y coordinate
+	 */
+    static boolean isScreenXYMatch(PackedImage screenshot, PackedImage target, int startScreenX, int startScreenY, long maxBTerrors){
+		long pixelErrors = 0;
+		long pixelMatches = 0;
+		boolean useBT = maxBTerrors > 0;
+		boolean useFuzzy = useBT && USE_FUZZY_MATCHING;
+		int targetheight = target.height;
+		int targetwidth  = target.width;
+		long requiredMatches = targetheight * targetwidth - maxBTerrors;
+		int scrH         = screenshot.height;
+		int scrW         = screenshot.width;
+		int[] scrPixels  = screenshot.pixels;
+		int[] trgPixels  = target.pixels;
+		int scrX = 0;
+		int scrY = 0;
+		int trgV = 0;
+		int imagex = 0;
+		int imagey = 0;
+		for(imagey=0;imagey<targetheight;imagey++){
+			scrY = startScreenY+imagey;
+			if (scrY >= scrH)
+				break;
+			int scrRow = scrY*scrW;
+			int trgRow = imagey*targetwidth;
+			for(imagex=0;imagex<targetwidth;imagex++){
+				scrX = startScreenX+imagex;
+				if (scrX >= scrW)
+					break;								
+				trgV = trgPixels[trgRow+imagex];
+				// any 1 of 3 band mismatches makes the pixel "bad"
+				if (trgV != scrPixels[scrRow+scrX]) {
+					if(useFuzzy && PackedImage.isFuzzyMatch(screenshot, scrX, scrY, trgV)){
+						pixelMatches++;
+						continue;
+					}
+					if(!useBT) break;
+					if(++pixelErrors < maxBTerrors) continue;
+					break; 
+				}
+				if( ++pixelMatches >= requiredMatches) {
+					if(debug) Log.info("IU.isScreenXYMatched presuming success with "+ pixelMatches +" matches and "+ pixelErrors +" errors.");
+					break;				
+				}
+			}
+			//break if image data did not match (maxerrors exceeded)
+			if(imagex != targetwidth) 
+				break;						
+		}		
+		return evaluateScreenXYMatch(((imagex == targetwidth)&&(imagey == targetheight)), pixelMatches, pixelErrors, 
+				                     requiredMatches, maxBTerrors, startScreenX, startScreenY);
+	}
+    
+    /**
+     * Decide the result of a single screen x,y comparison, log it, and record the closest 
+     * match data for a failed comparison.
+     * @param completed - true if every pixel of the target image was compared.
+     * @return true if the target image is a satisfactory match at this screen x,y coordinate
+     */
+    private static boolean evaluateScreenXYMatch(boolean completed, long pixelMatches, long pixelErrors, long requiredMatches, 
+    		                                     long maxBTerrors, int startScreenX, int startScreenY){
+		float percentages = 0;
+		boolean result = false;
+		if (completed || (pixelMatches >= requiredMatches)) {
 			result = true;
 			if (maxBTerrors > 0) percentages = pixelErrors/maxBTerrors; //avoid divide by zero exception
 			if(pixelErrors == 0) {
@@ -1722,7 +1783,7 @@ outer:  for(screeny = starty; (screeny<imageMaxScreenY && !matched) ;screeny++){
 				Log.info("IU isScreenXYMatched MATCHED image with reserved confidence at "+ startScreenX +","+ startScreenY);
 			}
 		}else{
-			if(useBT && (pixelMatches > 0)){
+			if((maxBTerrors > 0) && (pixelMatches > 0)){
 				percentages = (pixelMatches/requiredMatches)*100;
 				if(percentages > closestPercentage){
 					closestPercentage = percentages;
@@ -1734,7 +1795,7 @@ outer:  for(screeny = starty; (screeny<imageMaxScreenY && !matched) ;screeny++){
 			}
 		}
 		return result;														
-	}    
+    }
     
     //LieWang: Modify method isScreenXYMatch(): Fix problem "Wrongly caculate the mis-match percentage".
 //	private static boolean isScreenXYMatch(DataBuffer screenshotBuffer, SampleModel screenshot, DataBuffer targetBuffer, SampleModel target, int startScreenX, int startScreenY, long maxBTerrors){
@@ -2719,7 +2780,7 @@ outer:  for(screeny = starty; (screeny<imageMaxScreenY && !matched) ;screeny++){
         
         if(fn.isFile()){
         	Log.info("IU seeking image: "+ fn.getAbsolutePath());
-        	pic = getStoredImage(fn.getAbsolutePath());
+        	pic = getRecognitionImage(fn);
         	if(imageBR)
         		searchRec = adjustImageBRect(pic, searchRec);
         	winloc = findBufferedImageOnScreen(pic, searchRec, nthindex);
@@ -2734,7 +2795,7 @@ outer:  for(screeny = starty; (screeny<imageMaxScreenY && !matched) ;screeny++){
         		try{
         			if(file.isDirectory()) continue;
                 	Log.info("IU seeking directory image: "+ file.getAbsolutePath());
-	            	pic = getStoredImage(file.getAbsolutePath());
+	            	pic = getRecognitionImage(file);
 	            	if(imageBR)
 	            		searchRec = adjustImageBRect(pic, searchRec);
 	            	winloc = findBufferedImageOnScreen(pic, searchRec, nthindex);
@@ -3163,7 +3224,10 @@ outer:  for(screeny = starty; (screeny<imageMaxScreenY && !matched) ;screeny++){
         	}
         	if(loop){
         		try{Thread.sleep(100);}catch(InterruptedException n){;}
-        		if(System.currentTimeMillis() < endtime) recaptureScreen();
+        		// search again once something in the searched areas has changed
+        		while(System.currentTimeMillis() < endtime && !recaptureSearchedAreas()){
+        			try{Thread.sleep(100);}catch(InterruptedException n){;}
+        		}
         	}
         }while( loop && (System.currentTimeMillis() < endtime));
         if (anchor==null){
@@ -3236,6 +3300,7 @@ outer:  for(screeny = starty; (screeny<imageMaxScreenY && !matched) ;screeny++){
         	return null;
     	}
     	Log.info("IU Comp ImageText using SearchRec:"+ compsearchRect);
+    	noteSearchedArea(compsearchRect);
     	BufferedImage winImageOnScreen	= captureScreenArea(compsearchRect);
     	//TODO Here we will force to get the TOCR Engine, as only TesseractOCREngine can
     	//support to get location of a text within an image. In furture, if GOCR support also
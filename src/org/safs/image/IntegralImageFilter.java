@@ -0,0 +1,199 @@
+/**
+ * Copyright (C) SAS Institute. All rights reserved.
+ * General Public License: http://www.opensource.org/licenses/gpl-license.php
+ **/
+package org.safs.image;
+
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.SampleModel;
+
+/**
+ * Summed-area table (integral image) of a screenshot used to reject image search anchors
+ * before the pixel-by-pixel comparison runs.
+ * <p>
+ * Bands 0, 1 and 2 of every pixel are combined into one weighted value and the integral
+ * of that value is stored, so the sum of any screen rectangle costs 4 array lookups.
+ * The target image is divided into a grid of cells and the weighted sum of each cell is
+ * computed once.  For a given screen anchor, a cell whose screen sum differs from the target
+ * cell sum by D must contain at least ceil(D / maxPixelDelta) mismatched pixels, where
+ * maxPixelDelta is the largest change a single pixel can make to the weighted value.
+ * If the total over all cells exceeds the allowed pixel errors (BitTolerance) the anchor
+ * cannot match and is skipped.
+ * <p>
+ * The test never rejects an anchor that the full comparison would accept.  It is not valid
+ * with fuzzy matching, which can accept a mismatched pixel, and callers must not use it then.
+ * Anchors where the target would extend beyond the screenshot are never rejected.
+ * <p>
+ * Sample usage:<pre>
+ *
+ *      IntegralImageFilter filter = IntegralImageFilter.create(screenBuffer, screenModel);
+ *      IntegralImageFilter.Target sums = filter == null ? null : filter.prepareTarget(imageBuffer, imageModel, null);
+ *      ...
+ *      if(sums != null && !sums.canMatch(screenx, screeny, maxPixelErrors)) continue;
+ *      matched = isScreenXYMatch(...);
+ * </pre>
+ *
+ * @see ImageUtils#USE_INTEGRAL_PREFILTER
+ * @see ImageUtils#findBufferedImageOnScreen(java.awt.image.BufferedImage, Rectangle, int)
+ */
+public class IntegralImageFilter {
+
+	/** weights of bands 0, 1 and 2 in the combined pixel value. */
+	private static final int[] WEIGHTS = {1, 3, 9};
+
+	/** max number of target cells along each axis. */
+	public static final int MAX_CELLS = 4;
+
+	private DataBuffer buffer = null;
+	private int width  = 0;
+	private int height = 0;
+	/** (width+1)*(height+1) integral of the weighted pixel values.  Sums wrap around int. */
+	private int[] integral = null;
+	/** the max of (1 << sampleSize)-1 over bands 0..2 of the screenshot */
+	private int[] maxSamples = new int[3];
+
+	private IntegralImageFilter(){}
+
+	/**
+	 * Build the integral image of a screenshot.
+	 * @param buffer DataBuffer of the screenshot.
+	 * @param model SampleModel of the screenshot.
+	 * @return the filter, or null if the screenshot has less than 3 bands.
+	 */
+	public static IntegralImageFilter create(DataBuffer buffer, SampleModel model){
+		if(model.getNumBands() < 3) return null;
+		IntegralImageFilter filter = new IntegralImageFilter();
+		filter.buffer = buffer;
+		filter.width = model.getWidth();
+		filter.height = model.getHeight();
+		for(int b=0;b<3;b++) filter.maxSamples[b] = (1 << model.getSampleSize(b))-1;
+
+		int bands = model.getNumBands();
+		int stride = filter.width+1;
+		int[] integral = new int[stride*(filter.height+1)];
+		int[] row = new int[filter.width*bands];
+		for(int y=0;y<filter.height;y++){
+			model.getPixels(0, y, filter.width, 1, row, buffer);
+			int rowsum = 0;
+			int above = y*stride;
+			int here = above+stride;
+			for(int x=0,i=0;x<filter.width;x++,i+=bands){
+				rowsum += WEIGHTS[0]*row[i] + WEIGHTS[1]*row[i+1] + WEIGHTS[2]*row[i+2];
+				integral[here+x+1] = integral[above+x+1] + rowsum;
+			}
+		}
+		filter.integral = integral;
+		return filter;
+	}
+
+	/**
+	 * @return true if this filter was built from the given screenshot DataBuffer.
+	 */
+	public boolean isFilterFor(DataBuffer buffer){
+		return this.buffer == buffer;
+	}
+
+	/** weighted sum of the screen rectangle.  Valid as long as the true sum fits an int. */
+	private int screenSum(int x, int y, int w, int h){
+		int stride = width+1;
+		int top = y*stride;
+		int bottom = (y+h)*stride;
+		return integral[bottom+x+w] - integral[bottom+x] - integral[top+x+w] + integral[top+x];
+	}
+
+	/**
+	 * Compute the cell sums of a target image for use with this screenshot.
+	 * @param targetBuffer DataBuffer of the target image.
+	 * @param target SampleModel of the target image.
+	 * @param block the portion of the target image to be compared, or null for the whole image.
+	 * @return the target cell sums, or null if the target cannot be filtered.
+	 */
+	public Target prepareTarget(DataBuffer targetBuffer, SampleModel target, Rectangle block){
+		if(target.getNumBands() < 3) return null;
+		if(block == null) block = new Rectangle(0, 0, target.getWidth(), target.getHeight());
+		if(block.width < 1 || block.height < 1) return null;
+
+		// the largest change one mismatched pixel can make to the weighted value
+		long delta = 0;
+		for(int b=0;b<3;b++){
+			int maxSample = Math.max(maxSamples[b], (1 << target.getSampleSize(b))-1);
+			delta += (long)WEIGHTS[b]*maxSample;
+		}
+		// use enough cells to keep every cell sum within int range
+		int cols = Math.min(MAX_CELLS, block.width);
+		int rows = Math.min(MAX_CELLS, block.height);
+		while(((long)((block.width+cols-1)/cols))*((block.height+rows-1)/rows)*delta >= Integer.MAX_VALUE){
+			if(cols < block.width) cols = Math.min(block.width, cols*2);
+			if(rows < block.height) rows = Math.min(block.height, rows*2);
+		}
+
+		Target sums = new Target();
+		sums.width = block.width;
+		sums.height = block.height;
+		sums.delta = delta;
+		sums.cells = new Rectangle[cols*rows];
+		sums.sums = new int[cols*rows];
+		int cell = 0;
+		for(int r=0;r<rows;r++){
+			int cy = block.y + r*block.height/rows;
+			int ch = block.y + (r+1)*block.height/rows - cy;
+			for(int c=0;c<cols;c++){
+				int cx = block.x + c*block.width/cols;
+				int cw = block.x + (c+1)*block.width/cols - cx;
+				int sum = 0;
+				for(int y=cy;y<cy+ch;y++){
+					for(int x=cx;x<cx+cw;x++){
+						sum += WEIGHTS[0]*target.getSample(x, y, 0, targetBuffer) +
+						       WEIGHTS[1]*target.getSample(x, y, 1, targetBuffer) +
+						       WEIGHTS[2]*target.getSample(x, y, 2, targetBuffer);
+					}
+				}
+				sums.cells[cell] = new Rectangle(cx, cy, cw, ch);
+				sums.sums[cell++] = sum;
+			}
+		}
+		// screen offsets are relative to the image origin, not the block origin
+		sums.minx = block.x;
+		sums.miny = block.y;
+		return sums;
+	}
+
+	/**
+	 * The precomputed cell sums of one target image (or image block) for one screenshot.
+	 */
+	public class Target {
+		private Rectangle[] cells = null;
+		private int[] sums = null;
+		private long delta = 1;
+		private int minx = 0;
+		private int miny = 0;
+		private int width = 0;
+		private int height = 0;
+
+		/**
+		 * Test if the target image anchored at the screen x,y can possibly match with no more
+		 * than maxErrors mismatched pixels.  Target pixel (imagex,imagey) is compared with
+		 * screen pixel (screenx+imagex, screeny+imagey).
+		 * @param screenx anchor x on the screenshot
+		 * @param screeny anchor y on the screenshot
+		 * @param maxErrors max number of pixel mismatches allowed.
+		 * @return false if the anchor is certain not to match.
+		 */
+		public boolean canMatch(int screenx, int screeny, long maxErrors){
+			if(screenx+minx < 0 || screeny+miny < 0 ||
+			   screenx+minx+width > IntegralImageFilter.this.width ||
+			   screeny+miny+height > IntegralImageFilter.this.height)
+				return true;
+			long errors = 0;
+			for(int i=0;i<cells.length;i++){
+				Rectangle cell = cells[i];
+				long diff = Math.abs((long)screenSum(screenx+cell.x, screeny+cell.y, cell.width, cell.height) - sums[i]);
+				if(diff == 0) continue;
+				errors += (diff + delta - 1)/delta;
+				if(errors > maxErrors) return false;
+			}
+			return true;
+		}
+	}
+}
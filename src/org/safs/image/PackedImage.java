@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) SAS Institute. All rights reserved.
+ * General Public License: http://www.opensource.org/licenses/gpl-license.php
+ **/
+package org.safs.image;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.SampleModel;
+import java.util.Arrays;
+
+/**
+ * The pixels of an image unpacked once into a plain int[] for the image comparators.
+ * <p>
+ * Bands 0, 1 and 2 of each pixel are packed into one int as (band0 &lt;&lt; 16 | band1 &lt;&lt; 8 | band2),
+ * so two pixels match exactly when their ints are equal--the same rule the comparators apply
+ * band by band through {@link SampleModel#getSample(int, int, int, DataBuffer)}.  Any other
+ * bands, like alpha, are ignored just as they are by those comparators.
+ * <p>
+ * Pixels are read through the same SampleModel and DataBuffer the comparators would use,
+ * so the array covers the full extent of the SampleModel even if that is bigger than the
+ * image itself.
+ *
+ * @see ImageUtils#USE_PACKED_PIXELS
+ * @see ScreenXYBTComparator
+ */
+public class PackedImage {
+
+	/** width of the image in pixels. */
+	public final int width;
+	/** height of the image in pixels. */
+	public final int height;
+	/** packed pixels, row by row.  Pixel (x,y) is pixels[y*width+x]. */
+	public final int[] pixels;
+
+	private DataBuffer buffer = null;
+
+	private PackedImage(int width, int height, DataBuffer buffer){
+		this.width = width;
+		this.height = height;
+		this.buffer = buffer;
+		this.pixels = new int[width*height];
+	}
+
+	/**
+	 * Unpack the pixels of an image.
+	 * @param buffer DataBuffer of the image.
+	 * @param model SampleModel of the image.
+	 * @return the PackedImage, or null if the image does not have at least 3 bands of
+	 *         no more than 8 bits each.
+	 */
+	public static PackedImage create(DataBuffer buffer, SampleModel model){
+		int bands = model.getNumBands();
+		if(bands < 3) return null;
+		for(int b=0;b<3;b++) if(model.getSampleSize(b) > 8) return null;
+		PackedImage image = new PackedImage(model.getWidth(), model.getHeight(), buffer);
+		int[] row = new int[image.width*bands];
+		for(int y=0,p=0;y<image.height;y++){
+			model.getPixels(0, y, image.width, 1, row, buffer);
+			for(int i=0;i<row.length;i+=bands){
+				image.pixels[p++] = (row[i] << 16)|(row[i+1] << 8)|row[i+2];
+			}
+		}
+		return image;
+	}
+
+	/**
+	 * Reduce this image by a whole factor.
+	 * @param factor the reduction factor, 2 or more.
+	 * @return the reduced image, which is not associated with any DataBuffer.
+	 * @see #downsample(int, int, int)
+	 */
+	public PackedImage downsample(int factor){
+		return downsample(factor, 0, 0);
+	}
+
+	/**
+	 * Reduce the part of this image starting at offsetx,offsety by a whole factor.  
+	 * Each pixel of the result is the band by band average of a factor x factor block 
+	 * of this image.  Pixels past the last whole block of a row or column are dropped.
+	 * @param factor the reduction factor, 2 or more.
+	 * @param offsetx x of the first block.
+	 * @param offsety y of the first block.
+	 * @return the reduced image, which is not associated with any DataBuffer.
+	 */
+	public PackedImage downsample(int factor, int offsetx, int offsety){
+		PackedImage image = new PackedImage((width-offsetx)/factor, (height-offsety)/factor, null);
+		int area = factor*factor;
+		int[] sums = new int[image.width*3];
+		for(int y=0,p=0;y<image.height;y++){
+			Arrays.fill(sums, 0);
+			for(int by=offsety+y*factor;by<offsety+(y+1)*factor;by++){
+				int row = by*width;
+				for(int x=0,s=0;x<image.width;x++,s+=3){
+					for(int bx=offsetx+x*factor;bx<offsetx+(x+1)*factor;bx++){
+						int v = pixels[row+bx];
+						sums[s]   += (v >> 16) & 0xFF;
+						sums[s+1] += (v >> 8) & 0xFF;
+						sums[s+2] += v & 0xFF;
+					}
+				}
+			}
+			for(int s=0;s<sums.length;s+=3){
+				image.pixels[p++] = ((sums[s]/area) << 16)|((sums[s+1]/area) << 8)|(sums[s+2]/area);
+			}
+		}
+		return image;
+	}
+
+	/**
+	 * @return true if this PackedImage was unpacked from the given DataBuffer.
+	 */
+	public boolean isImageFor(DataBuffer buffer){
+		return this.buffer == buffer;
+	}
+
+	/**
+	 * The packed equivalent of
+	 * {@link ImageUtils#isScreenXYFuzzyMatch(DataBuffer, SampleModel, int, int, DataBuffer, SampleModel, int, int)}.
+	 * Seeks to match the target pixel with any one of the 8 pixels adjacent to the screen pixel.
+	 * @param screen the screenshot pixels.
+	 * @param screencenterX x of the screen pixel that did not match.
+	 * @param screencenterY y of the screen pixel that did not match.
+	 * @param targetPixel the packed target pixel.
+	 * @return true if one of the adjacent screen pixels matches.
+	 */
+	public static boolean isFuzzyMatch(PackedImage screen, int screencenterX, int screencenterY, int targetPixel){
+		for(int sy = screencenterY-1; sy <= screencenterY+1; sy++){
+			if((sy < 0) || (sy >= screen.height)) continue;
+			int row = sy*screen.width;
+			for(int sx = screencenterX-1; sx <= screencenterX+1; sx++){
+				if((sx < 0)||(sx >= screen.width)) continue;
+				// we already know we did NOT match the center pixel
+				if(sy==screencenterY && sx==screencenterX) continue;
+				if(screen.pixels[row+sx] == targetPixel) return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright (C) SAS Institute. All rights reserved.
+ * General Public License: http://www.opensource.org/licenses/gpl-license.php
+ **/
+package org.safs.image;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.SampleModel;
+import java.util.Random;
+
+/**
+ * Checks that {@link PackedImage} holds the same pixel values the image comparators read through
+ * {@link SampleModel#getSample(int, int, int, DataBuffer)}, then times a search of a synthetic screenshot
+ * for a target image with {@link ImageUtils#USE_PACKED_PIXELS} on and off.
+ * <p>
+ * The values are checked for INT_RGB, 3BYTE_BGR, INT_ARGB and 4BYTE_ABGR images and for subimages of them,
+ * and a target of each type, and a subimage target of each type, is searched for.  The search compares the
+ * target at every screen x,y with the same isScreenXYMatch routines and the same
+ * {@link ImageUtils#getPackedPixels(DataBuffer, SampleModel)} choice the image search makes, exactly and with
+ * a bit tolerance, and checks both settings find the same matches.  The time with
+ * packed pixels includes unpacking the screenshot and the target.
+ * <p>
+ * Usage: PackedImageTest [screenWidth screenHeight], 1280x800 by default.
+ */
+public class PackedImageTest {
+
+	static final int[] TYPES = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR,
+	                            BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_4BYTE_ABGR};
+	static final String[] TYPE_NAMES = {"INT_RGB", "3BYTE_BGR", "INT_ARGB", "4BYTE_ABGR"};
+
+	static final int TARGET_SIZE = 48;
+	/** bit tolerance of the tolerant search: the percent of target pixels allowed to mismatch. */
+	static final int TOLERANCE = 10;
+
+	static int failures = 0;
+
+	static void test(String name, boolean passed, String detail){
+		if(!passed) failures++;
+		System.out.println((passed?"PASSED:":"FAILED:")+ name +" "+ detail);
+	}
+
+	/** a screen of flat colored blocks with text on them, as a desktop would look. */
+	static BufferedImage createScreen(int width, int height){
+		BufferedImage screen = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = screen.createGraphics();
+		Random random = new Random(width*height);
+		for(int y=0;y<height;y+=32){
+			for(int x=0;x<width;x+=96){
+				g.setColor(new Color(random.nextInt(0xFFFFFF)));
+				g.fillRect(x, y, 96, 32);
+				g.setColor(new Color(random.nextInt(0xFFFFFF)));
+				g.drawString("Item"+ random.nextInt(1000), x+4, y+20);
+			}
+		}
+		g.dispose();
+		return screen;
+	}
+
+	/** copy part of an image into a new image of the given type. */
+	static BufferedImage copy(BufferedImage image, int x, int y, int width, int height, int type){
+		BufferedImage copy = new BufferedImage(width, height, type);
+		Graphics2D g = copy.createGraphics();
+		g.drawImage(image.getSubimage(x, y, width, height), 0, 0, null);
+		g.dispose();
+		return copy;
+	}
+
+	static SampleModel model(BufferedImage image){ return image.getRaster().getSampleModel(); }
+	static DataBuffer buffer(BufferedImage image){ return image.getRaster().getDataBuffer(); }
+
+	/** check every packed pixel against the 3 samples of the SampleModel. */
+	static void checkValues(String name, BufferedImage image){
+		SampleModel model = model(image);
+		DataBuffer buffer = buffer(image);
+		PackedImage packed = PackedImage.create(buffer, model);
+		if(packed==null){
+			test(name, false, "cannot be packed.");
+			return;
+		}
+		int errors = 0;
+		for(int y=0;y<model.getHeight();y++){
+			for(int x=0;x<model.getWidth();x++){
+				int v = packed.pixels[y*packed.width+x];
+				if(((v >> 16) & 0xFF) != model.getSample(x, y, 0, buffer) ||
+				   ((v >> 8) & 0xFF) != model.getSample(x, y, 1, buffer) ||
+				   (v & 0xFF) != model.getSample(x, y, 2, buffer)) errors++;
+			}
+		}
+		test(name, errors==0, packed.width +"x"+ packed.height +" pixels, "+ errors +" differ from getSample.");
+	}
+
+	/** use the image as the current screenshot of ImageUtils. */
+	static void setScreen(BufferedImage screen){
+		ImageUtils.screenImage = screen;
+		ImageUtils.screenModel = model(screen);
+		ImageUtils.screenBuffer = buffer(screen);
+		ImageUtils.screenPixels = null;
+	}
+
+	/**
+	 * Compare the target at every screen x,y, as the single-threaded image search does.
+	 * @return long[] {matches found, x+y of the first match, nanoseconds}
+	 */
+	static long[] search(BufferedImage target, long maxErrors){
+		long start = System.nanoTime();
+		//unpack the screenshot again for each search, as after a recapture
+		ImageUtils.screenPixels = null;
+		SampleModel targetModel = model(target);
+		DataBuffer targetBuffer = buffer(target);
+		PackedImage[] packed = ImageUtils.getPackedPixels(targetBuffer, targetModel);
+		SampleModel screenModel = ImageUtils.screenModel;
+		DataBuffer screenBuffer = ImageUtils.screenBuffer;
+		int maxX = screenModel.getWidth() - target.getWidth();
+		int maxY = screenModel.getHeight() - target.getHeight();
+		long matches = 0;
+		long first = -1;
+		for(int y=0;y<=maxY;y++){
+			for(int x=0;x<=maxX;x++){
+				boolean matched = packed!=null ?
+					ImageUtils.isScreenXYMatch(packed[0], packed[1], x, y, maxErrors) :
+					ImageUtils.isScreenXYMatch(screenBuffer, screenModel, targetBuffer, targetModel, x, y, maxErrors);
+				if(matched){
+					if(matches++==0) first = x+y;
+				}
+			}
+		}
+		return new long[]{matches, first, System.nanoTime()-start};
+	}
+
+	/** time the fastest of 3 searches with UsePackedPixels on and off, and check both find the same matches. */
+	static void time(String name, BufferedImage target, long maxErrors){
+		long[] best = new long[2];
+		long[][] results = new long[2][];
+		for(int setting=0;setting<2;setting++){
+			ImageUtils.USE_PACKED_PIXELS = setting==0;
+			best[setting] = Long.MAX_VALUE;
+			for(int run=0;run<3;run++){
+				results[setting] = search(target, maxErrors);
+				best[setting] = Math.min(best[setting], results[setting][2]);
+			}
+		}
+		ImageUtils.USE_PACKED_PIXELS = true;
+		boolean same = results[0][0]==results[1][0] && results[0][1]==results[1][1];
+		test(name, same && results[0][0]>0, "matches "+ results[0][0] +"/"+ results[1][0] +
+		     ", UsePackedPixels=True "+ best[0]/1000000 +"ms, UsePackedPixels=False "+ best[1]/1000000 +"ms, "+
+		     (best[0]>0? Math.round((double)best[1]/best[0]*10)/10.0: 0) +"x");
+	}
+
+	public static void main(String[] args) {
+		int width = args.length>1? Integer.parseInt(args[0]): 1280;
+		int height = args.length>1? Integer.parseInt(args[1]): 800;
+		boolean cache = ImageUtils.USE_IMAGE_CACHE;
+		//targets are not files, so do not keep them in the stored image cache
+		ImageUtils.USE_IMAGE_CACHE = false;
+		try{
+			BufferedImage screen = createScreen(width, height);
+			int tx = width*3/4, ty = height*3/4;
+
+			for(int i=0;i<TYPES.length;i++){
+				BufferedImage image = copy(screen, 0, 0, 200, 120, TYPES[i]);
+				checkValues(TYPE_NAMES[i], image);
+				checkValues(TYPE_NAMES[i] +" subimage", image.getSubimage(30, 20, 100, 60));
+			}
+
+			setScreen(screen);
+			long tolerance = TARGET_SIZE*TARGET_SIZE*TOLERANCE/100;
+			for(int i=0;i<TYPES.length;i++){
+				BufferedImage target = copy(screen, tx, ty, TARGET_SIZE, TARGET_SIZE, TYPES[i]);
+				time(TYPE_NAMES[i] +" "+ width +"x"+ height +" exact", target, 0);
+				time(TYPE_NAMES[i] +" "+ width +"x"+ height +" "+ TOLERANCE +"% tolerance", target, tolerance);
+				//the SampleModel of a subimage covers its whole parent, which is what gets compared
+				target = copy(screen, tx, ty, TARGET_SIZE*2, TARGET_SIZE*2, TYPES[i]).getSubimage(0, 0, TARGET_SIZE, TARGET_SIZE);
+				time(TYPE_NAMES[i] +" subimage "+ width +"x"+ height +" exact", target, 0);
+			}
+			System.out.println(failures==0? "All checks PASSED.": failures +" checks FAILED.");
+		}finally{
+			ImageUtils.USE_IMAGE_CACHE = cache;
+			ImageUtils.USE_PACKED_PIXELS = true;
+			ImageUtils.resetScreenData();
+		}
+	}
+}
@@ -72,6 +72,9 @@ public class ScreenXYBTComparator implements Runnable {
 	private int scrW         = 0;
 
 	private boolean useBT = false;
+	/** optional packed pixels of the screenshot and target. */
+	private PackedImage packedScreen = null;
+	private PackedImage packedTarget = null;
 	private AtomicInteger pixelErrors = new AtomicInteger(0);
 	private AtomicInteger percentErrors = new AtomicInteger(0);	
 	
@@ -167,6 +170,24 @@ public class ScreenXYBTComparator implements Runnable {
 		percentErrors.set(0);
 	}
 	
+	/**
+	 * Compare the pixels of the given packed screenshot and target instead of decoding them 
+	 * through the SampleModels.  They must have been unpacked from the same screenshot and 
+	 * target given to the constructor.
+	 * @param screen packed screenshot pixels, or null to use the SampleModels.
+	 * @param target packed target pixels, or null to use the SampleModels.
+	 * @see ImageUtils#USE_PACKED_PIXELS
+	 */
+	public void setPackedPixels(PackedImage screen, PackedImage target){
+		if(screen == null || target == null){
+			packedScreen = null;
+			packedTarget = null;
+		}else{
+			packedScreen = screen;
+			packedTarget = target;
+		}
+	}
+	
 	/**
 	 * true when a single thread execution has completed. false if no thread has executed any search, or 
 	 * a search is in-progress.  The value of the getResult() method is not really valid unless this method 
@@ -214,6 +235,15 @@ public class ScreenXYBTComparator implements Runnable {
 				if (scrX >= scrW)
 					break;
 				//Log.info("COMPARING "+ scrX +", "+scrY);
+				if(packedScreen != null){
+					// any 1 of 3 band mismatches makes the pixel "bad"
+					if (packedTarget.pixels[imagey*targetwidth+imagex] != packedScreen.pixels[scrY*scrW+scrX]) {
+						if(! useBT) break;
+						if(pixelErrors.incrementAndGet() < maxBTerrors) continue;
+						break; 
+					}
+					continue;
+				}
 				// band 0; plane 0
 				trgV = target.getSample(imagex, imagey, 0, targetBuffer);
 				scrV = screenshot.getSample(scrX, scrY, 0, screenshotBuffer);
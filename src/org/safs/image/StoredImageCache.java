@@ -0,0 +1,218 @@
+/**
+ * Copyright (C) SAS Institute. All rights reserved.
+ * General Public License: http://www.opensource.org/licenses/gpl-license.php
+ **/
+package org.safs.image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.SampleModel;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used cache of decoded image files used for image-based recognition.
+ * <p>
+ * Many App Map entries often point at the same small image files, and every recognition attempt
+ * and every retry used to decode the file again.  Each cache entry is identified by the canonical
+ * path of the file and is discarded as soon as the file's last-modified time or length changes.
+ * Along with the decoded image an entry keeps the copy converted to the screenshot image type
+ * and the packed pixels of the image last searched for, so those are only prepared once too.
+ * <p>
+ * Cached images are shared.  Callers must not modify them.  Images bigger than
+ * {@link #MAX_CACHED_PIXELS} are decoded on every request and never cached.
+ *
+ * @see ImageUtils#USE_IMAGE_CACHE
+ * @see ImageUtils#STORED_IMAGES
+ */
+public class StoredImageCache {
+
+	/** default max number of images kept. */
+	public static final int DEFAULT_CAPACITY = 64;
+
+	/** images with more pixels than this are not cached. */
+	public static final int MAX_CACHED_PIXELS = 1024*1024;
+
+	/** one decoded image file and the data derived from it. */
+	private static class Entry {
+		long modified = 0;
+		long length = 0;
+		BufferedImage image = null;
+		int convertedType = -1;
+		BufferedImage converted = null;
+		PackedImage packed = null;
+	}
+
+	private int capacity = DEFAULT_CAPACITY;
+
+	/** canonical path --> Entry, in least-recently-used order */
+	private LinkedHashMap<String,Entry> entries = new LinkedHashMap<String,Entry>(16, 0.75f, true){
+		private static final long serialVersionUID = 1L;
+		protected boolean removeEldestEntry(Map.Entry<String,Entry> eldest){
+			if(size() <= capacity) return false;
+			forget(eldest.getValue());
+			evictions++;
+			return true;
+		}
+	};
+
+	/** DataBuffer of a cached original or converted image --> Entry */
+	private IdentityHashMap<DataBuffer,Entry> buffers = new IdentityHashMap<DataBuffer,Entry>();
+
+	private long hits = 0;
+	private long misses = 0;
+	private long reloads = 0;
+	private long evictions = 0;
+
+	/**
+	 * @param capacity max number of images to keep.
+	 */
+	public StoredImageCache(int capacity){
+		setCapacity(capacity);
+	}
+
+	/**
+	 * Change the max number of images kept, discarding the least recently used images if needed.
+	 * @param capacity max number of images to keep.  Values less than 1 are treated as 1.
+	 */
+	public synchronized void setCapacity(int capacity){
+		this.capacity = Math.max(1, capacity);
+		Iterator<Entry> it = entries.values().iterator();
+		while(entries.size() > this.capacity && it.hasNext()){
+			forget(it.next());
+			it.remove();
+			evictions++;
+		}
+	}
+
+	/** @return the max number of images kept. */
+	public synchronized int getCapacity(){ return capacity; }
+
+	/** remove the buffer lookups of an entry being discarded. */
+	private void forget(Entry entry){
+		buffers.remove(entry.image.getRaster().getDataBuffer());
+		if(entry.converted != null) buffers.remove(entry.converted.getRaster().getDataBuffer());
+	}
+
+	/**
+	 * Get the decoded image of a file, decoding it only if it is not cached or has changed.
+	 * @param file the image file.
+	 * @return the shared decoded image.
+	 * @throws FileNotFoundException if the file does not exist or cannot be read.
+	 * @throws IOException if the file cannot be decoded.
+	 * @see ImageUtils#getStoredImage(String)
+	 */
+	public BufferedImage getImage(File file) throws FileNotFoundException, IOException{
+		String key = file.getCanonicalPath();
+		long modified = file.lastModified();
+		long length = file.length();
+		synchronized(this){
+			Entry entry = entries.get(key);
+			if(entry != null){
+				if(entry.modified == modified && entry.length == length){
+					hits++;
+					return entry.image;
+				}
+				forget(entry);
+				entries.remove(key);
+				reloads++;
+			}
+			misses++;
+		}
+		// decode outside the lock so other threads can use the cache meanwhile
+		BufferedImage image = ImageUtils.getStoredImage(file.getAbsolutePath());
+		if((long)image.getWidth()*image.getHeight() > MAX_CACHED_PIXELS) return image;
+		Entry entry = new Entry();
+		entry.modified = modified;
+		entry.length = length;
+		entry.image = image;
+		synchronized(this){
+			Entry old = entries.put(key, entry);
+			if(old != null) forget(old);
+			buffers.put(image.getRaster().getDataBuffer(), entry);
+		}
+		return image;
+	}
+
+	/**
+	 * Get an image converted to another image type, reusing the conversion made for a cached image.
+	 * @param image the image to convert.
+	 * @param type the BufferedImage type wanted.
+	 * @return the converted image, or null if it cannot be converted.
+	 * @see ImageUtils#convertImage(BufferedImage, int)
+	 */
+	public BufferedImage getConvertedImage(BufferedImage image, int type){
+		Entry entry = null;
+		synchronized(this){
+			entry = buffers.get(image.getRaster().getDataBuffer());
+			if(entry != null && entry.image == image && entry.convertedType == type) return entry.converted;
+		}
+		BufferedImage converted = ImageUtils.convertImage(image, type);
+		if(entry == null || entry.image != image || converted == null) return converted;
+		synchronized(this){
+			// the entry may have been evicted while converting
+			if(entries.containsValue(entry)){
+				if(entry.converted != null) buffers.remove(entry.converted.getRaster().getDataBuffer());
+				entry.convertedType = type;
+				entry.converted = converted;
+				buffers.put(converted.getRaster().getDataBuffer(), entry);
+			}
+		}
+		return converted;
+	}
+
+	/**
+	 * Get the packed pixels of an image, reusing those made for a cached image.
+	 * @param buffer DataBuffer of the image.
+	 * @param model SampleModel of the image.
+	 * @return the packed pixels, or null if the image cannot be packed.
+	 * @see PackedImage#create(DataBuffer, SampleModel)
+	 */
+	public PackedImage getPackedImage(DataBuffer buffer, SampleModel model){
+		Entry entry = null;
+		synchronized(this){
+			entry = buffers.get(buffer);
+			if(entry != null && entry.packed != null && entry.packed.isImageFor(buffer)) return entry.packed;
+		}
+		PackedImage packed = PackedImage.create(buffer, model);
+		if(entry != null && packed != null){
+			synchronized(this){ entry.packed = packed; }
+		}
+		return packed;
+	}
+
+	/** @return the number of requests served from the cache. */
+	public synchronized long getHits(){ return hits; }
+
+	/** @return the number of requests that had to decode the file, including reloads. */
+	public synchronized long getMisses(){ return misses; }
+
+	/** @return the number of cached images discarded because the file changed. */
+	public synchronized long getReloads(){ return reloads; }
+
+	/** @return the number of images discarded to stay within capacity. */
+	public synchronized long getEvictions(){ return evictions; }
+
+	/** @return the number of images presently cached. */
+	public synchronized int size(){ return entries.size(); }
+
+	/** Discard all images and reset the statistics. */
+	public synchronized void clear(){
+		entries.clear();
+		buffers.clear();
+		hits = 0;
+		misses = 0;
+		reloads = 0;
+		evictions = 0;
+	}
+
+	public synchronized String toString(){
+		return "StoredImageCache images:"+ entries.size() +"/"+ capacity +", hits:"+ hits +", misses:"+ misses +
+		       ", reloads:"+ reloads +", evictions:"+ evictions;
+	}
+}
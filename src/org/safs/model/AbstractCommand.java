@@ -3,6 +3,8 @@
  **/
 package org.safs.model;
 
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Superclass of all command types of classes (versus test table types of classes).
@@ -69,6 +71,35 @@ public abstract class AbstractCommand extends AbstractTestRecord {
       return sb.toString();
    }
 
+   /**
+    * Export the fields of the test record without joining them with a field separator, 
+    * so a driver can hand them to the processors without tokenizing the exported String.
+    * The fields are the same ones exportTestRecord() separates: the testRecordID(), 
+    * the command fields added by appendCommandToTestRecordFields, and the parameters.
+    * 
+    * @return String[] the fields of the test record
+    */
+   public String[] exportTestRecordFields () {
+      List fields = new ArrayList();
+      fields.add(getTestRecordID());
+      fields = appendCommandToTestRecordFields(fields);
+      fields.addAll(getParameters());
+      return (String[]) fields.toArray(new String[fields.size()]);
+   }
+
+   /**
+    * Called by exportTestRecordFields() after the testRecordID() has been added.
+    * The default implementation adds getCommandName() only.  Subclasses overriding 
+    * appendCommandToTestRecord must override this to add the same fields.
+    * 
+    * @param fields List to add the command fields to
+    * @return fields List added to as appropriate.
+    */
+   protected List appendCommandToTestRecordFields(List fields) {
+      fields.add(getCommandName());
+      return fields;
+   }
+
    /**
     * Called by exportTestRecord() after the testRecordID() and a field
     * separator have been appended to the StringBuffer.  The default
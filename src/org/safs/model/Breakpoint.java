@@ -16,4 +16,9 @@ public class Breakpoint extends Command {
    public String exportTestRecord (String fieldSeparator) {
       return getTestRecordID();
    }
+
+   // Override to only return the test record id.  There are no other values.
+   public String[] exportTestRecordFields () {
+      return new String[]{ getTestRecordID() };
+   }
 }
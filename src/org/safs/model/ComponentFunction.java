@@ -3,6 +3,8 @@
  **/
 package org.safs.model;
 
+import java.util.List;
+
 /**
  * Represents a ComponentFunction command.
  * These are only allowed in Step tables. 
@@ -64,6 +66,19 @@ public class ComponentFunction extends AbstractCommand {
       sb.append(fieldSeparator);
       return super.appendCommandToTestRecord(sb, fieldSeparator);
    }   
+
+   /**
+    * Adds the window name and component name in front of the command name, 
+    * as appendCommandToTestRecord does.
+    * 
+    * @param fields List to add the command fields to
+    * @return fields List added to as appropriate.
+    */
+   protected List appendCommandToTestRecordFields(List fields) {
+      fields.add(getWindowName());
+      fields.add(getComponentName());
+      return super.appendCommandToTestRecordFields(fields);
+   }   
    
    private boolean _warningOK;
    private boolean _failureOK;
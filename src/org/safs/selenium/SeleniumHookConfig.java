@@ -14,10 +14,13 @@ package org.safs.selenium;
 import org.safs.DefaultHookConfig;
 import org.safs.IndependantLog;
 import org.safs.StringUtils;
+import org.safs.selenium.webdriver.lib.SearchObject;
 import org.safs.selenium.webdriver.lib.SelectBrowser;
+import org.safs.selenium.webdriver.lib.Tree;
 import org.safs.tools.drivers.ConfigureInterface;
 import org.safs.tools.drivers.DriverConstant;
 import org.safs.tools.drivers.DriverConstant.SeleniumConfigConstant;
+import org.safs.tools.stringutils.StringUtilities;
 
 public class SeleniumHookConfig extends DefaultHookConfig {
 
@@ -70,6 +73,12 @@ public class SeleniumHookConfig extends DefaultHookConfig {
 	 * <li> {@link SeleniumConfigConstant#SELENIUMSERVER_JVM_Xms}
 	 * <li> {@link SeleniumConfigConstant#SELENIUMSERVER_JVM_OPTIONS}
 	 * <li> {@link SeleniumConfigConstant#SELENIUMSERVER_JVM}
+	 * <li> {@link SeleniumConfigConstant#PROPERTY_USE_ELEMENT_CACHE}, also setting {@link SearchObject#USE_ELEMENT_CACHE}
+	 * <li> {@link SeleniumConfigConstant#PROPERTY_USE_PAGE_TRACKER}, also setting {@link SearchObject#USE_PAGE_TRACKER}
+	 * <li> {@link SeleniumConfigConstant#PROPERTY_USE_BROWSER_RECOGNITION}, also setting {@link SearchObject#USE_BROWSER_RECOGNITION}
+	 * <li> {@link SeleniumConfigConstant#PROPERTY_USE_CONTENT_SNAPSHOT}, also setting {@link Tree#USE_CONTENT_SNAPSHOT}
+	 * <li> {@link SeleniumConfigConstant#PROPERTY_SNAPSHOT_CHUNK_SIZE}, also setting {@link Tree#SNAPSHOT_CHUNK_SIZE}
+	 * <li> {@link SeleniumConfigConstant#PROPERTY_WEBDRIVER_POOL_SIZE}, also setting the size of {@link SearchObject#WEBDRIVER_POOL}
 	 * </ul>
 	 * This method will be shared by EmbeddedSeleniumHookDriver.<br>
 	 * @param config ConfigureInterface, containing the configuration initial parameters
@@ -118,6 +127,62 @@ public class SeleniumHookConfig extends DefaultHookConfig {
 			StringUtils.getSystemProperty(SeleniumConfigConstant.PROPERTY_CONSOLE_STATE,
 					config, DriverConstant.SECTION_SAFS_SELENIUM, SeleniumConfigConstant.ITEM_CONSOLE_STATE);
 			
+			//Turn the WebElement cache of the recognition on or off
+			String elementCache = StringUtils.getSystemProperty(SeleniumConfigConstant.PROPERTY_USE_ELEMENT_CACHE,
+					config, DriverConstant.SECTION_SAFS_SELENIUM, SeleniumConfigConstant.ITEM_USE_ELEMENT_CACHE);
+			if(StringUtils.isValid(elementCache)){
+				SearchObject.USE_ELEMENT_CACHE = StringUtilities.convertBool(elementCache);
+				IndependantLog.info("SAFS_SELENIUM:"+ SeleniumConfigConstant.ITEM_USE_ELEMENT_CACHE +" set to: "+ SearchObject.USE_ELEMENT_CACHE);
+			}
+			
+			//Turn the page tracker detecting page changes on or off
+			String pageTracker = StringUtils.getSystemProperty(SeleniumConfigConstant.PROPERTY_USE_PAGE_TRACKER,
+					config, DriverConstant.SECTION_SAFS_SELENIUM, SeleniumConfigConstant.ITEM_USE_PAGE_TRACKER);
+			if(StringUtils.isValid(pageTracker)){
+				SearchObject.USE_PAGE_TRACKER = StringUtilities.convertBool(pageTracker);
+				IndependantLog.info("SAFS_SELENIUM:"+ SeleniumConfigConstant.ITEM_USE_PAGE_TRACKER +" set to: "+ SearchObject.USE_PAGE_TRACKER);
+			}
+			
+			//Turn the resolution of recognition strings in the browser on or off
+			String browserRecognition = StringUtils.getSystemProperty(SeleniumConfigConstant.PROPERTY_USE_BROWSER_RECOGNITION,
+					config, DriverConstant.SECTION_SAFS_SELENIUM, SeleniumConfigConstant.ITEM_USE_BROWSER_RECOGNITION);
+			if(StringUtils.isValid(browserRecognition)){
+				SearchObject.USE_BROWSER_RECOGNITION = StringUtilities.convertBool(browserRecognition);
+				IndependantLog.info("SAFS_SELENIUM:"+ SeleniumConfigConstant.ITEM_USE_BROWSER_RECOGNITION +" set to: "+ SearchObject.USE_BROWSER_RECOGNITION);
+			}
+			
+			//Turn the snapshot of tree content on or off
+			String contentSnapshot = StringUtils.getSystemProperty(SeleniumConfigConstant.PROPERTY_USE_CONTENT_SNAPSHOT,
+					config, DriverConstant.SECTION_SAFS_SELENIUM, SeleniumConfigConstant.ITEM_USE_CONTENT_SNAPSHOT);
+			if(StringUtils.isValid(contentSnapshot)){
+				Tree.USE_CONTENT_SNAPSHOT = StringUtilities.convertBool(contentSnapshot);
+				IndependantLog.info("SAFS_SELENIUM:"+ SeleniumConfigConstant.ITEM_USE_CONTENT_SNAPSHOT +" set to: "+ Tree.USE_CONTENT_SNAPSHOT);
+			}
+			
+			//Set the number of tree nodes got by each javascript call of a snapshot
+			String chunkSize = StringUtils.getSystemProperty(SeleniumConfigConstant.PROPERTY_SNAPSHOT_CHUNK_SIZE,
+					config, DriverConstant.SECTION_SAFS_SELENIUM, SeleniumConfigConstant.ITEM_SNAPSHOT_CHUNK_SIZE);
+			if(StringUtils.isValid(chunkSize)){
+				try{
+					Tree.SNAPSHOT_CHUNK_SIZE = Integer.parseInt(chunkSize.trim());
+					IndependantLog.info("SAFS_SELENIUM:"+ SeleniumConfigConstant.ITEM_SNAPSHOT_CHUNK_SIZE +" set to: "+ Tree.SNAPSHOT_CHUNK_SIZE);
+				}catch(NumberFormatException x){
+					IndependantLog.warn("SAFS_SELENIUM:"+ SeleniumConfigConstant.ITEM_SNAPSHOT_CHUNK_SIZE +" ignores invalid value: "+ chunkSize);
+				}
+			}
+			
+			//Set the number of started browser sessions to keep for reuse
+			String poolSize = StringUtils.getSystemProperty(SeleniumConfigConstant.PROPERTY_WEBDRIVER_POOL_SIZE,
+					config, DriverConstant.SECTION_SAFS_SELENIUM, SeleniumConfigConstant.ITEM_WEBDRIVER_POOL_SIZE);
+			if(StringUtils.isValid(poolSize)){
+				try{
+					SearchObject.WEBDRIVER_POOL.setSize(Integer.parseInt(poolSize.trim()));
+					IndependantLog.info("SAFS_SELENIUM:"+ SeleniumConfigConstant.ITEM_WEBDRIVER_POOL_SIZE +" set to: "+ SearchObject.WEBDRIVER_POOL.getSize());
+				}catch(NumberFormatException x){
+					IndependantLog.warn("SAFS_SELENIUM:"+ SeleniumConfigConstant.ITEM_WEBDRIVER_POOL_SIZE +" ignores invalid value: "+ poolSize);
+				}
+			}
+			
 		}catch(Exception e){
 			IndependantLog.warn(StringUtils.debugmsg(false)+" Fail. Met "+StringUtils.debugmsg(e));
 		}
@@ -776,6 +776,82 @@ public class JavaScriptFunctions {
 		}
 		return genGlobalVariableName(variable)+" = "+value+";\n";
 	}
+
+	/** Name of the page state variable kept in the top window by {@link #getPageState()}. */
+	public static final String SAFS_JAVASCRIPT_GLOBAL_PAGE_STATE_VAR = "SAFS_JAVASCRIPT_GLOBAL_PAGE_STATE_VAR";
+	
+	/**
+	 * Get the state of the top document, installing the page tracker the first time it is called for a document.<br>
+	 * The tracker gives the document a random id and a generation counter. A MutationObserver increments the<br>
+	 * counter whenever nodes are added to or removed from the document, as do the 'hashchange' and 'popstate' events.<br>
+	 * A new document, after a navigation or a reload, has no tracker yet and gets a new id.<br>
+	 * The 'beforeunload' and 'pagehide' events mark the state 'unloading', so a navigation already started is also seen.<br>
+	 * The mark is cleared by 'pageshow', and one second after 'beforeunload', as the navigation may have been canceled<br>
+	 * or may have been a download, and the document is then still in use.<br>
+	 * The top document is reached through window.top, so this can be called from within a same-origin frame.<br>
+	 * 
+	 * <pre>
+	 *  StringBuffer jsScript = new StringBuffer();
+	 *  jsScript.append(JavaScriptFunctions.getPageState());
+	 *  jsScript.append("return getPageState();");
+	 *  Object state = WDLibrary.getJS().executeScript(jsScript.toString());
+	 * </pre>
+	 * 
+	 * <br><b>depending on: nothing.</b><br>
+	 * <br><b>depending level: 0</b><br>
+	 * 
+	 * @return (<b>Javascript</b>) Object, with properties 'id', 'generation', 'unloading', 'observed' and 'url';<br>
+	 *                                      'observed' is false if the browser has no MutationObserver, then 'generation'<br>
+	 *                                      only counts the 'hashchange' and 'popstate' events.<br>
+	 *                                      null if the top document cannot be reached, as from a cross-origin frame.
+	 */
+	public static String getPageState(){
+		StringBuffer scriptCommand = new StringBuffer();
+		String state = "w."+SAFS_JAVASCRIPT_GLOBAL_PAGE_STATE_VAR;
+		
+		scriptCommand.append("function getPageState(){\n");
+		scriptCommand.append("  var w = window;\n");
+		scriptCommand.append("  try{\n");
+		scriptCommand.append("    w = window.top;\n");
+		scriptCommand.append("    if(w.document==undefined) return null;\n");
+		scriptCommand.append("  }catch(error){\n");
+		scriptCommand.append("    return null;\n");
+		scriptCommand.append("  }\n");
+		scriptCommand.append("  var doc = w.document;\n");
+		scriptCommand.append("  var state = "+state+";\n");
+		scriptCommand.append("  if(state==undefined || state.doc!==doc){\n");
+		scriptCommand.append("    state = {doc:doc, id:new Date().getTime()+'-'+Math.random(), generation:0, unloading:false, observed:false};\n");
+		scriptCommand.append("    "+state+" = state;\n");
+		scriptCommand.append("    var changed = function(){ state.generation++; };\n");
+		scriptCommand.append("    var unloading = function(){ state.unloading = true; };\n");
+		scriptCommand.append("    var shown = function(){ state.unloading = false; };\n");
+		scriptCommand.append("    var leaving = function(){ state.unloading = true; w.setTimeout(shown, 1000); };\n");
+		scriptCommand.append("    try{\n");
+		scriptCommand.append("      var Observer = w.MutationObserver || w.WebKitMutationObserver;\n");
+		scriptCommand.append("      if(Observer!=undefined){\n");
+		scriptCommand.append("        new Observer(changed).observe(doc, {childList:true, subtree:true});\n");
+		scriptCommand.append("        state.observed = true;\n");
+		scriptCommand.append("      }\n");
+		scriptCommand.append("    }catch(error){}\n");
+		scriptCommand.append("    try{\n");
+		scriptCommand.append("      if(w.addEventListener!=undefined){\n");
+		scriptCommand.append("        w.addEventListener('hashchange', changed, false);\n");
+		scriptCommand.append("        w.addEventListener('popstate', changed, false);\n");
+		scriptCommand.append("        w.addEventListener('beforeunload', leaving, false);\n");
+		scriptCommand.append("        w.addEventListener('pagehide', unloading, false);\n");
+		scriptCommand.append("        w.addEventListener('pageshow', shown, false);\n");
+		scriptCommand.append("      }else{//For compablity of IE8 or below\n");
+		scriptCommand.append("        w.attachEvent('onhashchange', changed);\n");
+		scriptCommand.append("        w.attachEvent('onbeforeunload', leaving);\n");
+		scriptCommand.append("        w.attachEvent('onunload', unloading);\n");
+		scriptCommand.append("      }\n");
+		scriptCommand.append("    }catch(error){}\n");
+		scriptCommand.append("  }\n");
+		scriptCommand.append("  return {id:state.id, generation:state.generation, unloading:state.unloading, observed:state.observed, url:w.location.href};\n");
+		scriptCommand.append("}\n");
+		
+		return scriptCommand.toString();
+	}
 	
 	/**
 	 * Define a javascript object according to an Hashtable object.<br>
@@ -1427,6 +1503,180 @@ public class JavaScriptFunctions {
 		return scriptCommand.toString();
 	}
 	
+	/**
+	 * Get the value to match with of each dom element in a list, in one call.<br>
+	 * The value is the attribute if one is given, otherwise it is the visible text, as WebElement.getText()<br>
+	 * would return it: an element that is not displayed, or is hidden, has empty text; non-breaking spaces<br>
+	 * become spaces, runs of spaces are collapsed and each line is trimmed.<br>
+	 * 
+	 * <br><b>depending on: nothing.</b><br>
+	 * <br><b>depending level: 0</b><br>
+	 * 
+	 * @param domNodes (<b>Javascript</b>) Array, the dom elements.
+	 * @param attribute (<b>Javascript</b>) String, the attribute to get; empty to get the visible text.
+	 * @return (<b>Javascript</b>) Array, the value of each dom element, in the same order;<br>
+	 *                                     null for an element whose value could not be got.
+	 */
+	public static String getMatchingValues(){
+		StringBuffer scriptCommand = new StringBuffer();
+		
+		scriptCommand.append("function getMatchingValues(domNodes, attribute){\n");
+		scriptCommand.append("  var values = new Array();\n");
+		scriptCommand.append("  for(var i=0;i<domNodes.length;i++){\n");
+		scriptCommand.append("    var value = null;\n");
+		scriptCommand.append("    try{\n");
+		scriptCommand.append("      var domNode = domNodes[i];\n");
+		scriptCommand.append("      if(attribute){\n");
+		scriptCommand.append("        value = domNode.getAttribute(attribute);\n");
+		scriptCommand.append("      }else{\n");
+		scriptCommand.append("        var visible = domNode.getClientRects().length>0;\n");
+		scriptCommand.append("        if(visible && window.getComputedStyle!=undefined){\n");
+		scriptCommand.append("          visible = window.getComputedStyle(domNode, null).visibility!='hidden';\n");
+		scriptCommand.append("        }\n");
+		scriptCommand.append("        if(visible){\n");
+		scriptCommand.append("          value = domNode.innerText;\n");
+		scriptCommand.append("          if(value==undefined) value = domNode.textContent;\n");
+		scriptCommand.append("          value = value.replace(/\\u00a0/g, ' ').replace(/[ \\t\\f\\v]+/g, ' ').replace(/ ?(\\r?\\n) ?/g, '$1');\n");
+		scriptCommand.append("          value = value.replace(/^\\s+|\\s+$/g, '');\n");
+		scriptCommand.append("        }else{\n");
+		scriptCommand.append("          value = '';\n");
+		scriptCommand.append("        }\n");
+		scriptCommand.append("      }\n");
+		scriptCommand.append("    }catch(error){\n");
+		scriptCommand.append("      value = null;\n");
+		scriptCommand.append("    }\n");
+		scriptCommand.append("    values.push(value);\n");
+		scriptCommand.append("  }\n");
+		scriptCommand.append("  return values;\n");
+		scriptCommand.append("}\n");
+		
+		return scriptCommand.toString();
+	}
+	
+	/**
+	 * Resolve the levels of a recognition string, compiled into steps, one after the other in the browser.<br>
+	 * Each step is an Array of Strings, its first item is the kind of step:<br>
+	 * <ul>
+	 * <li>['xpath', xpath, index] the first element matched by the xpath; or, if index is given, the index-th (1-based) shown element.
+	 * <li>['css', selector] the first element matched by the css selector.
+	 * <li>['tag', tagName] the first element of the tag.
+	 * <li>['id', value], ['name', value], ['class', className] the first element with the id, name, or class.
+	 * <li>['text', xpath, value, partial], ['title', xpath, value, partial] among the elements matched by the xpath,<br>
+	 *     the first one whose text or title is, or contains, the value; else the first one matched ignoring case; else the first one.
+	 * </ul>
+	 * Each step searches within the element found by the previous step.<br>
+	 * 
+	 * <br><b>depending on:</b><br>
+	 * {@link #getMatchingValues()} <br>
+	 * <br><b>depending level: 1</b><br>
+	 * 
+	 * @param includeDependency boolean, if true, will return the depended js as part of result.
+	 * @param context (<b>Javascript</b>) Object, the dom element to search within; null to search the document.
+	 * @param steps (<b>Javascript</b>) Array, the steps to resolve.
+	 * @return (<b>Javascript</b>) Object, with property 'element', the dom element found;<br>
+	 *                                      or with properties 'level', the step that failed, and 'reason'.<br>
+	 *                                      If the step could not be evaluated, property 'error' is also true.
+	 */
+	public static String resolveRecognition(boolean includeDependency){
+		StringBuffer scriptCommand = new StringBuffer();
+		
+		if(includeDependency){
+			scriptCommand.append(getMatchingValues());
+		}
+		
+		scriptCommand.append("function resolveRecognition(context, steps){\n");
+		scriptCommand.append("  var level = 0;\n");
+		scriptCommand.append("  var isShown = function(domNode){\n");
+		scriptCommand.append("    if(domNode.getClientRects().length==0) return false;\n");
+		scriptCommand.append("    if(window.getComputedStyle==undefined) return true;\n");
+		scriptCommand.append("    var style = window.getComputedStyle(domNode, null);\n");
+		scriptCommand.append("    return style.visibility!='hidden' && style.opacity!='0';\n");
+		scriptCommand.append("  };\n");
+		scriptCommand.append("  var evaluate = function(xpath, node, all){\n");
+		scriptCommand.append("    var doc = node.ownerDocument ? node.ownerDocument : node;\n");
+		scriptCommand.append("    if(!all){\n");
+		scriptCommand.append("      var first = doc.evaluate(xpath, node, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;\n");
+		scriptCommand.append("      return (first!=null && first.nodeType==1) ? first : null;\n");
+		scriptCommand.append("    }\n");
+		scriptCommand.append("    var result = doc.evaluate(xpath, node, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);\n");
+		scriptCommand.append("    var nodes = new Array();\n");
+		scriptCommand.append("    for(var n=0;n<result.snapshotLength;n++){\n");
+		scriptCommand.append("      if(result.snapshotItem(n).nodeType==1) nodes.push(result.snapshotItem(n));\n");
+		scriptCommand.append("    }\n");
+		scriptCommand.append("    return nodes;\n");
+		scriptCommand.append("  };\n");
+		scriptCommand.append("  var scan = function(node, attribute, value){\n");
+		scriptCommand.append("    if(attribute=='class' && /\\s/.test(value)) return null;\n");
+		scriptCommand.append("    var all = node.getElementsByTagName('*');\n");
+		scriptCommand.append("    for(var n=0;n<all.length;n++){\n");
+		scriptCommand.append("      var actual = all[n].getAttribute(attribute);\n");
+		scriptCommand.append("      if(actual==null) continue;\n");
+		scriptCommand.append("      if(attribute=='class'){\n");
+		scriptCommand.append("        if((' '+actual.replace(/\\s+/g, ' ')+' ').indexOf(' '+value+' ')>-1) return all[n];\n");
+		scriptCommand.append("      }else if(actual==value){\n");
+		scriptCommand.append("        return all[n];\n");
+		scriptCommand.append("      }\n");
+		scriptCommand.append("    }\n");
+		scriptCommand.append("    return null;\n");
+		scriptCommand.append("  };\n");
+		scriptCommand.append("  try{\n");
+		scriptCommand.append("    var current = context ? context : document;\n");
+		scriptCommand.append("    for(level=0;level<steps.length;level++){\n");
+		scriptCommand.append("      var kind = steps[level][0];\n");
+		scriptCommand.append("      var selector = steps[level][1];\n");
+		scriptCommand.append("      var found = null;\n");
+		scriptCommand.append("      if(kind=='xpath'){\n");
+		scriptCommand.append("        var index = steps[level][2] ? parseInt(steps[level][2]) : 0;\n");
+		scriptCommand.append("        if(index>0){\n");
+		scriptCommand.append("          var nodes = evaluate(selector, current, true);\n");
+		scriptCommand.append("          for(var n=0, count=0;n<nodes.length;n++){\n");
+		scriptCommand.append("            if(isShown(nodes[n]) && ++count==index){ found = nodes[n]; break; }\n");
+		scriptCommand.append("          }\n");
+		scriptCommand.append("        }else{\n");
+		scriptCommand.append("          found = evaluate(selector, current, false);\n");
+		scriptCommand.append("        }\n");
+		scriptCommand.append("      }else if(kind=='css'){\n");
+		scriptCommand.append("        found = current.querySelector(selector);\n");
+		scriptCommand.append("      }else if(kind=='tag'){\n");
+		scriptCommand.append("        found = current.getElementsByTagName(selector)[0];\n");
+		scriptCommand.append("      }else if(kind=='id' || kind=='name' || kind=='class'){\n");
+		scriptCommand.append("        found = scan(current, kind, selector);\n");
+		scriptCommand.append("      }else if(kind=='text' || kind=='title'){\n");
+		scriptCommand.append("        var value = steps[level][2];\n");
+		scriptCommand.append("        var partial = steps[level][3]=='true';\n");
+		scriptCommand.append("        var nodes = null;\n");
+		scriptCommand.append("        try{ nodes = evaluate(selector, current, true); }\n");
+		scriptCommand.append("        catch(error){\n");
+		scriptCommand.append("          if(selector.charAt(0)!='.') throw error;\n");
+		scriptCommand.append("          nodes = evaluate(selector.substring(1), current, true);\n");
+		scriptCommand.append("        }\n");
+		scriptCommand.append("        var values = getMatchingValues(nodes, kind=='title' ? 'title' : '');\n");
+		scriptCommand.append("        var lowerCaseValue = value.toLowerCase();\n");
+		scriptCommand.append("        var ignoreCaseMatched = null;\n");
+		scriptCommand.append("        for(var n=0;n<nodes.length && found==null;n++){\n");
+		scriptCommand.append("          if(values[n]==null) continue;\n");
+		scriptCommand.append("          if(partial ? values[n].indexOf(value)>-1 : values[n]==value){\n");
+		scriptCommand.append("            found = nodes[n];\n");
+		scriptCommand.append("          }else if(ignoreCaseMatched==null && (partial ? values[n].toLowerCase().indexOf(lowerCaseValue)>-1 : values[n].toLowerCase()==lowerCaseValue)){\n");
+		scriptCommand.append("            ignoreCaseMatched = nodes[n];\n");
+		scriptCommand.append("          }\n");
+		scriptCommand.append("        }\n");
+		scriptCommand.append("        if(found==null) found = ignoreCaseMatched!=null ? ignoreCaseMatched : nodes[0];\n");
+		scriptCommand.append("      }else{\n");
+		scriptCommand.append("        return {level:level, error:true, reason:'unsupported step '+kind};\n");
+		scriptCommand.append("      }\n");
+		scriptCommand.append("      if(found==null || found==undefined) return {level:level, reason:'no element matches '+kind+' '+selector};\n");
+		scriptCommand.append("      current = found;\n");
+		scriptCommand.append("    }\n");
+		scriptCommand.append("    return {element:current};\n");
+		scriptCommand.append("  }catch(error){\n");
+		scriptCommand.append("    return {level:level, error:true, reason:''+error};\n");
+		scriptCommand.append("  }\n");
+		scriptCommand.append("}\n");
+		
+		return scriptCommand.toString();
+	}
+	
 	private static String appendPropertyMap(String prop, String ele, String map){
 		return "    if('"+ prop +"' in "+ ele +"){\n" +
 	           "      try{"+ map +"['"+ prop +"']="+ele+"."+ prop +";}\n" +
@@ -1714,6 +1964,78 @@ public class JavaScriptFunctions {
 			scriptCommand.append("}\n");			
 			return scriptCommand.toString();
 		}
+
+		/**
+		 * Take a snapshot of the items (role='treeitem') of a tree, in document order, one chunk at a time.<br>
+		 * All the items are walked once to find the parent of each, but only the items from offset to<br>
+		 * offset+count are returned, so that a very large tree can be read in several calls.<br>
+		 * The label of an item is its visible text, or its textContent if it has no visible text.<br>
+		 *
+		 * <br><b>depending on:</b><br>
+		 * {@link JavaScriptFunctions#getMatchingValues()} <br>
+		 * <br><b>depending level: 1</b><br>
+		 *
+		 * @param includeDependency boolean, if true, will return the depended js as part of result.
+		 * @param tree (<b>Javascript</b>) Object, the dom element of the tree.
+		 * @param offset (<b>Javascript</b>) int, the index of the first item to return.
+		 * @param count (<b>Javascript</b>) int, the maximum number of items to return.
+		 * @return (<b>Javascript</b>) Object, with property 'total', the number of items in the tree; and property 'nodes',<br>
+		 *                                      an Array of Objects with properties 'element', 'parentIndex' (-1 for a top<br>
+		 *                                      level item), 'label', 'id', 'class', 'tagName', 'expanded', 'selected', 'disabled' and 'visible'.
+		 */
+		public static String generic_getTreeItems(boolean includeDependency){
+			StringBuffer scriptCommand = new StringBuffer();
+
+			if(includeDependency){
+				scriptCommand.append(getMatchingValues());
+			}
+
+			scriptCommand.append("function generic_getTreeItems(tree, offset, count){\n");
+			scriptCommand.append("  function isTrue(value){\n");
+			scriptCommand.append("    if(value==undefined || value==null) return false;\n");
+			scriptCommand.append("    value = String(value).toLowerCase();\n");
+			scriptCommand.append("    return value=='true' || value=='yes' || value=='on' || value=='1' || value=='-1';\n");
+			scriptCommand.append("  }\n");
+			scriptCommand.append("  var items = tree.querySelectorAll(\"[role='treeitem']\");\n");
+			scriptCommand.append("  var total = items.length;\n");
+			scriptCommand.append("  var end = Math.min(total, offset+count);\n");
+			scriptCommand.append("  //items are in document order, so the parent of an item is the closest previous item containing it\n");
+			scriptCommand.append("  var parents = new Array(end);\n");
+			scriptCommand.append("  var stack = new Array();\n");
+			scriptCommand.append("  for(var i=0;i<end;i++){\n");
+			scriptCommand.append("    while(stack.length>0 && !items[stack[stack.length-1]].contains(items[i])) stack.pop();\n");
+			scriptCommand.append("    parents[i] = stack.length>0 ? stack[stack.length-1] : -1;\n");
+			scriptCommand.append("    stack.push(i);\n");
+			scriptCommand.append("  }\n");
+			scriptCommand.append("  var chunk = new Array();\n");
+			scriptCommand.append("  for(var i=offset;i<end;i++) chunk.push(items[i]);\n");
+			scriptCommand.append("  var labels = getMatchingValues(chunk, '');\n");
+			scriptCommand.append("  var nodes = new Array();\n");
+			scriptCommand.append("  for(var i=0;i<chunk.length;i++){\n");
+			scriptCommand.append("    var item = chunk[i];\n");
+			scriptCommand.append("    var label = labels[i];\n");
+			scriptCommand.append("    if(!label) label = item.textContent;\n");
+			scriptCommand.append("    var visible = item.getClientRects().length>0;\n");
+			scriptCommand.append("    if(visible && window.getComputedStyle!=undefined){\n");
+			scriptCommand.append("      visible = window.getComputedStyle(item, null).visibility!='hidden';\n");
+			scriptCommand.append("    }\n");
+			scriptCommand.append("    nodes.push({\n");
+			scriptCommand.append("      'element': item,\n");
+			scriptCommand.append("      'parentIndex': parents[offset+i],\n");
+			scriptCommand.append("      'label': label,\n");
+			scriptCommand.append("      'id': item.getAttribute('id'),\n");
+			scriptCommand.append("      'class': item.getAttribute('class'),\n");
+			scriptCommand.append("      'tagName': item.tagName.toLowerCase(),\n");
+			scriptCommand.append("      'expanded': isTrue(item.getAttribute('aria-expanded')) || isTrue(item.getAttribute('data-expanded')),\n");
+			scriptCommand.append("      'selected': isTrue(item.getAttribute('aria-selected')),\n");
+			scriptCommand.append("      'disabled': isTrue(item.getAttribute('aria-disabled')),\n");
+			scriptCommand.append("      'visible': visible\n");
+			scriptCommand.append("    });\n");
+			scriptCommand.append("  }\n");
+			scriptCommand.append("  return {'total': total, 'nodes': nodes};\n");
+			scriptCommand.append("}\n");
+			return scriptCommand.toString();
+		}
 	}
 	
 	public static final class SAP{
@@ -63,6 +63,7 @@ import org.safs.text.FileUtilities;
 import org.safs.text.GENKEYS;
 import org.safs.text.GENStrings;
 import org.safs.tools.CaseInsensitiveFile;
+import org.safs.tools.drivers.DefaultDriver;
 import org.safs.tools.drivers.DriverInterface;
 import org.safs.tools.stringutils.StringUtilities;
 
@@ -364,10 +365,10 @@ holdloop:		while(! driverStatus.equalsIgnoreCase(JavaHook.RUNNING_EXECUTION)){
 						try{ Thread.sleep(100);}catch(Exception x){;}
 					// STEPPING
 					}else if (driverStatus.equalsIgnoreCase(JavaHook.STEPPING_EXECUTION)){
-						setVariable(DriverInterface.DRIVER_CONTROL_VAR, JavaHook.PAUSE_EXECUTION);
+						setDriverControl(JavaHook.PAUSE_EXECUTION);
 					// STEP	
 					}else if (driverStatus.equalsIgnoreCase(JavaHook.STEP_EXECUTION)){
-						setVariable(DriverInterface.DRIVER_CONTROL_VAR, JavaHook.STEPPING_EXECUTION);
+						setDriverControl(JavaHook.STEPPING_EXECUTION);
 						break holdloop;
 					// SHUTDOWN
 					}else if (driverStatus.equalsIgnoreCase(JavaHook.SHUTDOWN_RECORD)){
@@ -378,18 +379,18 @@ holdloop:		while(! driverStatus.equalsIgnoreCase(JavaHook.RUNNING_EXECUTION)){
 						break mainloop;
 					// STEP_RETRY_EXECUTION
 					}else if (driverStatus.equalsIgnoreCase(JavaHook.STEP_RETRY_EXECUTION)){
-						setVariable(DriverInterface.DRIVER_CONTROL_VAR, JavaHook.STEPPING_RETRY_EXECUTION);
+						setDriverControl(JavaHook.STEPPING_RETRY_EXECUTION);
 						retryStep = true;
 						break holdloop;
 					// STEPPING_RETRY_EXECUTION
 					}else if (driverStatus.equalsIgnoreCase(JavaHook.STEPPING_RETRY_EXECUTION)){
 						retryStep = false;
-						setVariable(DriverInterface.DRIVER_CONTROL_VAR, JavaHook.PAUSE_EXECUTION);
+						setDriverControl(JavaHook.PAUSE_EXECUTION);
 					}else{
 						Log.resume();
 						Log.info(debugmsg+" unknown or invalid SAFS_DRIVER_CONTROL status. ReSet to RUNNING!");
 						Log.suspend();
-						setVariable(DriverInterface.DRIVER_CONTROL_VAR, JavaHook.RUNNING_EXECUTION);
+						setDriverControl(JavaHook.RUNNING_EXECUTION);
 						stepping = false;
 						break holdloop;
 					}
@@ -454,6 +455,12 @@ holdloop:		while(! driverStatus.equalsIgnoreCase(JavaHook.RUNNING_EXECUTION)){
 		}
 	}
 	
+	/** Set SAFS_DRIVER_CONTROL in SAFSVARS and push it to a driver running in this JVM. */
+	private void setDriverControl(String status) throws SAFSException{
+		setVariable(DriverInterface.DRIVER_CONTROL_VAR, status);
+		DefaultDriver.DRIVER_CONTROL.post(status);
+	}
+
 	private void clearAppMapCache(){
 		//localClearAppMapCache(null, null);
 		String msg = "";
@@ -87,6 +87,7 @@ import org.safs.selenium.webdriver.lib.SearchObject.SAP;
 import org.safs.selenium.webdriver.lib.SelectBrowser;
 import org.safs.selenium.webdriver.lib.SeleniumPlusException;
 import org.safs.selenium.webdriver.lib.WDLibrary;
+import org.safs.selenium.webdriver.lib.WebElementCache;
 import org.safs.staf.service.map.AbstractSAFSAppMapService;
 import org.safs.text.CaseInsensitiveHashtable;
 import org.safs.tools.CaseInsensitiveFile;
@@ -511,11 +512,11 @@ public class WebDriverGUIUtilities extends DDGUIUtilities {
 		    }
 		    
 		    //TODO: Find and inject into window not launched by us.
-    		//TODO: currently, we do no caching so we don't care if the recognition is dynamic.
-	    	String winRec = map.getParentGUIID(windowName, false);
-	    	//CACHE HANDLE
-//	    	boolean ignoreCache = ApplicationMap.isGUIIDDynamic(winRec);
-//	    	if(ignoreCache) winRec = ApplicationMap.extractTaggedGUIID(winRec);
+		    //CACHE HANDLE: found WebElements are cached unless the recognition is dynamic.
+		    boolean useCache = SearchObject.USE_ELEMENT_CACHE;
+	    	String winRec = map.getParentGUIID(windowName, useCache);
+	    	boolean ignoreCache = !useCache || ApplicationMap.isGUIIDDynamic(winRec);
+	    	if(useCache) winRec = ApplicationMap.extractTaggedGUIID(winRec);
 	    	
 	    	//If user doesn't specify window RS then use html default window.
 	    	if (winRec == null || winRec.length() == 0){
@@ -537,11 +538,6 @@ public class WebDriverGUIUtilities extends DDGUIUtilities {
 	    	
             IndependantLog.info("WDGU: WFO winRec retrieved: "+ winRec);
             WebElement winObj = null;
-            //CACHE HANDLE
-//			if(!ignoreCache){
-//				winObj = (WebElement)map.getParentObject(windowName);
-//				IndependantLog.info("WDGU: winObj got from cache: "+ winObj);
-//			}
             
             // check for possible Autoit-Based Testing recognition string
             if(AutoItRs.isAutoitBasedRecognition(winRec)){
@@ -563,11 +559,19 @@ public class WebDriverGUIUtilities extends DDGUIUtilities {
 	    		return StatusCodes.SCRIPT_NOT_EXECUTED;
             }
 
+            //CACHE HANDLE
+            String winKey = WebElementCache.getKey(appMapName, windowName, windowName);
+			if(!ignoreCache){
+				winObj = SearchObject.getCachedObject(winKey, winRec, null);
+				if(winObj!=null) IndependantLog.info("WDGU: WFO winObj got from cache: "+ winObj);
+			}
+
 			//Try to get the Window TestObject dynamically
             if(winObj==null){
             	winObj = waitWinObject(windowName, winRec, secTimeout);
             	IndependantLog.debug("WDGU: WFO Store the window object into the map cache with key '"+windowName+"' in section ["+windowName+"]");
             	map.setParentObject(windowName, winObj);
+            	if(!ignoreCache) SearchObject.cacheObject(winKey, winRec, null, winObj);
             }
 					
 	    	//these may not be needed if seeking parent window only	    	
@@ -578,16 +582,15 @@ public class WebDriverGUIUtilities extends DDGUIUtilities {
 	    	
 	    	// get values if a child component is the target and not just the window
 	    	if(!isParent){
-	    		// currently, we do no caching so we don't care if the recognition is dynamic.
-		    	compRec = map.getChildGUIID(windowName, compName, false);
+		    	compRec = map.getChildGUIID(windowName, compName, useCache);
 		        if (compRec == null) {
 		          IndependantLog.debug("WDGU: WFO could NOT retrieve AppMap entry for Component '"+ windowName +":"+ compName +"'. Verify it exists.");
 		          throw new SAFSException("WDGU: WFO could NOT retrieve AppMap entry for Component '"+ windowName +":"+ compName +"'. Verify it exists.");
 		        }
+	            //CACHE HANDLE: a component is only cached in a cached window.
+		    	ignoreCache = ignoreCache || ApplicationMap.isGUIIDDynamic(compRec);
+		    	if(useCache) compRec = ApplicationMap.extractTaggedGUIID(compRec);
 	            IndependantLog.info("WDGU: WFO compRec retrieved: "+ compRec);
-	            //CACHE HANDLE
-//		    	ignoreCache = ApplicationMap.isGUIIDDynamic(compRec);
-//		    	if(ignoreCache) compRec = ApplicationMap.extractTaggedGUIID(compRec);
 
 	    	} else {
 	    		//throw NullPointerExceptions if not found/valid
@@ -600,10 +603,11 @@ public class WebDriverGUIUtilities extends DDGUIUtilities {
 	    	}
 	    	  
 	    	//CACHE HANDLE
-//	    	if(!ignoreCache){
-//	    		compObj = (WebElement)map.getChildObject(windowName, compName);
-//	    		IndependantLog.info("WDGU: compObj got from cache: "+ compObj);
-//	    	}
+	    	String compKey = WebElementCache.getKey(appMapName, windowName, compName);
+	    	if(!ignoreCache){
+	    		compObj = SearchObject.getCachedObject(compKey, compRec, winObj);
+	    		if(compObj!=null) IndependantLog.info("WDGU: WFO compObj got from cache: "+ compObj);
+	    	}
 	    	
 	    	//Try to get the Component TestObject dynamically
 	    	if(compObj==null){
@@ -611,6 +615,7 @@ public class WebDriverGUIUtilities extends DDGUIUtilities {
 	    		IndependantLog.debug("WDGU: WFO Store the component object into the map cache with key '"+compName+"' in section ["+windowName+"]");
             	map.setParentObject(windowName, winObj); // could have changed (StaleElementException handling)
 	    		map.setChildObject(windowName, compName, compObj);
+	    		if(!ignoreCache) SearchObject.cacheObject(compKey, compRec, winObj, compObj);
 	    	}
 	    	//Set the test-record with window, component information
 	    	trdata.setCompGuiId(compRec);
@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) SAS Institute, All rights reserved.
+ * General Public License: http://www.opensource.org/licenses/gpl-license.php
+ */
+package org.safs.selenium.webdriver.lib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.safs.GuiObjectVector;
+import org.safs.IndependantLog;
+import org.safs.StringUtils;
+import org.safs.selenium.webdriver.lib.RS.XPATH;
+import org.safs.tools.stringutils.StringUtilities;
+
+/**
+ * The levels of a recognition string, without its frames, compiled into the steps resolved in the browser
+ * by {@link org.safs.selenium.util.JavaScriptFunctions#resolveRecognition(boolean)}.
+ * <p>
+ * Each level is compiled the way {@link SearchObject#getObject(org.openqa.selenium.SearchContext, String)}
+ * searches it: multiple attributes become the same xpath as {@link SearchObject#getXpathOfMultiAttributes(String, boolean, HashMap)},
+ * Text= and Title= keep the xpath pre-match and the matching order of {@link SearchObject#getMatchedObject(List, String, boolean)},
+ * and a level with an unknown qualifier is skipped.
+ * <p>
+ * A recognition string is not compiled if any level needs to be searched in Java: Type=, ItemIndex=, Path=, Link=, PartialLink=,
+ * or a level that cannot be parsed.
+ *
+ * @see SearchObject#USE_BROWSER_RECOGNITION
+ * @see SearchObject#getObjectInBrowser(org.openqa.selenium.SearchContext, RecognitionDescriptor)
+ */
+public class RecognitionDescriptor {
+
+	/** step kinds, see {@link org.safs.selenium.util.JavaScriptFunctions#resolveRecognition(boolean)} */
+	static final String STEP_XPATH = "xpath";
+	static final String STEP_CSS = "css";
+	static final String STEP_TAG = "tag";
+	static final String STEP_ID = "id";
+	static final String STEP_NAME = "name";
+	static final String STEP_CLASS = "class";
+	static final String STEP_TEXT = "text";
+	static final String STEP_TITLE = "title";
+
+	/** each step is a list of Strings: kind, selector, and the arguments of the kind */
+	private List<List<String>> steps = new ArrayList<List<String>>();
+
+	private RecognitionDescriptor(){}
+
+	/** @return the steps, to pass to javascript as an Array of Arrays. */
+	public List<List<String>> getSteps(){ return steps; }
+
+	/** @return the number of steps. */
+	public int size(){ return steps.size(); }
+
+	private void add(String... step){ steps.add(Arrays.asList(step)); }
+
+	/**
+	 * Compile the levels of a recognition string.
+	 * @param levels String[], the levels of the recognition string, without the frames.
+	 * @return RecognitionDescriptor, or null if any level must be searched in Java.
+	 */
+	public static RecognitionDescriptor compile(String[] levels){
+		String debugmsg = StringUtils.debugmsg(RecognitionDescriptor.class, "compile");
+		RecognitionDescriptor descriptor = new RecognitionDescriptor();
+		List<String> prefixes = new ArrayList<String>();
+		try{
+			for(String level: levels){
+				prefixes.clear();
+				level = GuiObjectVector.removeRStringPrefixes(level, prefixes);
+				boolean isPASM = GuiObjectVector.isPASMMode(prefixes);
+				String[] firstQualifierPair = SearchObject.getFirstQualifierPair(level);
+				String qualifier = firstQualifierPair[0];
+
+				if(SearchObject.SEARCH_CRITERIA_TYPE.equalsIgnoreCase(qualifier)){
+					IndependantLog.debug(debugmsg+" '"+level+"' is searched in Java.");
+					return null;
+
+				}else if(SearchObject.SEARCH_CRITERIA_XPATH.equalsIgnoreCase(qualifier)){
+					descriptor.add(STEP_XPATH, firstQualifierPair[1], "");
+
+				}else if(SearchObject.SEARCH_CRITERIA_CSS.equalsIgnoreCase(qualifier)){
+					descriptor.add(STEP_CSS, firstQualifierPair[1]);
+
+				}else if(level.contains(SearchObject.qulifierSeparator)){
+					HashMap<String, String> qualifiers = new HashMap<String, String>();
+					String xpath = SearchObject.getXpathOfMultiAttributes(level, isPASM, qualifiers);
+					if(qualifiers.containsKey(SearchObject.SEARCH_CRITERIA_ITEMINDEX) ||
+					   qualifiers.containsKey(SearchObject.SEARCH_CRITERIA_PATH)){
+						IndependantLog.debug(debugmsg+" '"+level+"' is searched in Java.");
+						return null;
+					}
+					String index = "";
+					if(qualifiers.containsKey(SearchObject.SEARCH_CRITERIA_INDEX)){
+						index = String.valueOf(StringUtilities.parseIndex(qualifiers.get(SearchObject.SEARCH_CRITERIA_INDEX)));
+					}
+					descriptor.add(STEP_XPATH, String.format(xpath), index);
+
+				}else{
+					String[] tokens = StringUtils.getTokenArray(level, SearchObject.assignSeparator, SearchObject.escapeChar);
+					if(!descriptor.addQualifier(tokens[0], tokens[1])){
+						IndependantLog.debug(debugmsg+" '"+level+"' is searched in Java.");
+						return null;
+					}
+				}
+			}
+		}catch(Throwable t){
+			IndependantLog.debug(debugmsg+" cannot compile, met "+StringUtils.debugmsg(t));
+			return null;
+		}
+		return descriptor;
+	}
+
+	/**
+	 * Compile one qualifier pair, as {@link SearchObject#getObjectByQualifier(org.openqa.selenium.SearchContext, String, String)} searches it.
+	 * @return false if the qualifier must be searched in Java.
+	 */
+	private boolean addQualifier(String qualifier, String value){
+		if(qualifier==null) return false;
+		String qualifierUC = qualifier.toUpperCase();
+		boolean partialMatch = qualifierUC.endsWith(SearchObject.SEARCH_CRITERIA_CONTAINS_SUFFIX);
+
+		if(SearchObject.SEARCH_CRITERIA_XPATH.equals(qualifierUC)){
+			add(STEP_XPATH, value, "");
+		}else if(SearchObject.SEARCH_CRITERIA_CSS.equals(qualifierUC)){
+			add(STEP_CSS, value);
+		}else if(SearchObject.SEARCH_CRITERIA_TAG.equals(qualifierUC)){
+			add(STEP_TAG, value);
+		}else if(SearchObject.SEARCH_CRITERIA_ID.equals(qualifierUC)){
+			add(STEP_ID, value);
+		}else if(SearchObject.SEARCH_CRITERIA_CLASS.equals(qualifierUC)){
+			add(STEP_CLASS, value);
+		}else if(SearchObject.SEARCH_CRITERIA_NAME.equals(qualifierUC)){
+			add(STEP_NAME, value);
+		}else if(qualifierUC.startsWith(SearchObject.SEARCH_CRITERIA_LINK) ||
+				 SearchObject.SEARCH_CRITERIA_PARTIALLINK.equals(qualifierUC)){
+			//link text is matched by the WebDriver
+			return false;
+		}else if(qualifierUC.startsWith(SearchObject.SEARCH_CRITERIA_TEXT)){
+			add(STEP_TEXT, XPATH.fromText(value, partialMatch, true), value, String.valueOf(partialMatch));
+		}else if(qualifierUC.startsWith(SearchObject.SEARCH_CRITERIA_TITLE)){
+			String attribute = SearchObject.SEARCH_CRITERIA_TITLE.toLowerCase();
+			add(STEP_TITLE, XPATH.fromAttribute(attribute, value, partialMatch, true), value, String.valueOf(partialMatch));
+		}else if(qualifierUC.startsWith(SearchObject.SEARCH_CRITERIA_IFRAMEID)){
+			add(STEP_XPATH, "//iframe["+XPATH.condition("id", value, partialMatch)+"]", "");
+		}else if(partialMatch){
+			add(STEP_XPATH, XPATH.RELATIVE_MATCHING_ALL_START+XPATH.conditionContains(qualifier, value)+XPATH.END, "");
+		}
+		//an unknown qualifier is skipped, as getObject() does
+		return true;
+	}
+
+	public String toString(){
+		return "RecognitionDescriptor steps:"+ steps;
+	}
+}
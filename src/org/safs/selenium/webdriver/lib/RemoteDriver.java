@@ -71,6 +71,8 @@ public class RemoteDriver extends RemoteWebDriver implements TakesScreenshot {
 	
 	private static boolean newSession = true;
 	private boolean _quit = false;
+	/** the id this session is tracked with in the session file, if it changed after the session started. */
+	private String sessionFileId;
 	
 	/** The URL provided at construction time. */
 	public URL remote_URL; 
@@ -349,7 +351,7 @@ public class RemoteDriver extends RemoteWebDriver implements TakesScreenshot {
 	@Override
 	public void quit(){		
 		super.quit();
-		try{ deleteSessionIdFromFile((String)this.getCapabilities().getCapability(CAPABILITY_ID));}
+		try{ deleteSessionIdFromFile(getSessionFileId());}
 		catch(Throwable t){}
 		try{ rmiAgent.disconnect();}
 		catch(Throwable t){}
@@ -357,6 +359,18 @@ public class RemoteDriver extends RemoteWebDriver implements TakesScreenshot {
 	}
 	
 	public boolean hasQuit(){ return _quit; }
+
+	/**
+	 * Set the id this session is tracked with in the session file, as when a pooled session is handed out to a
+	 * browser started with another id.  {@link #quit()} deletes the record of this id.
+	 * @param id String, the id of the session file record.
+	 */
+	public void setSessionFileId(String id){ sessionFileId = id; }
+
+	/** @return the id this session is tracked with in the session file, the {@link #CAPABILITY_ID} it started with by default. */
+	public String getSessionFileId(){
+		return sessionFileId!=null? sessionFileId: (String)getCapabilities().getCapability(CAPABILITY_ID);
+	}
 	
 	/**
 	 * Called internally by OpenQA RemoteWebDriver during Constructor initialization.
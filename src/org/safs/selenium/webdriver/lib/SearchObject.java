@@ -171,6 +171,12 @@ public class SearchObject {
 	private static Hashtable<String, WebDriver> webDrivers = new Hashtable<String, WebDriver>();
 	private static Vector<String> webDriverStack = new Vector<String>();
 
+	/**
+	 * Started browser sessions kept for reuse by {@link WDLibrary#startBrowser(String, String, String, int, boolean, HashMap)}.
+	 * Disabled until its size is set greater than 0.
+	 */
+	public static final WebDriverPool WEBDRIVER_POOL = new WebDriverPool();
+
 	/** "value","text","placeholder". An array of attribute used as component's text content.<br>
 	 * @see #getValue(WebElement, String...)
 	 */
@@ -242,9 +248,133 @@ public class SearchObject {
 	 * @see #getObject(SearchContext, String)
 	 */
 	public static void setLastFrame(FrameElement lastFrame) {
+		if(!isSameFrame(SearchObject.lastFrame, lastFrame)) ELEMENT_CACHE.invalidate();
 		SearchObject.lastFrame = lastFrame;
 	}
 
+	/**
+	 * @return true if both are null, or both refer to the same frame elements at every level.
+	 */
+	protected static boolean isSameFrame(FrameElement frame1, FrameElement frame2){
+		while(frame1!=null && frame2!=null){
+			if(frame1==frame2) return true;
+			if(frame1.getWebElement()==null || !frame1.getWebElement().equals(frame2.getWebElement())) return false;
+			frame1 = frame1.getParentFrame();
+			frame2 = frame2.getParentFrame();
+		}
+		return frame1==frame2;
+	}
+
+	/**
+	 * Switch into a frame, and its parent frames first, from the top document.
+	 * @param targetLocator TargetLocator of the WebDriver, already switched to the default content.
+	 * @param frameElement the frame to switch to, or null to stay in the default content.
+	 */
+	protected static void _switchToFrameElement(TargetLocator targetLocator, FrameElement frameElement){
+		Stack<FrameElement> frameStack = new Stack<FrameElement>();
+		while(frameElement!=null){
+			frameStack.push(frameElement);
+			frameElement = frameElement.getParentFrame();
+		}
+		while(!frameStack.isEmpty()){
+			targetLocator.frame(frameStack.pop().getWebElement());
+		}
+	}
+
+	/**
+	 * Set to false to search for App Map windows and components on every
+	 * {@link WebDriverGUIUtilities#waitForObject(String, String, String, long)}.
+	 * Default is true: the WebElements found are kept in {@link #ELEMENT_CACHE} and reused
+	 * while they are not stale.
+	 */
+	public static boolean USE_ELEMENT_CACHE = true;
+
+	/** WebElements found for App Map windows and components in the current browser. */
+	public static final WebElementCache ELEMENT_CACHE = new WebElementCache();
+
+	/**
+	 * Get a WebElement cached by {@link #cacheObject(String, String, WebElement, WebElement)}.
+	 * The element is only returned if it was found with the same recognition string, parent,
+	 * WebDriver, and frame, and is not stale.  The WebDriver is switched to that frame, as
+	 * {@link #getObject(SearchContext, String)} would have done.  The {@link BrowserWindow}
+	 * information is refreshed with {@link #refreshBrowserWindow()}, as the page may have been
+	 * scrolled or the window moved or resized since the element was found.
+	 * @param key from {@link WebElementCache#getKey(String, String, String)}
+	 * @param recognitionString the recognition string the element would be searched with.
+	 * @param parent the parent WebElement it would be searched in, or null for a window.
+	 * @return the cached WebElement, or null if it must be searched for.
+	 */
+	public static WebElement getCachedObject(String key, String recognitionString, WebElement parent){
+		String debugmsg = StringUtils.debugmsg(SearchObject.class, "getCachedObject");
+		if(!USE_ELEMENT_CACHE) return null;
+		WebElementCache.Entry entry = ELEMENT_CACHE.get(key);
+		if(entry==null){
+			ELEMENT_CACHE.miss();
+			return null;
+		}
+		if(!entry.recognition.equals(recognitionString) || entry.parent!=parent ||
+		   entry.driver!=lastUsedWD || !isSameFrame(entry.frame, lastFrame)){
+			IndependantLog.debug(debugmsg+"cached element for '"+ recognitionString +"' no longer matches.");
+			ELEMENT_CACHE.discard(key);
+			return null;
+		}
+		try{
+			TargetLocator targetLocator = entry.driver.switchTo();
+			targetLocator.defaultContent();
+			refreshBrowserWindow();
+			_switchToFrameElement(targetLocator, entry.frame);
+			if(isStale(entry.element)){
+				IndependantLog.debug(debugmsg+"cached element for '"+ recognitionString +"' is stale.");
+				ELEMENT_CACHE.discard(key);
+				return null;
+			}
+		}catch(Exception e){
+			IndependantLog.debug(debugmsg+"cached element for '"+ recognitionString +"' is not usable. Met "+StringUtils.debugmsg(e));
+			ELEMENT_CACHE.discard(key);
+			return null;
+		}
+		ELEMENT_CACHE.hit();
+		IndependantLog.debug(debugmsg+"reusing cached element for '"+ recognitionString +"'");
+		return entry.element;
+	}
+
+	/**
+	 * Refresh {@link #lastBrowserWindow} with a single javascript call, without asking the WebDriver
+	 * for the window size and position.  The WebDriver must be in the top document.<br>
+	 * The last BrowserWindow is kept if the information cannot be read.
+	 * @see JavaScriptFunctions#getBrowserInformation()
+	 */
+	protected static void refreshBrowserWindow(){
+		String debugmsg = StringUtils.debugmsg(SearchObject.class, "refreshBrowserWindow");
+		try{
+			StringBuffer jsScript = new StringBuffer();
+			jsScript.append(JavaScriptFunctions.getBrowserInformation());
+			jsScript.append("return getBrowserInformation();");
+			//bypass executeScript(), which needs 2 more calls to clean and check the global error
+			Object result = getJS().executeScript(jsScript.toString());
+			if(result instanceof Map){
+				lastBrowserWindow = new BrowserWindow(result);
+				return;
+			}
+			IndependantLog.debug(debugmsg+" the browser information is not available.");
+		}catch(Throwable th){
+			IndependantLog.debug(debugmsg+" Met "+StringUtils.debugmsg(th));
+		}
+	}
+
+	/**
+	 * Cache a WebElement just found with {@link #getObject(SearchContext, String)} so
+	 * {@link #getCachedObject(String, String, WebElement)} can return it next time.
+	 * @param key from {@link WebElementCache#getKey(String, String, String)}
+	 * @param recognitionString the recognition string the element was found with.
+	 * @param parent the parent WebElement it was searched in, or null for a window.
+	 * @param element the WebElement found.
+	 */
+	public static void cacheObject(String key, String recognitionString, WebElement parent, WebElement element){
+		if(!USE_ELEMENT_CACHE || element==null || recognitionString==null || lastUsedWD==null) return;
+		ELEMENT_CACHE.put(key, new WebElementCache.Entry(recognitionString, element, parent, lastFrame, lastUsedWD));
+	}
+
 	/**FRAMEINDEX, it should be placed in front of normal tokens like ID, CLASS, NAME etc. if exist.
 	 *  NOT recommended to use. Use FRAMEID OR FRAMENAME Instead.*/
 	public static final String SEARCH_CRITERIA_FRAMEINDEX 	= "FRAMEINDEX";
@@ -333,6 +463,146 @@ public class SearchObject {
 	protected static String lastVisitedURL = null;
 	public static String getLastVisitedURL(){ return lastVisitedURL;}
 
+	/**
+	 * Set to false to detect page changes in {@link #pageHasChanged()} as before: wait 2 seconds and
+	 * compare the current URL with {@link #getLastVisitedURL()}.<br>
+	 * Default is true: the state of the page is read from a page tracker installed in the top document by
+	 * {@link JavaScriptFunctions#getPageState()}, for at most {@link #PAGE_CHANGE_TIMEOUT} milliseconds.
+	 */
+	public static boolean USE_PAGE_TRACKER = true;
+
+	/**
+	 * The milliseconds {@link #pageHasChanged()} polls the page tracker for a navigation started late, by a javascript
+	 * handler or a timer, before it reports the page has not changed.  The poll stops as soon as the page is new or
+	 * unloading, or its DOM changes.  Default is 1000.
+	 */
+	public static int PAGE_CHANGE_TIMEOUT = 1000;
+	/** The milliseconds between 2 reads of the page state by {@link #pageHasChanged()}. Default is 100. */
+	public static int PAGE_CHANGE_POLL_INTERVAL = 100;
+
+	/**The page state recorded by the last search, null if it could not be read.*/
+	protected static PageState lastPageState = null;
+	public static PageState getLastPageState(){ return lastPageState;}
+
+	/**
+	 * The state of the top document, as reported by the page tracker of {@link JavaScriptFunctions#getPageState()}.
+	 * @see SearchObject#getPageState()
+	 */
+	public static class PageState{
+		/**'id'*/
+		public static final String PROPERTY_ID = "id";
+		/**'generation'*/
+		public static final String PROPERTY_GENERATION = "generation";
+		/**'unloading'*/
+		public static final String PROPERTY_UNLOADING = "unloading";
+		/**'observed'*/
+		public static final String PROPERTY_OBSERVED = "observed";
+		/**'url'*/
+		public static final String PROPERTY_URL = "url";
+
+		private String id = null;
+		private long generation = 0;
+		private boolean unloading = false;
+		private boolean observed = false;
+		private String url = null;
+
+		/**
+		 * @param map Map, the page state object returned by javascript.
+		 */
+		public PageState(Map<?,?> map){
+			Object value = map.get(PROPERTY_ID);
+			if(value!=null) id = value.toString();
+			value = map.get(PROPERTY_GENERATION);
+			if(value instanceof Number) generation = ((Number) value).longValue();
+			unloading = Boolean.TRUE.equals(map.get(PROPERTY_UNLOADING));
+			observed = Boolean.TRUE.equals(map.get(PROPERTY_OBSERVED));
+			value = map.get(PROPERTY_URL);
+			if(value!=null) url = value.toString();
+		}
+
+		/** @return String, the random id given to the document when the tracker was installed. */
+		public String getId() { return id; }
+		/** @return long, the number of DOM mutations, 'hashchange' and 'popstate' events seen in the document. */
+		public long getGeneration() { return generation; }
+		/** @return boolean, true if the document has started to unload. */
+		public boolean isUnloading() { return unloading; }
+		/** @return boolean, false if the browser has no MutationObserver, the generation then only counts 'hashchange' and 'popstate'. */
+		public boolean isObserved() { return observed; }
+		/** @return String, the URL of the top document. */
+		public String getUrl() { return url; }
+
+		/**
+		 * An unloading document is still the same page: the navigation may be canceled, or be a download.
+		 * @param previous PageState, an earlier state.
+		 * @return boolean, true if this is a different document or URL than the previous state.
+		 */
+		public boolean isNewPage(PageState previous){
+			if(previous==null) return true;
+			if(id==null || !id.equals(previous.id)) return true;
+			return url==null || !url.equals(previous.url);
+		}
+
+		/**
+		 * @param previous PageState, an earlier state.
+		 * @return boolean, true if this is the same page as the previous state, is not unloading, and its DOM is known not to have changed.
+		 */
+		public boolean isSameContent(PageState previous){
+			return !isNewPage(previous) && !unloading && observed && generation==previous.generation;
+		}
+
+		public String toString(){
+			return "PageState id:"+ id +", generation:"+ generation +", unloading:"+ unloading +", observed:"+ observed +", url:"+ url;
+		}
+	}
+
+	/**
+	 * Get the state of the top document with a single javascript call, installing the page tracker if needed.<br>
+	 * The WebDriver can stay in a same-origin frame, no frame is switched.<br>
+	 * @return PageState, or null if it cannot be read, as from within a cross-origin frame.
+	 * @see JavaScriptFunctions#getPageState()
+	 */
+	public static PageState getPageState(){
+		String debugmsg = StringUtils.debugmsg(SearchObject.class, "getPageState");
+		try{
+			StringBuffer jsScript = new StringBuffer();
+			jsScript.append(JavaScriptFunctions.getPageState());
+			jsScript.append("return getPageState();");
+			//bypass executeScript(), which needs 2 more calls to clean and check the global error
+			Object result = getJS().executeScript(jsScript.toString());
+			if(result instanceof Map) return new PageState((Map<?,?>) result);
+			IndependantLog.debug(debugmsg+" the page state is not available.");
+		}catch(Throwable th){
+			IndependantLog.debug(debugmsg+" Met "+StringUtils.debugmsg(th));
+		}
+		return null;
+	}
+
+	/**
+	 * Read the page state and keep it as {@link #lastPageState}.<br>
+	 * If the page is new, the WebElement cache, the xpath cache and the component cache are cleared
+	 * as the elements in them are gone.  If only the DOM has changed, the xpath cache is cleared.
+	 * @return PageState, or null if it cannot be read.
+	 */
+	protected static PageState recordPageState(){
+		PageState state = getPageState();
+		if(state!=null && lastPageState!=null){
+			if(state.isNewPage(lastPageState)) clearPageCaches();
+			else if(!state.isSameContent(lastPageState)) resetXPathObjectCache();
+		}
+		lastPageState = state;
+		return state;
+	}
+
+	/**
+	 * Clear the caches holding WebElements of the page: {@link #ELEMENT_CACHE}, the xpath cache
+	 * and the component cache of CFComponent.
+	 */
+	protected static void clearPageCaches(){
+		ELEMENT_CACHE.invalidate();
+		resetXPathObjectCache();
+		org.safs.selenium.webdriver.CFComponent.clearInternalCache();
+	}
+
 	/**The last visited browser window*/
 	protected static BrowserWindow lastBrowserWindow = null;
 	public static BrowserWindow getLastBrowserWindow(){ return lastBrowserWindow;}
@@ -641,6 +911,7 @@ public class SearchObject {
 		}
 		webDrivers.clear();
 		webDriverStack.clear();
+		WEBDRIVER_POOL.shutdown();
 		RemoteDriver.deleteSessionFile();
 	}
 
@@ -682,6 +953,8 @@ public class SearchObject {
 		IndependantLog.debug(debugmsg+"You are adding WebDriver with id '"+id+"'");
 
 		org.safs.selenium.webdriver.CFComponent.clearInternalCache();
+		ELEMENT_CACHE.invalidate();
+		lastPageState = null;
 
 		webDrivers.put(id,wd);
 		lastUsedWD = wd;
@@ -710,6 +983,8 @@ public class SearchObject {
 		try{ RemoteDriver.setLastSessionId(ID);}catch(Exception e){}
 
 		org.safs.selenium.webdriver.CFComponent.clearInternalCache();
+		ELEMENT_CACHE.invalidate();
+		lastPageState = null;
 
 		webDriverStack.remove(ID);
 		webDriverStack.add(ID); // make it the "lastUsed"
@@ -947,6 +1222,8 @@ public class SearchObject {
 		WebDriver obj = null;
 		try{
 			org.safs.selenium.webdriver.CFComponent.clearInternalCache();
+			ELEMENT_CACHE.invalidate();
+			lastPageState = null;
 
 			if(id!=null) obj = (WebDriver) webDrivers.remove(id);
 			else{
@@ -1231,6 +1508,12 @@ public class SearchObject {
 	/**
 	 * To detect if the page has changed or not.<br>
 	 * For example, if user click on a link, or a Log-Out menu item, the page may probably change.<br>
+	 * With {@link #USE_PAGE_TRACKER}, the page has changed if the top document, or its URL, is not the one
+	 * recorded by the last search, or if the current page is still unloading for a navigation.  The page state is
+	 * polled until one of them is seen, the DOM changes, or {@link #PAGE_CHANGE_TIMEOUT} milliseconds pass, so that
+	 * a navigation started late by a javascript handler is not missed.
+	 * Otherwise, or if the page state cannot be read,
+	 * wait 2 seconds and compare the URL with the last visited URL.<br>
 	 * The current implementation is not guarantee!<br>
 	 * @return boolean, if the page has changed.
 	 */
@@ -1238,6 +1521,29 @@ public class SearchObject {
 		String url = null;
 		boolean changed = false;
 
+		if(USE_PAGE_TRACKER && lastPageState!=null){
+			PageState state = getPageState();
+			if(state!=null){
+				PageState first = state;
+				long timeout = System.currentTimeMillis() + PAGE_CHANGE_TIMEOUT;
+				while(!(changed = state.isNewPage(lastPageState)) && !state.isUnloading() &&
+					  state.getGeneration()==first.getGeneration() && System.currentTimeMillis()<timeout){
+					StringUtilities.sleep(PAGE_CHANGE_POLL_INTERVAL);
+					PageState next = getPageState();
+					//the document may be replaced between 2 reads, which counts as a change
+					if(next==null){
+						changed = true;
+						break;
+					}
+					state = next;
+				}
+				IndependantLog.debug(StringUtils.debugmsg(false)+" '"+state+"' is new page of '"+lastPageState+"' ? "+changed);
+				if(changed) clearPageCaches();
+				//the new document is not there yet, but this one is going away.
+				return changed || state.isUnloading();
+			}
+		}
+
 		try{
 			//TODO Does "url change" mean the page has changed???
 			//Not enough, there are some cases, url changed, but page doesn't. we need another way to detect.
@@ -1286,7 +1592,11 @@ public class SearchObject {
 		//1. Handle the Frames Recognition String
 		try{
 			WebDriver  webdriver = getWebDriver();
-			lastVisitedURL = webdriver.getCurrentUrl();
+			PageState pageState = USE_PAGE_TRACKER ? recordPageState() : null;
+			String url = pageState!=null && pageState.getUrl()!=null ? pageState.getUrl() : webdriver.getCurrentUrl();
+			if(lastVisitedURL!=null && !lastVisitedURL.equals(url)) ELEMENT_CACHE.invalidate();
+			WEBDRIVER_POOL.visited(webdriver, url);
+			lastVisitedURL = url;
 			targetLocator = webdriver.switchTo();
 			//very IMPORTANT step: Switch back to the top window or first frame
 			targetLocator.defaultContent();
@@ -1322,6 +1632,8 @@ public class SearchObject {
 
 						IndependantLog.debug(debugmsg +" changing the last visited URL from '"+lastVisitedURL+"' to '"+webdriver.getCurrentUrl()+"'");
 						lastVisitedURL = webdriver.getCurrentUrl();
+						WEBDRIVER_POOL.visited(webdriver, lastVisitedURL);
+						ELEMENT_CACHE.invalidate();
 
 						targetLocator = webdriver.switchTo();
 						targetLocator.defaultContent();
@@ -1364,7 +1676,10 @@ public class SearchObject {
 				}
 			}
 
-			if(haveSwichedFrame) lastFrame = frameElement;
+			if(haveSwichedFrame){
+				if(!isSameFrame(lastFrame, frameElement)) ELEMENT_CACHE.invalidate();
+				lastFrame = frameElement;
+			}
 
 		}catch(Exception e){
 			IndependantLog.error(debugmsg+" during switching frame, met exception "+StringUtils.debugmsg(e));
@@ -1408,6 +1723,7 @@ public class SearchObject {
 			//If we fail to switch to 'lastFrame', which perhaps means that it is not useful anymore
 			//we should reset it to null, otherwise it will cause errors, such as calculate the element's screen location
 			IndependantLog.debug(debugmsg+" 'lastFrame' is not useful anymore, reset it to null.");
+			if(lastFrame!=null) ELEMENT_CACHE.invalidate();
 			lastFrame = null;
 		}
 		return new SwitchFramesResults().setRsWithoutFrames(rsWithoutFrames).setSwitchedFrames(haveSwichedFrame);
@@ -1456,6 +1772,18 @@ public class SearchObject {
 
 		//4. Search the target element within a frame (if exist) level by level, by handling the normal RS
 		String[] st = sfr.rsWithoutFrames.toArray(new String[0]);//The normal RS without the frame-RS
+
+		if(USE_BROWSER_RECOGNITION){
+			RecognitionDescriptor descriptor = RecognitionDescriptor.compile(st);
+			if(descriptor!=null && descriptor.size()>0){
+				try{
+					return getObjectInBrowser(wel, descriptor);
+				}catch(SeleniumPlusException e){
+					IndependantLog.debug(debugmsg+" searching level by level, as "+e.getMessage());
+				}
+			}
+		}
+
 		String[] firstQualifierPair = null;
 		List<String> prefixes = new ArrayList<String>();
 		boolean isPASM = false;
@@ -1521,6 +1849,58 @@ public class SearchObject {
 		}
 	}
 
+	/**
+	 * Set to true to resolve the levels of a recognition string, after its frames, in the browser with one
+	 * javascript call, instead of one or more WebDriver calls per level.<br>
+	 * Recognition strings with qualifiers that must be searched in Java, like Type=, ItemIndex=, Path= or Link=,
+	 * are still searched level by level. Default is false.
+	 * @see RecognitionDescriptor
+	 */
+	public static boolean USE_BROWSER_RECOGNITION = false;
+
+	/**
+	 * Resolve a compiled recognition string in the browser with one javascript call.<br>
+	 * Index= counts the elements shown as the browser computes it, which may differ from WebElement.isDisplayed()
+	 * for elements hidden by their ancestors' opacity or overflow.
+	 * @param sc SearchContext, the WebDriver or the WebElement to search within.
+	 * @param descriptor RecognitionDescriptor, the compiled levels of the recognition string.
+	 * @return WebElement found or null if not found.
+	 * @throws SeleniumPlusException if the recognition string could not be resolved in the browser,
+	 *                               and must be searched level by level.
+	 * @see JavaScriptFunctions#resolveRecognition(boolean)
+	 */
+	public static WebElement getObjectInBrowser(SearchContext sc, RecognitionDescriptor descriptor) throws SeleniumPlusException{
+		String debugmsg = StringUtils.debugmsg(SearchObject.class, "getObjectInBrowser");
+		WebElement context = null;
+		if(sc instanceof WebElement){
+			context = (WebElement) sc;
+		}else if(!(sc instanceof WebDriver)){
+			throw new SeleniumPlusException("cannot search within "+sc);
+		}
+		IndependantLog.debug(debugmsg+" resolving "+descriptor);
+
+		Object result = null;
+		try{
+			StringBuffer jsScript = new StringBuffer();
+			jsScript.append(JavaScriptFunctions.resolveRecognition(true));
+			jsScript.append("return resolveRecognition(arguments[0], arguments[1]);");
+			//bypass executeScript(), which needs 2 more calls to clean and check the global error
+			result = getJS().executeScript(jsScript.toString(), context, descriptor.getSteps());
+		}catch(Throwable th){
+			throw new SeleniumPlusException("javascript failed, met "+StringUtils.debugmsg(th));
+		}
+
+		if(!(result instanceof Map)) throw new SeleniumPlusException("javascript returned "+result);
+		Map<?,?> map = (Map<?,?>) result;
+		Object element = map.get("element");
+		if(element instanceof WebElement) return (WebElement) element;
+		if(Boolean.TRUE.equals(map.get("error"))){
+			throw new SeleniumPlusException("step "+map.get("level")+" could not be evaluated: "+map.get("reason"));
+		}
+		IndependantLog.debug(debugmsg+" step "+map.get("level")+" failed: "+map.get("reason"));
+		return null;
+	}
+
 	/**
 	 * Primary entry point to seek all WebElements matching a provided recognition string.
 	 * We support multiple types of recognition strings
@@ -1714,8 +2094,7 @@ public class SearchObject {
 		String xpath = XPATH.fromText(text, partialMatch, true);
 		List<WebElement> preMatches = findElements(wel, xpath);
 
-		List<WebElementWarpper> elements = new ArrayList<WebElementWarpper>();
-		for(WebElement item : preMatches) elements.add(new WebElementWarpper(item, item.getText()));
+		List<WebElementWarpper> elements = getMatchingValues(preMatches, null);
 
 		return getMatchedObject(elements, text, partialMatch);
 	}
@@ -1728,8 +2107,7 @@ public class SearchObject {
 		String xpath = XPATH.fromText(text, partialMatch, true);
 		List<WebElement> preMatches = findElements(wel, xpath);
 
-		List<WebElementWarpper> elements = new ArrayList<WebElementWarpper>();
-		for(WebElement item : preMatches) elements.add(new WebElementWarpper(item, item.getText()));
+		List<WebElementWarpper> elements = getMatchingValues(preMatches, null);
 
 		return getMatchedObjects(elements, text, partialMatch);
 	}
@@ -1742,8 +2120,7 @@ public class SearchObject {
 		String xpath = XPATH.fromAttribute(attribute, value, partialMatch, true);
 		List<WebElement> preMatches = findElements(wel, xpath);
 
-		List<WebElementWarpper> elements = new ArrayList<WebElementWarpper>();
-		for(WebElement item : preMatches) elements.add(new WebElementWarpper(item, item.getAttribute(attribute)));
+		List<WebElementWarpper> elements = getMatchingValues(preMatches, attribute);
 
 		return getMatchedObject(elements, value, partialMatch);
 	}
@@ -1757,38 +2134,84 @@ public class SearchObject {
 		String xpath = XPATH.fromAttribute(attribute, value, partialMatch, true);
 		List<WebElement> preMatches = findElements(wel, xpath);
 
-		List<WebElementWarpper> elements = new ArrayList<WebElementWarpper>();
-		for(WebElement item : preMatches) elements.add(new WebElementWarpper(item, item.getAttribute(attribute)));
+		List<WebElementWarpper> elements = getMatchingValues(preMatches, attribute);
 
 		return getMatchedObjects(elements, value, partialMatch);
 	}
 
+	/**
+	 * Set to false to get the text or attribute of each pre-matched element with its own WebDriver call,
+	 * when matching by qualifiers like Text= or Title=.<br>
+	 * Default is true: the values of all pre-matched elements are got with one javascript call.
+	 * @see #getMatchingValues(List, String)
+	 */
+	public static boolean BATCH_MATCHING_VALUES = true;
+
+	/**
+	 * Pair each pre-matched element with its text or attribute value to match with.<br>
+	 * With {@link #BATCH_MATCHING_VALUES}, the values of all elements are got by one javascript call,
+	 * instead of one WebDriver call per element. The value of an element not got that way,
+	 * or of all elements if the javascript call fails, is got with its own WebDriver call.
+	 * @param preMatches List&lt;WebElement>, the elements to get values of.
+	 * @param attribute String, the attribute to get; null to get the text.
+	 * @return List&lt;WebElementWarpper>, the elements with their values, in the same order.
+	 * @see JavaScriptFunctions#getMatchingValues()
+	 */
+	protected static List<WebElementWarpper> getMatchingValues(List<WebElement> preMatches, String attribute){
+		String debugmsg = StringUtils.debugmsg(false);
+		List<?> values = null;
+
+		if(BATCH_MATCHING_VALUES && preMatches.size()>1){
+			try{
+				StringBuffer jsScript = new StringBuffer();
+				jsScript.append(JavaScriptFunctions.getMatchingValues());
+				jsScript.append("return getMatchingValues(arguments[0], arguments[1]);");
+				//bypass executeScript(), which needs 2 more calls to clean and check the global error
+				Object result = getJS().executeScript(jsScript.toString(), preMatches, attribute==null? "":attribute);
+				if(result instanceof List && ((List<?>) result).size()==preMatches.size()){
+					values = (List<?>) result;
+				}else{
+					IndependantLog.debug(debugmsg+" javascript did not return the "+preMatches.size()+" values.");
+				}
+			}catch(Throwable th){
+				IndependantLog.debug(debugmsg+" Met "+StringUtils.debugmsg(th));
+			}
+		}
+
+		List<WebElementWarpper> elements = new ArrayList<WebElementWarpper>(preMatches.size());
+		for(int i=0;i<preMatches.size();i++){
+			WebElement item = preMatches.get(i);
+			Object value = values==null? null: values.get(i);
+			if(value==null) value = attribute==null? item.getText(): item.getAttribute(attribute);
+			elements.add(new WebElementWarpper(item, value==null? null: value.toString()));
+		}
+		return elements;
+	}
+
 	/**
 	 * @param elements List&lt;WebElementWarpper>, contains WebElement to match
 	 * @param value String, the value to match with
 	 * @param partialMatch boolean, if we try to find the partial matched item
-	 * @return SearchContext, the matched object
+	 * @return SearchContext, the matched object: the first item matched, else the first item matched
+	 *                        ignoring case, else the first item.
 	 */
 	protected static SearchContext getMatchedObject(List<WebElementWarpper> elements, String value, boolean partialMatch){
-		if(partialMatch){
-			//try to find the partial matched item
-			for(WebElementWarpper element: elements){
+		String lowerCaseValue = partialMatch? value.toLowerCase(): null;
+		WebElement ignoreCaseMatched = null;
+
+		//try to find the matched item, remembering the first item matched ignoring case
+		for(WebElementWarpper element: elements){
+			if(element.value==null) continue;
+			if(partialMatch){
 				if(element.value.contains(value)) return element.element;
-			}
-			//try to find the partial matched item ignoring case
-			for(WebElementWarpper element: elements){
-				if(element.value.toLowerCase().contains(value.toLowerCase())) return element.element;
-			}
-		}else{
-			//try to find the exact matched item
-			for(WebElementWarpper element: elements){
+				if(ignoreCaseMatched==null && element.value.toLowerCase().contains(lowerCaseValue)) ignoreCaseMatched = element.element;
+			}else{
 				if(element.value.equals(value)) return element.element;
-			}
-			//try to find the exact matched item ignoring case
-			for(WebElementWarpper element: elements){
-				if(element.value.equalsIgnoreCase(value)) return element.element;
+				if(ignoreCaseMatched==null && element.value.equalsIgnoreCase(value)) ignoreCaseMatched = element.element;
 			}
 		}
+		if(ignoreCaseMatched!=null) return ignoreCaseMatched;
+
 		//finally, return the first element if it exists
 		if(elements.size()>0) return elements.get(0).element;
 
@@ -1804,15 +2227,18 @@ public class SearchObject {
 	protected static List<WebElement> getMatchedObjects(List<WebElementWarpper> elements, String value, boolean partialMatch){
 		List<WebElement> list = new ArrayList<WebElement>();
 		if(partialMatch){
+			String lowerCaseValue = value.toLowerCase();
 			//try to find the partial matched item
 			for(WebElementWarpper element: elements){
-				if(element.value.contains(value) || element.value.toLowerCase().contains(value.toLowerCase())) {
+				if(element.value==null) continue;
+				if(element.value.contains(value) || element.value.toLowerCase().contains(lowerCaseValue)) {
 					list.add( element.element);
 				}
 			}
 		}else{
 			//try to find the exact matched items
 			for(WebElementWarpper element: elements){
+				if(element.value==null) continue;
 				if(element.value.equals(value) || element.value.equalsIgnoreCase(value)) {
 					list.add(element.element);
 				}
@@ -1994,100 +2420,117 @@ public class SearchObject {
 	}
 
 	/**
-	 * <pre>
-	 * Builds an XPath search string using multiple attributes provided in the recognition string
-	 * then performs a findElement(By.xpath(string));
-	 * If the recognition string contains special attributes, How to tell them from normal attributes???
-	 *
-	 * </pre>
-	 * @param sc SearchContext, the search context
+	 * Build the xpath for a recognition string of multiple attributes and qualifiers.
 	 * @param RS String, the recognition string
 	 * @param isPASM boolean, if true, each part of 'recognition string' will be treated as property.<br>
 	 *                        if false, some reserved words will be treated as qualifiers, but not properties.<br>
 	 *                        the reserved words are {@link #SEARCH_CRITERIA_ITEMINDEX}, {@link #SEARCH_CRITERIA_PATH} etc.<br>
-	 * @return SearchContext (WebElement or WebDriver)
+	 * @param qualifiers HashMap<String, String>, to receive the reserved qualifiers and their values, like "INDEX", "PATH".
+	 * @return String, the xpath to search with.
+	 * @throws SeleniumException if the recognition string cannot be parsed.
 	 */
-	protected static SearchContext getObjectByMultiAttributes(SearchContext sc, String RS, boolean isPASM){
-
-		SearchContext obj = null;
+	protected static String getXpathOfMultiAttributes(String RS, boolean isPASM, HashMap<String, String> qualifiers) throws SeleniumException{
 		String debugmsg = StringUtils.debugmsg(SearchObject.class, "getObjectByMultiAttri");
-		IndependantLog.debug(debugmsg +"using recognition string: "+ RS);
-
 		int count = 0;
 		String[] st = StringUtils.getTokenArray(RS, qulifierSeparator, escapeChar);
 
-		HashMap<String, String> qualifiers = new HashMap<String, String>();
-
 		//
 		// It does NOT look like we currently handle "qual=value;\;qual=value" syntax
 		//
 
-		try{
-			String xpathStr = (!containTagRS(RS)) ?
-					          XPATH.RELATIVE_MATCHING_ALL_START :
-	                          XPATH.RELATIVE_MATCHING_TAG_START(getTagQualifierValue(RS));
+		String xpathStr = (!containTagRS(RS)) ?
+				          XPATH.RELATIVE_MATCHING_ALL_START :
+                          XPATH.RELATIVE_MATCHING_TAG_START(getTagQualifierValue(RS));
 
-			String[] props = null;
-			String property = null;
-			String value = null;
-			String xpathCondition = null;
-			for (String prop: st){
-				props = StringUtils.getTokenArray(prop, assignSeparator, escapeChar);
-				++count;
-				property = props[0];
-				value = props[1];
-
-				// skip TAG if encountered. We already handled it.
-				if(SEARCH_CRITERIA_TAG.equalsIgnoreCase(property)){
+		String[] props = null;
+		String property = null;
+		String value = null;
+		String xpathCondition = null;
+		for (String prop: st){
+			props = StringUtils.getTokenArray(prop, assignSeparator, escapeChar);
+			++count;
+			property = props[0];
+			value = props[1];
+
+			// skip TAG if encountered. We already handled it.
+			if(SEARCH_CRITERIA_TAG.equalsIgnoreCase(property)){
+				continue;
+			}
+
+			if(isPASM){
+				//all are properties
+				xpathStr += XPATH.condition(property, value, false);
+			}else{
+				//handle some 'reserved qualifiers'
+				if(  SEARCH_CRITERIA_ITEMINDEX.equalsIgnoreCase(property)
+						|| SEARCH_CRITERIA_PATH.equalsIgnoreCase(property)
+						|| SEARCH_CRITERIA_INDEX.equalsIgnoreCase(property)
+						){
+					qualifiers.put(property.toUpperCase(), value);
 					continue;
-				}
 
-				if(isPASM){
-					//all are properties
-					xpathStr += XPATH.condition(property, value, false);
+				}else if (SEARCH_CRITERIA_PROPERTY.equalsIgnoreCase(property)){
+					IndependantLog.debug(debugmsg +"add search condition '"+value+"'");
+					xpathCondition = getXpathCondition(value, false);
+					if(xpathCondition!=null) xpathStr += xpathCondition;
+
+				}else if (SEARCH_CRITERIA_PROPERTY_CONTAINS.equalsIgnoreCase(property)){
+					IndependantLog.debug(debugmsg +"add search condition '"+value+"'");
+					xpathCondition = getXpathCondition(value, true);
+					if(xpathCondition!=null) xpathStr += xpathCondition;
+
+				}else if (SEARCH_CRITERIA_TEXT.equalsIgnoreCase(property)){
+					xpathCondition = XPATH.conditionForText(value, false);
+					if(xpathCondition!=null) xpathStr += xpathCondition;
+
+				}else if ((SEARCH_CRITERIA_TEXT+SEARCH_CRITERIA_CONTAINS_SUFFIX).equalsIgnoreCase(property)){
+					xpathCondition = XPATH.conditionForText(value, true);
+					if(xpathCondition!=null) xpathStr += xpathCondition;
+
+				}// try to generically handle any <something>Contains property values not handled above
+				else if (property.toUpperCase().endsWith(SEARCH_CRITERIA_CONTAINS_SUFFIX)){
+					//TextContains should be handled differently to get the xpath
+					xpathStr += XPATH.conditionContains(property, value);
 				}else{
-					//handle some 'reserved qualifiers'
-					if(  SEARCH_CRITERIA_ITEMINDEX.equalsIgnoreCase(property)
-							|| SEARCH_CRITERIA_PATH.equalsIgnoreCase(property)
-							|| SEARCH_CRITERIA_INDEX.equalsIgnoreCase(property)
-							){
-						qualifiers.put(property.toUpperCase(), value);
-						continue;
+					xpathStr += XPATH.condition(property, value, false);
+				}
+			}
 
-					}else if (SEARCH_CRITERIA_PROPERTY.equalsIgnoreCase(property)){
-						IndependantLog.debug(debugmsg +"add search condition '"+value+"'");
-						xpathCondition = getXpathCondition(value, false);
-						if(xpathCondition!=null) xpathStr += xpathCondition;
+			if (st.length != count) xpathStr += " "+XPATH.AND+" ";
+		}
+		//Remove the last "and", if there is no search-condition after that "and"
+		if(xpathStr.trim().endsWith(XPATH.AND)){
+			xpathStr = xpathStr.substring(0, xpathStr.lastIndexOf(XPATH.AND));
+		}
+		xpathStr += XPATH.END;
 
-					}else if (SEARCH_CRITERIA_PROPERTY_CONTAINS.equalsIgnoreCase(property)){
-						IndependantLog.debug(debugmsg +"add search condition '"+value+"'");
-						xpathCondition = getXpathCondition(value, true);
-						if(xpathCondition!=null) xpathStr += xpathCondition;
+		return xpathStr;
+	}
 
-					}else if (SEARCH_CRITERIA_TEXT.equalsIgnoreCase(property)){
-						xpathCondition = XPATH.conditionForText(value, false);
-						if(xpathCondition!=null) xpathStr += xpathCondition;
+	/**
+	 * <pre>
+	 * Builds an XPath search string using multiple attributes provided in the recognition string
+	 * then performs a findElement(By.xpath(string));
+	 * If the recognition string contains special attributes, How to tell them from normal attributes???
+	 *
+	 * </pre>
+	 * @param sc SearchContext, the search context
+	 * @param RS String, the recognition string
+	 * @param isPASM boolean, if true, each part of 'recognition string' will be treated as property.<br>
+	 *                        if false, some reserved words will be treated as qualifiers, but not properties.<br>
+	 *                        the reserved words are {@link #SEARCH_CRITERIA_ITEMINDEX}, {@link #SEARCH_CRITERIA_PATH} etc.<br>
+	 * @return SearchContext (WebElement or WebDriver)
+	 */
+	protected static SearchContext getObjectByMultiAttributes(SearchContext sc, String RS, boolean isPASM){
 
-					}else if ((SEARCH_CRITERIA_TEXT+SEARCH_CRITERIA_CONTAINS_SUFFIX).equalsIgnoreCase(property)){
-						xpathCondition = XPATH.conditionForText(value, true);
-						if(xpathCondition!=null) xpathStr += xpathCondition;
+		SearchContext obj = null;
+		String debugmsg = StringUtils.debugmsg(SearchObject.class, "getObjectByMultiAttri");
+		IndependantLog.debug(debugmsg +"using recognition string: "+ RS);
 
-					}// try to generically handle any <something>Contains property values not handled above
-					else if (property.toUpperCase().endsWith(SEARCH_CRITERIA_CONTAINS_SUFFIX)){
-						//TextContains should be handled differently to get the xpath
-						xpathStr += XPATH.conditionContains(property, value);
-					}else{
-						xpathStr += XPATH.condition(property, value, false);
-					}
-				}
+		HashMap<String, String> qualifiers = new HashMap<String, String>();
 
-				if (st.length != count) xpathStr += " "+XPATH.AND+" ";
-			}
-			//Remove the last "and", if there is no search-condition after that "and"
-			if(xpathStr.trim().endsWith(XPATH.AND)){
-				xpathStr = xpathStr.substring(0, xpathStr.lastIndexOf(XPATH.AND));
-			}
-			xpathStr += XPATH.END;
+		try{
+			String xpathStr = getXpathOfMultiAttributes(RS, isPASM, qualifiers);
 
 			obj = getObjectByXpathAndQualifiers(sc, xpathStr, qualifiers);
 
@@ -2118,81 +2561,10 @@ public class SearchObject {
 		String debugmsg = StringUtils.debugmsg(SearchObject.class, "getObjectByMultiAttri");
 		IndependantLog.debug(debugmsg +"using recognition string: "+ RS);
 
-		int count = 0;
-		String[] st = StringUtils.getTokenArray(RS, qulifierSeparator, escapeChar);
-
 		HashMap<String, String> qualifiers = new HashMap<String, String>();
 
-		//
-		// It does NOT look like we currently handle "qual=value;\;qual=value" syntax
-		//
-
 		try{
-			String xpathStr = (!containTagRS(RS)) ?
-					          XPATH.RELATIVE_MATCHING_ALL_START :
-	                          XPATH.RELATIVE_MATCHING_TAG_START(getTagQualifierValue(RS));
-
-			String[] props = null;
-			String property = null;
-			String value = null;
-			String xpathCondition = null;
-			for (String prop: st){
-				props = StringUtils.getTokenArray(prop, assignSeparator, escapeChar);
-				++count;
-				property = props[0];
-				value = props[1];
-
-				// skip TAG if encountered. We already handled it.
-				if(SEARCH_CRITERIA_TAG.equalsIgnoreCase(property)){
-					continue;
-				}
-
-				if(isPASM){
-					//all are properties
-					xpathStr += XPATH.condition(property, value, false);
-				}else{
-					//handle some 'reserved qualifiers'
-					if(  SEARCH_CRITERIA_ITEMINDEX.equalsIgnoreCase(property)
-							|| SEARCH_CRITERIA_PATH.equalsIgnoreCase(property)
-							|| SEARCH_CRITERIA_INDEX.equalsIgnoreCase(property)
-							){
-						qualifiers.put(property.toUpperCase(), value);
-						continue;
-
-					}else if (SEARCH_CRITERIA_PROPERTY.equalsIgnoreCase(property)){
-						IndependantLog.debug(debugmsg +"add search condition '"+value+"'");
-						xpathCondition = getXpathCondition(value, false);
-						if(xpathCondition!=null) xpathStr += xpathCondition;
-
-					}else if (SEARCH_CRITERIA_PROPERTY_CONTAINS.equalsIgnoreCase(property)){
-						IndependantLog.debug(debugmsg +"add search condition '"+value+"'");
-						xpathCondition = getXpathCondition(value, true);
-						if(xpathCondition!=null) xpathStr += xpathCondition;
-
-					}else if (SEARCH_CRITERIA_TEXT.equalsIgnoreCase(property)){
-						xpathCondition = XPATH.conditionForText(value, false);
-						if(xpathCondition!=null) xpathStr += xpathCondition;
-
-					}else if ((SEARCH_CRITERIA_TEXT+SEARCH_CRITERIA_CONTAINS_SUFFIX).equalsIgnoreCase(property)){
-						xpathCondition = XPATH.conditionForText(value, true);
-						if(xpathCondition!=null) xpathStr += xpathCondition;
-
-					}// try to generically handle any <something>Contains property values not handled above
-					else if (property.toUpperCase().endsWith(SEARCH_CRITERIA_CONTAINS_SUFFIX)){
-						//TextContains should be handled differently to get the xpath
-						xpathStr += XPATH.conditionContains(property, value);
-					}else{
-						xpathStr += XPATH.condition(property, value, false);
-					}
-				}
-
-				if (st.length != count) xpathStr += " "+XPATH.AND+" ";
-			}
-			//Remove the last "and", if there is no search-condition after that "and"
-			if(xpathStr.trim().endsWith(XPATH.AND)){
-				xpathStr = xpathStr.substring(0, xpathStr.lastIndexOf(XPATH.AND));
-			}
-			xpathStr += XPATH.END;
+			String xpathStr = getXpathOfMultiAttributes(RS, isPASM, qualifiers);
 
 			list = getObjectsByXpathAndQualifiers(sc, xpathStr, qualifiers);
 
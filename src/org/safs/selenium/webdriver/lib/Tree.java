@@ -31,6 +31,7 @@ import org.safs.GuiObjectRecognition;
 import org.safs.IndependantLog;
 import org.safs.Processor;
 import org.safs.StringUtils;
+import org.safs.selenium.util.JavaScriptFunctions;
 import org.safs.selenium.util.JavaScriptFunctions.SAP;
 import org.safs.selenium.webdriver.SeleniumPlus;
 import org.safs.selenium.webdriver.SeleniumPlus.WDTimeOut;
@@ -50,6 +51,16 @@ public class Tree extends Component implements ITreeSelectable{
 	/**'data-expanded' attribute for tree http://demos.telerik.com/kendo-ui/treeview/index*/
 	public static final String ATTRIBUTE_DATA_EXPANDED			= "data-expanded";
 
+	/**
+	 * Set to true to get the content of a Web Accessible tree with a snapshot taken by javascript, a chunk of
+	 * {@link #SNAPSHOT_CHUNK_SIZE} nodes per call, instead of searching the parent of each node with WebDriver calls.
+	 * Default is true.
+	 * @see JavaScriptFunctions.GENERIC#generic_getTreeItems(boolean)
+	 */
+	public static boolean USE_CONTENT_SNAPSHOT = true;
+	/** The maximum number of tree nodes returned by one javascript call while taking a snapshot. Default is 1000. */
+	public static int SNAPSHOT_CHUNK_SIZE = 1000;
+
 	public Tree(WebElement treeview) throws SeleniumPlusException{
 		initialize(treeview);
 	}
@@ -123,6 +134,14 @@ public class Tree extends Component implements ITreeSelectable{
 				throw new SeleniumPlusException("Cannot get content from a tree, whihc is not Web Accessible!");
 			}
 			
+			if(USE_CONTENT_SNAPSHOT){
+				try{
+					return getContentSnapshot();
+				}catch(Exception e){
+					IndependantLog.warn(debugmsg+" Fail to take a snapshot of the tree, search the nodes one by one. Met "+StringUtils.debugmsg(e));
+				}
+			}
+			
 			try{
 				//If the tree's implementation follows the "Web Accessibilty Internet", we can use
 				//role="tree", role="treeitem" to get the items, but we need to know the hierarchy!!!
@@ -202,6 +221,65 @@ public class Tree extends Component implements ITreeSelectable{
 			}
 		}
 		
+		/**
+		 * Get the content of the tree with a snapshot taken by javascript, {@link Tree#SNAPSHOT_CHUNK_SIZE} nodes per call.<br>
+		 * Each TreeNode is created from the javascript Map of its node, and keeps the node's WebElement.<br>
+		 * @return TreeNode[], the top level nodes.
+		 * @throws SeleniumPlusException if the snapshot cannot be taken, or the tree changes while it is taken.
+		 * @see JavaScriptFunctions.GENERIC#generic_getTreeItems(boolean)
+		 */
+		protected TreeNode[] getContentSnapshot() throws SeleniumPlusException {
+			String debugmsg = StringUtils.debugmsg(false);
+			String script = JavaScriptFunctions.GENERIC.generic_getTreeItems(true)+
+					" return generic_getTreeItems(arguments[0], arguments[1], arguments[2]);";
+			int chunkSize = SNAPSHOT_CHUNK_SIZE>0 ? SNAPSHOT_CHUNK_SIZE : Integer.MAX_VALUE;
+			List<TreeNode> nodes = new ArrayList<TreeNode>();
+			List<List<TreeNode>> children = new ArrayList<List<TreeNode>>();
+			List<TreeNode> wholeTree = new ArrayList<TreeNode>();
+			int total = -1;
+
+			do{
+				Object result = WDLibrary.executeJavaScriptOnWebElement(script, webelement, nodes.size(), chunkSize);
+				if(!(result instanceof Map)){
+					throw new SeleniumPlusException("The snapshot of the tree is "+(result==null? "null.": result.getClass().getName()));
+				}
+				Map<?,?> chunk = (Map<?,?>) result;
+				int chunkTotal = ((Number) chunk.get("total")).intValue();
+				if(total>-1 && total!=chunkTotal){
+					throw new SeleniumPlusException("The tree changed from "+total+" to "+chunkTotal+" nodes during the snapshot.");
+				}
+				total = chunkTotal;
+				List<?> chunkNodes = (List<?>) chunk.get("nodes");
+				if(chunkNodes.isEmpty() && nodes.size()<total){
+					throw new SeleniumPlusException("The snapshot of the tree stopped at node "+nodes.size()+" of "+total);
+				}
+				for(Object object: chunkNodes){
+					Map<?,?> map = (Map<?,?>) object;
+					TreeNode node = new TreeNode(map);
+					node.setWebElement((WebElement) map.get("element"));
+					node.setTagName((String) map.get("tagName"));
+					//the map does not say a node is selected from its css class, as the WebElement does not
+					node.setSelected(StringUtilities.convertBool(map.get(Element.PROPERTY_SELECTED)));
+
+					int parentIndex = ((Number) map.get("parentIndex")).intValue();
+					if(parentIndex<0){
+						wholeTree.add(node);
+					}else{
+						node.setParent(nodes.get(parentIndex));
+						children.get(parentIndex).add(node);
+					}
+					nodes.add(node);
+					children.add(new ArrayList<TreeNode>());
+				}
+			}while(nodes.size()<total);
+
+			for(int i=0;i<nodes.size();i++){
+				if(!children.get(i).isEmpty()) nodes.get(i).setChildren(children.get(i).toArray(new TreeNode[0]));
+			}
+			IndependantLog.debug(debugmsg+" got "+total+" tree nodes, "+wholeTree.size()+" at top level.");
+			return wholeTree.toArray(new TreeNode[0]);
+		}
+		
 		/**
 		 * This method override that of superclass. It will only try to find each node in the tree according to<br>
 		 * the treepath provided as parameter, and then return a simple-chain of TreeNode which contains only<br>
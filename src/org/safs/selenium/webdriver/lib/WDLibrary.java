@@ -1899,6 +1899,9 @@ public class WDLibrary extends SearchObject {
 	 * Expects System Properties 'selenium.host' and 'selenium.port' to be set.<br>
 	 * Otherwise, defaults to 'localhost' on port '4444'.
 	 * <p>
+	 * When {@link SearchObject#WEBDRIVER_POOL} is enabled, the browser may be a recycled session that another
+	 * browser used.  Such a session does not guarantee test isolation, see {@link WebDriverPool}.
+	 * <p>
 	 * @param BrowserName - Browser name such as InternetExplorer, Chrome and FireFox.
 	 * @param Url - Url including http protocol prefix.
 	 * @param Id - Id or Title of the Browser incase of two instances needs.
@@ -1928,10 +1931,27 @@ public class WDLibrary extends SearchObject {
 			Id = String.valueOf("".hashCode());
 		}
 
+		final String browserName = BrowserName;
+		final HashMap<String,Object> parameters = extraParameters;
+		final String server = host;
+		final String serverPort = port;
+
 		if (!isRemote) {
 			IndependantLog.warn(debugmsg+"attempting to start a local (not remote) browser instance...");
-			SelectBrowser sb = new SelectBrowser();
-			previousDriver = addWebDriver(Id,sb.getBrowserInstance(BrowserName, extraParameters));
+			WebDriver webdriver = null;
+			try{
+				webdriver = getPooledWebDriver(WebDriverPool.getKey(BrowserName, null, extraParameters), Id, extraParameters, null,
+						new WebDriverPool.Factory(){
+							public WebDriver create(String id) throws Exception{
+								return new SelectBrowser().getBrowserInstance(browserName, parameters);
+							}
+						});
+			}catch(RuntimeException e){
+				throw e;
+			}catch(Exception e){
+				throw new SeleniumPlusException(e);
+			}
+			previousDriver = addWebDriver(Id,webdriver);
 			lastUsedWD.manage().timeouts().implicitlyWait(timeout, TimeUnit.SECONDS);
 			lastUsedWD.manage().window().setSize(new Dimension(1024,768)); // default window size
 			if(Url != null && Url.length()> 0) lastUsedWD.get(Url);
@@ -1939,15 +1959,18 @@ public class WDLibrary extends SearchObject {
 		} else {
 			IndependantLog.warn(debugmsg+"attempting to start new session on remote server");
 			try {
-				SelectBrowser sb = new SelectBrowser();
-				DesiredCapabilities capabilities = sb.getDesiredCapabilities(BrowserName, extraParameters);
-				capabilities.setJavascriptEnabled(true);
-				capabilities.setCapability(CapabilityType.TAKES_SCREENSHOT, true);
-				capabilities.setCapability(RemoteDriver.CAPABILITY_ID, Id); // custom id for session tracking
-				capabilities.setCapability(RemoteDriver.CAPABILITY_RECONNECT, false); // custom id
-				capabilities.setCapability(RemoteDriver.CAPABILITY_REMOTESERVER, host); // custom id
+				final String browserId = Id;
+				final DesiredCapabilities capabilities = getRemoteCapabilities(BrowserName, extraParameters, Id, host);
 				//capabilities.setBrowserName(BrowserName); now it set from capabilities
-				previousDriver = addWebDriver(Id,new RemoteDriver(new URL("http://" + host + ":" + port +"/wd/hub"),capabilities));
+				WebDriver webdriver = getPooledWebDriver(WebDriverPool.getKey(BrowserName, host+":"+port, extraParameters), Id, extraParameters, capabilities,
+						new WebDriverPool.Factory(){
+							public WebDriver create(String id) throws Exception{
+								//sessions started in the background for the pool have their own id
+								DesiredCapabilities sessionCapabilities = id.equals(browserId)? capabilities: getRemoteCapabilities(browserName, parameters, id, server);
+								return new RemoteDriver(new URL("http://" + server + ":" + serverPort +"/wd/hub"), sessionCapabilities);
+							}
+						});
+				previousDriver = addWebDriver(Id,webdriver);
 				lastUsedWD.manage().timeouts().implicitlyWait(timeout, TimeUnit.SECONDS);
 
 				try{
@@ -1975,12 +1998,64 @@ public class WDLibrary extends SearchObject {
 		if(previousDriver!=null){
 			//Just simply stop duplicate session.
 			IndependantLog.warn(debugmsg+"There is a WebDriver previously stored in cache with id '"+Id+"', going to stop it.");
-			previousDriver.quit();
+			if(!WEBDRIVER_POOL.release(previousDriver)) previousDriver.quit();
 		}
 		//Initialize javascript's variables.
 		js_initialize();
 	}
 
+	/**
+	 * @return DesiredCapabilities, to start a session of the browser on a remote server.
+	 */
+	private static DesiredCapabilities getRemoteCapabilities(String BrowserName, HashMap<String,Object> extraParameters, String Id, String host){
+		SelectBrowser sb = new SelectBrowser();
+		DesiredCapabilities capabilities = sb.getDesiredCapabilities(BrowserName, extraParameters);
+		capabilities.setJavascriptEnabled(true);
+		capabilities.setCapability(CapabilityType.TAKES_SCREENSHOT, true);
+		capabilities.setCapability(RemoteDriver.CAPABILITY_ID, Id); // custom id for session tracking
+		capabilities.setCapability(RemoteDriver.CAPABILITY_RECONNECT, false); // custom id
+		capabilities.setCapability(RemoteDriver.CAPABILITY_REMOTESERVER, host); // custom id
+		return capabilities;
+	}
+
+	/**
+	 * Get a session from {@link SearchObject#WEBDRIVER_POOL}, or start one with the factory if the pool is disabled.<br>
+	 * A browser using its own chrome user data directory is never pooled, as the directory cannot be shared by two
+	 * running browsers.<br>
+	 * A remote session started in the background is tracked in the session file with its pool id, it is tracked
+	 * with the browser's id once it is handed out, and with a pool id again once the browser is stopped and the
+	 * session is recycled.
+	 * @param key String, the pool key, see {@link WebDriverPool#getKey(String, String, Map)}.
+	 * @param Id String, the id of the browser being started.
+	 * @param extraParameters HashMap, the extra browser parameters, may be null.
+	 * @param capabilities DesiredCapabilities, the capabilities of a remote session; null for a local browser.
+	 * @param factory WebDriverPool.Factory, to start a new session.
+	 */
+	private static WebDriver getPooledWebDriver(String key, String Id, HashMap<String,Object> extraParameters,
+			DesiredCapabilities capabilities, WebDriverPool.Factory factory) throws Exception{
+		String debugmsg = StringUtils.debugmsg(WDLibrary.class, "getPooledWebDriver");
+		WebDriver webdriver = null;
+		if(extraParameters==null || !extraParameters.containsKey(SelectBrowser.KEY_CHROME_USER_DATA_DIR)){
+			webdriver = WEBDRIVER_POOL.acquire(key, Id, factory);
+		}
+		if(webdriver==null) return factory.create(Id);
+
+		String poolId = WEBDRIVER_POOL.getPoolId(webdriver);
+		if(capabilities!=null && webdriver instanceof RemoteDriver && !Id.equals(poolId)){
+			RemoteDriver remotedriver = (RemoteDriver) webdriver;
+			try{
+				RemoteDriver.deleteSessionIdFromFile(poolId);
+				RemoteDriver.storeSessionIdToFile(remotedriver.remote_hostname, Id, capabilities.getBrowserName(),
+						                          remotedriver.getSessionId().toString(), capabilities);
+				remotedriver.setSessionFileId(Id);
+			}catch(Exception e){
+				IndependantLog.warn(debugmsg+"cannot track pooled session '"+poolId+"' as '"+Id+"', met "+StringUtils.debugmsg(e));
+			}
+		}
+		IndependantLog.debug(debugmsg+WEBDRIVER_POOL);
+		return webdriver;
+	}
+
 	/**
 	 * Close browser (close all windows associated) indicated by ID.
 	 * If the provided ID is associated with the "current" or "lastUsed" WebDriver
@@ -1998,7 +2073,8 @@ public class WDLibrary extends SearchObject {
 			IndependantLog.warn(debugmsg+"cannot get webdriver according to unknown id '"+ID+"'");
 			throw new IllegalArgumentException("Browser ID '"+ ID +"' is not a valid ID for a running browser session.");
 		}
-		webdriver.quit();
+		//a session started from the pool is recycled for the next browser instead of being quit
+		if(!WEBDRIVER_POOL.release(webdriver)) webdriver.quit();
 	}
 
 	/**
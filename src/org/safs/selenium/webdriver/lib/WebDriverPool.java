@@ -0,0 +1,477 @@
+/**
+ * Copyright (C) SAS Institute, All rights reserved.
+ * General Public License: http://www.opensource.org/licenses/gpl-license.php
+ */
+package org.safs.selenium.webdriver.lib;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.safs.IndependantLog;
+import org.safs.StringUtils;
+
+/**
+ * Pool of started browser sessions, so that StartWebBrowser does not wait 3 to 8 seconds for a new browser each time.
+ * <p>
+ * Sessions are pooled per key: the browser name, the selenium server, and the extra browser parameters.
+ * When a browser is stopped, its session is recycled--extra windows are closed, the cookies and the local and
+ * session storage of the origin it visited are cleared, and it is navigated to about:blank--and kept for the next
+ * start with the same key, instead of being quit.  When a session is handed out, new sessions
+ * are started in the background until the pool for that key holds {@link #getSize()} idle sessions again.
+ * <p>
+ * Only sessions started while the pool is enabled, with a size greater than 0, are recycled.  A session that cannot
+ * be recycled, or that is no longer alive when it is handed out, is quit.
+ * <p>
+ * WebDriver can only clear the cookies and storage of the page currently loaded, so a session that visited more than
+ * one origin is quit instead of being recycled: the cookies of another domain, an SSO login for example, would be
+ * seen by the next browser.  The origins visited are those reported by {@link #visited(WebDriver, String)} while the
+ * session is in use, and those of the windows still open when it is stopped.  Idle sessions are quit by {@link #shutdown()}.
+ * <p>
+ * A recycled session does NOT guarantee test isolation.  Only the cookies and the local and session storage of
+ * the origin visited are cleared.  The cookies set by third-party iframes, IndexedDB, service workers, the HTTP
+ * cache, and any origin the browser reached without being reported, like a redirect, may be seen by the next
+ * browser.  Leave the pool disabled for tests that must start from a clean browser.
+ * <p>
+ * A remote session is tracked in the RemoteDriver session file.  When it is recycled, its record under the id of the
+ * stopped browser is deleted, as {@link RemoteDriver#quit()} would, and it is tracked with its pool id until it is
+ * handed out or quit.  The id a session is tracked with is kept by {@link RemoteDriver#setSessionFileId(String)},
+ * so that quitting it deletes the right record.
+ *
+ * @see SearchObject#WEBDRIVER_POOL
+ * @see WDLibrary#startBrowser(String, String, String, int, boolean, HashMap)
+ * @see WDLibrary#stopBrowser(String)
+ */
+public class WebDriverPool {
+
+	/** Starts a new session for a pool key. */
+	public static interface Factory {
+		/**
+		 * @param id String, the id to start the session with.
+		 * @return WebDriver, the new session.
+		 */
+		public WebDriver create(String id) throws Exception;
+	}
+
+	/** one pooled session and the id it was started with. */
+	static class Entry {
+		final WebDriver driver;
+		final String id;
+
+		Entry(WebDriver driver, String id){
+			this.driver = driver;
+			this.id = id;
+		}
+	}
+
+	/** a session in use that may be recycled. */
+	static class Use {
+		/** the pooled session and the id it was started with. */
+		final Entry entry;
+		/** the pool key of the session. */
+		final String key;
+		/** the id of the browser using the session. */
+		final String browserId;
+		/** the origins visited while in use. */
+		final Set<String> origins = new HashSet<String>();
+
+		Use(Entry entry, String key, String browserId){
+			this.entry = entry;
+			this.key = key;
+			this.browserId = browserId;
+		}
+	}
+
+	/** prefix of the ids pooled sessions are started with. */
+	public static final String POOL_ID_PREFIX = "SAFSPool";
+
+	/** key --> idle sessions */
+	private Map<String,LinkedList<Entry>> idle = new HashMap<String,LinkedList<Entry>>();
+	/** key --> number of sessions being started in the background */
+	private Map<String,Integer> starting = new HashMap<String,Integer>();
+	/** sessions in use that may be recycled --> their Use */
+	private Map<WebDriver,Use> inUse = new HashMap<WebDriver,Use>();
+
+	private int size = 0;
+	private int nextId = 0;
+	private boolean closed = false;
+
+	private long hits = 0;
+	private long misses = 0;
+	private long started = 0;
+	private long recycled = 0;
+	private long discards = 0;
+	private long failures = 0;
+
+	/**
+	 * Build the pool key of a session.
+	 * @param browserName String, the browser name.
+	 * @param server String, the selenium server host:port, or null for a local browser.
+	 * @param extraParameters Map, the extra browser parameters, may be null.
+	 */
+	public static String getKey(String browserName, String server, Map<String,Object> extraParameters){
+		StringBuffer key = new StringBuffer();
+		key.append(browserName==null? "": browserName.toLowerCase());
+		key.append('@').append(server==null? "local": server.toLowerCase());
+		if(extraParameters!=null && !extraParameters.isEmpty()){
+			key.append(new TreeMap<String,Object>(extraParameters).toString());
+		}
+		return key.toString();
+	}
+
+	/** @param size int, the number of idle sessions to keep per key; 0 or less disables the pool. */
+	public void setSize(int size){
+		List<Entry> entries = null;
+		synchronized(this){
+			this.size = size;
+			closed = false;
+			if(size<=0) entries = idleEntries();
+		}
+		//quit outside the lock, a session may take seconds to quit
+		if(entries!=null) quitAll(entries);
+	}
+
+	/** @return the number of idle sessions kept per key; 0 or less if the pool is disabled. */
+	public synchronized int getSize(){ return size; }
+
+	/** @return true if sessions are pooled. */
+	public synchronized boolean isEnabled(){ return size>0 && !closed; }
+
+	/**
+	 * Get a session for a browser being started.  An idle session of the key is handed out if one is alive,
+	 * otherwise a new session is started by the factory, with the id given.  Either way, the pool for the key
+	 * is then refilled in the background.
+	 * @param key String, the pool key, see {@link #getKey(String, String, Map)}.
+	 * @param id String, the id of the browser being started.
+	 * @param factory Factory, to start new sessions for the key.
+	 * @return WebDriver, the session, or null if the pool is disabled.
+	 * @throws Exception if the factory fails to start a new session.
+	 */
+	public WebDriver acquire(String key, String id, Factory factory) throws Exception{
+		String debugmsg = StringUtils.debugmsg(WebDriverPool.class, "acquire");
+		if(!isEnabled()) return null;
+		Entry entry = null;
+		while((entry = poll(key))!=null){
+			if(isAlive(entry.driver)) break;
+			IndependantLog.debug(debugmsg+" discarding dead session '"+entry.id+"' of "+key);
+			quit(entry);
+			synchronized(this){ discards++; }
+		}
+		if(entry!=null){
+			synchronized(this){ hits++; }
+			IndependantLog.debug(debugmsg+" handing out session '"+entry.id+"' of "+key);
+		}else{
+			synchronized(this){ misses++; }
+			entry = new Entry(factory.create(id), id);
+		}
+		synchronized(this){ inUse.put(entry.driver, new Use(entry, key, id)); }
+		fill(key, factory);
+		return entry.driver;
+	}
+
+	/** @return the id a pooled session was started with, or null if it is not from this pool. */
+	public synchronized String getPoolId(WebDriver driver){
+		Use use = inUse.get(driver);
+		return use==null? null: use.entry.id;
+	}
+
+	/**
+	 * Record a page visited by a session in use, so that it is not recycled once it has visited more than one origin.
+	 * @param driver WebDriver, the session.
+	 * @param url String, the URL of the page.
+	 */
+	public synchronized void visited(WebDriver driver, String url){
+		Use use = inUse.get(driver);
+		String origin = getOrigin(url);
+		if(use!=null && origin!=null) use.origins.add(origin);
+	}
+
+	/**
+	 * @param url String, a URL.
+	 * @return String, the origin "scheme://host:port" of the URL, or null if it has none, like about:blank.
+	 */
+	public static String getOrigin(String url){
+		if(url==null) return null;
+		try{
+			URI uri = new URI(url.trim());
+			String scheme = uri.getScheme();
+			String host = uri.getHost();
+			if(scheme==null || host==null) return null;
+			scheme = scheme.toLowerCase();
+			int port = uri.getPort();
+			if(port<0) port = "https".equals(scheme)? 443: "http".equals(scheme)? 80: -1;
+			return scheme +"://"+ host.toLowerCase() + (port<0? "": ":"+port);
+		}catch(Exception e){
+			return null;
+		}
+	}
+
+	/**
+	 * Recycle a session that is being stopped, and keep it for the next start with the same key.
+	 * @param driver WebDriver, the session.
+	 * @return true if the session was taken by the pool; false if it was not started from the pool or
+	 *         the pool is disabled, and the caller should quit it.  A session that the pool takes but cannot
+	 *         recycle, or does not need, is quit by the pool.
+	 */
+	public boolean release(WebDriver driver){
+		String debugmsg = StringUtils.debugmsg(WebDriverPool.class, "release");
+		Use use = null;
+		synchronized(this){
+			use = inUse.remove(driver);
+			if(use==null || !isEnabled()) return false;
+		}
+		Entry entry = use.entry;
+		String key = use.key;
+		String browserId = use.browserId;
+		if(recycle(driver, use.origins)){
+			//the id of the stopped browser may be reused by another browser, so never refer to it again
+			if(!entry.id.startsWith(POOL_ID_PREFIX)){
+				synchronized(this){ entry = new Entry(driver, POOL_ID_PREFIX + (nextId++)); }
+			}
+			track(entry, browserId);
+			synchronized(this){
+				LinkedList<Entry> entries = getIdle(key);
+				if(isEnabled() && entries.size()<size){
+					entries.addLast(entry);
+					recycled++;
+					IndependantLog.debug(debugmsg+" recycled session '"+entry.id+"' of "+key);
+					return true;
+				}
+			}
+		}else{
+			synchronized(this){ discards++; }
+			if(!entry.id.equals(browserId)) untrack(driver, browserId);
+		}
+		quit(entry);
+		return true;
+	}
+
+	/** Quit all idle sessions and stop pooling until {@link #setSize(int)} is called again. */
+	public void shutdown(){
+		List<Entry> entries = null;
+		synchronized(this){
+			closed = true;
+			inUse.clear();
+			entries = idleEntries();
+		}
+		quitAll(entries);
+	}
+
+	/**
+	 * Clean a session for the next browser: close its extra windows, clear the cookies and the storage of the
+	 * origin it visited, and navigate to about:blank.  A session that visited more than one origin is not cleaned,
+	 * as WebDriver only clears the cookies and storage of the page currently loaded.
+	 * @param driver WebDriver, the session.
+	 * @param origins Set, the origins visited while the session was in use; the origins of its open windows are added.
+	 * @return true if the session was cleaned.
+	 */
+	protected boolean recycle(WebDriver driver, Set<String> origins){
+		String debugmsg = StringUtils.debugmsg(WebDriverPool.class, "recycle");
+		try{
+			Set<String> handles = driver.getWindowHandles();
+			Iterator<String> windows = handles.iterator();
+			String first = windows.next();
+			while(windows.hasNext()){
+				driver.switchTo().window(windows.next());
+				addOrigin(origins, driver.getCurrentUrl());
+				driver.close();
+			}
+			driver.switchTo().window(first);
+			driver.switchTo().defaultContent();
+			String current = getOrigin(driver.getCurrentUrl());
+			addOrigin(origins, current);
+			if(origins.size()>1){
+				IndependantLog.debug(debugmsg+" the session visited "+origins+", it cannot be cleaned.");
+				return false;
+			}
+			if(!origins.isEmpty()){
+				String origin = origins.iterator().next();
+				if(!origin.equals(current)){
+					//the cookies and storage can only be cleared from a page of the origin
+					driver.get(origin+"/");
+					if(!origin.equals(getOrigin(driver.getCurrentUrl()))){
+						IndependantLog.debug(debugmsg+" '"+origin+"' redirected to '"+driver.getCurrentUrl()+"', the session cannot be cleaned.");
+						return false;
+					}
+				}
+			}
+			driver.manage().deleteAllCookies();
+			if(driver instanceof JavascriptExecutor){
+				((JavascriptExecutor) driver).executeScript(
+						"try{ window.localStorage.clear(); }catch(e){} try{ window.sessionStorage.clear(); }catch(e){}");
+			}
+			driver.get("about:blank");
+			return true;
+		}catch(Throwable t){
+			IndependantLog.warn(debugmsg+" cannot recycle the session, met "+StringUtils.debugmsg(t));
+			return false;
+		}
+	}
+
+	private static void addOrigin(Set<String> origins, String url){
+		String origin = url==null? null: getOrigin(url);
+		if(origin!=null) origins.add(origin);
+	}
+
+	/** @return true if the session still answers. */
+	protected boolean isAlive(WebDriver driver){
+		try{
+			if(driver instanceof RemoteDriver && ((RemoteDriver) driver).hasQuit()) return false;
+			driver.getWindowHandle();
+			return true;
+		}catch(Throwable t){
+			return false;
+		}
+	}
+
+	/** Start sessions in the background until the key has enough idle sessions. */
+	private void fill(final String key, final Factory factory){
+		final int count;
+		synchronized(this){
+			if(!isEnabled()) return;
+			int pending = starting.containsKey(key)? starting.get(key).intValue(): 0;
+			count = size - getIdle(key).size() - pending;
+			if(count<=0) return;
+			starting.put(key, Integer.valueOf(pending+count));
+		}
+		Thread warmer = new Thread("WebDriverPool warm up"){
+			public void run(){
+				String debugmsg = StringUtils.debugmsg(WebDriverPool.class, "fill");
+				for(int i=0;i<count;i++){
+					String id = null;
+					synchronized(WebDriverPool.this){ id = POOL_ID_PREFIX + (nextId++); }
+					Entry entry = null;
+					try{
+						entry = new Entry(factory.create(id), id);
+					}catch(Throwable t){
+						IndependantLog.warn(debugmsg+" cannot start session '"+id+"' of "+key+", met "+StringUtils.debugmsg(t));
+					}
+					boolean kept = false;
+					synchronized(WebDriverPool.this){
+						starting.put(key, Integer.valueOf(starting.get(key).intValue()-1));
+						if(entry==null){
+							failures++;
+						}else if(isEnabled() && getIdle(key).size()<size){
+							getIdle(key).addLast(entry);
+							started++;
+							kept = true;
+						}
+					}
+					if(entry!=null && !kept) quit(entry);
+				}
+			}
+		};
+		warmer.setDaemon(true);
+		warmer.start();
+	}
+
+	private synchronized Entry poll(String key){
+		LinkedList<Entry> entries = idle.get(key);
+		return (entries==null || entries.isEmpty())? null: entries.removeFirst();
+	}
+
+	private LinkedList<Entry> getIdle(String key){
+		LinkedList<Entry> entries = idle.get(key);
+		if(entries==null){
+			entries = new LinkedList<Entry>();
+			idle.put(key, entries);
+		}
+		return entries;
+	}
+
+	/** remove and return all idle sessions, the caller must hold the lock. */
+	private List<Entry> idleEntries(){
+		List<Entry> entries = new ArrayList<Entry>();
+		for(LinkedList<Entry> list: idle.values()) entries.addAll(list);
+		idle.clear();
+		return entries;
+	}
+
+	private void quitAll(List<Entry> entries){
+		for(Entry entry: entries) quit(entry);
+	}
+
+	private void quit(Entry entry){
+		try{ entry.driver.quit(); }catch(Throwable ignore){}
+		if(entry.driver instanceof RemoteDriver){
+			try{ RemoteDriver.deleteSessionIdFromFile(entry.id); }catch(Throwable ignore){}
+		}
+	}
+
+	/**
+	 * Track a recycled remote session in the session file with its pool id, instead of the id of the stopped browser.
+	 * The last session of the session file is kept, unless it was the stopped browser.
+	 */
+	private void track(Entry entry, String browserId){
+		String debugmsg = StringUtils.debugmsg(WebDriverPool.class, "track");
+		if(!(entry.driver instanceof RemoteDriver)) return;
+		RemoteDriver remotedriver = (RemoteDriver) entry.driver;
+		String last = null;
+		try{
+			RemoteDriver.SessionInfo info = RemoteDriver.retriveLastSessionInfoFromFile();
+			if(info!=null) last = info.id;
+		}catch(Throwable ignore){}
+		untrack(remotedriver, browserId);
+		try{
+			RemoteDriver.storeSessionIdToFile(remotedriver.remote_hostname, entry.id, remotedriver.getBrowserName(),
+					                          remotedriver.getSessionId().toString(), remotedriver.getCapabilities());
+			remotedriver.setSessionFileId(entry.id);
+			if(last!=null && RemoteDriver.retrieveSessionInfoFromFile(last)!=null) RemoteDriver.setLastSessionId(last);
+		}catch(Throwable t){
+			IndependantLog.warn(debugmsg+" cannot track session '"+browserId+"' as '"+entry.id+"', met "+StringUtils.debugmsg(t));
+		}
+	}
+
+	/**
+	 * Delete the session file record of an id, if it is still the record of the session.
+	 * A browser started again with the same id has its own record.
+	 */
+	private void untrack(WebDriver driver, String id){
+		if(!(driver instanceof RemoteDriver) || id==null) return;
+		try{
+			RemoteDriver.SessionInfo info = RemoteDriver.retrieveSessionInfoFromFile(id);
+			if(info!=null && ((RemoteDriver) driver).getSessionId().toString().equals(info.session)){
+				RemoteDriver.deleteSessionIdFromFile(id);
+			}
+		}catch(Throwable ignore){}
+	}
+
+	/** @return the number of sessions handed out from the pool. */
+	public synchronized long getHits(){ return hits; }
+
+	/** @return the number of browser starts that found no idle session and started one. */
+	public synchronized long getMisses(){ return misses; }
+
+	/** @return the number of sessions started in the background and added to the pool. */
+	public synchronized long getStarted(){ return started; }
+
+	/** @return the number of stopped sessions recycled into the pool. */
+	public synchronized long getRecycled(){ return recycled; }
+
+	/** @return the number of sessions quit because they were dead or could not be recycled. */
+	public synchronized long getDiscards(){ return discards; }
+
+	/** @return the number of sessions that failed to start in the background. */
+	public synchronized long getFailures(){ return failures; }
+
+	/** @return the number of idle sessions, for all keys. */
+	public synchronized int getIdleCount(){
+		int count = 0;
+		for(LinkedList<Entry> list: idle.values()) count += list.size();
+		return count;
+	}
+
+	public synchronized String toString(){
+		return "WebDriverPool size:"+ size +", idle:"+ getIdleCount() +", in use:"+ inUse.size() +", hits:"+ hits +
+		       ", misses:"+ misses +", started:"+ started +", recycled:"+ recycled +", discards:"+ discards +", failures:"+ failures;
+	}
+}
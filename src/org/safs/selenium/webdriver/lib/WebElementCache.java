@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) SAS Institute, All rights reserved.
+ * General Public License: http://www.opensource.org/licenses/gpl-license.php
+ */
+package org.safs.selenium.webdriver.lib;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.safs.selenium.webdriver.lib.SearchObject.FrameElement;
+
+/**
+ * Cache of the WebElements found for App Map windows and components in the current browser.
+ * <p>
+ * Each entry is keyed by (map, window, component) and remembers the recognition string, the
+ * parent WebElement it was searched in, the frame it was found in, and the WebDriver.  An entry
+ * is only reused if all of those still match and the element passes a staleness probe.
+ * <p>
+ * The whole cache is discarded when a different browser is used, when a search finds the
+ * browser on a different URL, or when a search switches to a different frame.
+ * Recognition strings tagged dynamic by SAFSMAPS are never cached.
+ *
+ * @see SearchObject#USE_ELEMENT_CACHE
+ * @see SearchObject#getCachedObject(String, String, WebElement)
+ * @see SearchObject#cacheObject(String, String, WebElement, WebElement)
+ */
+public class WebElementCache {
+
+	/** one cached WebElement and what it was found with. */
+	static class Entry {
+		final String recognition;
+		final WebElement element;
+		final WebElement parent;
+		final FrameElement frame;
+		final WebDriver driver;
+
+		Entry(String recognition, WebElement element, WebElement parent, FrameElement frame, WebDriver driver){
+			this.recognition = recognition;
+			this.element = element;
+			this.parent = parent;
+			this.frame = frame;
+			this.driver = driver;
+		}
+	}
+
+	/** (map, window, component) key --> Entry */
+	private Map<String,Entry> entries = new HashMap<String,Entry>();
+
+	private long hits = 0;
+	private long misses = 0;
+	private long discards = 0;
+	private long invalidations = 0;
+
+	/**
+	 * Build the cache key for a window or component.  App Map names are case-insensitive.
+	 * @param mapName App Map name.
+	 * @param windowName window name.
+	 * @param compName component name, the same as windowName for the window itself.
+	 */
+	public static String getKey(String mapName, String windowName, String compName){
+		StringBuffer key = new StringBuffer();
+		if(mapName != null) key.append(mapName);
+		key.append('\u0000').append(windowName).append('\u0000').append(compName);
+		return key.toString().toUpperCase();
+	}
+
+	/** @return the entry for the key, or null. */
+	synchronized Entry get(String key){ return entries.get(key); }
+
+	synchronized void put(String key, Entry entry){ entries.put(key, entry); }
+
+	/** count a cached element that was reused. */
+	synchronized void hit(){ hits++; }
+
+	/** count an element that had to be searched for. */
+	synchronized void miss(){ misses++; }
+
+	/**
+	 * Remove an entry that can no longer be used, as when its element went stale.
+	 * @param key of the entry.
+	 */
+	synchronized void discard(String key){
+		if(entries.remove(key) != null) discards++;
+		misses++;
+	}
+
+	/** Discard all entries, as when the page, frame, or browser changes. */
+	public synchronized void invalidate(){
+		if(entries.isEmpty()) return;
+		entries.clear();
+		invalidations++;
+	}
+
+	/** @return the number of elements reused. */
+	public synchronized long getHits(){ return hits; }
+
+	/** @return the number of elements that had to be searched for. */
+	public synchronized long getMisses(){ return misses; }
+
+	/** @return the number of entries removed because they were stale or no longer matched. */
+	public synchronized long getDiscards(){ return discards; }
+
+	/** @return the number of times all entries were discarded. */
+	public synchronized long getInvalidations(){ return invalidations; }
+
+	/** @return the number of elements presently cached. */
+	public synchronized int size(){ return entries.size(); }
+
+	/** Discard all entries and reset the statistics. */
+	public synchronized void clear(){
+		entries.clear();
+		hits = 0;
+		misses = 0;
+		discards = 0;
+		invalidations = 0;
+	}
+
+	public synchronized String toString(){
+		return "WebElementCache elements:"+ entries.size() +", hits:"+ hits +", misses:"+ misses +
+		       ", discards:"+ discards +", invalidations:"+ invalidations;
+	}
+}
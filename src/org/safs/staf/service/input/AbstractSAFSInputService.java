@@ -51,6 +51,7 @@ import com.ibm.staf.service.STAFCommandParser;
  * <tr><td width="40%">
  *         OPEN               <td>Open a file for use
  * <tr><td>NEXT               <td>Get the next line from the file
+ * <tr><td>NEXTBATCH          <td>Get the next lines from the file
  * <tr><td>GOTO               <td>Goto a defined position in the file
  * <tr><td>BEGIN              <td>Reset a file reader back to the first line
  * <tr><td>CLOSE              <td>Close and release resources on a file
@@ -122,6 +123,24 @@ import com.ibm.staf.service.STAFCommandParser;
  * <p>
  * Example: staf local safsinput next myfile
  * <p><!-- ----------------------------------------------------------------------- -->
+ * <h3>2.2.1 NEXTBATCH </h3>
+ * <p>
+ * The NEXTBATCH command reads up to COUNT next lines from the file matching FileID, 
+ * as if NEXT was requested COUNT times, so a client can read ahead with one request.
+ * <p>
+ * <b>Syntax:</b>
+ * <p>
+ * NEXTBATCH &lt;FileID> COUNT &lt;n>
+ * <p>
+ * <b>2.2.1.1 FileID</b> is the unique ID for the file reader instance.<br>
+ * <b>2.2.1.2 COUNT</b> is the maximum number of lines to read, greater than 0.<br>
+ * <p>
+ * Each line is returned in STAF lentag format--:&lt;length>:&lt;line>--one after the other.  
+ * Fewer than COUNT lines are returned when the end of the file is reached.  If the file is 
+ * already at its end, the result is the same as for NEXT: :EOF:
+ * <p>
+ * Example: staf local safsinput nextbatch myfile count 100
+ * <p><!-- ----------------------------------------------------------------------- -->
  * <h3>2.3 GOTO </h3>
  * <p>
  * The GOTO command moves the file reader pointer to a defined place in the file.<br>
@@ -147,7 +166,7 @@ import com.ibm.staf.service.STAFCommandParser;
  * <p>
  * <b>Syntax:</b>
  * <p>
- * GOTO &lt;FileID> LOCATE &lt;BlockID> SEPARATOR &lt;SepChar>
+ * GOTO &lt;FileID> LOCATE &lt;BlockID> SEPARATOR &lt;SepChar> [LINE &lt;LineNum>]
  * <p>
  * <b>2.3.1 FileID</b> is the unique ID for the file reader instance.<br>
  * <p>
@@ -155,6 +174,16 @@ import com.ibm.staf.service.STAFCommandParser;
  * <p>
  * <b>2.3.3 SepChar</b> is the character that delimits the two fields.<br>
  * <p>
+ * <b>2.3.4 LineNum</b> (optional) is the line number of the last record the client executed. 
+ * The search starts after this line instead of after the last line read, and the file reader 
+ * is left after this line if the BlockID is not found.  A client that has read records ahead 
+ * with NEXTBATCH must send it.<br>
+ * <p>
+ * The first GOTO for a given file and SepChar parses the file once into a {@link BlockIDIndex}. 
+ * Subsequent GOTO requests only test the records that can possibly be the target BlockID 
+ * and seek directly to them.  The index is shared by all FileIDs opened on the same file and 
+ * is discarded when the file's size or modification time changes.
+ * <p>
  * Example: staf local safsinput goto myfile locate MyBlockID separator ","
  * <p><!-- ----------------------------------------------------------------------- -->
  * <h3>2.4 BEGIN </h3>
@@ -316,6 +345,7 @@ public abstract class AbstractSAFSInputService {
 
 	public static final String SI_SERVICE_REQUEST_OPEN          = "OPEN";
 	public static final String SI_SERVICE_REQUEST_NEXTLINE      = "NEXT";
+	public static final String SI_SERVICE_REQUEST_NEXTBATCH     = "NEXTBATCH";
 	public static final String SI_SERVICE_REQUEST_GOTO          = "GOTO";
 	public static final String SI_SERVICE_REQUEST_CLOSE         = "CLOSE";
 	public static final String SI_SERVICE_REQUEST_HELP          = "HELP";
@@ -331,6 +361,8 @@ public abstract class AbstractSAFSInputService {
 	public static final String SI_SERVICE_PARM_LASTERROR        = "LASTERROR";
 	public static final String SI_SERVICE_PARM_LOCATE           = "LOCATE";
 	public static final String SI_SERVICE_PARM_SEPARATOR        = "SEPARATOR";
+	public static final String SI_SERVICE_PARM_COUNT            = "COUNT";
+	public static final String SI_SERVICE_PARM_LINE             = "LINE";
 
 	public static final String SI_SERVICE_FILE_STATE_OPEN       = "OPEN";
 	public static final String SI_SERVICE_FILE_STATE_CLOSED     = "CLOSED";
@@ -375,6 +407,7 @@ public abstract class AbstractSAFSInputService {
 
 	//private Hashtable processes = new Hashtable(6);  //maps process names to handles (Vector)
 	private Hashtable handles   = new Hashtable(6);  //maps handles to fileids (Hashtable)
+	private Hashtable blockindexes = new Hashtable(6);  //maps file fullpaths to BlockIDIndex
 	
 	// After debugging the service, we should set the 2th parameter to false.
 	protected ServiceDebugLog debugLog = new ServiceDebugLog(ServiceDebugLog.DEBUG_LOG_INPUT, false);
@@ -439,6 +472,8 @@ public abstract class AbstractSAFSInputService {
 			return handleReset(info);
 		} else if (parsedData.optionTimes(SI_SERVICE_REQUEST_NEXTLINE) > 0) {
 			return handleNext(info, parsedData);
+		} else if (parsedData.optionTimes(SI_SERVICE_REQUEST_NEXTBATCH) > 0) {
+			return handleNextBatch(info, parsedData);
 		} else if (parsedData.optionTimes(SI_SERVICE_REQUEST_CLOSE) > 0) {
 			return handleClose(info, parsedData);
 		} else if (parsedData.optionTimes(SI_SERVICE_REQUEST_OPEN) > 0) {
@@ -469,6 +504,7 @@ public abstract class AbstractSAFSInputService {
 			handles.clear();
 		}
 		handles = null;
+		blockindexes.clear();
 		
 		debugLog.debugPrintln(debugmsg+" End.");
 		debugLog.debugTerm();
@@ -538,6 +574,7 @@ public abstract class AbstractSAFSInputService {
 		parser.addOption(SI_SERVICE_REQUEST_OPEN, 1,STAFCommandParser.VALUEREQUIRED);
 		parser.addOption(SI_SERVICE_REQUEST_CLOSE, 1,STAFCommandParser.VALUEREQUIRED);
 		parser.addOption(SI_SERVICE_REQUEST_NEXTLINE, 1,STAFCommandParser.VALUEREQUIRED);
+		parser.addOption(SI_SERVICE_REQUEST_NEXTBATCH, 1,STAFCommandParser.VALUEREQUIRED);
 		parser.addOption(SI_SERVICE_REQUEST_GOTO, 1,STAFCommandParser.VALUEREQUIRED);
 		parser.addOption(SI_SERVICE_REQUEST_BEGIN, 1,STAFCommandParser.VALUEREQUIRED);
 		parser.addOption(SI_SERVICE_REQUEST_QUERY, 1,STAFCommandParser.VALUEREQUIRED);
@@ -548,6 +585,8 @@ public abstract class AbstractSAFSInputService {
 		parser.addOption(SI_SERVICE_PARM_FILE, 1,STAFCommandParser.VALUEREQUIRED);
 		parser.addOption(SI_SERVICE_PARM_LOCATE, 1,STAFCommandParser.VALUEREQUIRED);
 		parser.addOption(SI_SERVICE_PARM_SEPARATOR, 1,STAFCommandParser.VALUEREQUIRED);
+		parser.addOption(SI_SERVICE_PARM_COUNT, 1,STAFCommandParser.VALUEREQUIRED);
+		parser.addOption(SI_SERVICE_PARM_LINE, 1,STAFCommandParser.VALUEREQUIRED);
 
 		parser.addOption(SI_SERVICE_PARM_STATUS, 1,STAFCommandParser.VALUENOTALLOWED);
 		parser.addOption(SI_SERVICE_PARM_FILENAME, 1,STAFCommandParser.VALUENOTALLOWED);
@@ -556,7 +595,7 @@ public abstract class AbstractSAFSInputService {
 
 		// command must contain 1 and only 1 of these requests.
 		parser.addOptionGroup(SI_SERVICE_REQUEST_OPEN + s
-				+ SI_SERVICE_REQUEST_NEXTLINE + s + SI_SERVICE_REQUEST_GOTO + s
+				+ SI_SERVICE_REQUEST_NEXTLINE + s + SI_SERVICE_REQUEST_NEXTBATCH + s + SI_SERVICE_REQUEST_GOTO + s
 				+ SI_SERVICE_REQUEST_CLOSE + s + SI_SERVICE_REQUEST_HELP + s
 				+ SI_SERVICE_REQUEST_BEGIN + s + SI_SERVICE_REQUEST_QUERY + s
 				+ SI_SERVICE_REQUEST_RESET + s + SI_SERVICE_REQUEST_LIST, 1, 1);
@@ -578,6 +617,12 @@ public abstract class AbstractSAFSInputService {
 		// GOTO request requires LOCATE param.
 		parser.addOptionNeed(SI_SERVICE_REQUEST_GOTO, SI_SERVICE_PARM_LOCATE);
 		parser.addOptionNeed(SI_SERVICE_REQUEST_GOTO,SI_SERVICE_PARM_SEPARATOR);
+		// LINE is ONLY valid for GOTO.
+		parser.addOptionNeed(SI_SERVICE_PARM_LINE, SI_SERVICE_REQUEST_GOTO);
+
+		// NEXTBATCH request requires COUNT param, and COUNT is ONLY valid for NEXTBATCH.
+		parser.addOptionNeed(SI_SERVICE_REQUEST_NEXTBATCH, SI_SERVICE_PARM_COUNT);
+		parser.addOptionNeed(SI_SERVICE_PARM_COUNT, SI_SERVICE_REQUEST_NEXTBATCH);
 	}
 
     // ROOT ROUTINE THAT INITIATES THE BUILDING OF THE 'HELP' RESPONSE
@@ -590,9 +635,11 @@ public abstract class AbstractSAFSInputService {
 		                                                                    r+
 		       "NEXT <fileID>"                                             +r+
 		                                                                    r+
+		       "NEXTBATCH <fileID> COUNT <n>"                              +r+
+		                                                                    r+
 		       "CLOSE <fileID>"                                            +r+
 		                                                                    r+
-		       "GOTO <fileID> LOCATE <locationid> SEPARATOR <fieldsep>"    +r+
+		       "GOTO <fileID> LOCATE <locationid> SEPARATOR <fieldsep> [LINE <n>]" +r+
 		                                                                    r+
 		       "BEGIN <fileID>"                                            +r+
 		                                                                    r+
@@ -621,6 +668,7 @@ public abstract class AbstractSAFSInputService {
 			}
 			handles.clear();
 		}
+		blockindexes.clear();
 
 		return new STAFResult(STAFResult.Ok, SI_SERVICE_REQUEST_RESET + c+ "ALL FILE IDS AND HANDLES ARE REMOVED");
 	}
@@ -639,6 +687,35 @@ public abstract class AbstractSAFSInputService {
 		return result;
 	}
 	  
+	protected STAFResult handleNextBatch(InfoInterface.RequestInfo info,STAFCommandParseResult parsedData) {
+		STAFResult result = new STAFResult(STAFResult.Ok);
+
+		String fileid = parsedData.optionValue(SI_SERVICE_REQUEST_NEXTBATCH).toLowerCase();
+		SAFSTextFile textfile = getParsedDataTextFile(result, fileid);
+		if (result.rc != STAFResult.Ok)
+			return result;
+
+		String count = parsedData.optionValue(SI_SERVICE_PARM_COUNT);
+		int n = 0;
+		try{ n = Integer.parseInt(count.trim()); }catch(NumberFormatException e){}
+		if (n < 1){
+			result.rc = STAFResult.InvalidValue;
+			result.result = SI_SERVICE_PARM_COUNT +c+ count +c+ text(SI_RBKEY_ERROR_NOT_INTEGER);
+			return result;
+		}
+
+		String[] lines = textfile.next(n);
+		if (lines.length == 0){
+			result.result = c + SI_SERVICE_FILE_STATE_EOF + c;
+			return result;
+		}
+		StringBuffer batch = new StringBuffer();
+		for (int i=0; i<lines.length; i++)
+			batch.append(c).append(lines[i].length()).append(c).append(lines[i]);
+		result.result = batch.toString();
+		return result;
+	}
+	  
 	protected STAFResult handleClose(InfoInterface.RequestInfo info,STAFCommandParseResult parsedData) {
 		STAFResult result = new STAFResult(STAFResult.Ok);
 		
@@ -648,6 +725,7 @@ public abstract class AbstractSAFSInputService {
 
 		textfile.close();
 		handles.remove(fileid);
+		releaseBlockIDIndex(textfile.getFullpath());
 
 		result.result = new String();
 		if (result.rc == STAFResult.Ok) result.result = "CLOSE:"+ fileid +c+ textfile.getFullpath();
@@ -756,7 +834,17 @@ public abstract class AbstractSAFSInputService {
 		String location = parsedData.optionValue(SI_SERVICE_PARM_LOCATE);
 		String fieldsep = parsedData.optionValue(SI_SERVICE_PARM_SEPARATOR);
 
-		locateBlockID(result, textfile, location, fieldsep);
+		long line = -1;
+		if (parsedData.optionTimes(SI_SERVICE_PARM_LINE) > 0){
+			String linenum = parsedData.optionValue(SI_SERVICE_PARM_LINE);
+			try{ line = Long.parseLong(linenum.trim()); }catch(NumberFormatException e){}
+			if (line < 0){
+				result.rc = STAFResult.InvalidValue;
+				result.result = SI_SERVICE_PARM_LINE +c+ linenum +c+ text(SI_RBKEY_ERROR_NOT_INTEGER);
+				return result;
+			}
+		}
+		locateBlockID(result, textfile, location, fieldsep, line);
 		return result;
 	}
 	
@@ -996,11 +1084,54 @@ public abstract class AbstractSAFSInputService {
 		return false;
 	}
 
+	/**
+	 * Get the BlockIDIndex for the file, creating it if we do not have one or if the 
+	 * file has changed since the cached index was created.
+	 * @param file the open file to be searched.
+	 * @return the BlockIDIndex for the file, or null if the file cannot be indexed.
+	 */
+	protected BlockIDIndex getBlockIDIndex(SAFSTextFile file){
+		String fullpath = file.getFullpath();
+		if(fullpath.length()==0) return null;
+		BlockIDIndex index = (BlockIDIndex) blockindexes.get(fullpath);
+		if((index == null)||(index.isStale())){
+			File f = new File(fullpath);
+			if(! f.isFile()) {
+				blockindexes.remove(fullpath);
+				return null;
+			}
+			debugLog.debugPrintln("SAFSINPUT indexing BlockIDs in "+ fullpath);
+			index = new BlockIDIndex(f);
+			blockindexes.put(fullpath, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Discard the cached BlockIDIndex for the file if no remaining FileID has it open.
+	 * @param fullpath of the file that has been closed.
+	 */
+	protected void releaseBlockIDIndex(String fullpath){
+		for (Enumeration e = handles.elements(); e.hasMoreElements();){
+			if(((SAFSFile) e.nextElement()).getFullpath().equals(fullpath)) return;
+		}
+		blockindexes.remove(fullpath);
+	}
+
 	// attempt to locate the blockId in the current table.
 	// if found the file pointer will be set such that the blockID is the next line to execute.
 	// if not found, the file pointer will be such that the next line in the table will execute.
 	// the routine will log all failures and increment GeneralFailure if the block is not found.
 	protected void locateBlockID (STAFResult result, SAFSTextFile file, String inputBlockID, String fieldsep){
+		locateBlockID(result, file, inputBlockID, fieldsep, -1);
+	}
+
+	// as above, but the search starts after 'startline' instead of after the last line read.
+	// a client reading ahead with NEXTBATCH sends the line of the last record it executed,
+	// so a BlockID used more than once resolves to the same occurrence as without read-ahead.
+	// if not found, the file pointer will be such that the line after 'startline' will execute.
+	// startline < 0 starts after the last line read.
+	protected void locateBlockID (STAFResult result, SAFSTextFile file, String inputBlockID, String fieldsep, long startline){
 
 	    String inputRecord = null;
 	    String rtype;
@@ -1013,6 +1144,13 @@ public abstract class AbstractSAFSInputService {
 			return;
 		}
 
+		// position after the client's last record, if the client has read ahead
+		if ((startline >= 0)&&(startline != file.getLineNumber())&&(! file.gotoLine(startline))){
+			result.rc = STAFResult.InvalidValue;
+			result.result = SI_SERVICE_PARM_LINE +c+ startline +c+ fileID +" cannot be positioned after line "+ startline;
+			return;
+		}
+
 		// store/mark where the file pointer is on entry
         long entryline  = file.getLineNumber();
         file.mark();
@@ -1021,10 +1159,27 @@ public abstract class AbstractSAFSInputService {
         long currpos = -1;
 
 		// inputBlockID may be an expression, so resolve it
+		String rawBlockID = inputBlockID;
 		inputBlockID = processExpression(inputBlockID) ;
 
+		// only visit the records the index says might be our target.
+		// without candidates, fall back to testing every record.
+		boolean scan = true;
+		BlockIDIndex index = getBlockIDIndex(file);
+		if(index != null){
+			long[] candidates = index.getCandidates(getBlockLabel(rawBlockID, inputBlockID), fieldsep, entryline);
+			scan = (candidates.length == 0);
+			for(int i=0;(i<candidates.length)&&(! blockFound);i++){
+				currpos = candidates[i];
+				if(! file.gotoLine(currpos)) break;
+				inputRecord = file.readLine();
+				if (inputRecord == null) continue;
+				blockFound = isTargetBlock(inputBlockID, inputRecord, fieldsep);
+			}
+		}
+
 		// look from here to EOF
-        while(! file.isEOF()){
+        while(scan &&(! file.isEOF())){
             
             // Get next record and trim any leading spaces    
             currpos = file.getLineNumber();
@@ -1037,7 +1192,7 @@ public abstract class AbstractSAFSInputService {
         }
 
 		// if not found, try again from the beginning of the file        
-        if (! blockFound) {
+        if (scan &&(! blockFound)) {
 
 			file.begin();	
 
@@ -1069,6 +1224,24 @@ public abstract class AbstractSAFSInputService {
         file.reset();
 	}
 
+	// returns the BlockID label as the BlockIDIndex stores it.
+	// a BlockID resolved by the variable service comes back as RC:"value",
+	// so the return code and the quotes are removed.  An unresolved BlockID is only trimmed.
+	protected static String getBlockLabel(String rawBlockID, String resolvedBlockID){
+		String label = resolvedBlockID.trim();
+		if (label.equals(rawBlockID.trim())) return label;
+		int sep = label.indexOf(':');
+		if (sep > 0){
+			try{
+				Integer.parseInt(label.substring(0, sep));
+				label = label.substring(sep+1).trim();
+			}catch(NumberFormatException x){;}
+		}
+		if ((label.length() > 1)&&(label.startsWith("\""))&&(label.endsWith("\"")))
+			label = label.substring(1, label.length()-1).trim();
+		return label;
+	}
+
 	protected final SAFSTextFile getParsedDataTextFile( STAFResult result, String fileid){
 
 		if (handles.isEmpty()){
@@ -0,0 +1,183 @@
+package org.safs.staf.service.input;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.safs.SAFSNullPointerException;
+import org.safs.StringUtils;
+import org.safs.staf.service.var.AbstractSAFSVariableService;
+import org.safs.text.FileLineReader;
+import org.safs.tools.drivers.DriverConstant;
+import org.safs.tools.expression.SafsExpression;
+
+/*******************************************************************************************
+ * Copyright 2003 SAS Institute
+ * GNU General Public License (GPL) http://www.opensource.org/licenses/gpl-license.php
+ * <p>
+ * A BlockIDIndex is a pre-parsed lookup table of the BlockID records in one input file.<br>
+ * It is used by the AbstractSAFSInputService GOTO command so that locating a BlockID does
+ * not have to read and test every record between the current line and the target.
+ * <p>
+ * The file is parsed once per field separator.  For every line we record:
+ * <ul>
+ * <li>literal BlockID records ("B" record type) by their upper-cased BlockID label.
+ * <li>"dynamic" records whose record type or BlockID contains a variable reference (^ or _DDV_),
+ * a quoted string ("), or an operator or parenthesis the variable service would evaluate
+ * as an expression.  These can only be tested with the variable service and are always
+ * returned as candidates.
+ * </ul>
+ * Any other record cannot match a BlockID and is never returned as a candidate.
+ * Candidates must still be verified by the caller with the same test used for the
+ * sequential search.
+ * <p>
+ * The index remembers the length and last-modified time of the file and reports itself
+ * stale if either has changed.
+ * <p>
+ * @see AbstractSAFSInputService#locateBlockID(com.ibm.staf.STAFResult, SAFSTextFile, String, String)
+ ******************************************************************************************/
+public class BlockIDIndex {
+
+	private File file = null;
+	private long length = -1;
+	private long modified = -1;
+
+	/** separator --> SeparatorIndex */
+	private Map<String,SeparatorIndex> separators = new HashMap<String,SeparatorIndex>();
+
+	/** The index data for one field separator. */
+	private static class SeparatorIndex{
+		/** upper-cased literal BlockID --> sorted 0-based line positions */
+		Map<String,long[]> blocks = new HashMap<String,long[]>();
+		/** sorted 0-based line positions of records needing expression evaluation */
+		long[] dynamic = new long[0];
+	}
+
+	/*******************************************************************************************
+	 * @param file the input file to be indexed.  No parsing is done until the first call
+	 *        to {@link #getCandidates(String, String, long)} for a given separator.
+	 ******************************************************************************************/
+	public BlockIDIndex(File file){
+		this.file = file;
+		length = file.length();
+		modified = file.lastModified();
+	}
+
+	/*******************************************************************************************
+	 * @return true if the file on disk has changed (or disappeared) since this index was created.
+	 ******************************************************************************************/
+	public boolean isStale(){
+		return (! file.isFile())||(file.length() != length)||(file.lastModified() != modified);
+	}
+
+	/** the characters that make an unquoted field an expression. */
+	private static final String EXPRESSION_CHARS = SafsExpression.ALL_OPERATORS +"()";
+
+	/*******************************************************************************************
+	 * @return true if the field contains a variable reference, a quoted string, or an
+	 *         expression that the variable service might resolve to some other value.
+	 ******************************************************************************************/
+	private static boolean isDynamic(String field){
+		if((field.indexOf(AbstractSAFSVariableService.SVS_CARET) > -1)||
+		   (field.indexOf(AbstractSAFSVariableService.SVS_FALSE_CARET) > -1)||
+		   (field.indexOf('"') > -1)) return true;
+		for(int i=0;i<field.length();i++){
+			if(EXPRESSION_CHARS.indexOf(field.charAt(i)) > -1) return true;
+		}
+		return false;
+	}
+
+	private static long[] toArray(List<Long> list){
+		long[] array = new long[list.size()];
+		for(int i=0;i<array.length;i++) array[i] = list.get(i).longValue();
+		return array;
+	}
+
+	/*******************************************************************************************
+	 * Read the whole file once and build the index for the given field separator.
+	 ******************************************************************************************/
+	private SeparatorIndex build(String fieldsep){
+		SeparatorIndex index = new SeparatorIndex();
+		Map<String,List<Long>> blocks = new HashMap<String,List<Long>>();
+		List<Long> dynamic = new ArrayList<Long>();
+
+		FileLineReader reader = new FileLineReader(file);
+		try{
+			long line = 0;
+			String record = null;
+			while((record = reader.readLine()) != null){
+				try{
+					String rtype = StringUtils.getInputToken(record, 0, fieldsep).trim();
+					if(rtype.equalsIgnoreCase(DriverConstant.RECTYPE_B)){
+						String blockID = StringUtils.getInputToken(record, 1, fieldsep).trim();
+						if(isDynamic(blockID)){
+							dynamic.add(Long.valueOf(line));
+						}else{
+							String key = blockID.toUpperCase();
+							List<Long> lines = blocks.get(key);
+							if(lines == null){
+								lines = new ArrayList<Long>(1);
+								blocks.put(key, lines);
+							}
+							lines.add(Long.valueOf(line));
+						}
+					}else if(isDynamic(rtype)){
+						dynamic.add(Long.valueOf(line));
+					}
+				}
+			    catch(SAFSNullPointerException npx) {;}
+			    catch(StringIndexOutOfBoundsException six) {;}
+				line++;
+			}
+		}finally{
+			reader.close();
+		}
+		for(Map.Entry<String,List<Long>> entry: blocks.entrySet())
+			index.blocks.put(entry.getKey(), toArray(entry.getValue()));
+		index.dynamic = toArray(dynamic);
+		return index;
+	}
+
+	/*******************************************************************************************
+	 * Get the line positions of all records that might be the target BlockID, in the order
+	 * the sequential search would visit them: from 'entryline' to the end of the file, then
+	 * from the beginning of the file up to 'entryline'.
+	 * <p>
+	 * @param inputBlockID the (already resolved) BlockID label to locate, without quotes.
+	 * @param fieldsep the field separator used by the file.
+	 * @param entryline the 0-based line position at which the search starts.
+	 * @return the 0-based line positions (the number of lines preceding each candidate record).
+	 *         May be empty, but never null.
+	 ******************************************************************************************/
+	public synchronized long[] getCandidates(String inputBlockID, String fieldsep, long entryline){
+		SeparatorIndex index = separators.get(fieldsep);
+		if(index == null){
+			index = build(fieldsep);
+			separators.put(fieldsep, index);
+		}
+		long[] literal = index.blocks.get(inputBlockID.trim().toUpperCase());
+		if(literal == null) literal = new long[0];
+
+		// merge the two sorted arrays
+		long[] merged = new long[literal.length + index.dynamic.length];
+		int l = 0, d = 0, m = 0;
+		while((l < literal.length)||(d < index.dynamic.length)){
+			if((d >= index.dynamic.length)||((l < literal.length)&&(literal[l] < index.dynamic[d]))){
+				merged[m++] = literal[l++];
+			}else{
+				merged[m++] = index.dynamic[d++];
+			}
+		}
+
+		// rotate so the search begins at entryline
+		int start = 0;
+		while((start < merged.length)&&(merged[start] < entryline)) start++;
+		if(start == 0) return merged;
+		long[] ordered = new long[merged.length];
+		System.arraycopy(merged, start, ordered, 0, merged.length - start);
+		System.arraycopy(merged, 0, ordered, merged.length - start, start);
+		return ordered;
+	}
+}
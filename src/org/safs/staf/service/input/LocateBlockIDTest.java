@@ -0,0 +1,126 @@
+/**
+ ** Copyright (C) SAS Institute, All rights reserved.
+ ** General Public License: http://www.opensource.org/licenses/gpl-license.php
+ **/
+package org.safs.staf.service.input;
+
+import java.io.*;
+
+import org.safs.STAFHelper;
+import org.safs.staf.service.InfoInterface;
+import org.safs.staf.service.var.EmbeddedVariableService;
+
+import com.ibm.staf.STAFResult;
+
+/**
+ * Locates a BlockID used more than once in a table after records have been read ahead,
+ * as with NEXTBATCH, and checks that the occurrence found is the one after the last
+ * record executed.  The lookups are made without, then with, an embedded SAFSVARS.
+ */
+public class LocateBlockIDTest {
+
+	static File temp;
+
+	public static final String TEMPFILE = "LocateBlockIDTest.sdd";
+	static BufferedWriter buffer;
+	static EmbeddedInputService service;
+
+	public static void write(String line) throws IOException{
+		System.out.println(line);
+		buffer.write(line);
+		buffer.newLine();
+	}
+	public static void createTestFile() throws IOException{
+		temp = File.createTempFile(TEMPFILE,"");
+		System.out.println("temp file:"+ temp.getAbsolutePath());
+		buffer = new BufferedWriter(new FileWriter(temp));
+		write("T, Step1");
+		write("B, Dup");
+		write("T, Step3");
+		write("T, Step4");
+		write("T, Step5");
+		write("T, Step6");
+		write("B, Dup");
+		write("T, Step8");
+		write("T, Step9");
+		write("T, Step10");
+		write("B, \"Expr\" & \"Block\"");
+		write("B, _DDV_blockname");
+		buffer.flush();
+		buffer.close();
+	}
+
+	static SAFSTextFile open(){
+		return new SAFSTextFile("local", "test", 1, "test", temp, true, false, false, false, true, null);
+	}
+
+	static void test (String name, String value, String bench){
+		String result = (bench.equals(value))?"PASSED:":"FAILED:";
+		System.out.println(result+name+" "+value+"=="+bench);
+	}
+
+	/** read ahead to line 9, as a NEXTBATCH would, after executing up to line 4. */
+	static STAFResult locate(SAFSTextFile file, String blockid, long line){
+		file.next(9);
+		STAFResult result = new STAFResult(STAFResult.Ok);
+		service.locateBlockID(result, file, blockid, ",", line);
+		return result;
+	}
+
+	static void testDuplicates(){
+		SAFSTextFile file = open();
+		STAFResult result = locate(file, "Dup", 4);
+		test("LINE 4 locates second Dup", result.result, "7:B, Dup");
+		test("LINE 4 next record", file.next(), "7:B, Dup");
+		file.close();
+
+		file = open();
+		result = locate(file, "Dup", -1);
+		test("no LINE locates first Dup", result.result, "2:B, Dup");
+		file.close();
+
+		file = open();
+		result = locate(file, "Missing", 4);
+		test("LINE 4 missing block rc", String.valueOf(result.rc), String.valueOf(STAFResult.InvalidValue));
+		test("LINE 4 missing block next record", file.next(), "5:T, Step5");
+		file.close();
+	}
+
+	/** BlockIDs only found by resolving them with SAFSVARS. */
+	static void testExpressions(){
+		SAFSTextFile file = open();
+		STAFResult result = locate(file, "ExprBlock", 4);
+		test("expression block", result.result, "11:B, \"Expr\" & \"Block\"");
+		file.close();
+
+		service.processExpression("^blockname = \"VarBlock\"");
+		file = open();
+		result = locate(file, "VarBlock", 4);
+		test("variable block", result.result, "12:B, _DDV_blockname");
+		file.close();
+
+		file = open();
+		result = locate(file, "^blockname", 4);
+		test("variable BlockID", result.result, "12:B, _DDV_blockname");
+		file.close();
+	}
+
+	public static void main(String[] args) {
+		try{
+			createTestFile();
+			service = new EmbeddedInputService();
+			testDuplicates();
+
+			STAFHelper.no_staf_handles = true;
+			EmbeddedVariableService vars = new EmbeddedVariableService();
+			vars.setEmbedVars(true);
+			vars.init(new InfoInterface.InitInfo(STAFHelper.SAFS_VARIABLE_SERVICE, ""));
+			service = new EmbeddedInputService();
+			service.init(new InfoInterface.InitInfo(STAFHelper.SAFS_INPUT_SERVICE, "DIR "+ temp.getParent()));
+			testDuplicates();
+			testExpressions();
+		}
+		catch(IOException x){x.printStackTrace();}
+		finally{ if(temp != null) temp.delete(); }
+	}
+}
@@ -1,7 +1,13 @@
 package org.safs.staf.service.input;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.Vector;
 
@@ -17,6 +23,13 @@ import java.util.Vector;
  * <p>
  * The class uses a java.io.BufferedReader as the underlying IO mechanism.
  * <p>
+ * When the file is opened we also build an index of the byte offset at which each line 
+ * starts.  The index allows {@link #reset()}, {@link #setMark(long)} and {@link #gotoLine(long)} 
+ * to seek directly to any line instead of closing, reopening, and re-reading every line 
+ * up to the target.  The index is only built for Charsets in which CR and LF are encoded 
+ * as single bytes (UTF-8, ASCII, ISO-8859-x, etc.).  Otherwise, and whenever the file has 
+ * been modified since it was indexed, we fall back to the original sequential read.
+ * <p>
  * @author Carl Nagle, SAS Institute
  * @version 1.0, 06/02/2003
  * @see SAFSTextFileReader
@@ -41,6 +54,13 @@ public class SAFSTextFile extends SAFSFile{
 	
 	private Vector commentids = new Vector(3, 2);
 
+	/** byte offset of the start of each line. lineoffsets[n] is where line n+1 begins. 
+	 *  lineoffsets[linecount] is the file length. null if the file could not be indexed. */
+	private long[]  lineoffsets = null;
+	private long    linecount   = 0;
+	private long    indexedlength   = -1;
+	private long    indexedmodified = -1;
+
 	/*******************************************************************************************
 	 * This constructor will create an inoperable (Closed) file object.  No use whatsoever. :)
 	 ******************************************************************************************/
@@ -100,7 +120,149 @@ public class SAFSTextFile extends SAFSFile{
 		
 		if ((commentids != null) && (!commentids.isEmpty())){
 			this.commentids = commentids;
-		}		
+		}
+		
+		// the superclass opened the file.  index it now.
+		if(! isClosed()) buildLineIndex();
+	}
+
+	/*******************************************************************************************
+	 * @return true if the Charset encodes CR and LF as the single bytes 0x0D and 0x0A so 
+	 *         that line starts can be found by scanning raw bytes.
+	 ******************************************************************************************/
+	private static boolean isIndexableCharset(String charsetname){
+		try{
+			byte[] crlf = "\r\n".getBytes(Charset.forName(charsetname));
+			return crlf.length == 2 && crlf[0] == '\r' && crlf[1] == '\n';
+		}catch(Exception x){
+			return false;
+		}
+	}
+	
+	/*******************************************************************************************
+	 * Scan the file once and record the byte offset at which each line begins.  Line breaks 
+	 * are recognized exactly as BufferedReader.readLine recognizes them: LF, CR, or CR+LF.
+	 * <p>
+	 * If the file cannot be indexed then the index is left null and line positioning falls 
+	 * back to sequential reads.
+	 ******************************************************************************************/
+	protected void buildLineIndex(){
+		lineoffsets = null;
+		linecount = 0;
+		if((file == null)||(! isIndexableCharset(charset))) return;
+		
+		long length   = file.length();
+		long modified = file.lastModified();
+		long[] offsets = new long[1024];
+		int lines = 0;
+		offsets[0] = 0;
+		
+		BufferedInputStream in = null;
+		try{
+			in = new BufferedInputStream(new FileInputStream(file), DEFAULT_BUFFER_SIZE);
+			byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+			long position = 0;
+			boolean pendingCR = false;   // previous byte was a CR
+			boolean inLine = false;      // bytes seen since the last line break
+			int read;
+			while((read = in.read(buffer)) != -1){
+				for(int i=0;i<read;i++, position++){
+					byte b = buffer[i];
+					if(pendingCR){
+						pendingCR = false;
+						// CR+LF is a single line break; the line starts after the LF
+						if(b == '\n'){
+							offsets[lines] = position+1;
+							continue;
+						}
+					}
+					if((b == '\n')||(b == '\r')){
+						if(++lines == offsets.length) offsets = Arrays.copyOf(offsets, lines*2);
+						offsets[lines] = position+1;
+						pendingCR = (b == '\r');
+						inLine = false;
+					}else{
+						inLine = true;
+					}
+				}
+			}
+			// a last line without a line break is still a line
+			if(inLine){
+				if(++lines == offsets.length) offsets = Arrays.copyOf(offsets, lines+1);
+				offsets[lines] = position;
+			}
+			lineoffsets = offsets;
+			linecount = lines;
+			indexedlength = length;
+			indexedmodified = modified;
+		}catch(IOException x){
+			lineoffsets = null;
+			linecount = 0;
+		}finally{
+			if(in != null) try{ in.close();}catch(IOException ignore){}
+		}
+	}
+
+	/*******************************************************************************************
+	 * @return true if we have a line index that still matches the file on disk.
+	 *         If the file has changed since it was indexed we attempt to rebuild the index.
+	 ******************************************************************************************/
+	protected boolean isLineIndexValid(){
+		if(file == null) return false;
+		if((lineoffsets != null)&&
+		   (file.length() == indexedlength)&&
+		   (file.lastModified() == indexedmodified))
+			return true;
+		buildLineIndex();
+		return lineoffsets != null;
+	}
+	
+	/*******************************************************************************************
+	 * Position the file so that the next line read will be line+1.  That is, the line pointer 
+	 * will be set as if 'line' number of lines had been read.  If we have a valid line index 
+	 * this is a direct seek, otherwise we reopen the file and read forward to the line.
+	 * <p>
+	 * The mark is not modified.
+	 * <p>
+	 * @param line the number of lines to position past.  0 positions to the beginning of the file.
+	 * @return true if the file was successfully positioned.  false if the file is now closed.
+	 ******************************************************************************************/
+	public boolean gotoLine(long line){
+		if(line < 0) line = 0;
+		isValidMark = false;
+		if((file != null)&&(isLineIndexValid())&&(line <= linecount)){
+			FileInputStream in = null;
+			try{
+				in = new FileInputStream(file);
+				in.getChannel().position(lineoffsets[(int)line]);
+				closeReader();
+				reader = new BufferedReader(new InputStreamReader(in, Charset.forName(charset)), DEFAULT_BUFFER_SIZE);
+				linetext = null;
+				eof = false;
+				// only the first line of the file can carry the UTF-8 FORMAT marker
+				firstline = (line == 0);
+				pointer = line;
+				return true;
+			}catch(IOException x){
+				if(in != null) try{ in.close();}catch(IOException ignore){}
+				// fall thru to sequential positioning
+			}
+		}
+		long tmark = mark;
+		close();
+		open();
+		if(isClosed()) return false;
+		mark = tmark;
+		try{
+			pointer = line;
+			for(long i = 0; i<line;i++) linetext = reader.readLine();
+			eof = (line > 0) && (linetext == null);
+			if(line > 0) firstline = false;
+			return true;
+		}catch(IOException e2){  
+			close(); 
+		}
+		return false;
 	}
 
 	/*******************************************************************************************
@@ -188,6 +350,24 @@ public class SAFSTextFile extends SAFSFile{
 		return linetext;
 	}
 
+	/*******************************************************************************************
+	 * Reads up to count next lines, as {@link #next()} would return them one at a time.
+	 * <p>
+	 * @param count the maximum number of lines to read.
+	 * @return the lines read, fewer than count once EOF is reached.  Never null.
+	 ******************************************************************************************/
+	public String[] next (int count){
+		Vector lines = new Vector(Math.max(0, Math.min(count, 1000)));
+		for(int i=0;i<count;i++){
+			String line = next();
+			if (line == null) break;
+			lines.addElement(line);
+		}
+		String[] result = new String[lines.size()];
+		lines.copyInto(result);
+		return result;
+	}
+
 	/*******************************************************************************************
 	 * Returns the last line returned from the 'next' function.  Thus, you can re-read 
 	 * the line any number of times.  Note, the value returned may be something unexpected 
@@ -233,26 +413,7 @@ public class SAFSTextFile extends SAFSFile{
 	private void gotoMark(){
 		
 		long tmark = mark;
-		close();
-		open();
-		
-		if(! isClosed()){
-			try{
-				pointer = tmark;
-				mark = tmark;
-				if(tmark==0){
-					//we are at the begining of the file, so eof is false.
-					eof = false;
-				}else{
-					//If tmark is not 0, we should skip all lines before 'tmark' of the reader
-					for(long i = 0; i<tmark;i++) linetext = reader.readLine();
-					eof = (linetext == null);
-				}
-				return;
-			}catch(IOException e2){  
-				close(); 
-			}
-		}
+		if(gotoLine(tmark)) mark = tmark;
 		return;
 	}
 	
@@ -288,11 +449,7 @@ public class SAFSTextFile extends SAFSFile{
 	public void begin(){ 
 		if((isClosed())||(pointer==0)) return;
 		
-		long tmark = mark;
-		close();
-		open();
-		if(! isClosed()) mark=tmark;
-		
+		gotoLine(0);
 		return;
 	}
 
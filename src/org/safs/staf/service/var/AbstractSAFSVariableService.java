@@ -53,6 +53,8 @@ import com.ibm.staf.service.STAFCommandParser;
  * <tr><td>RESOLVE            <td>Resolve variables and expressions in a string.
  * <tr><td>DELETE             <td>Delete a variable
  * <tr><td>COUNT              <td>Return the count of variables currently stored
+ * <tr><td>GETBATCH           <td>Get the values of several variables in one request
+ * <tr><td>SETBATCH           <td>Set the values of several variables in one request
  * <tr><td>HELP               <td>Get HELP on command syntax.
  * </table>
  * <h2>1.0 Service Registration</h2>
@@ -186,7 +188,34 @@ import com.ibm.staf.service.STAFCommandParser;
  * With NOEXPRESSIONS, the input record is handled in the older Substitute/Extract method: 
  * only the setting and getting of individual variable values occurs.
  * <p>
- * <h3>2.10 HELP </h3>
+ * <h3>2.10 GETBATCH </h3>
+ * <p>
+ * Returns the values of several SAFS variables in a single request.  Each variable is 
+ * resolved exactly as it would be with GET.  This allows clients like engine hooks to 
+ * retrieve an entire test record with one service call.
+ * <p>
+ * <b>Syntax:</b>
+ * <p>
+ * GETBATCH &lt;names>
+ * <p>
+ * <b>2.10.1 &lt;names></b> the variable names packed as length-tagged fields: 
+ * ":len:name:len:name...".  The values are returned in the same order and the same 
+ * packed format.
+ * <p>
+ * @see StringUtilities#packLentagFields(String[])
+ * <p>
+ * <h3>2.11 SETBATCH </h3>
+ * <p>
+ * Sets the values of several SAFS variables in a single request.
+ * <p>
+ * <b>Syntax:</b>
+ * <p>
+ * SETBATCH &lt;namesandvalues>
+ * <p>
+ * <b>2.11.1 &lt;namesandvalues></b> name and value pairs packed as length-tagged fields: 
+ * ":len:name:len:value:len:name:len:value...".
+ * <p>
+ * <h3>2.12 HELP </h3>
  * <p>
  * The HELP command returns this syntax information for service requests.
  * <p>
@@ -231,6 +260,8 @@ public abstract class AbstractSAFSVariableService implements SimpleVarsInterface
 	public static final String SVS_SERVICE_REQUEST_DELETE   = "DELETE";
 	public static final String SVS_SERVICE_REQUEST_HELP     = "HELP";
 	public static final String SVS_SERVICE_REQUEST_V2       = "V2";
+	public static final String SVS_SERVICE_REQUEST_GETBATCH = "GETBATCH";
+	public static final String SVS_SERVICE_REQUEST_SETBATCH = "SETBATCH";
 	
 	/**
 	 * Used for {@link #SVS_SERVICE_REQUEST_GET}<br>
@@ -290,6 +321,8 @@ public abstract class AbstractSAFSVariableService implements SimpleVarsInterface
 		        "RESET" +r+
 		        "DELETE <varname>" +r+
 		        "RESOLVE <string> [SEPARATOR <char>] [NOEXPRESSIONS]" +r+
+		        "GETBATCH <:len:varname:len:varname...>" +r+
+		        "SETBATCH <:len:varname:len:value...>" +r+
 		        "HELP"+r+r;
 	}
 	
@@ -323,6 +356,8 @@ public abstract class AbstractSAFSVariableService implements SimpleVarsInterface
 		parser.addOption( SVS_SERVICE_REQUEST_RESET    , 1, STAFCommandParser.VALUENOTALLOWED );
 		parser.addOption( SVS_SERVICE_PARM_MAP_VAR_LOOP, 1, STAFCommandParser.VALUEALLOWED );
 		parser.addOption( SVS_SERVICE_REQUEST_V2       , 1, STAFCommandParser.VALUENOTALLOWED );
+		parser.addOption( SVS_SERVICE_REQUEST_GETBATCH , 1, STAFCommandParser.VALUEREQUIRED );
+		parser.addOption( SVS_SERVICE_REQUEST_SETBATCH , 1, STAFCommandParser.VALUEREQUIRED );
 		
 
 		// each request should have only 1 of these
@@ -330,7 +365,8 @@ public abstract class AbstractSAFSVariableService implements SimpleVarsInterface
 		                        SVS_SERVICE_REQUEST_GET  +s+ SVS_SERVICE_REQUEST_DELETE   +s+
 		                        SVS_SERVICE_REQUEST_LIST +s+ SVS_SERVICE_REQUEST_SAFSMAPS +s+
 		                        SVS_SERVICE_REQUEST_COUNT   +s+ SVS_SERVICE_REQUEST_RESET +s+
-		                        SVS_SERVICE_REQUEST_RESOLVE +s+ SVS_SERVICE_REQUEST_HANDLEID,
+		                        SVS_SERVICE_REQUEST_RESOLVE +s+ SVS_SERVICE_REQUEST_HANDLEID +s+
+		                        SVS_SERVICE_REQUEST_GETBATCH +s+ SVS_SERVICE_REQUEST_SETBATCH,
 		                        1, 1);
 
 		parser.addOptionNeed (SVS_SERVICE_REQUEST_SET  , SVS_SERVICE_REQUEST_VALUE);
@@ -433,6 +469,14 @@ public abstract class AbstractSAFSVariableService implements SimpleVarsInterface
 			locresult.result = tempresult.result;
 			return locresult;			
 
+		// ===============================================================
+		}else if( parsedData.optionTimes(SVS_SERVICE_REQUEST_GETBATCH) > 0) {
+			return handleGetBatch(parsedData.optionValue(SVS_SERVICE_REQUEST_GETBATCH));
+
+		// ===============================================================
+		}else if( parsedData.optionTimes(SVS_SERVICE_REQUEST_SETBATCH) > 0) {
+			return handleSetBatch(parsedData.optionValue(SVS_SERVICE_REQUEST_SETBATCH));
+
 		// ===============================================================
 		}else if( parsedData.optionTimes(SVS_SERVICE_REQUEST_RESET) > 0){
 			return handleReset();
@@ -510,6 +554,45 @@ public abstract class AbstractSAFSVariableService implements SimpleVarsInterface
 		return locresult;
 	}
 	
+	/**
+	 * Handle the GETBATCH request.  Each variable is retrieved as with GET.
+	 * @param packed variable names packed with StringUtilities.packLentagFields
+	 * @return STAFResult with the packed values in the same order as the names.
+	 */
+	protected STAFResult handleGetBatch(String packed){
+		String[] names = StringUtilities.unpackLentagFields(packed);
+		if(names == null) 
+			return new STAFResult(STAFResult.InvalidRequestString, SVS_SERVICE_REQUEST_GETBATCH +c+ packed);
+		String[] values = new String[names.length];
+		for(int i=0;i<names.length;i++){
+			values[i] = getValue(names[i].toLowerCase(), false, null); //internally synchronized...mostly
+			if(tempresult.rc != STAFResult.Ok)
+				return new STAFResult(tempresult.rc, tempresult.result);
+		}
+		return new STAFResult(STAFResult.Ok, StringUtilities.packLentagFields(values));
+	}
+
+	/**
+	 * Handle the SETBATCH request.  Each variable is set as with SET.
+	 * @param packed variable name and value pairs packed with StringUtilities.packLentagFields
+	 * @return STAFResult of the first failed SET, or the result of the last SET.
+	 */
+	protected STAFResult handleSetBatch(String packed){
+		String[] pairs = StringUtilities.unpackLentagFields(packed);
+		if((pairs == null)||(pairs.length % 2 != 0)) 
+			return new STAFResult(STAFResult.InvalidRequestString, SVS_SERVICE_REQUEST_SETBATCH +c+ packed);
+		STAFResult locresult = new STAFResult(STAFResult.Ok, new String());
+		for(int i=0;i<pairs.length;i+=2){
+			synchronized(tempresult){
+				setValue(pairs[i].toLowerCase(), pairs[i+1]);
+				locresult.rc = tempresult.rc;
+				locresult.result = tempresult.result;
+			}
+			if(locresult.rc != STAFResult.Ok) break;
+		}
+		return locresult;
+	}
+
 	/**
 	 * Made to be overridden by subclasses, if any.
 	 * @param deleteCmd
@@ -12,12 +12,25 @@ import java.util.*;
  * Normal Hashtable functionality prevails unless a call to affected methods does not find a match.
  * In that event, if the key is a String we will attempt to locate an appropriate String 
  * key by ignoring the case of the key.
+ * <p>
+ * A secondary index maps the case-folded form of every String key to the key as it was stored, 
+ * so a case-insensitive match costs one extra hash lookup instead of a walk over all keys, and the 
+ * original key casing is still what {@link #keys()} and {@link #findCaseInsensitiveStringKey(String)} 
+ * report.  The index is maintained by put, remove, and clear.  Keys removed through the collection 
+ * views are dropped from the index when next looked up.  Keys added through other means, like the 
+ * Map default methods, are only matched with their exact case.
  * 
  * @author canagl
  * @since Feb 23, 2005
  */
 public class CaseInsensitiveHashtable extends Hashtable {
 
+	/** 
+	 * case-folded String key --> String key as stored.  
+	 * Not initialized here because the Map constructor already puts through this class. 
+	 */
+	private transient Hashtable foldedKeys;
+
 	/**
 	 * Constructor for CaseInsensitiveHashtable.
 	 */
@@ -50,22 +63,44 @@ public class CaseInsensitiveHashtable extends Hashtable {
 		super(arg0);
 	}
 
+	/**
+	 * Returns the case-folded form of a String key.  Two keys fold to the same String 
+	 * exactly when String.equalsIgnoreCase considers them equal.
+	 */
+	static String foldCase(String key){
+		char[] chars = key.toCharArray();
+		for(int i=0;i<chars.length;i++)
+			chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+		return new String(chars);
+	}
+
+	/**
+	 * Returns the case-folded key index, building it from the current keys if needed.
+	 */
+	private Hashtable getFoldedKeys(){
+		if(foldedKeys == null){
+			foldedKeys = new Hashtable();
+			Enumeration keys = super.keys();
+			Object item = null;
+			while(keys.hasMoreElements()){
+				item = keys.nextElement();
+				if (item instanceof String) foldedKeys.put(foldCase((String)item), item);
+			}
+		}
+		return foldedKeys;
+	}
+
 	/**
 	 * Returns the proper String key or null.
 	 */
-	public String findCaseInsensitiveStringKey(String key){
+	public synchronized String findCaseInsensitiveStringKey(String key){
 		if(key==null) return null;
-		String match = null;
-		Enumeration keys = keys();
-		Object item = null;
-		while(keys.hasMoreElements()){
-			item = keys.nextElement();
-			if (item instanceof String){
-				if(((String)item).equalsIgnoreCase(key)){
-					match = (String)item;
-					break;
-				}
-			}
+		String folded = foldCase(key);
+		String match = (String) getFoldedKeys().get(folded);
+		if((match != null)&&(! super.containsKey(match))){
+			// removed through a collection view
+			foldedKeys.remove(folded);
+			match = null;
 		}
 		return match;
 	}
@@ -74,9 +109,8 @@ public class CaseInsensitiveHashtable extends Hashtable {
 	 * Override for String keys to allow case-insensitivity.
 	 * @see Hashtable#containsKey(Object)
 	 */
-	public boolean containsKey(Object key){
+	public synchronized boolean containsKey(Object key){
 		boolean match = super.containsKey(key);
-		String nckey = null;
 		if((! match)&&(key instanceof String))
 			return (findCaseInsensitiveStringKey((String)key) instanceof String);
 		return match;
@@ -86,7 +120,7 @@ public class CaseInsensitiveHashtable extends Hashtable {
 	 * Override for String keys to allow case-insensitivity.
 	 * @see Hashtable#get(Object)
 	 */
-	public Object get(Object key){
+	public synchronized Object get(Object key){
 		Object item = super.get(key);
 		if (item instanceof Object) return item;		// was found.
 		if (! (key instanceof String)) return item;	// not String key.		
@@ -99,10 +133,13 @@ public class CaseInsensitiveHashtable extends Hashtable {
 	 * Override for String keys to allow case-insensitivity.
 	 * @see Hashtable#put(Object, Object)
 	 */
-	public Object put(Object key, Object value){
+	public synchronized Object put(Object key, Object value){
 		Object nckey = null;
 		if (key instanceof String) nckey = findCaseInsensitiveStringKey((String) key);
-		if (nckey == null) nckey = key;
+		if (nckey == null){
+			nckey = key;
+			if (key instanceof String) getFoldedKeys().put(foldCase((String) key), key);
+		}
 		return super.put(nckey, value);
 	}
 
@@ -110,11 +147,30 @@ public class CaseInsensitiveHashtable extends Hashtable {
 	 * Override for String keys to allow case-insensitivity.
 	 * @see Hashtable#remove(Object)
 	 */
-	public Object remove(Object key){
+	public synchronized Object remove(Object key){
 		Object nckey = null;
 		if (key instanceof String) nckey = findCaseInsensitiveStringKey((String) key);
 		if (nckey == null) nckey = key;
+		else getFoldedKeys().remove(foldCase((String) nckey));
 		return super.remove(nckey);
 	}	
 
+	/**
+	 * Override to also clear the case-folded key index.
+	 * @see Hashtable#clear()
+	 */
+	public synchronized void clear(){
+		super.clear();
+		foldedKeys = null;
+	}
+
+	/**
+	 * Override so the clone does not share the case-folded key index.
+	 * @see Hashtable#clone()
+	 */
+	public synchronized Object clone(){
+		CaseInsensitiveHashtable copy = (CaseInsensitiveHashtable) super.clone();
+		copy.foldedKeys = null;
+		return copy;
+	}
 }
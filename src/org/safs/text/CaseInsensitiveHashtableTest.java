@@ -0,0 +1,114 @@
+/**
+ ** Copyright (C) SAS Institute, All rights reserved.
+ ** General Public License: http://www.opensource.org/licenses/gpl-license.php
+ **/
+package org.safs.text;
+
+import java.util.*;
+
+/**
+ * Times get and containsKey calls that miss the exact key case on a CaseInsensitiveHashtable
+ * of 10k and 100k keys, against the linear key scan CaseInsensitiveHashtable used before it
+ * indexed its keys by case-folded form.  Lookups are made with the keys in upper case, which
+ * are found by ignoring case, and with keys that are not in the table at all.
+ * <p>
+ * The average time per lookup should stay flat from 10k to 100k keys with the index, and
+ * grow with the number of keys with the linear scan.
+ */
+public class CaseInsensitiveHashtableTest {
+
+	/** key counts to time. */
+	public static final int[] SIZES = {10000, 100000};
+	/** lookups timed for each size and kind of lookup with the index. */
+	public static final int LOOKUPS = 100000;
+	/** lookups timed with the linear scan, which walks all keys for each of them. */
+	public static final int SCAN_LOOKUPS = 1000;
+
+	/** the lookup of CaseInsensitiveHashtable before the case-folded key index. */
+	static class LinearScanHashtable extends Hashtable {
+		public String findCaseInsensitiveStringKey(String key){
+			if(key==null) return null;
+			Enumeration keys = keys();
+			Object item = null;
+			while(keys.hasMoreElements()){
+				item = keys.nextElement();
+				if ((item instanceof String)&&(((String)item).equalsIgnoreCase(key))) return (String)item;
+			}
+			return null;
+		}
+		public boolean containsKey(Object key){
+			boolean match = super.containsKey(key);
+			if((! match)&&(key instanceof String))
+				return (findCaseInsensitiveStringKey((String)key) instanceof String);
+			return match;
+		}
+		public Object get(Object key){
+			Object item = super.get(key);
+			if (item instanceof Object) return item;
+			if (! (key instanceof String)) return item;
+			String nckey = findCaseInsensitiveStringKey((String)key);
+			if (nckey instanceof String) return super.get(nckey);
+			return item;
+		}
+		/** the old put scanned too, the keys are unique so they are put with their exact case. */
+		void putExact(Object key, Object value){
+			super.put(key, value);
+		}
+	}
+
+	static String key(int i){ return "appMapItem"+ i; }
+
+	static void fill(Map table, int size){
+		for(int i=0;i<size;i++){
+			if(table instanceof LinearScanHashtable) ((LinearScanHashtable)table).putExact(key(i), "value"+ i);
+			else table.put(key(i), "value"+ i);
+		}
+	}
+
+	/** @return String[] lookup keys: the stored keys in upper case, or keys that are not stored. */
+	static String[] lookups(int size, int count, boolean found){
+		String[] keys = new String[count];
+		Random random = new Random(size);
+		for(int i=0;i<count;i++){
+			keys[i] = found ? key(random.nextInt(size)).toUpperCase(): "missing"+ i;
+		}
+		return keys;
+	}
+
+	/** @return long, the nanoseconds per lookup. */
+	static long time(Map table, String[] keys, boolean get){
+		int hits = 0;
+		long start = System.nanoTime();
+		for(int i=0;i<keys.length;i++){
+			if(get){
+				if(table.get(keys[i])!=null) hits++;
+			}else{
+				if(table.containsKey(keys[i])) hits++;
+			}
+		}
+		long nanos = (System.nanoTime()-start)/keys.length;
+		if(hits!=0 && hits!=keys.length) System.out.println("FAILED: "+ hits +" of "+ keys.length +" keys found.");
+		return nanos;
+	}
+
+	static void run(String name, Map table, int size, int count){
+		fill(table, size);
+		String[] found = lookups(size, count, true);
+		String[] missing = lookups(size, count, false);
+		//warm up
+		time(table, found, true);
+		time(table, missing, false);
+		System.out.println(name +" "+ size +" keys, "+ count +" lookups:"+
+			" get other case "+ time(table, found, true) +"ns,"+
+			" containsKey other case "+ time(table, found, false) +"ns,"+
+			" get missing "+ time(table, missing, true) +"ns,"+
+			" containsKey missing "+ time(table, missing, false) +"ns per lookup");
+	}
+
+	public static void main(String[] args) {
+		for(int i=0;i<SIZES.length;i++){
+			run("CaseInsensitiveHashtable", new CaseInsensitiveHashtable(), SIZES[i], LOOKUPS);
+			run("linear scan             ", new LinearScanHashtable(), SIZES[i], SCAN_LOOKUPS);
+		}
+	}
+}
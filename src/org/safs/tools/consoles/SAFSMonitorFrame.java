@@ -367,6 +367,8 @@ public class SAFSMonitorFrame extends JFrame implements ActionListener, KeyListe
 		try{
 			if (staf == null) registerSTAF();
 			staf.setVariable(DriverInterface.DRIVER_CONTROL_VAR, action);
+			//wake a driver running in this JVM at once
+			DefaultDriver.DRIVER_CONTROL.post(action);
 			setStatus();
 		}catch(Exception x){
 			processException(x);
@@ -40,7 +40,29 @@ public abstract class AbstractInputProcessor implements DriverInterface {
      * to override the implementation of an internal command.
      */
     public static boolean PREFERRED_ENGINES_OVERRIDE = false;
-    
+
+    /**
+     * Send a keyword straight to the engine that last handled it.
+     * By default, records are offered to each engine in turn until one of them executes
+     * the record.  Setting this boolean to FALSE disables the learned routes.
+     * @see #ENGINE_ROUTES
+     */
+    public static boolean USE_ENGINE_ROUTING_CACHE = true;
+
+    /** The learned keyword-to-engine routes shared by all input processors. */
+    public static final EngineRoutingCache ENGINE_ROUTES = new EngineRoutingCache();
+
+    /**
+     * Resolve records without variable references or expressions in the driver, and skip
+     * writes of unchanged values to SAFSVARS.  Setting this boolean to FALSE sends every 
+     * record and every write to SAFSVARS.
+     * @see #VARIABLE_CACHE
+     */
+    public static boolean USE_VARIABLE_FRONT_CACHE = true;
+
+    /** The SAFSVARS front cache shared by all input processors. */
+    public static final VariableFrontCache VARIABLE_CACHE = new VariableFrontCache();
+
 	/** The parent DriverInterface app running the test. **/
 	protected DriverInterface  driver        = null;
 
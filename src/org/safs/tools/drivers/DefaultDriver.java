@@ -31,6 +31,7 @@ import org.safs.tools.engines.EngineInterface;
 import org.safs.tools.engines.SAFSDRIVERCOMMANDS;
 import org.safs.tools.engines.TIDComponent;
 import org.safs.tools.engines.TIDDriverCommands;
+import org.safs.tools.expression.SafsExpression;
 import org.safs.tools.input.InputInterface;
 import org.safs.tools.input.MapsInterface;
 import org.safs.tools.logs.LogsInterface;
@@ -39,6 +40,7 @@ import org.safs.tools.ocr.OCREngine;
 import org.safs.tools.stacks.StacksInterface;
 import org.safs.tools.status.SAFSSTATUS;
 import org.safs.tools.stringutils.StringUtilities;
+import org.safs.tools.vars.SAFSVARS;
 import org.safs.tools.vars.VarsInterface;
 
 /**
@@ -100,6 +102,20 @@ public abstract class DefaultDriver extends AbstractDriver {
 	protected UniqueStringLogInfo cycleLog = null;	
 	protected UniqueStringLogInfo suiteLog = null;	
 	protected UniqueStringLogInfo stepLog = null;
+
+	/**
+	 * The memory policy applied after each test record, in place of a System.gc() per record.
+	 * By default, no collection is requested and allocations are not monitored.
+	 * @see MemoryPressurePolicy
+	 */
+	public static final MemoryPressurePolicy MEMORY_POLICY = new MemoryPressurePolicy();
+
+	/**
+	 * The SAFS_DRIVER_CONTROL status seen by the drivers, with pause, step, retry and shutdown
+	 * requests made in this JVM pushed to them instead of polled from SAFSVARS.
+	 * @see DriverControl
+	 */
+	public static final DriverControl DRIVER_CONTROL = new DriverControl();
 	
 	public boolean isUseSAFSMonitor() {
 		return useSAFSMonitor;
@@ -672,6 +688,7 @@ public abstract class DefaultDriver extends AbstractDriver {
 
 			vars = (VarsInterface) getGenericInterface(DriverConstant.SECTION_SAFS_VARS,
 			                                             DriverConstant.DEFAULT_VARS_INTERFACE);
+			if(vars instanceof SAFSVARS) ((SAFSVARS)vars).setDriverControl(DRIVER_CONTROL);
 
 			logs = (LogsInterface) getGenericInterface(DriverConstant.SECTION_SAFS_LOGS,
 			                                             DriverConstant.DEFAULT_LOGS_INTERFACE);
@@ -780,7 +797,7 @@ public abstract class DefaultDriver extends AbstractDriver {
 			vars.setValue("safsdifdirectory", difSource + File.separatorChar);
 			vars.setValue("safslogsdirectory", logsSource + File.separatorChar);	
 			vars.setValue("safssystemuserid", System.getProperty("user.name"));
-			vars.setValue(DRIVER_CONTROL_VAR, JavaHook.RUNNING_EXECUTION);
+			DRIVER_CONTROL.setStatus(vars, JavaHook.RUNNING_EXECUTION);
 			vars.setValue(DRIVER_CONTROL_POF_VAR,JavaHook.PAUSE_SWITCH_OFF);  // set PAUSE_ON_FAILURE off as default
 			vars.setValue(DRIVER_CONTROL_POW_VAR,JavaHook.PAUSE_SWITCH_OFF);  // set PAUSE_ON_WARNING off as default
 
@@ -810,6 +827,7 @@ public abstract class DefaultDriver extends AbstractDriver {
 	 *   <li>"PreferredEnginesOverride"
 	 *   <li>"BringMonitorToFrontOnPause"
 	 *   <li>"TurnOnPOF"
+	 *   <li>"DriverControlPollInterval"
 	 * </ul>
 	 * 
 	 */
@@ -825,6 +843,49 @@ public abstract class DefaultDriver extends AbstractDriver {
 			ImageUtils.DIVIDE_PIECES = Integer.parseInt(threadNumber);
 			Log.info("SAFS_IBT:ThreadNumber set to: "+ ImageUtils.DIVIDE_PIECES);
 		}
+		String prefilter = configInfo.getNamedValue(DriverConstant.SECTION_SAFS_IBT, "UseIntegralPrefilter");
+		if(prefilter!=null) {
+			ImageUtils.USE_INTEGRAL_PREFILTER = StringUtilities.convertBool(prefilter);
+			Log.info("SAFS_IBT:UseIntegralPrefilter set to: "+ ImageUtils.USE_INTEGRAL_PREFILTER);
+		}
+		String packed = configInfo.getNamedValue(DriverConstant.SECTION_SAFS_IBT, "UsePackedPixels");
+		if(packed!=null) {
+			ImageUtils.USE_PACKED_PIXELS = StringUtilities.convertBool(packed);
+			Log.info("SAFS_IBT:UsePackedPixels set to: "+ ImageUtils.USE_PACKED_PIXELS);
+		}
+		String pyramid = configInfo.getNamedValue(DriverConstant.SECTION_SAFS_IBT, "UseImagePyramid");
+		if(pyramid!=null) {
+			ImageUtils.USE_IMAGE_PYRAMID = StringUtilities.convertBool(pyramid);
+			Log.info("SAFS_IBT:UseImagePyramid set to: "+ ImageUtils.USE_IMAGE_PYRAMID);
+		}
+		String pyramidArea = configInfo.getNamedValue(DriverConstant.SECTION_SAFS_IBT, "ImagePyramidMinArea");
+		if(pyramidArea!=null) {
+			try{
+				ImageUtils.IMAGE_PYRAMID_MIN_AREA = Integer.parseInt(pyramidArea.trim());
+				Log.info("SAFS_IBT:ImagePyramidMinArea set to: "+ ImageUtils.IMAGE_PYRAMID_MIN_AREA);
+			}catch(NumberFormatException x){
+				Log.warn("SAFS_IBT:ImagePyramidMinArea ignoring invalid value: "+ pyramidArea);
+			}
+		}
+		String imageCache = configInfo.getNamedValue(DriverConstant.SECTION_SAFS_IBT, "UseImageCache");
+		if(imageCache!=null) {
+			ImageUtils.USE_IMAGE_CACHE = StringUtilities.convertBool(imageCache);
+			Log.info("SAFS_IBT:UseImageCache set to: "+ ImageUtils.USE_IMAGE_CACHE);
+		}
+		String imageCacheSize = configInfo.getNamedValue(DriverConstant.SECTION_SAFS_IBT, "ImageCacheSize");
+		if(imageCacheSize!=null) {
+			try{
+				ImageUtils.STORED_IMAGES.setCapacity(Integer.parseInt(imageCacheSize.trim()));
+				Log.info("SAFS_IBT:ImageCacheSize set to: "+ ImageUtils.STORED_IMAGES.getCapacity());
+			}catch(NumberFormatException x){
+				Log.warn("SAFS_IBT:ImageCacheSize ignoring invalid value: "+ imageCacheSize);
+			}
+		}
+		String dirtyCapture = configInfo.getNamedValue(DriverConstant.SECTION_SAFS_IBT, "UseDirtyRegionCapture");
+		if(dirtyCapture!=null) {
+			ImageUtils.USE_DIRTY_REGION_CAPTURE = StringUtilities.convertBool(dirtyCapture);
+			Log.info("SAFS_IBT:UseDirtyRegionCapture set to: "+ ImageUtils.USE_DIRTY_REGION_CAPTURE);
+		}
 		String modifiers = configInfo.getNamedValue(DriverConstant.SECTION_SAFS_IBT, "UsePerImageModifiers");
 		if(modifiers!=null) {
 			ImageUtils.USE_PER_IMAGE_MODIFIERS = StringUtilities.convertBool(modifiers);		
@@ -842,6 +903,94 @@ public abstract class DefaultDriver extends AbstractDriver {
 			AbstractInputProcessor.PREFERRED_ENGINES_OVERRIDE = StringUtilities.convertBool(preferredOverride);		
 			Log.info("SAFS_DRIVER:PreferredEnginesOverride set to: "+ AbstractInputProcessor.PREFERRED_ENGINES_OVERRIDE);
 		}
+		//set UseEngineRoutingCache of section SAFS_DRIVER
+		String routingCache = configInfo.getNamedValue(DriverConstant.SECTION_SAFS_DRIVER, "UseEngineRoutingCache");
+		if(routingCache!=null) {
+			AbstractInputProcessor.USE_ENGINE_ROUTING_CACHE = StringUtilities.convertBool(routingCache);
+			Log.info("SAFS_DRIVER:UseEngineRoutingCache set to: "+ AbstractInputProcessor.USE_ENGINE_ROUTING_CACHE);
+		}
+		//set UseAppMapCache of section SAFS_DRIVER.  The Driver opens and closes the App Maps, so it is on by default.
+		String appMapCache = configInfo.getNamedValue(DriverConstant.SECTION_SAFS_DRIVER, "UseAppMapCache");
+		STAFHelper.USE_APPMAP_ITEM_CACHE = (appMapCache==null) ? true : StringUtilities.convertBool(appMapCache);
+		Log.info("SAFS_DRIVER:UseAppMapCache set to: "+ STAFHelper.USE_APPMAP_ITEM_CACHE);
+		//set UseVariableFrontCache of section SAFS_DRIVER
+		String variableCache = configInfo.getNamedValue(DriverConstant.SECTION_SAFS_DRIVER, "UseVariableFrontCache");
+		if(variableCache!=null) {
+			AbstractInputProcessor.USE_VARIABLE_FRONT_CACHE = StringUtilities.convertBool(variableCache);
+			Log.info("SAFS_DRIVER:UseVariableFrontCache set to: "+ AbstractInputProcessor.USE_VARIABLE_FRONT_CACHE);
+		}
+		//set UseCompiledExpressions of section SAFS_DRIVER
+		String compiledExpressions = configInfo.getNamedValue(DriverConstant.SECTION_SAFS_DRIVER, "UseCompiledExpressions");
+		if(compiledExpressions!=null) {
+			SafsExpression.USE_COMPILED_EXPRESSIONS = StringUtilities.convertBool(compiledExpressions);
+			Log.info("SAFS_DRIVER:UseCompiledExpressions set to: "+ SafsExpression.USE_COMPILED_EXPRESSIONS);
+		}
+		//set CompiledExpressionCacheSize of section SAFS_DRIVER
+		String expressionCacheSize = configInfo.getNamedValue(DriverConstant.SECTION_SAFS_DRIVER, "CompiledExpressionCacheSize");
+		if(expressionCacheSize!=null) {
+			try{
+				SafsExpression.COMPILED_EXPRESSIONS.setCapacity(Integer.parseInt(expressionCacheSize.trim()));
+				Log.info("SAFS_DRIVER:CompiledExpressionCacheSize set to: "+ SafsExpression.COMPILED_EXPRESSIONS.getCapacity());
+			}catch(NumberFormatException x){
+				Log.warn("SAFS_DRIVER:CompiledExpressionCacheSize ignoring invalid value: "+ expressionCacheSize);
+			}
+		}
+		//set MonitorRecordMemory of section SAFS_DRIVER
+		String monitorMemory = configInfo.getNamedValue(DriverConstant.SECTION_SAFS_DRIVER, "MonitorRecordMemory");
+		if(monitorMemory!=null) {
+			MEMORY_POLICY.setMonitor(StringUtilities.convertBool(monitorMemory));
+			Log.info("SAFS_DRIVER:MonitorRecordMemory set to: "+ MEMORY_POLICY.isMonitor());
+		}
+		//set GCHeapThreshold of section SAFS_DRIVER, a percent of the maximum heap
+		String gcThreshold = configInfo.getNamedValue(DriverConstant.SECTION_SAFS_DRIVER, "GCHeapThreshold");
+		if(gcThreshold!=null) {
+			try{
+				MEMORY_POLICY.setThreshold(Integer.parseInt(gcThreshold.trim()));
+				Log.info("SAFS_DRIVER:GCHeapThreshold set to: "+ MEMORY_POLICY.getThreshold());
+			}catch(NumberFormatException x){
+				Log.warn("SAFS_DRIVER:GCHeapThreshold ignoring invalid value: "+ gcThreshold);
+			}
+		}
+		//set GCMinInterval of section SAFS_DRIVER, in milliseconds
+		String gcInterval = configInfo.getNamedValue(DriverConstant.SECTION_SAFS_DRIVER, "GCMinInterval");
+		if(gcInterval!=null) {
+			try{
+				MEMORY_POLICY.setMinInterval(Long.parseLong(gcInterval.trim()));
+				Log.info("SAFS_DRIVER:GCMinInterval set to: "+ MEMORY_POLICY.getMinInterval());
+			}catch(NumberFormatException x){
+				Log.warn("SAFS_DRIVER:GCMinInterval ignoring invalid value: "+ gcInterval);
+			}
+		}
+		//set DriverControlPollInterval of section SAFS_DRIVER, in milliseconds
+		String controlInterval = configInfo.getNamedValue(DriverConstant.SECTION_SAFS_DRIVER, "DriverControlPollInterval");
+		if(controlInterval!=null) {
+			try{
+				DRIVER_CONTROL.setPollInterval(Long.parseLong(controlInterval.trim()));
+				Log.info("SAFS_DRIVER:DriverControlPollInterval set to: "+ DRIVER_CONTROL.getPollInterval());
+			}catch(NumberFormatException x){
+				Log.warn("SAFS_DRIVER:DriverControlPollInterval ignoring invalid value: "+ controlInterval);
+			}
+		}
+		//set UseProcessorClassCache of section SAFS_DRIVER
+		String processorClassCache = configInfo.getNamedValue(DriverConstant.SECTION_SAFS_DRIVER, "UseProcessorClassCache");
+		if(processorClassCache!=null) {
+			Processor.USE_PROCESSOR_CLASS_CACHE = StringUtilities.convertBool(processorClassCache);
+			Log.info("SAFS_DRIVER:UseProcessorClassCache set to: "+ Processor.USE_PROCESSOR_CLASS_CACHE);
+		}
+		//set WarmUpProcessorClasses of section SAFS_DRIVER
+		String warmUpClasses = configInfo.getNamedValue(DriverConstant.SECTION_SAFS_DRIVER, "WarmUpProcessorClasses");
+		if(warmUpClasses!=null) {
+			Processor.WARM_UP_PROCESSOR_CLASSES = StringUtilities.convertBool(warmUpClasses);
+			Log.info("SAFS_DRIVER:WarmUpProcessorClasses set to: "+ Processor.WARM_UP_PROCESSOR_CLASSES);
+		}
+		//set WarmUpComponentTypes of section SAFS_DRIVER, a comma-separated list
+		String warmUpTypes = configInfo.getNamedValue(DriverConstant.SECTION_SAFS_DRIVER, "WarmUpComponentTypes");
+		if(warmUpTypes!=null && warmUpTypes.trim().length() > 0) {
+			String[] types = warmUpTypes.split(",");
+			for(int i=0;i<types.length;i++) types[i] = types[i].trim();
+			Processor.WARM_UP_COMPONENT_TYPES = types;
+			Log.info("SAFS_DRIVER:WarmUpComponentTypes set to: "+ warmUpTypes);
+		}
 		//set BringMonitorToFrontOnPause of section SAFS_DRIVER
 		String bringMonitorToFrontOnPause = configInfo.getNamedValue(DriverConstant.SECTION_SAFS_DRIVER, "BringMonitorToFrontOnPause");
 		if(bringMonitorToFrontOnPause!=null){
@@ -926,6 +1075,16 @@ public abstract class DefaultDriver extends AbstractDriver {
 		engines.removeAllElements();
 		enginePreference.clear();
 		engineObjects.clear();
+		Log.info(AbstractInputProcessor.ENGINE_ROUTES.toString());
+		AbstractInputProcessor.ENGINE_ROUTES.clear();
+		Log.info(ImageUtils.STORED_IMAGES.toString());
+		ImageUtils.STORED_IMAGES.clear();
+		Log.info(STAFHelper.APPMAP_ITEMS.toString());
+		STAFHelper.APPMAP_ITEMS.clear();
+		Log.info(SafsExpression.COMPILED_EXPRESSIONS.toString());
+		SafsExpression.COMPILED_EXPRESSIONS.clear();
+		Log.info(Processor.PROCESSOR_CLASSES.toString());
+		Processor.PROCESSOR_CLASSES.clear();
 
 		if(tidcommands !=null) tidcommands.shutdown();
 		if(tidcomponent !=null) tidcomponent.shutdown();
@@ -1000,6 +1159,10 @@ public abstract class DefaultDriver extends AbstractDriver {
 		    System.out.println("Launching SAFS Monitor...");
 		    safsmonitor = new SAFSMonitorFrame();
 		    safsmonitor.setDriver(this);
+		    //the monitor pushes its changes, so SAFSVARS need not be read for every record
+		    DRIVER_CONTROL.setPollInterval(DriverControl.MONITOR_POLL_INTERVAL);
+		}else{
+		    DRIVER_CONTROL.setPollInterval(0);
 		}
 	}
 	
@@ -1045,12 +1208,16 @@ public abstract class DefaultDriver extends AbstractDriver {
 		    System.out.println("Initializing Runtime Interfaces...");
 		    initializeRuntimeInterface();
 		    launchSAFSMonitor();
+		    //forget the variables written by an earlier run in this JVM
+		    AbstractInputProcessor.VARIABLE_CACHE.clear();
 		    initializePresetVariables();
 		    initializeMiscConfigInfo();
 		    initializeRuntimeEngines();
 		    openTestLogs();
 		    
 		    statuscounts = processTest();
+		    if(MEMORY_POLICY.isMonitor()) Log.info(MEMORY_POLICY.getReport());
+		    if(AbstractInputProcessor.USE_VARIABLE_FRONT_CACHE) Log.info(AbstractInputProcessor.VARIABLE_CACHE.toString());
 		}
 		catch(IllegalArgumentException iae){ System.err.println("Driver "+ iae.getClass().getSimpleName()+": "+ iae.getMessage());	}
 		    
@@ -663,6 +663,63 @@ public class DriverConstant extends JavaConstant{
 		 * JVM command line: -Dsafs.selenium.console.state=MAX|MIN|NORMAL|MAXIMIZE|MINIMIZE **/
 		public static final String PROPERTY_CONSOLE_STATE ="safs.selenium.console.state";
 		
+		/** 
+		 * "USE_ELEMENT_CACHE" set to false to search for every window and component again on each
+		 * test step instead of reusing the WebElements found, while they are not stale.  Default is true.
+		 * */
+		public static final String ITEM_USE_ELEMENT_CACHE ="USE_ELEMENT_CACHE";
+	    /** "safs.selenium.element.cache" set to false to turn off the WebElement cache<br>
+		 * JVM command line: -Dsafs.selenium.element.cache=true|false **/
+		public static final String PROPERTY_USE_ELEMENT_CACHE ="safs.selenium.element.cache";
+		
+		/** 
+		 * "USE_PAGE_TRACKER" set to false to detect page changes by waiting 2 seconds and comparing the URL,
+		 * instead of reading the state of a tracker installed in the page.  Default is true.
+		 * */
+		public static final String ITEM_USE_PAGE_TRACKER ="USE_PAGE_TRACKER";
+	    /** "safs.selenium.page.tracker" set to false to turn off the page tracker<br>
+		 * JVM command line: -Dsafs.selenium.page.tracker=true|false **/
+		public static final String PROPERTY_USE_PAGE_TRACKER ="safs.selenium.page.tracker";
+		
+		/** 
+		 * "USE_BROWSER_RECOGNITION" set to true to resolve recognition strings in the browser with one javascript call,
+		 * instead of searching them level by level with WebDriver calls.  Default is false.
+		 * */
+		public static final String ITEM_USE_BROWSER_RECOGNITION ="USE_BROWSER_RECOGNITION";
+	    /** "safs.selenium.browser.recognition" set to true to resolve recognition strings in the browser<br>
+		 * JVM command line: -Dsafs.selenium.browser.recognition=true|false **/
+		public static final String PROPERTY_USE_BROWSER_RECOGNITION ="safs.selenium.browser.recognition";
+		
+		/** 
+		 * "USE_CONTENT_SNAPSHOT" set to false to get the content of a tree by searching its nodes with WebDriver calls,
+		 * instead of taking a snapshot of it with javascript.  Default is true.
+		 * */
+		public static final String ITEM_USE_CONTENT_SNAPSHOT ="USE_CONTENT_SNAPSHOT";
+	    /** "safs.selenium.content.snapshot" set to false to get the content of a tree with WebDriver calls<br>
+		 * JVM command line: -Dsafs.selenium.content.snapshot=true|false **/
+		public static final String PROPERTY_USE_CONTENT_SNAPSHOT ="safs.selenium.content.snapshot";
+		
+		/** 
+		 * "SNAPSHOT_CHUNK_SIZE" the maximum number of tree nodes returned by one javascript call while taking a snapshot.
+		 * Default is 1000.
+		 * */
+		public static final String ITEM_SNAPSHOT_CHUNK_SIZE ="SNAPSHOT_CHUNK_SIZE";
+	    /** "safs.selenium.snapshot.chunk.size" the maximum number of tree nodes returned by one javascript call<br>
+		 * JVM command line: -Dsafs.selenium.snapshot.chunk.size=&lt;n> **/
+		public static final String PROPERTY_SNAPSHOT_CHUNK_SIZE ="safs.selenium.snapshot.chunk.size";
+		
+		/** 
+		 * "WEBDRIVER_POOL_SIZE" the number of started browser sessions to keep, per browser and capabilities, for
+		 * StartWebBrowser to reuse.  Stopped browsers are recycled into the pool instead of being quit.
+		 * A recycled browser does not guarantee test isolation: only the cookies and storage of the origin it
+		 * visited are cleared, not third-party iframe cookies, IndexedDB, service workers or the HTTP cache.
+		 * Default is 0, no sessions are pooled.
+		 * */
+		public static final String ITEM_WEBDRIVER_POOL_SIZE ="WEBDRIVER_POOL_SIZE";
+	    /** "safs.selenium.webdriver.pool.size" the number of started browser sessions to keep for reuse<br>
+		 * JVM command line: -Dsafs.selenium.webdriver.pool.size=&lt;n> **/
+		public static final String PROPERTY_WEBDRIVER_POOL_SIZE ="safs.selenium.webdriver.pool.size";
+		
 	}
 	
 	/** "GATEWAYHOST" define the HTTP PROXY host name to connect Internet
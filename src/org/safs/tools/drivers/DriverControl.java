@@ -0,0 +1,133 @@
+/** Copyright (C) (SAS) All rights reserved.
+ ** General Public License: http://www.opensource.org/licenses/gpl-license.php
+ **/
+package org.safs.tools.drivers;
+
+import org.safs.JavaHook;
+import org.safs.tools.vars.SimpleVarsInterface;
+
+/**
+ * The SAFS_DRIVER_CONTROL status as seen by the drivers, with the changes made in this JVM pushed to them.
+ * <p>
+ * The drivers used to read {@link DriverInterface#DRIVER_CONTROL_VAR} from SAFSVARS after every record, and to
+ * sleep and read it again while paused.  Now a waiting driver is woken at once when the status is pushed with
+ * {@link #post(String)}.  A SAFS_DRIVER_CONTROL set through {@link org.safs.tools.vars.SAFSVARS#setValue(String, String)}
+ * is pushed there, once; writers that go to the STAF service directly, like the SAFSMonitorFrame running in the
+ * same JVM, push it themselves.  The status is forgotten after a record naming SAFS_DRIVER_CONTROL, since it may
+ * have assigned it.
+ * <p>
+ * While the status is RUNNING, SAFSVARS is read at most once every {@link #getPollInterval()} milliseconds, so
+ * that a change made by another process is still seen, up to that many milliseconds late.  The poll interval is 0
+ * by default, reading SAFSVARS for every record; {@link DefaultDriver} sets {@link #MONITOR_POLL_INTERVAL} when it
+ * runs the SAFSMonitorFrame in its own JVM.  While the status is not RUNNING, SAFSVARS is always read.
+ *
+ * @see DefaultDriver#DRIVER_CONTROL
+ * @see InputProcessor#processTest()
+ * @see JSAFSDriver#processCommand(org.safs.model.AbstractCommand, String)
+ */
+public class DriverControl {
+
+	/** the last status read or pushed, or null if unknown. */
+	private String status = null;
+	/** when the status was last read or pushed, in milliseconds. */
+	private long statusTime = 0;
+	/** incremented with each push, so a waiting driver knows it was woken by one. */
+	private long changes = 0;
+
+	/** 1000 milliseconds, the poll interval used while the SAFSMonitorFrame runs in this JVM. */
+	public static final long MONITOR_POLL_INTERVAL = 1000;
+
+	private long pollInterval = 0;
+
+	private long reads = 0;
+	private long skips = 0;
+	private long pushes = 0;
+
+	/** @param millis long, the most milliseconds to trust a RUNNING status before reading SAFSVARS again; 0 to always read it. */
+	public synchronized void setPollInterval(long millis){ pollInterval = millis; }
+
+	/** @return the most milliseconds a RUNNING status is trusted before reading SAFSVARS again. */
+	public synchronized long getPollInterval(){ return pollInterval; }
+
+	/**
+	 * Get the SAFS_DRIVER_CONTROL status.
+	 * @param vars SimpleVarsInterface, to read SAFSVARS if the known status cannot be trusted.
+	 * @return the status, or an empty String.
+	 */
+	public String getStatus(SimpleVarsInterface vars){
+		long change;
+		synchronized(this){
+			if(status!=null && status.equalsIgnoreCase(JavaHook.RUNNING_EXECUTION) &&
+			   System.currentTimeMillis()-statusTime < pollInterval){
+				skips++;
+				return status;
+			}
+			reads++;
+			change = changes;
+		}
+		String value = vars.getValue(DriverInterface.DRIVER_CONTROL_VAR);
+		synchronized(this){
+			//a status pushed while reading is newer than the value read
+			if(change!=changes) return status;
+			status = value;
+			statusTime = System.currentTimeMillis();
+		}
+		return value;
+	}
+
+	/**
+	 * Set the SAFS_DRIVER_CONTROL status in SAFSVARS.  SAFSVARS pushes it to the drivers.
+	 * @param vars SimpleVarsInterface, to set the SAFSVARS variable.
+	 * @param value String, the new status, like JavaHook.PAUSE_EXECUTION.
+	 * @see org.safs.tools.vars.SAFSVARS#setDriverControl(DriverControl)
+	 */
+	public void setStatus(SimpleVarsInterface vars, String value){
+		vars.setValue(DriverInterface.DRIVER_CONTROL_VAR, value);
+	}
+
+	/**
+	 * Push a status already set in SAFSVARS to the drivers, and wake any driver waiting in {@link #await(long)}.
+	 * @param value String, the new status.
+	 */
+	public synchronized void post(String value){
+		status = value;
+		statusTime = System.currentTimeMillis();
+		changes++;
+		pushes++;
+		notifyAll();
+	}
+
+	/**
+	 * Wait for a status to be pushed, as while paused.
+	 * @param millis long, the most milliseconds to wait before the caller reads SAFSVARS again.
+	 */
+	public synchronized void await(long millis){
+		long change = changes;
+		long end = System.currentTimeMillis()+ millis;
+		long wait = millis;
+		while(change==changes && wait>0){
+			try{ wait(wait); }catch(InterruptedException x){ return; }
+			wait = end - System.currentTimeMillis();
+		}
+	}
+
+	/** @return the number of times SAFSVARS was read. */
+	public synchronized long getReads(){ return reads; }
+
+	/** @return the number of times a RUNNING status was returned without reading SAFSVARS. */
+	public synchronized long getSkips(){ return skips; }
+
+	/** @return the number of statuses pushed. */
+	public synchronized long getPushes(){ return pushes; }
+
+	/** Forget the known status, so that the next {@link #getStatus(SimpleVarsInterface)} reads SAFSVARS. */
+	public synchronized void clear(){
+		status = null;
+		statusTime = 0;
+	}
+
+	public synchronized String toString(){
+		return "DriverControl status:"+ status +", poll interval:"+ pollInterval +", reads:"+ reads +
+		       ", skips:"+ skips +", pushes:"+ pushes;
+	}
+}
@@ -0,0 +1,123 @@
+/** Copyright (C) (SAS) All rights reserved.
+ ** General Public License: http://www.opensource.org/licenses/gpl-license.php
+ **/
+package org.safs.tools.drivers;
+
+import java.util.HashMap;
+import java.util.ListIterator;
+import java.util.Map;
+
+import org.safs.tools.engines.EngineInterface;
+
+/**
+ * A learned routing table of which engine last handled a given keyword.
+ * <p>
+ * The InputProcessor normally offers each record to every engine in turn until one of them
+ * stops returning STATUS_SCRIPT_NOT_EXECUTED.  Each refusal is a full round trip to the engine.
+ * This table remembers the engine that accepted a keyword so the next record with the same
+ * key can be sent straight to it.  On a miss the caller falls back to the full engine chain.
+ * <p>
+ * The table is shared by all InputProcessors of a Driver and is cleared whenever the engine
+ * preferences change, so a newly preferred engine always gets its chance at each keyword.
+ *
+ * @see InputProcessor#routeToLearnedEngine(org.safs.TestRecordHelper, String)
+ * @see AbstractInputProcessor#USE_ENGINE_ROUTING_CACHE
+ */
+public class EngineRoutingCache {
+
+	/** routing key --> EngineInterface that last handled it */
+	private Map<String,EngineInterface> routes = new HashMap<String,EngineInterface>();
+
+	/** the engine preferences in effect when the stored routes were learned */
+	private String preferences = "";
+
+	private long hits = 0;
+	private long misses = 0;
+
+	/**
+	 * Build the routing key for a record.
+	 * @param recordType the record type, like "C" or "T".
+	 * @param window the window name of a component function, or null.
+	 * @param component the component name of a component function, or null.
+	 * @param command the driver command or component action.
+	 * @return the case-insensitive key used to store the route.
+	 */
+	public static String getKey(String recordType, String window, String component, String command){
+		StringBuffer key = new StringBuffer(recordType);
+		if(window != null) key.append(':').append(window);
+		if(component != null) key.append(':').append(component);
+		key.append(':').append(command);
+		return key.toString().toUpperCase();
+	}
+
+	/**
+	 * Discard all stored routes if the engine preferences have changed since they were learned.
+	 * @param driver provides the current engine preferences.
+	 */
+	private void checkPreferences(DriverInterface driver){
+		StringBuffer current = new StringBuffer();
+		if(driver.hasEnginePreferences()){
+			ListIterator<?> list = driver.getEnginePreferences();
+			while(list.hasNext()) current.append(list.next()).append(';');
+		}
+		String prefs = current.toString();
+		if(! prefs.equals(preferences)){
+			routes.clear();
+			preferences = prefs;
+		}
+	}
+
+	/**
+	 * Get the engine that last handled the key, if it is still one of the driver's running engines.
+	 * @param driver the driver whose engines and engine preferences are in effect.
+	 * @param key routing key from {@link #getKey(String, String, String, String)}
+	 * @return the learned engine or null if none.
+	 */
+	public synchronized EngineInterface getEngine(DriverInterface driver, String key){
+		checkPreferences(driver);
+		EngineInterface engine = routes.get(key);
+		if(engine == null) return null;
+		ListIterator<?> list = driver.getEngines();
+		while(list.hasNext()) if(list.next() == engine) return engine;
+		routes.remove(key);
+		return null;
+	}
+
+	/**
+	 * Store the engine that handled the key.
+	 */
+	public synchronized void learn(String key, EngineInterface engine){
+		routes.put(key, engine);
+	}
+
+	/**
+	 * Remove the route for a key after the learned engine did not handle the record.
+	 */
+	public synchronized void forget(String key){
+		routes.remove(key);
+	}
+
+	/** Record that a learned engine handled the record. */
+	public synchronized void hit(){ hits++; }
+
+	/** Record that a record had to go through the full engine chain. */
+	public synchronized void miss(){ misses++; }
+
+	/** @return the number of records handled by their learned engine. */
+	public synchronized long getHits(){ return hits; }
+
+	/** @return the number of records that went through the full engine chain. */
+	public synchronized long getMisses(){ return misses; }
+
+	/** Discard all routes and reset the hit and miss counters. */
+	public synchronized void clear(){
+		routes.clear();
+		preferences = "";
+		hits = 0;
+		misses = 0;
+	}
+
+	public synchronized String toString(){
+		return "EngineRoutingCache routes:"+ routes.size() +", hits:"+ hits +", misses:"+ misses;
+	}
+}
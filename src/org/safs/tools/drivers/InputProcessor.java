@@ -66,6 +66,15 @@ public class InputProcessor extends AbstractInputProcessor {
 	private boolean isSuite = false;
 	private boolean isStep  = false;
     private String activeTableVar = null;
+
+    /** The engine that executed the record in the last routeToPreferredEngines or routeToEngines call. */
+    private EngineInterface routedEngine = null;
+    /** A learned engine that already refused the current record. It is skipped by the engine chain. */
+    private EngineInterface refusedEngine = null;
+    /** True if the refusedEngine was told MORE_ENGINES, so its refusal may hide a failure of its own. */
+    private boolean refusedWithMoreEngines = false;
+    /** The status info of the record before it was routed to the refusedEngine. */
+    private String refusedStatus = null;
     
 	/***************************************************************************
 	 * Constructor for InputProcessor
@@ -255,12 +264,14 @@ public class InputProcessor extends AbstractInputProcessor {
 					enginename = (String) list.next();
 					Log.info("InputProcessor trying preferred engine '"+ enginename +"'");
 					EngineInterface theEngine = getPreferredEngine(enginename);
+					if(theEngine == refusedEngine) continue;
 					//Add "MORE_ENGINES" status-info to testrecord so that the current engine will know
 					//there are still more engines can be tried to execute the keyword
 //					if(list.hasNext() || hasMoreEnginesToTry()) 
 					trd.setStatusInfo(trd.getStatusInfo()+" "+DriverConstant.MORE_ENGINES);
 					result = theEngine.processRecord(trd);
 					Log.info("InputProcessor preferred engine '"+ enginename +"' returned result:"+ result);
+					if(result != DriverConstant.STATUS_SCRIPT_NOT_EXECUTED) routedEngine = theEngine;
 				}catch(IllegalArgumentException iax){
 					// this should not happen!
 					System.out.println(iax.getMessage());
@@ -315,19 +326,19 @@ public class InputProcessor extends AbstractInputProcessor {
 			try{
 				// don't call it if we already called it as a 'preferred engine
 				if((!sendAll)&&(isPreferredEngine(theEngine))) continue;
+				// don't call it if it already refused the record as a learned route
+				if((!sendAll)&&(theEngine == refusedEngine)) continue;
 				Log.info("InputProcessor trying engine '"+ theEngine.getEngineName() +"'");
 				//Add "MORE_ENGINES" status-info to testrecord so that the current engine will know
 				//there are still more engines can be tried to execute the keyword
 				if(list.hasNext()){
-					if(sendAll){
-						trd.setStatusInfo(trd.getStatusInfo()+" "+DriverConstant.MORE_ENGINES);
-					}else if(!isPreferredEngine((EngineInterface) list.next())){
+					if(sendAll || hasMoreEnginesAfter(list)){
 						trd.setStatusInfo(trd.getStatusInfo()+" "+DriverConstant.MORE_ENGINES);
-						list.previous();
 					}
 				}
 				result = theEngine.processRecord(trd);
 				Log.info("InputProcessor engine '"+ theEngine.getEngineName() +"' returned result:"+ result);
+				if((!sendAll)&&(result != DriverConstant.STATUS_SCRIPT_NOT_EXECUTED)) routedEngine = theEngine;
 			}catch(IllegalArgumentException iax){
 				// this should not happen!
 				System.out.println(iax.getMessage());
@@ -339,6 +350,148 @@ public class InputProcessor extends AbstractInputProcessor {
 		return result;
 	}
 	
+	/**
+	 * Test if routeToEngines will still try an engine after the current one: one that is
+	 * not preferred and did not already refuse the record as a learned route.
+	 * @param list the engines not tried yet, left at the same position on return.
+	 */
+	private boolean hasMoreEnginesAfter(ListIterator<?> list){
+		int read = 0;
+		boolean more = false;
+		while(!more && list.hasNext()){
+			EngineInterface next = (EngineInterface) list.next();
+			read++;
+			more = !isPreferredEngine(next) && next != refusedEngine;
+		}
+		for(;read>0;read--) list.previous();
+		return more;
+	}
+
+	/**
+	 * Test if the engine chain holds an engine other than the given one.
+	 */
+	private boolean hasOtherEngine(EngineInterface theEngine){
+		ListIterator<?> engines = driver.getEngines();
+		while(engines.hasNext()){
+			if(engines.next() != theEngine) return true;
+		}
+		return false;
+	}
+	
+	/***************************************************************************
+	 * Route the input record straight to the engine that last executed a record with 
+	 * the same routing key.  If there is no learned engine, or it does not execute the 
+	 * record, the caller must fall back to routeToPreferredEngines and routeToEngines.
+	 * <p>
+	 * This must be paired with a call to {@link #learnEngineRoute(TestRecordHelper, String, long)} once 
+	 * the full engine chain has been tried.
+	 * 
+	 * @param key routing key from {@link EngineRoutingCache#getKey(String, String, String, String)}
+	 * @see AbstractInputProcessor#USE_ENGINE_ROUTING_CACHE
+	 **************************************************************************/
+	protected long routeToLearnedEngine(TestRecordHelper trd, String key){
+		routedEngine = null;
+		refusedEngine = null;
+		refusedWithMoreEngines = false;
+		refusedStatus = null;
+		if(!USE_ENGINE_ROUTING_CACHE) return DriverConstant.STATUS_SCRIPT_NOT_EXECUTED;
+		EngineInterface theEngine = ENGINE_ROUTES.getEngine(this, key);
+		if(theEngine == null) return DriverConstant.STATUS_SCRIPT_NOT_EXECUTED;
+		long result = DriverConstant.STATUS_SCRIPT_NOT_EXECUTED;
+		String status = trd.getStatusInfo();
+		// other engines, if any, will still be tried if this one does not execute the record.
+		// Without them the engine must report its own failures, as the last engine of the chain does.
+		boolean flagged = hasOtherEngine(theEngine);
+		String flaggedStatus = status+" "+DriverConstant.MORE_ENGINES;
+		try{
+			Log.info("InputProcessor trying learned engine '"+ theEngine.getEngineName() +"'");
+			if(flagged) trd.setStatusInfo(flaggedStatus);
+			result = theEngine.processRecord(trd);
+			Log.info("InputProcessor learned engine '"+ theEngine.getEngineName() +"' returned result:"+ result);
+		}catch(IllegalArgumentException iax){
+			Log.error(iax.getMessage());
+		}
+		// the engines after it set MORE_ENGINES for themselves
+		if(flagged && flaggedStatus.equals(trd.getStatusInfo())) trd.setStatusInfo(status);
+		if(result == DriverConstant.STATUS_SCRIPT_NOT_EXECUTED){
+			refusedEngine = theEngine;
+			refusedWithMoreEngines = flagged;
+			refusedStatus = status;
+			ENGINE_ROUTES.forget(key);
+		}else{
+			ENGINE_ROUTES.hit();
+		}
+		return result;
+	}
+	
+	/***************************************************************************
+	 * Store the engine that executed the record, if any, after the record went 
+	 * through the full engine chain.
+	 * <p>
+	 * If no engine executed the record, and the learned engine refused it while told 
+	 * MORE_ENGINES, the learned engine is given the record again without MORE_ENGINES.  
+	 * An engine told MORE_ENGINES reports a failure, like a component not found, as 
+	 * not executed so the next engine can try; with no engine left, the failure must 
+	 * be reported rather than lost as an unknown command.
+	 * 
+	 * @param trd the record routed.
+	 * @param key routing key used with {@link #routeToLearnedEngine(TestRecordHelper, String)}
+	 * @param result the final result of the engine chain.
+	 * @return the final result, from the learned engine if it was given the record again.
+	 **************************************************************************/
+	protected long learnEngineRoute(TestRecordHelper trd, String key, long result){
+		if(!USE_ENGINE_ROUTING_CACHE) return result;
+		ENGINE_ROUTES.miss();
+		if((result == DriverConstant.STATUS_SCRIPT_NOT_EXECUTED)&&
+		   (refusedEngine != null)&&(refusedWithMoreEngines)&&
+		   (! trd.getStatusInfo().equalsIgnoreCase(JavaHook.SHUTDOWN_RECORD))){
+			try{
+				Log.info("InputProcessor trying learned engine '"+ refusedEngine.getEngineName() +"' again as the last engine");
+				// drop the MORE_ENGINES added for the other engines
+				trd.setStatusInfo(refusedStatus);
+				result = refusedEngine.processRecord(trd);
+				Log.info("InputProcessor learned engine '"+ refusedEngine.getEngineName() +"' returned result:"+ result);
+				if(result != DriverConstant.STATUS_SCRIPT_NOT_EXECUTED) routedEngine = refusedEngine;
+			}catch(IllegalArgumentException iax){
+				Log.error(iax.getMessage());
+			}
+		}
+		if((routedEngine != null)&&(result != DriverConstant.STATUS_SCRIPT_NOT_EXECUTED))
+			ENGINE_ROUTES.learn(key, routedEngine);
+		routedEngine = null;
+		refusedEngine = null;
+		refusedWithMoreEngines = false;
+		refusedStatus = null;
+		return result;
+	}
+
+	/***************************************************************************
+	 * Resolve the variables and expressions of an input record, through the 
+	 * {@link AbstractInputProcessor#VARIABLE_CACHE} if it is used.
+	 * 
+	 * @param record the input record.
+	 * @param separator the field separator of the record.
+	 * @return the resolved record.
+	 * @see AbstractInputProcessor#USE_VARIABLE_FRONT_CACHE
+	 **************************************************************************/
+	protected String resolveExpressions(String record, String separator){
+		if(!USE_VARIABLE_FRONT_CACHE) return getVarsInterface().resolveExpressions(record, separator);
+		return VARIABLE_CACHE.resolveExpressions(getVarsInterface(), record, separator, isExpressionsEnabled());
+	}
+	
+	/***************************************************************************
+	 * Set a variable the driver maintains for each record, through the 
+	 * {@link AbstractInputProcessor#VARIABLE_CACHE} if it is used.
+	 * 
+	 * @param var the variable name.
+	 * @param value the value.
+	 * @see AbstractInputProcessor#USE_VARIABLE_FRONT_CACHE
+	 **************************************************************************/
+	protected void setDriverValue(String var, String value){
+		if(!USE_VARIABLE_FRONT_CACHE) getVarsInterface().setValue(var, value);
+		else VARIABLE_CACHE.setValue(getVarsInterface(), var, value);
+	}
+
 	/***************************************************************************
 	 * Process a Driver Command (C,CW,or CF) input record.
 	 * This is called internally by processTest as necessary.
@@ -385,6 +538,15 @@ public class InputProcessor extends AbstractInputProcessor {
 				result =  getAutoItComponentSupport().processRecord(trd);
 		}
 
+		// try the engine that last handled this command
+		String routekey = EngineRoutingCache.getKey(trd.getRecordType(), null, null, command);
+		boolean routeMissed = false;
+		if ((result==DriverConstant.STATUS_SCRIPT_NOT_EXECUTED)&&
+			(! trd.getStatusInfo().equalsIgnoreCase(JavaHook.SHUTDOWN_RECORD))){
+			result = routeToLearnedEngine(trd, routekey);
+			routeMissed = (result==DriverConstant.STATUS_SCRIPT_NOT_EXECUTED);
+		}
+
 		// try preferred engines 
 		if ((result==DriverConstant.STATUS_SCRIPT_NOT_EXECUTED)&&
 			(! trd.getStatusInfo().equalsIgnoreCase(JavaHook.SHUTDOWN_RECORD)))
@@ -405,6 +567,7 @@ public class InputProcessor extends AbstractInputProcessor {
 		if ((result==DriverConstant.STATUS_SCRIPT_NOT_EXECUTED)&&
 			(! trd.getStatusInfo().equalsIgnoreCase(JavaHook.SHUTDOWN_RECORD)))
 		    result = routeToEngines(trd, false);
+		if (routeMissed) result = learnEngineRoute(trd, routekey, result);
 		    
 		// try in-process handlers 
 		if ((result==DriverConstant.STATUS_SCRIPT_NOT_EXECUTED)&&
@@ -456,6 +619,15 @@ public class InputProcessor extends AbstractInputProcessor {
 		// set the TestRecordData command field 
 		trd.setCommand(command);
 		
+		// try the engine that last handled this command
+		String routekey = EngineRoutingCache.getKey(trd.getRecordType(), null, null, command);
+		boolean routeMissed = false;
+		if ((result==DriverConstant.STATUS_SCRIPT_NOT_EXECUTED)&&
+			(! trd.getStatusInfo().equalsIgnoreCase(JavaHook.SHUTDOWN_RECORD))){
+			result = routeToLearnedEngine(trd, routekey);
+			routeMissed = (result==DriverConstant.STATUS_SCRIPT_NOT_EXECUTED);
+		}
+
 		// try preferred engines 
 		if ((result==DriverConstant.STATUS_SCRIPT_NOT_EXECUTED)&&
 			(! trd.getStatusInfo().equalsIgnoreCase(JavaHook.SHUTDOWN_RECORD)))
@@ -465,6 +637,7 @@ public class InputProcessor extends AbstractInputProcessor {
 		if ((result==DriverConstant.STATUS_SCRIPT_NOT_EXECUTED)&&
 			(! trd.getStatusInfo().equalsIgnoreCase(JavaHook.SHUTDOWN_RECORD)))
 		    result = routeToEngines(trd, false);
+		if (routeMissed) result = learnEngineRoute(trd, routekey, result);
 		    
 		if ((result==DriverConstant.STATUS_SCRIPT_NOT_EXECUTED)&&
 			(! trd.getStatusInfo().equalsIgnoreCase(JavaHook.SHUTDOWN_RECORD))){
@@ -524,6 +697,23 @@ public class InputProcessor extends AbstractInputProcessor {
 				rc =  this.getAutoItComponentSupport().processRecord(trd);
 		}
 		
+		// try the engine that last handled this action on this component
+		String window = "";
+		String component = "";
+		try{ 
+			window = trd.getTrimmedUnquotedInputRecordToken(1);
+			component = trd.getTrimmedUnquotedInputRecordToken(2);
+		}
+		catch(SAFSNullPointerException npx){;}
+		catch(IndexOutOfBoundsException ibx){;}
+		String routekey = EngineRoutingCache.getKey(trd.getRecordType(), window, component, command);
+		boolean routeMissed = false;
+		if ((rc==DriverConstant.STATUS_SCRIPT_NOT_EXECUTED)&&
+			(! trd.getStatusInfo().equalsIgnoreCase(JavaHook.SHUTDOWN_RECORD))){
+			rc = routeToLearnedEngine(trd, routekey);
+			routeMissed = (rc==DriverConstant.STATUS_SCRIPT_NOT_EXECUTED);
+		}
+
 		// try preferred engines next
 		if ((rc==DriverConstant.STATUS_SCRIPT_NOT_EXECUTED)&&
 			(! trd.getStatusInfo().equalsIgnoreCase(JavaHook.SHUTDOWN_RECORD)))
@@ -544,6 +734,7 @@ public class InputProcessor extends AbstractInputProcessor {
 			(! trd.getStatusInfo().equalsIgnoreCase(JavaHook.SHUTDOWN_RECORD))){
 			rc =  routeToEngines(trd, false);
 		}
+		if (routeMissed) rc = learnEngineRoute(trd, routekey, rc);
 
 		if ((rc==DriverConstant.STATUS_SCRIPT_NOT_EXECUTED)&&
 			(! trd.getStatusInfo().equalsIgnoreCase(JavaHook.SHUTDOWN_RECORD))){
@@ -729,10 +920,15 @@ public class InputProcessor extends AbstractInputProcessor {
 		/** delayFlowControl, If the execution will be paused this field will be set to true.*/
 		boolean delayFlowControl = false;
 		FlowControlInterface  flow = null;
+		/** allocated, the bytes allocated by this thread before the record; keyword, the record type and command. */
+		long allocated = -1;
+		String keyword = null;
 		
 mainloop: while (inputrecord.isValid()){
 loopbody: {
 			result=DriverConstant.STATUS_SCRIPT_NOT_EXECUTED;
+			allocated = DefaultDriver.MEMORY_POLICY.beginRecord();
+			keyword = null;
     		// In STEP_RETRY_EXECUTION, rawdata is updated in the end of this loop, and shall be reused again
     		if (!driverStatus.equalsIgnoreCase(JavaHook.STEP_RETRY_EXECUTION))
     			rawdata  = inputrecord.getRecordData();
@@ -759,18 +955,15 @@ loopbody: {
 			
 			// process variables and/or expressions
 			if (RESOLVE_SKIPPED_RECORDS){
-			    trimdata = getVarsInterface().resolveExpressions(
-			                                  trimdata, sourceinfo.getDefaultSeparator());
+			    trimdata = resolveExpressions(trimdata, sourceinfo.getDefaultSeparator());
 			}else{   // do not resolveExpressions 
 				try{ // for SKIPPED records
 					rt = StringUtils.getInputToken(trimdata, 0, sourceinfo.getDefaultSeparator());
 					rt = StringUtils.getTrimmedUnquotedStr(rt);
 					if( ! rt.equalsIgnoreCase(DriverConstant.RECTYPE_S))
-					    trimdata = getVarsInterface().resolveExpressions(
-                                trimdata, sourceinfo.getDefaultSeparator());
+					    trimdata = resolveExpressions(trimdata, sourceinfo.getDefaultSeparator());
 				}catch(SAFSNullPointerException snp){ // ? should not happen ever ?
-				    trimdata = getVarsInterface().resolveExpressions(
-                            trimdata, sourceinfo.getDefaultSeparator());
+				    trimdata = resolveExpressions(trimdata, sourceinfo.getDefaultSeparator());
 				}
 			}
 	    
@@ -791,11 +984,12 @@ loopbody: {
 	    	}
 	    	testRecordData.setFileID(sourceinfo.getStringID());
 	    	testRecordData.setLineNumber(inputrecord.getRecordNumber());
+	    	keyword = rt;
 
 	    	// set DDVariable for active test table like safsActiveCycle=
-	    	getVarsInterface().setValue(activeTableVar, sourceinfo.getFilename());
+	    	setDriverValue(activeTableVar, sourceinfo.getFilename());
 	    	//Set the current separator to variable "SAFS/Hook/separator"
-	    	getVarsInterface().setValue(STAFHelper.SAFS_HOOK_TRD+STAFHelper.SAFS_VAR_SEPARATOR, testRecordData.getSeparator());
+	    	setDriverValue(STAFHelper.SAFS_HOOK_TRD+STAFHelper.SAFS_VAR_SEPARATOR, testRecordData.getSeparator());
 		    
 			// branch according to the record type
 			if ((rt.equals(DriverConstant.RECTYPE_C))  ||
@@ -849,6 +1043,10 @@ loopbody: {
 				}
 			}
 			statusInfo = testRecordData.getStatusInfo();
+			// the command or engine may have changed any variable in SAFSVARS
+			if (USE_VARIABLE_FRONT_CACHE &&
+			   !rt.equals(DriverConstant.RECTYPE_S) && !rt.equals(DriverConstant.RECTYPE_B))
+				VARIABLE_CACHE.forgetWrites();
 
 			//////////////////////////////////////////////////////////////
 			// evaluate the results here, use flow control as warranted //
@@ -1023,26 +1221,28 @@ loopbody: {
 			
 			//set pause for SAFSMonitorFrame to watch/edit
 			if( pauseExecution(result)) {
-				getVarsInterface().setValue(DriverInterface.DRIVER_CONTROL_VAR, JavaHook.PAUSE_EXECUTION);
+				DefaultDriver.DRIVER_CONTROL.setStatus(getVarsInterface(), JavaHook.PAUSE_EXECUTION);
 			}
 			
 			// Delay Between Records (Commands)
 			if (getMillisBetweenRecords() > 0){
 				try{ Thread.sleep(getMillisBetweenRecords());}catch(Exception x){;}
 			}
-			driverStatus = getVarsInterface().getValue(DriverInterface.DRIVER_CONTROL_VAR);
+			//a command may have set SAFS_DRIVER_CONTROL in SAFSVARS without pushing it
+			if(rawdata!=null && rawdata.toUpperCase().indexOf(DRIVER_CONTROL_VAR)>-1) DefaultDriver.DRIVER_CONTROL.clear();
+			driverStatus = DefaultDriver.DRIVER_CONTROL.getStatus(getVarsInterface());
 			
 holdloop:	while(! driverStatus.equalsIgnoreCase(JavaHook.RUNNING_EXECUTION)){
 				// PAUSE
 				if (driverStatus.equalsIgnoreCase(JavaHook.PAUSE_EXECUTION)){
-					//check every 350 millis
-					try{ Thread.sleep(350);}catch(Exception x){;}
+					//wait for a pushed status, check SAFSVARS every 350 millis
+					DefaultDriver.DRIVER_CONTROL.await(350);
 				// STEPPING
 				}else if (driverStatus.equalsIgnoreCase(JavaHook.STEPPING_EXECUTION)){
-					getVarsInterface().setValue(DriverInterface.DRIVER_CONTROL_VAR, JavaHook.PAUSE_EXECUTION);
+					DefaultDriver.DRIVER_CONTROL.setStatus(getVarsInterface(), JavaHook.PAUSE_EXECUTION);
 				// STEP	
 				}else if (driverStatus.equalsIgnoreCase(JavaHook.STEP_EXECUTION)){
-					getVarsInterface().setValue(DriverInterface.DRIVER_CONTROL_VAR, JavaHook.STEPPING_EXECUTION);
+					DefaultDriver.DRIVER_CONTROL.setStatus(getVarsInterface(), JavaHook.STEPPING_EXECUTION);
 					break holdloop;
 				// SHUTDOWN
 				}else if (driverStatus.equalsIgnoreCase(JavaHook.SHUTDOWN_RECORD)){
@@ -1053,20 +1253,21 @@ holdloop:	while(! driverStatus.equalsIgnoreCase(JavaHook.RUNNING_EXECUTION)){
 					break mainloop;
 				// STEP_RETRY_EXECUTION
 				}else if (driverStatus.equalsIgnoreCase(JavaHook.STEP_RETRY_EXECUTION)){
-					getVarsInterface().setValue(DriverInterface.DRIVER_CONTROL_VAR, JavaHook.STEPPING_RETRY_EXECUTION);
+					DefaultDriver.DRIVER_CONTROL.setStatus(getVarsInterface(), JavaHook.STEPPING_RETRY_EXECUTION);
 					break holdloop;
 				// STEPPING_RETRY_EXECUTION
 				}else if (driverStatus.equalsIgnoreCase(JavaHook.STEPPING_RETRY_EXECUTION)){
-					getVarsInterface().setValue(DriverInterface.DRIVER_CONTROL_VAR, JavaHook.PAUSE_EXECUTION);
+					DefaultDriver.DRIVER_CONTROL.setStatus(getVarsInterface(), JavaHook.PAUSE_EXECUTION);
 				}else{
 					Log.info("InputProcessor.processTest unknown or invalid SAFS_DRIVER_CONTROL status. ReSet to RUNNING!");
-					getVarsInterface().setValue(DriverInterface.DRIVER_CONTROL_VAR, JavaHook.RUNNING_EXECUTION);
+					DefaultDriver.DRIVER_CONTROL.setStatus(getVarsInterface(), JavaHook.RUNNING_EXECUTION);
 					break holdloop;
 				}
-				driverStatus = getVarsInterface().getValue(DriverInterface.DRIVER_CONTROL_VAR);
+				driverStatus = DefaultDriver.DRIVER_CONTROL.getStatus(getVarsInterface());
 			}// end of holdloop:
 			
-			System.gc();			
+			if(keyword!=null && testRecordData.getCommand()!=null) keyword += " "+ testRecordData.getCommand();
+			DefaultDriver.MEMORY_POLICY.endRecord(keyword, allocated);
 			
 			if (!driverStatus.equalsIgnoreCase(JavaHook.STEP_RETRY_EXECUTION)){
 				//If user doesn't retry the previous step, then handle the delayed flow control.
@@ -458,6 +458,8 @@ public class JSAFSDriver extends DefaultDriver implements ITestRecordStackable{
 	 * @param separator The separator used to create test-record from AbstractCommand.
 	 * @param record    If it is null, a test-record generated from AbstractCommand <br>
 	 *                  will be set as the input-record to TestRecordHelper.<br>
+	 *                  Without {@link #getAutomaticResolve()}, the fields of the AbstractCommand are set as they are,<br>
+	 *                  see {@link TestRecordData#setInputRecordTokens(String[])}.<br>
 	 *                  Otherwise, if it is not null, it will be set as the input-record to TestRecordHelper.
 	 */
 	protected void setGlobalTestRecordHelper(AbstractCommand command, String separator, String record){
@@ -465,14 +467,20 @@ public class JSAFSDriver extends DefaultDriver implements ITestRecordStackable{
 		testRecordHelper.setSeparator(separator);
 		testRecordHelper.setRecordType(command.getTestRecordID());
 		
-		String testRecord = null;
-		if(record==null){
-			testRecord = command.exportTestRecord(separator);
+		String[] fields = (record==null && !automaticResolve)? command.exportTestRecordFields(): null;
+		if(TestRecordData.isTokenizable(fields, separator)){
+			//the processors get the fields as they are, the record String is only built when it is needed
+			testRecordHelper.setInputRecordTokens(fields);
 		}else{
-			testRecord = record;
+			String testRecord = null;
+			if(record==null){
+				testRecord = command.exportTestRecord(separator);
+			}else{
+				testRecord = record;
+			}
+			testRecord = automaticResolve? processExpression(testRecord,separator):testRecord;
+			testRecordHelper.setInputRecord(testRecord);
 		}
-		testRecord = automaticResolve? processExpression(testRecord,separator):testRecord;
-		testRecordHelper.setInputRecord(testRecord);
 		
 		testRecordHelper.setCommand(command.getCommandName());
 		
@@ -602,7 +610,7 @@ public class JSAFSDriver extends DefaultDriver implements ITestRecordStackable{
 	 * It does not attempt a JVM shutdown.
 	 */
 	public String checkSAFSMonitorStatus() throws SAFSException{
-		String driverStatus = getVariable(DRIVER_CONTROL_VAR);
+		String driverStatus = DRIVER_CONTROL.getStatus(getVarsInterface());
 		// CANAGL: do not change the method signature '.checkSAFSMonitorStatus()' text below!
 		String debugmsg = getClass().getSimpleName()+ ".checkSAFSMonitorStatus() ";
 		
@@ -618,33 +626,32 @@ public class JSAFSDriver extends DefaultDriver implements ITestRecordStackable{
 			
 			// PAUSE
 			if (driverStatus.equalsIgnoreCase(JavaHook.PAUSE_EXECUTION)){
-				//check every 1 second				
-				//System.gc();			
-				try{ Thread.sleep(1000);}catch(Exception x){;}
+				//wait for a pushed status, check SAFSVARS every 1 second
+				DRIVER_CONTROL.await(1000);
 
 			// STEP	
 			}else if (driverStatus.equalsIgnoreCase(JavaHook.STEP_EXECUTION)){
-				setVariable(DRIVER_CONTROL_VAR, JavaHook.STEPPING_EXECUTION);
+				DRIVER_CONTROL.setStatus(getVarsInterface(), JavaHook.STEPPING_EXECUTION);
 				return JavaHook.STEPPING_EXECUTION;
 				
 			// STEPPING
 			}else if (driverStatus.equalsIgnoreCase(JavaHook.STEPPING_EXECUTION)){
-				setVariable(DRIVER_CONTROL_VAR, JavaHook.PAUSE_EXECUTION);
+				DRIVER_CONTROL.setStatus(getVarsInterface(), JavaHook.PAUSE_EXECUTION);
 			
 			// STEP_RETRY_EXECUTION
 			}else if (driverStatus.equalsIgnoreCase(JavaHook.STEP_RETRY_EXECUTION)){
-				setVariable(DRIVER_CONTROL_VAR, JavaHook.STEPPING_RETRY_EXECUTION);
+				DRIVER_CONTROL.setStatus(getVarsInterface(), JavaHook.STEPPING_RETRY_EXECUTION);
 				return JavaHook.STEPPING_RETRY_EXECUTION;
 
 			// STEPPING_RETRY_EXECUTION
 			}else if (driverStatus.equalsIgnoreCase(JavaHook.STEPPING_RETRY_EXECUTION)){
-				setVariable(DRIVER_CONTROL_VAR, JavaHook.PAUSE_EXECUTION);
+				DRIVER_CONTROL.setStatus(getVarsInterface(), JavaHook.PAUSE_EXECUTION);
 			}else{
 				Log.info(debugmsg+" unknown or invalid SAFS_DRIVER_CONTROL status. ReSet to RUNNING!");
-				setVariable(DRIVER_CONTROL_VAR, JavaHook.RUNNING_EXECUTION);
+				DRIVER_CONTROL.setStatus(getVarsInterface(), JavaHook.RUNNING_EXECUTION);
 				return JavaHook.RUNNING_EXECUTION;
 			}
-			driverStatus = getVariable(DRIVER_CONTROL_VAR);
+			driverStatus = DRIVER_CONTROL.getStatus(getVarsInterface());
 		}
 		return driverStatus;
 	}
@@ -682,8 +689,10 @@ public class JSAFSDriver extends DefaultDriver implements ITestRecordStackable{
 		String statusInfo = null;
 		boolean shutdownHook = false;
 		long rc = DriverConstant.STATUS_SCRIPT_NOT_EXECUTED;
+		long allocated = -1;
 
 mainloop: while (true){
+			allocated = MEMORY_POLICY.beginRecord();
 	        //testRecord is null when we first enter this loop.
 	        //testRecord will contain the value of STAF variable "SAFS/Hook/inputrecord" when we 
 	        //retry the same step.
@@ -713,24 +722,24 @@ mainloop: while (true){
 			if(pauseExecution(rc)) {
 				//set pause for SAFSMonitorFrame to watch/edit
 				Log.debug(debugmsg+" Execution fails, will pause.");
-				setVariable(DRIVER_CONTROL_VAR, JavaHook.PAUSE_EXECUTION);
+				DRIVER_CONTROL.setStatus(getVarsInterface(), JavaHook.PAUSE_EXECUTION);
 			}
 			
 			delayBetweenRecords();
 			
-			driverStatus = getVariable(DRIVER_CONTROL_VAR);
+			driverStatus = DRIVER_CONTROL.getStatus(getVarsInterface());
 			
 holdloop:	while(! driverStatus.equalsIgnoreCase(JavaHook.RUNNING_EXECUTION)){
 				// PAUSE
 				if (driverStatus.equalsIgnoreCase(JavaHook.PAUSE_EXECUTION)){
-					//check every 350 millis
-					try{ Thread.sleep(350);}catch(Exception x){;}
+					//wait for a pushed status, check SAFSVARS every 350 millis
+					DRIVER_CONTROL.await(350);
 				// STEPPING
 				}else if (driverStatus.equalsIgnoreCase(JavaHook.STEPPING_EXECUTION)){
-					setVariable(DRIVER_CONTROL_VAR, JavaHook.PAUSE_EXECUTION);
+					DRIVER_CONTROL.setStatus(getVarsInterface(), JavaHook.PAUSE_EXECUTION);
 				// STEP	
 				}else if (driverStatus.equalsIgnoreCase(JavaHook.STEP_EXECUTION)){
-					setVariable(DRIVER_CONTROL_VAR, JavaHook.STEPPING_EXECUTION);
+					DRIVER_CONTROL.setStatus(getVarsInterface(), JavaHook.STEPPING_EXECUTION);
 					break holdloop;
 				// SHUTDOWN
 				}else if (driverStatus.equalsIgnoreCase(JavaHook.SHUTDOWN_RECORD)){
@@ -742,20 +751,20 @@ holdloop:	while(! driverStatus.equalsIgnoreCase(JavaHook.RUNNING_EXECUTION)){
 					break mainloop;
 				// STEP_RETRY_EXECUTION
 				}else if (driverStatus.equalsIgnoreCase(JavaHook.STEP_RETRY_EXECUTION)){
-					setVariable(DRIVER_CONTROL_VAR, JavaHook.STEPPING_RETRY_EXECUTION);
+					DRIVER_CONTROL.setStatus(getVarsInterface(), JavaHook.STEPPING_RETRY_EXECUTION);
 					break holdloop;
 				// STEPPING_RETRY_EXECUTION
 				}else if (driverStatus.equalsIgnoreCase(JavaHook.STEPPING_RETRY_EXECUTION)){
-					setVariable(DRIVER_CONTROL_VAR, JavaHook.PAUSE_EXECUTION);
+					DRIVER_CONTROL.setStatus(getVarsInterface(), JavaHook.PAUSE_EXECUTION);
 				}else{
 					Log.info(debugmsg+" unknown or invalid SAFS_DRIVER_CONTROL status. ReSet to RUNNING!");
-					setVariable(DRIVER_CONTROL_VAR, JavaHook.RUNNING_EXECUTION);
+					DRIVER_CONTROL.setStatus(getVarsInterface(), JavaHook.RUNNING_EXECUTION);
 					break holdloop;
 				}
-				driverStatus = getVariable(DRIVER_CONTROL_VAR);
+				driverStatus = DRIVER_CONTROL.getStatus(getVarsInterface());
 			}// end of holdloop:
 			
-			System.gc();			
+			MEMORY_POLICY.endRecord(testRecordHelper.getRecordType()+" "+ testRecordHelper.getCommand(), allocated);
 			
 			popTestRecord();
 
@@ -1063,6 +1072,8 @@ holdloop:	while(! driverStatus.equalsIgnoreCase(JavaHook.RUNNING_EXECUTION)){
 		    System.out.println("Initializing Runtime Interfaces...");
 		    initializeRuntimeInterface();
 		    launchSAFSMonitor();
+		    //forget the variables written by an earlier run in this JVM
+		    AbstractInputProcessor.VARIABLE_CACHE.clear();
 		    initializePresetVariables();
 		    initializeMiscConfigInfo();
 		    initializeRuntimeEngines();
@@ -1095,6 +1106,7 @@ holdloop:	while(! driverStatus.equalsIgnoreCase(JavaHook.RUNNING_EXECUTION)){
 	 * 
 	 */
 	public void shutdown(){
+		if(MEMORY_POLICY.isMonitor()) Log.info(MEMORY_POLICY.getReport());
 		try{
 		    closeTestLogs();					// include any CAPPING of XML logs
 		}catch(Throwable t){
@@ -0,0 +1,216 @@
+/** Copyright (C) (SAS) All rights reserved.
+ ** General Public License: http://www.opensource.org/licenses/gpl-license.php
+ **/
+package org.safs.tools.drivers;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The memory policy applied by the drivers after each test record.
+ * <p>
+ * The drivers used to call System.gc() after every record, which is a full collection per step on a large heap.
+ * Now a collection is only requested when the used heap reaches {@link #getThreshold()} percent of the maximum heap
+ * after a record, and no collection was requested in the last {@link #getMinInterval()} milliseconds, so a heap that
+ * stays above the threshold is not collected after every record.  The threshold is 0 by default: no collection is
+ * ever requested and the JVM collects on its own.
+ * <p>
+ * When monitoring is on, the bytes allocated by the driver thread for each record are counted per keyword, with the
+ * peak used heap, and {@link #getReport()} lists the keywords that allocate the most.  The allocated bytes of a record
+ * include any tables it calls.  They are only counted on JVMs that provide com.sun.management.ThreadMXBean.
+ * Monitoring is off by default.
+ *
+ * @see DefaultDriver#MEMORY_POLICY
+ * @see InputProcessor#processTest()
+ * @see JSAFSDriver#processCommand(org.safs.model.AbstractCommand, String)
+ */
+public class MemoryPressurePolicy {
+
+	private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+	/** com.sun.management.ThreadMXBean.getThreadAllocatedBytes(long), or null if it is not provided. */
+	private static Method allocatedBytes = null;
+	static{
+		try{
+			Class<?> sunThreads = Class.forName("com.sun.management.ThreadMXBean");
+			if(sunThreads.isInstance(THREADS)){
+				Method supported = sunThreads.getMethod("isThreadAllocatedMemorySupported");
+				Method enabled = sunThreads.getMethod("isThreadAllocatedMemoryEnabled");
+				if(((Boolean) supported.invoke(THREADS)).booleanValue() &&
+				   ((Boolean) enabled.invoke(THREADS)).booleanValue()){
+					allocatedBytes = sunThreads.getMethod("getThreadAllocatedBytes", long.class);
+				}
+			}
+		}catch(Throwable ignore){}
+	}
+
+	/** keyword --> {records, allocated bytes} */
+	private Map<String,long[]> keywords = new HashMap<String,long[]>();
+
+	private boolean monitor = false;
+	private int threshold = 0;
+	private long minInterval = 10000;
+	/** when the last collection was requested, in milliseconds. */
+	private long lastCollection = 0;
+
+	private long records = 0;
+	private long collections = 0;
+	private long peakUsed = 0;
+
+	/** @param monitor boolean, true to count the bytes allocated by each record. */
+	public synchronized void setMonitor(boolean monitor){ this.monitor = monitor; }
+
+	/** @return true if the bytes allocated by each record are counted. */
+	public synchronized boolean isMonitor(){ return monitor; }
+
+	/** @param threshold int, the percent of the maximum heap used at which a collection is requested; 0 or less never requests one. */
+	public synchronized void setThreshold(int threshold){ this.threshold = threshold; }
+
+	/** @return the percent of the maximum heap used at which a collection is requested; 0 or less if none is ever requested. */
+	public synchronized int getThreshold(){ return threshold; }
+
+	/** @param millis long, the fewest milliseconds between two requested collections. */
+	public synchronized void setMinInterval(long millis){ minInterval = millis; }
+
+	/** @return the fewest milliseconds between two requested collections. */
+	public synchronized long getMinInterval(){ return minInterval; }
+
+	/** @return true if the allocated bytes of the current thread can be counted. */
+	public static boolean isAllocationSupported(){ return allocatedBytes!=null; }
+
+	/**
+	 * Called before a record is processed.
+	 * @return long, the bytes allocated so far by the current thread, to pass to {@link #endRecord(String, long)};
+	 *         or -1 if they are not counted.
+	 */
+	public long beginRecord(){
+		return isMonitor()? getAllocatedBytes(): -1;
+	}
+
+	/**
+	 * Called after a record is processed.  Counts the bytes the record allocated, if monitoring, and requests
+	 * a collection if the used heap has reached the threshold and the last collection is old enough.
+	 * @param keyword String, the record type and command of the record, or null if it was not a record.
+	 * @param start long, the value returned by {@link #beginRecord()} for the record.
+	 */
+	public void endRecord(String keyword, long start){
+		boolean monitoring;
+		int percent;
+		synchronized(this){
+			monitoring = monitor;
+			percent = threshold;
+		}
+		if(!monitoring && percent<=0) return;
+
+		if(monitoring && keyword!=null && start>=0){
+			long end = getAllocatedBytes();
+			if(end>=start) count(keyword, end-start);
+		}
+
+		MemoryUsage heap = MEMORY.getHeapMemoryUsage();
+		long used = heap.getUsed();
+		synchronized(this){ if(used>peakUsed) peakUsed = used; }
+		if(percent>0){
+			long max = heap.getMax()>0? heap.getMax(): heap.getCommitted();
+			if(used*100 >= max*percent){
+				boolean collect = false;
+				synchronized(this){
+					long now = System.currentTimeMillis();
+					if(collections==0 || now-lastCollection >= minInterval){
+						collect = true;
+						collections++;
+						lastCollection = now;
+					}
+				}
+				if(collect) System.gc();
+			}
+		}
+	}
+
+	private synchronized void count(String keyword, long bytes){
+		String key = keyword.toUpperCase();
+		long[] stats = keywords.get(key);
+		if(stats==null){
+			stats = new long[2];
+			keywords.put(key, stats);
+		}
+		stats[0]++;
+		stats[1] += bytes;
+		records++;
+	}
+
+	private static long getAllocatedBytes(){
+		if(allocatedBytes==null) return -1;
+		try{
+			return ((Long) allocatedBytes.invoke(THREADS, Long.valueOf(Thread.currentThread().getId()))).longValue();
+		}catch(Throwable t){
+			return -1;
+		}
+	}
+
+	/** @return the number of records counted while monitoring. */
+	public synchronized long getRecords(){ return records; }
+
+	/** @return the number of collections requested. */
+	public synchronized long getCollections(){ return collections; }
+
+	/** @return the peak used heap seen after a record, in bytes. */
+	public synchronized long getPeakUsed(){ return peakUsed; }
+
+	/** @return the bytes allocated by the records of a keyword, or 0. */
+	public synchronized long getAllocated(String keyword){
+		long[] stats = keyword==null? null: keywords.get(keyword.toUpperCase());
+		return stats==null? 0: stats[1];
+	}
+
+	/**
+	 * @param max int, the most keywords to list.
+	 * @return the keywords that allocated the most bytes, one per line, with their records, allocated KB and average KB per record.
+	 */
+	public synchronized String getReport(int max){
+		List<Map.Entry<String,long[]>> entries = new ArrayList<Map.Entry<String,long[]>>(keywords.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<String,long[]>>(){
+			public int compare(Map.Entry<String,long[]> a, Map.Entry<String,long[]> b){
+				long x = a.getValue()[1], y = b.getValue()[1];
+				return x>y? -1: x<y? 1: 0;
+			}
+		});
+		StringBuffer report = new StringBuffer(toString());
+		if(!isAllocationSupported()) report.append("\nAllocated bytes are not counted by this JVM.");
+		for(int i=0;i<entries.size() && i<max;i++){
+			Map.Entry<String,long[]> entry = entries.get(i);
+			long[] stats = entry.getValue();
+			report.append("\n").append(entry.getKey()).append(": records:").append(stats[0]);
+			report.append(", allocated KB:").append(stats[1]/1024);
+			report.append(", average KB:").append(stats[1]/1024/stats[0]);
+		}
+		return report.toString();
+	}
+
+	/** @return the report of the 20 keywords that allocated the most bytes. */
+	public String getReport(){ return getReport(20); }
+
+	/** Discard the statistics. */
+	public synchronized void clear(){
+		keywords.clear();
+		records = 0;
+		collections = 0;
+		lastCollection = 0;
+		peakUsed = 0;
+	}
+
+	public synchronized String toString(){
+		return "MemoryPressurePolicy monitor:"+ monitor +", threshold:"+ threshold +"%, min interval:"+ minInterval +", records:"+ records +
+		       ", keywords:"+ keywords.size() +", collections:"+ collections +", peak used KB:"+ peakUsed/1024;
+	}
+}
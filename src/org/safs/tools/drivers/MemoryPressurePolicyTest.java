@@ -0,0 +1,86 @@
+/** Copyright (C) (SAS) All rights reserved.
+ ** General Public License: http://www.opensource.org/licenses/gpl-license.php
+ **/
+package org.safs.tools.drivers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+
+/**
+ * Measures the records per second of a synthetic 10k record test table, with the System.gc() the drivers used
+ * to call after every record, and with {@link MemoryPressurePolicy#beginRecord()} and
+ * {@link MemoryPressurePolicy#endRecord(String, long)} called around each record as InputProcessor does.
+ * <p>
+ * Each record is tokenized and allocates some short-lived objects, while a retained heap stands for the
+ * App Maps, variables and logs a running driver holds, which every full collection has to walk.
+ * <p>
+ * Usage: MemoryPressurePolicyTest [records [retainedMB]], 10000 records and 32 MB by default.
+ */
+public class MemoryPressurePolicyTest {
+
+	static final String[] KEYWORDS = {"Click", "SetTextValue", "VerifyProperty", "SetVariableValues", "CallScript"};
+
+	/** the heap held for the run, as by the App Maps and variables of a driver. */
+	static List<byte[]> retained = new ArrayList<byte[]>();
+
+	static String record(int i){
+		String keyword = KEYWORDS[i % KEYWORDS.length];
+		return "C\t"+ keyword +"\tLoginWindow\tUserField\t\"user"+ i +"\"\t^result"+ i +"\t"+ i;
+	}
+
+	/** tokenize the record and build the short-lived objects a record would. @return the keyword. */
+	static String process(String record){
+		StringTokenizer tokens = new StringTokenizer(record, "\t");
+		List<String> fields = new ArrayList<String>();
+		while(tokens.hasMoreTokens()) fields.add(tokens.nextToken().trim());
+		StringBuffer message = new StringBuffer();
+		for(String field: fields) message.append(field.toUpperCase()).append(' ');
+		byte[] scratch = new byte[4096 + message.length()];
+		scratch[0] = (byte) message.length();
+		return fields.get(0) +":"+ fields.get(1);
+	}
+
+	/** @return double, the records per second. */
+	static double run(String name, int count, boolean gcPerRecord, MemoryPressurePolicy policy){
+		long start = System.nanoTime();
+		for(int i=0;i<count;i++){
+			long allocated = policy==null? -1: policy.beginRecord();
+			String keyword = process(record(i));
+			if(gcPerRecord) System.gc();
+			if(policy!=null) policy.endRecord(keyword, allocated);
+		}
+		double seconds = (System.nanoTime()-start)/1e9;
+		double rate = count/seconds;
+		System.out.println(name +": "+ count +" records in "+ Math.round(seconds*1000) +"ms, "+ Math.round(rate) +" records/second"+
+		                   (policy==null? "": ", "+ policy));
+		return rate;
+	}
+
+	public static void main(String[] args) {
+		int count = args.length>0? Integer.parseInt(args[0]): 10000;
+		int megabytes = args.length>1? Integer.parseInt(args[1]): 32;
+		for(int i=0;i<megabytes;i++) retained.add(new byte[1024*1024]);
+
+		//warm up
+		run("warm up", count/10, false, new MemoryPressurePolicy());
+
+		double old = run("System.gc() per record", count, true, null);
+
+		MemoryPressurePolicy policy = new MemoryPressurePolicy();
+		double none = run("policy, default", count, false, policy);
+
+		policy = new MemoryPressurePolicy();
+		policy.setMonitor(true);
+		double monitored = run("policy, monitor", count, false, policy);
+
+		policy = new MemoryPressurePolicy();
+		policy.setThreshold(1);
+		policy.setMinInterval(1000);
+		double threshold = run("policy, threshold 1% every 1000ms", count, false, policy);
+
+		System.out.println("speedup over System.gc() per record: default "+ Math.round(none/old) +"x, monitor "+
+		                   Math.round(monitored/old) +"x, threshold "+ Math.round(threshold/old) +"x");
+		System.out.println("retained "+ retained.size() +" MB");
+	}
+}
@@ -0,0 +1,155 @@
+/** Copyright (C) (SAS) All rights reserved.
+ ** General Public License: http://www.opensource.org/licenses/gpl-license.php
+ **/
+package org.safs.tools.drivers;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.safs.SAFSStringTokenizer;
+import org.safs.staf.service.var.AbstractSAFSVariableService;
+import org.safs.tools.expression.SafsExpression;
+import org.safs.tools.stringutils.StringUtilities;
+import org.safs.tools.vars.SimpleVarsInterface;
+import org.safs.tools.vars.VarsInterface;
+
+/**
+ * A driver-side front for the SAFSVARS calls the InputProcessor makes for every record.
+ * <p>
+ * A record with no variable references and no expressions is resolved here, exactly as the
+ * SAFSVARS RESOLVE request would resolve it: each field is trimmed and wrapped in double quotes.
+ * Any other record is sent to the service.
+ * <p>
+ * Variables set through {@link #setValue(SimpleVarsInterface, String, String)} are written through to
+ * SAFSVARS, and a write of the value last written is skipped.  The written values are forgotten whenever
+ * a record is resolved by the service, since the record may assign any variable, and after every record
+ * a driver command or an engine executes, since the command, the engine, or any other STAF client may
+ * have set the variable in SAFSVARS in the meantime.
+ *
+ * @see InputProcessor#processTest()
+ * @see AbstractInputProcessor#USE_VARIABLE_FRONT_CACHE
+ */
+public class VariableFrontCache {
+
+	/** the characters that make a field an expression, when expressions are enabled. */
+	static final String EXPRESSION_CHARS = SafsExpression.ALL_OPERATORS +"()";
+
+	/** variable name --> the value last written through this cache */
+	private Map<String,String> written = new HashMap<String,String>();
+
+	private long resolveSkips = 0;
+	private long resolveCalls = 0;
+	private long writeSkips = 0;
+	private long writes = 0;
+
+	/**
+	 * Resolve the variables and expressions of a record.
+	 * @param vars VarsInterface, to resolve the record if it cannot be resolved here.
+	 * @param record String, the record.
+	 * @param separator String, the field separator.
+	 * @param expressions boolean, true if expressions are enabled.
+	 * @return the resolved record.
+	 * @see VarsInterface#resolveExpressions(String, String)
+	 */
+	public String resolveExpressions(VarsInterface vars, String record, String separator, boolean expressions){
+		String resolved = resolveLiteral(record, separator, expressions);
+		if(resolved!=null){
+			synchronized(this){ resolveSkips++; }
+			return resolved;
+		}
+		synchronized(this){
+			resolveCalls++;
+			written.clear();
+		}
+		return vars.resolveExpressions(record, separator);
+	}
+
+	/**
+	 * Set a variable in SAFSVARS, unless this cache last wrote the same value to it.
+	 * @param vars SimpleVarsInterface, to set the variable.
+	 * @param var String, the variable name.
+	 * @param value String, the value.
+	 */
+	public void setValue(SimpleVarsInterface vars, String var, String value){
+		synchronized(this){
+			if(value!=null && value.equals(written.get(var))){
+				writeSkips++;
+				return;
+			}
+			writes++;
+		}
+		vars.setValue(var, value);
+		synchronized(this){
+			if(value==null) written.remove(var);
+			else written.put(var, value);
+		}
+	}
+
+	/**
+	 * Resolve a record that has no variable references and no expressions, the way the SAFSVARS
+	 * RESOLVE request with a separator does.
+	 * @return the resolved record, or null if it must be resolved by the service.
+	 */
+	static String resolveLiteral(String record, String separator, boolean expressions){
+		if(record==null || record.length()==0 || separator==null || separator.length()==0) return null;
+		if(record.indexOf(AbstractSAFSVariableService.SVS_CARET) > -1 ||
+		   record.indexOf(AbstractSAFSVariableService.SVS_FALSE_CARET) > -1) return null;
+		String sep = separator.substring(0,1);
+		StringBuffer resolved = new StringBuffer(record.length()+ 16);
+		SAFSStringTokenizer toker = new SAFSStringTokenizer(record, sep);
+		while(toker.hasMoreTokens()){
+			String field = StringUtilities.TWhitespace(toker.nextToken());
+			if(!isLiteral(field, expressions)) return null;
+			resolved.append('"').append(field).append('"');
+			if(toker.hasMoreTokens()) resolved.append(sep);
+		}
+		return resolved.toString();
+	}
+
+	/** @return true if the trimmed field would be resolved to itself. */
+	private static boolean isLiteral(String field, boolean expressions){
+		for(int i=0;i<field.length();i++){
+			char c = field.charAt(i);
+			if(c < ' ' || c == '"') return false;
+			if(expressions && EXPRESSION_CHARS.indexOf(c) > -1) return false;
+		}
+		return true;
+	}
+
+	/** @return the number of records resolved without a SAFSVARS call. */
+	public synchronized long getResolveSkips(){ return resolveSkips; }
+
+	/** @return the number of records resolved by SAFSVARS. */
+	public synchronized long getResolveCalls(){ return resolveCalls; }
+
+	/** @return the number of writes skipped because the value was unchanged. */
+	public synchronized long getWriteSkips(){ return writeSkips; }
+
+	/** @return the number of writes made to SAFSVARS. */
+	public synchronized long getWrites(){ return writes; }
+
+	/** @return the number of SAFSVARS calls avoided. */
+	public synchronized long getAvoidedCalls(){ return resolveSkips + writeSkips; }
+
+	/**
+	 * Forget the written values, so the next writes go to SAFSVARS.
+	 * Called after every record executed by a driver command or an engine.
+	 */
+	public synchronized void forgetWrites(){
+		written.clear();
+	}
+
+	/** Forget the written values, so the next writes go to SAFSVARS, and reset the statistics. */
+	public synchronized void clear(){
+		written.clear();
+		resolveSkips = 0;
+		resolveCalls = 0;
+		writeSkips = 0;
+		writes = 0;
+	}
+
+	public synchronized String toString(){
+		return "VariableFrontCache resolve skips:"+ resolveSkips +", resolve calls:"+ resolveCalls +
+		       ", write skips:"+ writeSkips +", writes:"+ writes;
+	}
+}
@@ -0,0 +1,93 @@
+/** Copyright (C) (SAS) All rights reserved.
+ ** General Public License: http://www.opensource.org/licenses/gpl-license.php
+ **/
+package org.safs.tools.drivers;
+
+import org.safs.STAFHelper;
+import org.safs.staf.service.InfoInterface;
+import org.safs.staf.service.var.EmbeddedVariableService;
+
+import com.ibm.staf.STAFResult;
+
+/**
+ * Checks that {@link VariableFrontCache#resolveLiteral(String, String, boolean)} resolves a record
+ * exactly as the SAFSVARS RESOLVE request of an embedded SAFSVARS does, with expressions on and off.
+ * Records the cache leaves to the service are reported, not compared.
+ */
+public class VariableFrontCacheTest {
+
+	/** exposes the requests of an embedded SAFSVARS. */
+	static class Vars extends EmbeddedVariableService {
+		STAFResult request(String request){ return doAcceptRequest(request); }
+	}
+
+	static Vars vars;
+	static int failures = 0;
+
+	static final String[] RECORDS = {
+		"C, Click",
+		"T, LoginWindow, UserField, SetTextValue, user1",
+		"  T ,  LoginWindow ,   UserField  , SetTextValue,   padded value   ",
+		"T, Window, Component, Action, ",
+		"T, Window, , Action",
+		",,",
+		"",
+		"T\tWindow\t\tAction\t",
+		"C, Delay, 1000",
+		"C, Delay, 007",
+		"T, Window, Field, SetTextValue, 1.50",
+		"T, Window, Field, SetTextValue, -1",
+		"T, Window, Field, SetTextValue, 1e5",
+		"T, Window, Field, SetTextValue, 2+3",
+		"T, Window, Field, SetTextValue, 2 * 3",
+		"T, Window, Field, SetTextValue, a-b",
+		"T, Window, Field, SetTextValue, (value)",
+		"T, Window, Field, SetTextValue, 50%",
+		"T, Window, Field, SetTextValue, a & b",
+		"T, Window, Field, SetTextValue, \"quoted\"",
+		"T, Window, Field, SetTextValue, Path:C:\\temp\\file.txt",
+		"C, SetVariableValues, ^var=1",
+	};
+
+	static void test(String name, String value, String bench){
+		boolean passed = bench.equals(value);
+		if(!passed) failures++;
+		System.out.println((passed?"PASSED:":"FAILED:")+ name +" ["+ value +"]==["+ bench +"]");
+	}
+
+	static String resolve(String record, String separator, boolean expressions){
+		String request = "RESOLVE "+ STAFHelper.lentagValue(record) +" SEPARATOR "+ STAFHelper.lentagValue(separator)+
+		                 (expressions? "": " NOEXPRESSIONS");
+		STAFResult result = vars.request(request);
+		if(result.rc != STAFResult.Ok) return "rc "+ result.rc +": "+ result.result;
+		// remove leading "0:"
+		return result.result.substring(2);
+	}
+
+	static void compare(String record, boolean expressions){
+		String separator = record.indexOf('\t') > -1 ? "\t": ",";
+		String name = "'"+ record +"'"+ (expressions? "": " NOEXPRESSIONS");
+		String literal = VariableFrontCache.resolveLiteral(record, separator, expressions);
+		if(literal == null){
+			System.out.println("SERVICE:"+ name +" is resolved by SAFSVARS.");
+			return;
+		}
+		test(name, literal, resolve(record, separator, expressions));
+	}
+
+	public static void main(String[] args) {
+		STAFHelper.no_staf_handles = true;
+		vars = new Vars();
+		vars.setEmbedVars(true);
+		vars.init(new InfoInterface.InitInfo(STAFHelper.SAFS_VARIABLE_SERVICE, ""));
+		try{
+			for(int i=0;i<RECORDS.length;i++){
+				compare(RECORDS[i], true);
+				compare(RECORDS[i], false);
+			}
+			System.out.println(failures==0? "All checks PASSED.": failures +" checks FAILED.");
+		}finally{
+			vars.term();
+		}
+	}
+}
@@ -0,0 +1,248 @@
+/** Copyright (C) (SAS) All rights reserved.
+ ** General Public License: http://www.opensource.org/licenses/gpl-license.php
+ **/
+package org.safs.tools.expression;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+
+import org.safs.tools.stringutils.StringUtilities;
+
+/**
+ * The parsed and validated form of one SAFS expression, shared by every {@link SafsExpression}
+ * that evaluates the same text.
+ * <p>
+ * It holds everything {@link SafsExpression#setExpression(String)} used to rebuild for each
+ * evaluation--the encoded expression, the quote locations, the quoted substrings, and the
+ * variable names--plus, when the expression is simple enough, a tree of its operations.
+ * Evaluating the tree only looks up variables and applies the operators.
+ * <p>
+ * A tree is only built for expressions the string evaluator handles predictably: optional
+ * ^var= assignments followed by operands joined by * / % + - &amp;, where an operand is a
+ * ^var reference, a quoted literal, or unquoted literal text.  Expressions with groupings
+ * ( ), empty literals "", or constructs whose meaning depends on how the string evaluator
+ * re-scans its intermediate results get no tree and are evaluated by the string evaluator
+ * as before.  Operators are applied in the same order and with the same precedence:
+ * * / % left to right, then + - &amp; left to right.
+ * <p>
+ * Instances are immutable once built.  The Vectors are shared and must not be modified.
+ *
+ * @see CompiledExpressionCache
+ * @see SafsExpression#USE_COMPILED_EXPRESSIONS
+ */
+public class CompiledExpression {
+
+	/** operators evaluated first, left to right */
+	static final String HIGH_OPERATORS = "*/%";
+	/** operators evaluated last, left to right */
+	static final String LOW_OPERATORS = "+-&";
+	/** all binary operators */
+	static final String OPERATORS = HIGH_OPERATORS + LOW_OPERATORS;
+
+	/** One operation, or one operand when operator is 0. */
+	static final class Node {
+		final char operator;
+		final String operand;
+		final Node left;
+		final Node right;
+
+		/** an operand: ^var reference or literal text */
+		Node(String operand){
+			this.operator = 0;
+			this.operand = operand;
+			this.left = null;
+			this.right = null;
+		}
+
+		/** an operation on the results of two other nodes */
+		Node(char operator, Node left, Node right){
+			this.operator = operator;
+			this.operand = null;
+			this.left = left;
+			this.right = right;
+		}
+
+		boolean isOperand(){ return operator == 0; }
+	}
+
+	final String source;
+	final String expression;
+	final Vector quoteLocs;
+	final Vector subStrings;
+	final Vector variableNames;
+
+	/** variables assigned the result, as evalSimple derives them, or an empty array */
+	final String[] assignments;
+	/** root of the operation tree, or null if the string evaluator must be used */
+	final Node root;
+
+	/**
+	 * @param source the expression text as given to {@link SafsExpression#setExpression(String)}.
+	 * @param expression the validated expression with literal double quotes encoded.
+	 * @param quoteLocs quote locations in the encoded expression.
+	 * @param subStrings quoted substrings of the encoded expression.
+	 * @param variableNames variable names referenced in the encoded expression.
+	 */
+	CompiledExpression(String source, String expression, Vector quoteLocs, Vector subStrings, Vector variableNames){
+		this.source = source;
+		this.expression = expression;
+		this.quoteLocs = quoteLocs;
+		this.subStrings = subStrings;
+		this.variableNames = variableNames;
+		String text = StringUtilities.TWhitespace(expression);
+		int equals = getLastAssignment(text);
+		String[] names = null;
+		Node tree = null;
+		if(equals > -2){
+			String rhs = text;
+			names = new String[0];
+			if(equals > -1){
+				names = getAssignmentNames(text.substring(0, equals+1));
+				rhs = StringUtilities.LTWhitespace(text.substring(equals+1));
+			}
+			if(names != null) tree = parse(rhs);
+		}
+		this.assignments = (tree == null) ? null : names;
+		this.root = tree;
+	}
+
+	/** @return true if the expression has an operation tree. */
+	public boolean isCompiled(){ return root != null; }
+
+	/** @return the expression text this was compiled from. */
+	public String getSource(){ return source; }
+
+	/**
+	 * Locate the unquoted = separating the assignments from the value, and screen out
+	 * text the tree does not support.
+	 * @return index of the last unquoted =, -1 if none, or -2 if the text has unquoted
+	 *         parentheses or "" literals.
+	 */
+	private static int getLastAssignment(String text){
+		int equals = -1;
+		boolean quoted = false;
+		for(int i=0;i<text.length();i++){
+			char c = text.charAt(i);
+			if(c == '"'){
+				// "" is a literal double quote to locateQuotedSubStrings, not a boundary
+				if(i+1 < text.length() && text.charAt(i+1) == '"') return -2;
+				quoted = !quoted;
+			}else if(!quoted){
+				if(c == '(' || c == ')') return -2;
+				if(c == '=') equals = i;
+			}
+		}
+		return equals;
+	}
+
+	/**
+	 * The names of the variables to assign, derived exactly as evalSimple does it.
+	 * @param strAssignments text to the left of, and including, the last unquoted =.
+	 * @return the names, or null if any piece is not a ^var reference.
+	 */
+	private static String[] getAssignmentNames(String strAssignments){
+		if(strAssignments.indexOf('"') > -1) return null;
+		String[] names = strAssignments.split("=");
+		for(int i=0;i<names.length;i++){
+			String name = StringUtilities.TWhitespace(names[i]);
+			if(name.length() < 2 || name.charAt(0) != '^') return null;
+			names[i] = name.substring(1);
+		}
+		return names;
+	}
+
+	private static boolean isWhiteSpace(char c){ return c == ' ' || c == '\t'; }
+
+	/** @return true if c can be part of unquoted literal text. */
+	private static boolean isLiteralChar(char c){
+		return !isWhiteSpace(c) && c != '"' && c != '^' && OPERATORS.indexOf(c) < 0;
+	}
+
+	/**
+	 * Tokenize the value part of the expression and build its tree.
+	 * @param rhs the value part, trimmed of leading and trailing whitespace.
+	 * @return the root of the tree, or null if the string evaluator must be used.
+	 */
+	private static Node parse(String rhs){
+		List<Node> operands = new ArrayList<Node>();
+		StringBuffer operators = new StringBuffer();
+		List<Boolean> spaced = new ArrayList<Boolean>();
+		int length = rhs.length();
+		int i = 0;
+		while(i < length){
+			char c = rhs.charAt(i);
+			if(isWhiteSpace(c)){
+				i++;
+				continue;
+			}
+			if(operands.size() > operators.length()){
+				// an operator must follow an operand
+				if(OPERATORS.indexOf(c) < 0) return null;
+				operators.append(c);
+				spaced.add(Boolean.valueOf(i > 0 && isWhiteSpace(rhs.charAt(i-1))));
+				i++;
+				continue;
+			}
+			int start = i;
+			int end;
+			if(c == '"'){
+				end = rhs.indexOf('"', i+1);
+				if(end < 0) return null;
+				end++;
+			}else if(c == '^'){
+				end = i+1;
+				while(end < length && isLiteralChar(rhs.charAt(end))) end++;
+				if(end == i+1) return null;
+			}else{
+				// a negative sign is only recognized immediately before literal text
+				end = (c == '-') ? i+1 : i;
+				if(end >= length || !isLiteralChar(rhs.charAt(end))) return null;
+				// literal text runs to the next operator, whitespace included
+				int last = end;
+				while(end < length){
+					char e = rhs.charAt(end);
+					if(isLiteralChar(e)) last = end;
+					else if(e == '"' || e == '^') return null;
+					else if(!isWhiteSpace(e)) break;
+					end++;
+				}
+				end = last+1;
+			}
+			operands.add(new Node(rhs.substring(start, end)));
+			i = end;
+		}
+		if(operands.isEmpty() || operands.size() == operators.length()) return null;
+
+		// the string evaluator takes the - after a leading quoted literal as a negative sign
+		if(operators.length() > 0 && operators.charAt(0) == '-' &&
+		   operands.get(0).operand.charAt(0) == '"') return null;
+		for(int k=0;k<operators.length();k++){
+			// the string evaluator takes "x -y * z" as x followed by (-y)*z
+			if(operators.charAt(k) == '-' && spaced.get(k).booleanValue() &&
+			   k+1 < operators.length() && HIGH_OPERATORS.indexOf(operators.charAt(k+1)) > -1) return null;
+		}
+
+		// * / % first, left to right
+		List<Node> terms = new ArrayList<Node>();
+		StringBuffer termOperators = new StringBuffer();
+		Node current = operands.get(0);
+		for(int k=0;k<operators.length();k++){
+			char operator = operators.charAt(k);
+			if(HIGH_OPERATORS.indexOf(operator) > -1){
+				current = new Node(operator, current, operands.get(k+1));
+			}else{
+				terms.add(current);
+				termOperators.append(operator);
+				current = operands.get(k+1);
+			}
+		}
+		terms.add(current);
+		// then + - & left to right
+		Node root = terms.get(0);
+		for(int k=0;k<termOperators.length();k++){
+			root = new Node(termOperators.charAt(k), root, terms.get(k+1));
+		}
+		return root;
+	}
+}
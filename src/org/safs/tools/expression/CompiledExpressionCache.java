@@ -0,0 +1,110 @@
+/** Copyright (C) (SAS) All rights reserved.
+ ** General Public License: http://www.opensource.org/licenses/gpl-license.php
+ **/
+package org.safs.tools.expression;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used cache of {@link CompiledExpression}s keyed by expression text.
+ * <p>
+ * Data-driven tests evaluate the same few hundred expressions over and over.  With the cache,
+ * each distinct expression is tokenized and validated once, and later evaluations of the same
+ * text reuse the result.  Expressions that fail validation are never cached, so their errors
+ * are reported every time they are set.
+ *
+ * @see SafsExpression#USE_COMPILED_EXPRESSIONS
+ * @see SafsExpression#COMPILED_EXPRESSIONS
+ */
+public class CompiledExpressionCache {
+
+	/** default max number of expressions kept. */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private int capacity = DEFAULT_CAPACITY;
+
+	/** expression text --> CompiledExpression, in least-recently-used order */
+	private LinkedHashMap<String,CompiledExpression> expressions = new LinkedHashMap<String,CompiledExpression>(64, 0.75f, true){
+		private static final long serialVersionUID = 1L;
+		protected boolean removeEldestEntry(Map.Entry<String,CompiledExpression> eldest){
+			if(size() <= capacity) return false;
+			evictions++;
+			return true;
+		}
+	};
+
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	/**
+	 * @param capacity max number of expressions to keep.
+	 */
+	public CompiledExpressionCache(int capacity){
+		setCapacity(capacity);
+	}
+
+	/**
+	 * Change the max number of expressions kept, discarding the least recently used if needed.
+	 * @param capacity max number of expressions to keep.  Values less than 1 are treated as 1.
+	 */
+	public synchronized void setCapacity(int capacity){
+		this.capacity = Math.max(1, capacity);
+		Iterator<CompiledExpression> it = expressions.values().iterator();
+		while(expressions.size() > this.capacity && it.hasNext()){
+			it.next();
+			it.remove();
+			evictions++;
+		}
+	}
+
+	/** @return the max number of expressions kept. */
+	public synchronized int getCapacity(){ return capacity; }
+
+	/**
+	 * @param text expression text as given to {@link SafsExpression#setExpression(String)}.
+	 * @return the cached CompiledExpression or null.
+	 */
+	public synchronized CompiledExpression get(String text){
+		CompiledExpression compiled = expressions.get(text);
+		if(compiled == null) misses++;
+		else hits++;
+		return compiled;
+	}
+
+	/**
+	 * @param compiled a valid expression to cache under its source text.
+	 */
+	public synchronized void put(CompiledExpression compiled){
+		expressions.put(compiled.getSource(), compiled);
+	}
+
+	/** @return the number of expressions served from the cache. */
+	public synchronized long getHits(){ return hits; }
+
+	/** @return the number of expressions that had to be parsed. */
+	public synchronized long getMisses(){ return misses; }
+
+	/** @return the number of expressions discarded to stay within capacity. */
+	public synchronized long getEvictions(){ return evictions; }
+
+	/** @return the number of expressions presently cached. */
+	public synchronized int size(){ return expressions.size(); }
+
+	/** Discard all expressions and reset the statistics. */
+	public synchronized void clear(){
+		expressions.clear();
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+
+	public synchronized String toString(){
+		int trees = 0;
+		for(CompiledExpression compiled : expressions.values()) if(compiled.isCompiled()) trees++;
+		return "CompiledExpressionCache expressions:"+ expressions.size() +"/"+ capacity +", trees:"+ trees +
+		       ", hits:"+ hits +", misses:"+ misses +", evictions:"+ evictions;
+	}
+}
@@ -119,6 +119,19 @@ public class SafsExpression {
 	public static final String NUMERIC_OPERATORS = "+-*/%" ;
 	/** + - * / % & =  **/
 	public static final String ALL_OPERATORS = "+-*/%&=" ;
+
+	/**
+	 * True to reuse the parsing and validation of expressions evaluated before, and to evaluate
+	 * simple expressions from their operation tree instead of rewriting the expression text.
+	 * @see CompiledExpression
+	 */
+	public static boolean USE_COMPILED_EXPRESSIONS = true;
+
+	/** Compiled expressions shared by all instances. */
+	public static final CompiledExpressionCache COMPILED_EXPRESSIONS = new CompiledExpressionCache(CompiledExpressionCache.DEFAULT_CAPACITY);
+
+	/** the compiled form of sExpression, or null if it was not compiled. */
+	protected CompiledExpression compiled = null;
 	
 	/**
 	 * Method SafsExpression.  Basic contstructor with no arguments.  Defaults sExpression to empty string.
@@ -206,7 +219,8 @@ public class SafsExpression {
 	}
 
 	/**
-	 * Method getQuoteLocs.  Accessor for the protected field vQuoteLocs
+	 * Method getQuoteLocs.  Accessor for the protected field vQuoteLocs.
+	 * The Vector may be shared with other instances and must not be modified.
 	 * @return Vector  {@link Integer} objects containing locations of the quotes (if any)
 	 */
 	public Vector getQuoteLocs() {
@@ -214,7 +228,8 @@ public class SafsExpression {
 	}
 
 	/**
-	 * Method getSubStrings.  Accessor for the protected field vSubStrings
+	 * Method getSubStrings.  Accessor for the protected field vSubStrings.
+	 * The Vector may be shared with other instances and must not be modified.
 	 * @return Vector  {@link String} objects containing quoted substrings of the expression (if any)
 	 */
 	public Vector getSubStrings() {
@@ -222,7 +237,8 @@ public class SafsExpression {
 	}
 
 	/**
-	 * Method getVariableNames.  Accessor for the protected field vVariableNames
+	 * Method getVariableNames.  Accessor for the protected field vVariableNames.
+	 * The Vector may be shared with other instances and must not be modified.
 	 * @return Vector  {@link String} objects that are the variables found within the expression sExpression
 	 */
 	public Vector getVariableNames() {
@@ -312,7 +328,8 @@ public class SafsExpression {
 	 */
 	public String evalExpression() {
 		/* simply a public interface that uses the member variable sExpression to evaluate */
-		String strResult = evalExpression(sExpression) ;
+		String strResult = (compiled != null && compiled.isCompiled()) ?
+				           evalCompiled(compiled) : evalExpression(sExpression) ;
 
 		// double quotes have special meaning and may be present in the result
 		// two consecutive double quotes represent a single literal double quote
@@ -346,11 +363,43 @@ public class SafsExpression {
 	}
 
 	/**
-	 * Method initData.  Initialize internal data fields and validate the expression
+	 * Method initData.  Initialize internal data fields and validate the expression.
+	 * Expressions compiled before are taken from {@link #COMPILED_EXPRESSIONS}.
 	 * @param sText  The SAFS string expression
 	 * @throws Exception  Error messages such as unmatched parentheses or illegal variable names
+	 * @see #USE_COMPILED_EXPRESSIONS
 	 */
 	protected void initData( String sText ) throws Exception {
+		compiled = null;
+		if(! USE_COMPILED_EXPRESSIONS) {
+			parseData(sText) ;
+			return;
+		}
+		CompiledExpression expr = COMPILED_EXPRESSIONS.get(sText) ;
+		if( expr == null ) {
+			// invalid expressions throw here and are never cached
+			parseData(sText) ;
+			expr = new CompiledExpression(sText, sExpression, vQuoteLocs, vSubStrings, vVariableNames) ;
+			COMPILED_EXPRESSIONS.put(expr) ;
+		} else {
+			if(debugPrint) Log.info("SAFSExpression reusing compiled: __"+ sText +"__");
+			booErrors = false ;
+			strErrors = "" ;
+			sExpression = expr.expression ;
+			iExpressionlength = sExpression.length() ;
+			vQuoteLocs = expr.quoteLocs ;
+			vSubStrings = expr.subStrings ;
+			vVariableNames = expr.variableNames ;
+		}
+		compiled = expr;
+	}
+
+	/**
+	 * Method parseData.  Parse the expression into the internal data fields and validate it.
+	 * @param sText  The SAFS string expression
+	 * @throws Exception  Error messages such as unmatched parentheses or illegal variable names
+	 */
+	protected void parseData( String sText ) throws Exception {
 		/* initialize the instance variables required when setting an expression */
 		if(debugPrint) Log.info("SAFSExpression initializing for: __"+ sText +"__");
 		booErrors = false ;
@@ -806,6 +855,38 @@ public class SafsExpression {
     	if(debugPrint) Log.info("SAFSExpression evalSimple returns: __"+ strResult +"__");
 		return strResult ;		
 	}
+
+	/**
+	 * Method evalCompiled.  Evaluate the operation tree of a compiled expression.
+	 * Produces the same result and variable assignments as evalExpression(String) does for the
+	 * expression text, without rewriting the text for each operation.
+	 * @param expr  The compiled expression, which must have a tree
+	 * @return String  The result of the evaluation
+	 * @see #evalExpression()
+	 */
+	protected String evalCompiled(CompiledExpression expr) {
+		if(debugPrint) Log.info("SAFSExpression evalCompiled processing: __"+ expr.expression +"__");
+		String strResult = evalNode(expr.root) ;
+		strResult = StringUtils.getTrimmedUnquotedStr(strResult);
+		for (int i = 0; i < expr.assignments.length; i++) {
+			String strVValue = decodeLiteralDoubleQuotes(strResult);
+			if(debugPrint) Log.info("SAFSExpression setting assignment var: "+ expr.assignments[i] +"="+strVValue);
+			setVarValue(expr.assignments[i],strVValue) ;
+		}
+		if(debugPrint) Log.info("SAFSExpression evalCompiled returns: __"+ strResult +"__");
+		return strResult ;
+	}
+
+	/**
+	 * Method evalNode.  Evaluate one node of an operation tree.
+	 * @return String  The operand, dereferenced if it is a variable, or the result of the operation
+	 */
+	private String evalNode(CompiledExpression.Node node) {
+		if( node.isOperand() ) return encodeDereferencedVariable(node.operand) ;
+		String strLeftOperand = evalNode(node.left) ;
+		String strRightOperand = evalNode(node.right) ;
+		return evalPrimative(strLeftOperand, String.valueOf(node.operator), strRightOperand) ;
+	}
 	
 
 	/**
@@ -0,0 +1,144 @@
+/** Copyright (C) (SAS) All rights reserved.
+ ** General Public License: http://www.opensource.org/licenses/gpl-license.php
+ **/
+package org.safs.tools.expression;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.safs.tools.vars.SimpleVarsInterface;
+
+/**
+ * Checks that {@link SafsExpression#evalCompiled(CompiledExpression)} returns the same result, and makes
+ * the same variable assignments, or throws the same exception, as {@link SafsExpression#evalExpression(String)}
+ * for every expression given an operation tree.  Listed expressions are followed by seeded random expressions.
+ * <p>
+ * Optional argument: the number of random expressions, default 20000.
+ */
+public class SafsExpressionTest {
+
+	/** variables kept in a Map, with SAFSVARS case-insensitive names. */
+	static class Vars implements SimpleVarsInterface {
+		Map<String,String> values = new HashMap<String,String>();
+		public String setValue(String var, String value){ values.put(var.toUpperCase(), value); return value; }
+		public String getValue(String var){
+			String value = values.get(var.toUpperCase());
+			return value==null? "": value;
+		}
+	}
+
+	static final String[][] VARIABLES = {
+		{"a", "2"}, {"b", "3"}, {"c", "-4"}, {"d", "1.5"}, {"text", "hello"}, {"spaced", " x y "}, {"empty", ""}, {"zero", "0"},
+	};
+
+	static final String[] EXPRESSIONS = {
+		"^a + ^b",
+		"^a * ^b + ^c",
+		"^a + ^b * ^c",
+		"^a - ^b - ^c",
+		"^a / ^b",
+		"^a % ^b",
+		"^d * 2",
+		"^a / ^zero",
+		"^text & \" world\"",
+		"^text & ^a + ^b",
+		"\"x\" & ^spaced & \"y\"",
+		"^empty & ^text",
+		"^undefined + 1",
+		"^undefined & \"z\"",
+		"^r = ^a + ^b",
+		"^r = ^s = ^a * ^b",
+		"^r=^text&\"!\"",
+		"^r = 7",
+		"^r = ^text",
+		"1 + 2 * 3",
+		"10 - 4 - 3",
+		"-3 + ^a",
+		"5 * -2",
+		"abc & def",
+		"  ^a  +  ^b  ",
+		"\"5\" + \"6\"",
+		"^a & ^b",
+		"1.10 + 2.20",
+		"0.5 * 4",
+		"007 + 1",
+	};
+
+	static final String[] OPERANDS = {
+		"^a", "^b", "^c", "^d", "^text", "^spaced", "^empty", "^zero", "^undefined",
+		"1", "0", "-2", "3.25", "10", "007", "\"q\"", "\" s p \"", "\"12\"", "word", "x1",
+	};
+	static final String[] OPERATORS = {"+", "-", "*", "/", "%", "&"};
+	static final String[] SPACES = {"", " ", "  "};
+
+	static int checked = 0;
+	static int trees = 0;
+	static int failures = 0;
+
+	static Vars newVars(){
+		Vars vars = new Vars();
+		for(int i=0;i<VARIABLES.length;i++) vars.setValue(VARIABLES[i][0], VARIABLES[i][1]);
+		return vars;
+	}
+
+	static void test(String expression, boolean print){
+		SafsExpression.USE_COMPILED_EXPRESSIONS = true;
+		Vars treeVars = newVars();
+		Vars stringVars = newVars();
+		SafsExpression tree = new SafsExpression(treeVars);
+		SafsExpression string = new SafsExpression(stringVars);
+		try{
+			tree.setExpression(expression);
+			string.setExpression(expression);
+		}catch(Exception x){
+			if(print) System.out.println("INVALID:'"+ expression +"' "+ x.getMessage());
+			return;
+		}
+		checked++;
+		if(tree.compiled==null || !tree.compiled.isCompiled()){
+			if(print) System.out.println("NO TREE:'"+ expression +"'");
+			return;
+		}
+		trees++;
+		String treeResult;
+		String stringResult;
+		try{ treeResult = tree.evalCompiled(tree.compiled); }
+		catch(RuntimeException x){ treeResult = x.toString(); }
+		try{ stringResult = string.evalExpression(string.sExpression); }
+		catch(RuntimeException x){ stringResult = x.toString(); }
+		boolean passed = treeResult.equals(stringResult) && treeVars.values.equals(stringVars.values);
+		if(!passed) failures++;
+		if(print || !passed){
+			System.out.println((passed?"PASSED:":"FAILED:")+"'"+ expression +"' ["+ treeResult +"]==["+ stringResult +"]"+
+			                   (treeVars.values.equals(stringVars.values)? "": " variables "+ treeVars.values +"=="+ stringVars.values));
+		}
+	}
+
+	static String randomExpression(Random random){
+		StringBuffer expression = new StringBuffer();
+		if(random.nextInt(4)==0){
+			expression.append("^r").append(SPACES[random.nextInt(SPACES.length)]).append('=');
+			expression.append(SPACES[random.nextInt(SPACES.length)]);
+		}
+		int operands = 1+ random.nextInt(4);
+		for(int i=0;i<operands;i++){
+			if(i>0){
+				expression.append(SPACES[random.nextInt(SPACES.length)]);
+				expression.append(OPERATORS[random.nextInt(OPERATORS.length)]);
+				expression.append(SPACES[random.nextInt(SPACES.length)]);
+			}
+			expression.append(OPERANDS[random.nextInt(OPERANDS.length)]);
+		}
+		return expression.toString();
+	}
+
+	public static void main(String[] args) {
+		int count = args.length>0 ? Integer.parseInt(args[0]): 20000;
+		for(int i=0;i<EXPRESSIONS.length;i++) test(EXPRESSIONS[i], true);
+		Random random = new Random(20161018L);
+		for(int i=0;i<count;i++) test(randomExpression(random), false);
+		System.out.println("Checked "+ checked +" expressions, "+ trees +" evaluated from a tree.");
+		System.out.println(failures==0? "All checks PASSED.": failures +" checks FAILED.");
+	}
+}
@@ -3,6 +3,9 @@
  **/
 package org.safs.tools.input;
 
+import java.util.Hashtable;
+import java.util.LinkedList;
+
 import org.safs.Log;
 import org.safs.STAFHelper;
 import org.safs.staf.service.InfoInterface;
@@ -39,6 +42,7 @@ import com.ibm.staf.STAFResult;
  * ;distinguish the STAF's version, and select the right class to load service
  * ;SERVICEJAR=C:\safs\lib\safsinput.jar
  * ;OPTIONS=
+ * ;NEXTBATCH=100
  * 
  * </pre><br>
  * Note those items commented with semicolons are only needed when using alternate values.</ul>
@@ -93,10 +97,24 @@ import com.ibm.staf.STAFResult;
  * We already handle sending the DIR parameter with the path obtained from 
  * the Driver.  Any other options needed for service initialization should be 
  * specified here.  There typically will be none.
+ * <p>
+ * <dt>NEXTBATCH
+ * <p><dd>
+ * The number of records to read ahead with each NEXTBATCH request to the service.
+ * The records are kept in a buffer for each input source and returned by nextRecord 
+ * without another request.  The buffer of a source is discarded by open, gotoStart, 
+ * gotoRecord, and close, and all buffers are discarded by reset.
+ * A gotoRecord made while records are buffered sends the line of the last record returned, 
+ * so the service searches from that record rather than from the end of the buffer.
+ * Set to 1 to send one NEXT request per record, as for a source shared with another 
+ * client of the service.  A service that does not support NEXTBATCH is also sent NEXT requests.
+ * <p>
+ * The default NEXTBATCH value is 100.
  * </dl>
  * @author CANAGL DEC 14, 2005 Refactored with DriverConfiguredSTAFInterface superclass
  * @author CANAGL JUN 17, 2014 Commencing support for embedded (non-STAF) services.
  * @author CANAGL JUL 16, 2014 Added NOSTAF support for the Embedded Service.
+ * @see org.safs.staf.service.input.AbstractSAFSInputService#SI_SERVICE_REQUEST_NEXTBATCH
  **/
 public class SAFSINPUT extends DriverConfiguredSTAFInterfaceClass implements InputInterface {
 
@@ -117,6 +135,31 @@ public class SAFSINPUT extends DriverConfiguredSTAFInterfaceClass implements Inp
 	 */
 	protected String classpath = "";
 
+	/**************************************************************
+	 * "NEXTBATCH" -- [SAFS_INPUT] item setting the number of records read ahead.
+	 */
+	public static final String ITEM_NEXTBATCH = "NEXTBATCH";
+
+	/**************************************************************
+	 * 100 -- default number of records read ahead.
+	 */
+	public static final int DEFAULT_NEXTBATCH = 100;
+
+	/**************************************************************
+	 * Number of records read ahead with each NEXTBATCH request.  1 sends NEXT requests.
+	 */
+	protected int batchsize = DEFAULT_NEXTBATCH;
+
+	/**************************************************************
+	 * Records read ahead, as a LinkedList of InputRecordInterface for each lowercase source id.
+	 */
+	protected Hashtable prefetch = new Hashtable();
+
+	/**************************************************************
+	 * Line number of the last record returned from the read-ahead buffer, as a Long for each lowercase source id.
+	 */
+	protected Hashtable served = new Hashtable();
+
 	/**************************************************************
 	 * Constructor for SAFSINPUT.
 	 * The object cannot do much of anything at all until the DriverInterface 
@@ -145,6 +188,15 @@ public class SAFSINPUT extends DriverConfiguredSTAFInterfaceClass implements Inp
 		
 		super.launchInterface(configInfo);
 
+		String batch = config.getNamedValue(DriverConstant.SECTION_SAFS_INPUT, ITEM_NEXTBATCH);
+		if (batch != null){
+			try{ batchsize = Math.max(1, Integer.parseInt(batch.trim())); }
+			catch(NumberFormatException x){
+				Log.info(servicename +": ignoring invalid "+ ITEM_NEXTBATCH +"="+ batch);
+			}
+		}
+		Log.debug("config."+ ITEM_NEXTBATCH +"="+ batchsize);
+
 		// see if SAFSINPUT is already running
 		// launch it if our config says AUTOLAUNCH=TRUE and it is not running
 		// otherwise don't AUTOLAUNCH it.
@@ -231,6 +283,8 @@ public class SAFSINPUT extends DriverConfiguredSTAFInterfaceClass implements Inp
 		//String info = (String) source.getSourceName();
 		String info = source.getSourcePath(driver);
 		if (info==null) info="";
+		prefetch.remove(id.toLowerCase());
+		served.remove(id.toLowerCase());
 		
 		STAFResult result = staf.submit2ForFormatUnchangedService(machine, 
 		                                 servicename, 
@@ -252,6 +306,14 @@ public class SAFSINPUT extends DriverConfiguredSTAFInterfaceClass implements Inp
 			Log.info(servicename +": STAF input error: "+ String.valueOf(result.rc) +":"+ record);
 			return new InputRecordInvalid();
 		}
+		return parseInputRecord(record);
+	}
+
+	/**
+	 * Return a valid InputRecordInfo object or an InputRecordInvalid object.
+	 * Parses one "linenum:data" record.
+	 */
+	protected InputRecordInterface parseInputRecord (String record){
 		
 		//this may never happen now..
 		if ( record == null) return new InputRecordInvalid();
@@ -282,6 +344,11 @@ public class SAFSINPUT extends DriverConfiguredSTAFInterfaceClass implements Inp
 		String id = (String)source.getUniqueID();
 		if (id==null) id="";
 
+		if (batchsize > 1){
+			InputRecordInterface record = nextBufferedRecord(id);
+			if (record != null) return record;
+		}
+
 		STAFResult result = staf.submit2ForFormatUnchangedService(machine, 
 		                                 servicename, 
 	                                    "NEXT " + staf.lentagValue(id));
@@ -290,6 +357,63 @@ public class SAFSINPUT extends DriverConfiguredSTAFInterfaceClass implements Inp
 	}
 
 
+	/**
+	 * Return the next record read ahead for the source, reading the next batch 
+	 * with a NEXTBATCH request when none are left.
+	 * @return the next record, or null if the service does not support NEXTBATCH.
+	 */
+	protected InputRecordInterface nextBufferedRecord(String id){
+		String key = id.toLowerCase();
+		LinkedList records = (LinkedList) prefetch.get(key);
+		if (records == null || records.isEmpty()){
+			STAFResult result = staf.submit2ForFormatUnchangedService(machine, 
+			                                 servicename, 
+		                                    "NEXTBATCH " + staf.lentagValue(id) +
+		                                    " COUNT " + batchsize);
+			if (result.rc == STAFResult.InvalidRequestString){
+				Log.info(servicename +": NEXTBATCH is not supported, reading one record at a time.");
+				batchsize = 1;
+				return null;
+			}
+			if (result.rc != STAFResult.Ok) return parseInputRecord(result);
+			records = parseInputBatch(result.result);
+			//EOF
+			if (records.isEmpty()) return parseInputRecord(result);
+			prefetch.put(key, records);
+		}
+		InputRecordInterface record = (InputRecordInterface) records.removeFirst();
+		if (record.isValid()) served.put(key, Long.valueOf(record.getRecordNumber()));
+		return record;
+	}
+
+	/**
+	 * Parse the reply to a NEXTBATCH request: records in STAF lentag format, :len:linenum:data
+	 * @return LinkedList of InputRecordInterface, empty if the reply is not in lentag format, as for EOF.
+	 */
+	protected LinkedList parseInputBatch(String batch){
+		LinkedList records = new LinkedList();
+		if (batch == null) return records;
+		int index = 0;
+		while(index < batch.length()){
+			int sep = batch.indexOf(':', index+1);
+			int length = -1;
+			if (batch.charAt(index)==':' && sep > index+1){
+				try{ length = Integer.parseInt(batch.substring(index+1, sep)); }
+				catch(NumberFormatException nfe){}
+			}
+			if (length < 0 || sep+1+length > batch.length()){
+				if (!records.isEmpty()){
+					Log.info(servicename +": invalid NEXTBATCH record at "+ index);
+					records.add(new InputRecordInvalid());
+				}
+				break;
+			}
+			records.add(parseInputRecord(batch.substring(sep+1, sep+1+length)));
+			index = sep+1+length;
+		}
+		return records;
+	}
+
 	/**
 	 * Goto the beginning of the specified input source.
 	 * <p>
@@ -298,6 +422,8 @@ public class SAFSINPUT extends DriverConfiguredSTAFInterfaceClass implements Inp
 	public boolean gotoStart(UniqueIDInterface source) {
 		String id = (String)source.getUniqueID();
 		if (id==null) id="";
+		prefetch.remove(id.toLowerCase());
+		served.remove(id.toLowerCase());
 
 		STAFResult result = staf.submit2ForFormatUnchangedService(machine, 
 		                                 servicename, 
@@ -319,6 +445,14 @@ public class SAFSINPUT extends DriverConfiguredSTAFInterfaceClass implements Inp
 
 		String id = (String) recordInfo.getUniqueID();
 		String sep = recordInfo.getSeparator();
+		// the service has read past the buffered records: search from the last record returned
+		String line = "";
+		if (id != null){
+			LinkedList records = (LinkedList) prefetch.remove(id.toLowerCase());
+			Long last = (Long) served.remove(id.toLowerCase());
+			if (records != null && !records.isEmpty() && last != null) 
+				line = " LINE "+ staf.lentagValue(last.toString());
+		}
 		
 		if (recordInfo instanceof UniqueRecordNumInterface){
 			recnum = (UniqueRecordNumInterface) recordInfo;
@@ -338,7 +472,7 @@ public class SAFSINPUT extends DriverConfiguredSTAFInterfaceClass implements Inp
 		                                 servicename, 
 	                                    "GOTO " + staf.lentagValue(id) +
 	                                    " LOCATE " + staf.lentagValue(val) +
-	                                    " SEPARATOR "+ staf.lentagValue(sep));
+	                                    " SEPARATOR "+ staf.lentagValue(sep) + line);
 
 		return parseInputRecord(result);
 	}
@@ -352,6 +486,8 @@ public class SAFSINPUT extends DriverConfiguredSTAFInterfaceClass implements Inp
 
 		String id = (String)source.getUniqueID();
 		if (id==null) id="";
+		prefetch.remove(id.toLowerCase());
+		served.remove(id.toLowerCase());
 
 		STAFResult result = staf.submit2ForFormatUnchangedService(machine, 
 		                                 servicename, 
@@ -365,6 +501,8 @@ public class SAFSINPUT extends DriverConfiguredSTAFInterfaceClass implements Inp
 	 */
 	public void reset() {
 
+		prefetch.clear();
+		served.clear();
 		STAFResult result = staf.submit2ForFormatUnchangedService(machine, 
 		                                 servicename, 
 		                                "RESET");
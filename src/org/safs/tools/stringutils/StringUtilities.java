@@ -665,6 +665,49 @@ public abstract class StringUtilities {
 		return input;
 	}
 	
+	/**
+	 * Pack an array of fields into a single string of STAF-style length-tagged values:
+	 * ":len:value:len:value...".  Empty and null fields are packed as ":0:".
+	 * @param fields the values to pack.
+	 * @return the packed string.  An empty string if fields is null or empty.
+	 * @see #unpackLentagFields(String)
+	 */
+	public static String packLentagFields(String[] fields){
+		StringBuffer packed = new StringBuffer();
+		if(fields == null) return packed.toString();
+		for(int i=0;i<fields.length;i++){
+			String field = (fields[i]==null) ? "" : fields[i];
+			packed.append(':').append(field.length()).append(':').append(field);
+		}
+		return packed.toString();
+	}
+
+	/**
+	 * Unpack a string created by {@link #packLentagFields(String[])} back into its fields.
+	 * @param packed the string of length-tagged values.
+	 * @return the unpacked fields, or null if the string is not validly packed.
+	 *         An empty or null string returns an empty array.
+	 */
+	public static String[] unpackLentagFields(String packed){
+		Vector fields = new Vector();
+		if(packed == null) return new String[0];
+		int index = 0;
+		try{
+			while(index < packed.length()){
+				if(packed.charAt(index) != ':') return null;
+				int colon = packed.indexOf(':', index+1);
+				if(colon < 0) return null;
+				int len = Integer.parseInt(packed.substring(index+1, colon));
+				index = colon+1+len;
+				fields.addElement(packed.substring(colon+1, index));
+			}
+		}catch(NumberFormatException x){ return null;
+		}catch(IndexOutOfBoundsException x){ return null;}
+		String[] result = new String[fields.size()];
+		fields.copyInto(result);
+		return result;
+	}
+
 	/**
 	 * Method spacePad.  Returns a string consisting of spaces of length ipad
 	 * @param ipad
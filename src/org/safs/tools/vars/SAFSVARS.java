@@ -12,6 +12,7 @@ import org.safs.staf.service.var.EmbeddedVariableService;
 import org.safs.tools.drivers.DriverConfiguredSTAFInterfaceClass;
 import org.safs.STAFHelper;
 import org.safs.tools.drivers.DriverConstant;
+import org.safs.tools.drivers.DriverControl;
 import org.safs.tools.drivers.DriverInterface;
 import org.safs.tools.expression.*;
 import org.safs.tools.stringutils.StringUtilities;
@@ -145,6 +146,16 @@ public class SAFSVARS extends DriverConfiguredSTAFInterfaceClass
 	
 	protected SafsExpression se ;
 	
+	/** the SAFS_DRIVER_CONTROL status of the driver using this interface, or null. */
+	protected DriverControl driverControl = null;
+	
+	/**
+	 * Push each SAFS_DRIVER_CONTROL set through this interface to the driver, and have the driver read
+	 * SAFSVARS again after a record naming SAFS_DRIVER_CONTROL is resolved.
+	 * @param control DriverControl of the driver, or null to stop.
+	 */
+	public void setDriverControl(DriverControl control){ driverControl = control; }
+	
 	/**
 	 * Constructor for SAFSVARS
 	 */
@@ -302,6 +313,8 @@ public class SAFSVARS extends DriverConfiguredSTAFInterfaceClass
 			
 		    String     request = "RESOLVE "+staf.lentagValue(_ddv_record)+" SEPARATOR "+staf.lentagValue(sep) + NOEXPRESSIONS;
 		    STAFResult result  = staf.submit2ForFormatUnchangedService(machine,servicename,request);		    
+		    //the record may have assigned SAFS_DRIVER_CONTROL, which must be named literally
+		    if(driverControl!=null && record.toUpperCase().indexOf(DriverInterface.DRIVER_CONTROL_VAR)>-1) driverControl.clear();
 		    if (result.rc==STAFResult.Ok) 
 		        // remove leading "0:"
 		    	return result.result.substring(2);
@@ -325,6 +338,7 @@ public class SAFSVARS extends DriverConfiguredSTAFInterfaceClass
 		 {
 		   String     request = "SET "+staf.lentagValue(var)+" Value "+staf.lentagValue(value);
 		   STAFResult result  = staf.submit2ForFormatUnchangedService(machine,servicename,request);
+		   if(driverControl!=null && var.equalsIgnoreCase(DriverInterface.DRIVER_CONTROL_VAR)) driverControl.post(value);
 		   return value;
          }
         else